@@ -0,0 +1,56 @@
+package com.example.paymentgateway.admission;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of an admission decision. Rate limiter keys are drawn uniformly from a key space of increasing size, up to
+ * more keys than the limiter table holds, so the larger runs also exercise slot takeover.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AdmissionBenchmark {
+
+    @Param({"1", "1000", "100000", "500000"})
+    public int keys;
+
+    private String[] merchantIds;
+    private GcraRateLimiter rateLimiter;
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        merchantIds = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            merchantIds[i] = "merchant-" + i;
+        }
+        rateLimiter = new GcraRateLimiter(1_000, 2_000, 262_144);
+        concurrencyLimiter = new AdaptiveConcurrencyLimiter(1_000, 10, 10_000, Duration.ofSeconds(1), 0.9);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long rateLimitSingleThread() {
+        return rateLimiter.tryAcquire(merchantIds[ThreadLocalRandom.current().nextInt(keys)]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long rateLimitContended() {
+        return rateLimiter.tryAcquire(merchantIds[ThreadLocalRandom.current().nextInt(keys)]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean concurrencyLimitContended() {
+        boolean acquired = concurrencyLimiter.tryAcquire();
+        if (acquired) {
+            concurrencyLimiter.onSuccess(1_000_000);
+        }
+        return acquired;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.paymentgateway.aggregate;
+
+import com.example.paymentgateway.dto.PaymentAggregateResponse;
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
+import com.example.paymentgateway.persistence.PaymentStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PaymentAggregatorBenchmark {
+
+    private static final Money[] AMOUNTS = {
+            Money.ofMinor(10050, CurrencyUnit.USD),
+            Money.ofMinor(10050, CurrencyUnit.EUR),
+            Money.ofMinor(10050, CurrencyUnit.of("GBP")),
+            Money.ofMinor(10050, CurrencyUnit.of("JPY"))};
+    private static final PaymentStatus[] STATUSES = {PaymentStatus.AUTHORIZED, PaymentStatus.AUTHORIZED, PaymentStatus.AUTHORIZED, PaymentStatus.FAILED};
+
+    private final PaymentAggregator paymentAggregator = new PaymentAggregator(64, System::currentTimeMillis);
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void recordSingleThread(Cursor cursor) {
+        record(cursor);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void recordContended(Cursor cursor) {
+        record(cursor);
+    }
+
+    @Benchmark
+    public List<PaymentAggregateResponse> readOneHour() {
+        return paymentAggregator.aggregates(AggregateWindow.ONE_HOUR);
+    }
+
+    private void record(Cursor cursor) {
+        int next = cursor.next++;
+        paymentAggregator.record(AMOUNTS[next & 3], STATUSES[(next >>> 2) & 3]);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.paymentgateway.archive;
+
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
+import com.example.paymentgateway.persistence.Payment;
+import com.example.paymentgateway.persistence.PaymentStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of looking up an archived payment by identifier in a full-size segment, which is what a details request for
+ * a cold payment pays on top of the table miss, against the block size that trades file size for inflate work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PaymentSegmentBenchmark {
+
+    private static final int ROWS = 65_536;
+
+    @Param({"256", "1024", "4096"})
+    public int blockRows;
+
+    private Path directory;
+    private PaymentSegment segment;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Instant createdAt = Instant.parse("2024-01-01T00:00:00Z");
+        List<Payment> payments = new ArrayList<>(ROWS);
+        ids = new long[ROWS];
+        long id = 1L << 22;
+        for (int i = 0; i < ROWS; i++) {
+            id += 1 + ThreadLocalRandom.current().nextInt(1 << 12);
+            ids[i] = id;
+            payments.add(Payment.builder()
+                    .id(id)
+                    .version(1L)
+                    .cardToken("tok_" + Long.toHexString(ThreadLocalRandom.current().nextLong()))
+                    .cardBin("411111")
+                    .cardLast4(String.format("%04d", i % 10_000))
+                    .maskedCardNumber(String.format("XXXX-XXXX-XXXX-%04d", i % 10_000))
+                    .expiryMonth("12")
+                    .expiryYear("2030")
+                    .amount(Money.ofMinor(100 + ThreadLocalRandom.current().nextInt(1_000_000), CurrencyUnit.USD))
+                    .status(i % 10 == 0 ? PaymentStatus.FAILED : PaymentStatus.CAPTURED)
+                    .idempotencyKey("key-" + id)
+                    .merchantId("merchant-" + i % 100)
+                    .createdAt(createdAt.plusMillis(i * 50L))
+                    .build());
+        }
+        directory = Files.createTempDirectory("payment-segments");
+        Path path = directory.resolve("payments.seg");
+        PaymentSegmentWriter.write(path, 0, payments, blockRows);
+        segment = PaymentSegment.open(path);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        segment.close();
+        Files.deleteIfExists(segment.getPath());
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public Optional<Payment> find() {
+        return segment.find(ids[ThreadLocalRandom.current().nextInt(ROWS)]);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.paymentgateway.dto;
+
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PaymentJsonBenchmark {
+
+    private ObjectReader requestReader;
+    private ObjectWriter responseWriter;
+    private ObjectWriter detailsWriter;
+    private byte[] requestJson;
+    private PaymentResponse response;
+    private PaymentDetailsResponse details;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        requestReader = objectMapper.readerFor(PaymentRequest.class);
+        responseWriter = objectMapper.writerFor(PaymentResponse.class);
+        detailsWriter = objectMapper.writerFor(PaymentDetailsResponse.class);
+
+        requestJson = objectMapper.writeValueAsBytes(
+                new PaymentRequest("4242424242424242", "12", "2030", "123", new BigDecimal("100.50"), "USD", UUID.randomUUID().toString()));
+        response = new PaymentResponse("123456", "AUTHORIZED", "Payment processed successfully.");
+        details = new PaymentDetailsResponse("123456", "XXXX-XXXX-XXXX-1112", "12", "2030", Money.ofMinor(10050, CurrencyUnit.USD), "USD", "AUTHORIZED");
+    }
+
+    @Benchmark
+    public PaymentRequest deserializePaymentRequest() throws IOException {
+        return requestReader.readValue(requestJson);
+    }
+
+    @Benchmark
+    public byte[] serializePaymentResponse() throws IOException {
+        return responseWriter.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] serializePaymentDetailsResponse() throws IOException {
+        return detailsWriter.writeValueAsBytes(details);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.paymentgateway.dto;
+
+import com.example.paymentgateway.validation.PaymentRequestValidator;
+import com.example.paymentgateway.validation.impl.PaymentRequestValidatorImpl;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares Bean Validation of a payment request with the hand-written validator used on the request path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PaymentRequestValidationBenchmark {
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private PaymentRequestValidator paymentRequestValidator;
+    private PaymentRequest validRequest;
+    private PaymentRequest invalidRequest;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        paymentRequestValidator = new PaymentRequestValidatorImpl();
+        validRequest = new PaymentRequest("4242424242424242", "12", "2030", "123", new BigDecimal("100.50"), "USD", UUID.randomUUID().toString());
+        invalidRequest = new PaymentRequest("41111111", "13", "1999", "12", new BigDecimal("-1.0"), "", UUID.randomUUID().toString());
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<PaymentRequest>> validRequest() {
+        return validator.validate(validRequest);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<PaymentRequest>> invalidRequest() {
+        return validator.validate(invalidRequest);
+    }
+
+    @Benchmark
+    public Map<String, String> validRequestHandWritten() {
+        return paymentRequestValidator.validate(validRequest);
+    }
+
+    @Benchmark
+    public Map<String, String> invalidRequestHandWritten() {
+        return paymentRequestValidator.validate(invalidRequest);
+    }
+}
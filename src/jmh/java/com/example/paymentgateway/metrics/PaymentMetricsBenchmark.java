@@ -0,0 +1,57 @@
+package com.example.paymentgateway.metrics;
+
+import com.example.paymentgateway.cache.PaymentDetailsCache;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost the payment meters add to each request, under contention, against a bare clock read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(4)
+public class PaymentMetricsBenchmark {
+
+    private PaymentMetrics paymentMetrics;
+
+    @Setup
+    public void setUp() {
+        paymentMetrics = new PaymentMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT),
+                new PaymentDetailsCache(1000, Duration.ofMinutes(5)));
+    }
+
+    @Benchmark
+    public long baselineClockRead() {
+        return System.nanoTime() - System.nanoTime();
+    }
+
+    @Benchmark
+    public void recordStage() {
+        paymentMetrics.recordSince(PaymentMetrics.Stage.BANK_CALL, System.nanoTime());
+    }
+
+    @Benchmark
+    public void recordOutcome() {
+        paymentMetrics.recordOutcome(PaymentMetrics.Outcome.SUCCESS);
+    }
+
+    /**
+     * Everything recorded for one new payment: in-flight gauge, three stage timers, the total timer and an outcome.
+     */
+    @Benchmark
+    public void recordFullPayment() {
+        long startedAt = System.nanoTime();
+        paymentMetrics.paymentStarted();
+        paymentMetrics.recordSince(PaymentMetrics.Stage.IDEMPOTENCY_LOOKUP, System.nanoTime());
+        paymentMetrics.recordSince(PaymentMetrics.Stage.BANK_CALL, System.nanoTime());
+        paymentMetrics.recordOutcome(PaymentMetrics.Outcome.SUCCESS);
+        paymentMetrics.recordSince(PaymentMetrics.Stage.PERSISTENCE, System.nanoTime());
+        paymentMetrics.paymentFinished();
+        paymentMetrics.recordSince(PaymentMetrics.Stage.PROCESS_PAYMENT, startedAt);
+    }
+}
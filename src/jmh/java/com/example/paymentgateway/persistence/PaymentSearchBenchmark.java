@@ -0,0 +1,81 @@
+package com.example.paymentgateway.persistence;
+
+import com.example.paymentgateway.dto.PaymentSummary;
+import com.example.paymentgateway.support.BenchmarkContexts;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Page latency of the keyset payment search on tables of increasing size. The table lives in an H2 file database
+ * so that ten million rows do not have to fit in the benchmark heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class PaymentSearchBenchmark {
+
+    private static final Instant BASE = Instant.parse("2024-01-01T00:00:00Z");
+    private static final int MERCHANTS = 100;
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"100000", "1000000", "10000000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private PaymentRepository paymentRepository;
+    private PaymentSearchCriteria merchantCriteria;
+    private PaymentSearchCriteria filteredCriteria;
+    private PaymentCursor deepCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start(BenchmarkContexts.H2,
+                "spring.datasource.url=jdbc:h2:file:./build/jmh-search/payments-" + System.nanoTime());
+        paymentRepository = context.getBean(PaymentRepository.class);
+
+        context.getBean(JdbcTemplate.class).update("""
+                insert into payment (id, version, merchant_id, created_at, status, currency, amount_minor, masked_card_number, expiry_month, expiry_year, idempotency_key)
+                select x, 0, 'merchant-' || mod(x, ?), dateadd(SECOND, x, timestamp with time zone '2024-01-01 00:00:00+00'),
+                       case mod(x, 3) when 0 then 'F' else 'A' end, 'USD', mod(x, 1000) * 100 + 50,
+                       'XXXX-XXXX-XXXX-1112', '12', '2030', 'key-' || x
+                from system_range(1, ?)""", MERCHANTS, rows);
+
+        merchantCriteria = PaymentSearchCriteria.builder().merchantId("merchant-7").build();
+        filteredCriteria = PaymentSearchCriteria.builder()
+                .merchantId("merchant-7")
+                .status(PaymentStatus.FAILED)
+                .from(BASE)
+                .to(BASE.plusSeconds(rows / 2))
+                .build();
+        // A cursor halfway through the merchant's payments, where an OFFSET query would skip rows/200 entries
+        long middle = rows / 2 / MERCHANTS * MERCHANTS + 7;
+        deepCursor = new PaymentCursor(BASE.plusSeconds(middle), middle);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<PaymentSummary> firstPage() {
+        return paymentRepository.search(merchantCriteria, null, PAGE_SIZE + 1);
+    }
+
+    @Benchmark
+    public List<PaymentSummary> deepPage() {
+        return paymentRepository.search(merchantCriteria, deepCursor, PAGE_SIZE + 1);
+    }
+
+    @Benchmark
+    public List<PaymentSummary> filteredPage() {
+        return paymentRepository.search(filteredCriteria, null, PAGE_SIZE + 1);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.paymentgateway.persistence;
+
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
+import com.example.paymentgateway.support.BenchmarkContexts;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write throughput of the payment store as the number of shards grows. Each shard is its own in-memory H2
+ * database with its own write-behind flusher, standing in for a database node.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ShardedWriteBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int shards;
+
+    private final AtomicLong keys = new AtomicLong();
+    private final String keyPrefix = UUID.randomUUID() + "-";
+
+    private ConfigurableApplicationContext context;
+    private PaymentWriter paymentWriter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start(BenchmarkContexts.H2,
+                "payment.sharding.shards=" + shards,
+                "payment.sharding.url-template=jdbc:h2:mem:jmh-shard-" + System.nanoTime() + "-%d");
+        paymentWriter = context.getBean(PaymentWriter.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Payment writeAndAwait() {
+        return paymentWriter.writeAndAwait(Payment.builder()
+                .cardToken("tok_benchmark")
+                .maskedCardNumber("XXXX-XXXX-XXXX-4242")
+                .expiryMonth("12")
+                .expiryYear("2030")
+                .amount(Money.ofMinor(10_050, CurrencyUnit.USD))
+                .status(PaymentStatus.AUTHORIZED)
+                .idempotencyKey(keyPrefix + keys.incrementAndGet())
+                .merchantId("merchant-1")
+                .createdAt(Instant.now())
+                .build());
+    }
+}
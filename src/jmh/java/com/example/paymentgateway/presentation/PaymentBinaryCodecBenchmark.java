@@ -0,0 +1,54 @@
+package com.example.paymentgateway.presentation;
+
+import com.example.paymentgateway.dto.PaymentDetailsResponse;
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.dto.PaymentResponse;
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The binary counterpart of {@code PaymentJsonBenchmark}, on the same messages; encoding reuses the codec buffer as
+ * {@link PaymentBinaryHttpMessageConverter} does. On the wire the request is 76 bytes against 173 in JSON, which
+ * {@code PaymentBinaryCodecTest} keeps in check.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PaymentBinaryCodecBenchmark {
+
+    private PaymentBinaryCodec codec;
+    private byte[] requestBinary;
+    private PaymentResponse response;
+    private PaymentDetailsResponse details;
+
+    @Setup
+    public void setUp() {
+        codec = new PaymentBinaryCodec(512);
+        int length = codec.encode(
+                new PaymentRequest("4242424242424242", "12", "2030", "123", new BigDecimal("100.50"), "USD", UUID.randomUUID().toString()));
+        requestBinary = Arrays.copyOf(codec.buffer(), length);
+        response = new PaymentResponse("123456", "AUTHORIZED", "Payment processed successfully.");
+        details = new PaymentDetailsResponse("123456", "XXXX-XXXX-XXXX-1112", "12", "2030", Money.ofMinor(10050, CurrencyUnit.USD), "USD", "AUTHORIZED");
+    }
+
+    @Benchmark
+    public PaymentRequest deserializePaymentRequest() {
+        return PaymentBinaryCodec.decode(PaymentRequest.class, requestBinary, 0, requestBinary.length);
+    }
+
+    @Benchmark
+    public int serializePaymentResponse() {
+        return codec.encode(response);
+    }
+
+    @Benchmark
+    public int serializePaymentDetailsResponse() {
+        return codec.encode(details);
+    }
+}
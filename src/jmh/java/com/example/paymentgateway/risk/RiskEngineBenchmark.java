@@ -0,0 +1,71 @@
+package com.example.paymentgateway.risk;
+
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.risk.impl.VelocityRiskEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Cost of screening a payment with the default sketch sizes and a handful of rules, as the number of distinct cards
+ * grows past the sketch width. The budget is 50 microseconds per payment at peak load.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RiskEngineBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int cards;
+
+    private PaymentRequest[] requests;
+    private RiskEngine riskEngine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Requests are capped to bound the benchmark's memory; each still names a card drawn from the whole range
+        requests = new PaymentRequest[Math.min(cards, 100_000)];
+        for (int i = 0; i < requests.length; i++) {
+            int card = ThreadLocalRandom.current().nextInt(cards);
+            requests[i] = new PaymentRequest(String.format("4%06d%09d", card % 1_000_000, card), "12", "2030", "123",
+                    BigDecimal.valueOf(100 + i % 5000, 2), i % 3 == 0 ? "EUR" : "USD", "key-" + i + "-" + card);
+        }
+
+        RiskProperties properties = new RiskProperties();
+        properties.setRules(List.of(
+                rule("card-testing", 100, definition -> definition.setCardCountAbove(5)),
+                rule("bin-burst", 40, definition -> definition.setBinCountAbove(1_000)),
+                rule("key-prefix-burst", 40, definition -> definition.setKeyPrefixCountAbove(50)),
+                rule("large-amount", 30, definition -> definition.setAmountAbove(new BigDecimal("10000"))),
+                rule("outlier", 50, definition -> definition.setAmountAboveAverage(20.0)),
+                rule("eur-velocity", 60, definition -> {
+                    definition.setCurrencies(List.of("EUR"));
+                    definition.setCardCountAbove(3);
+                })));
+        riskEngine = new VelocityRiskEngine(properties);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public RiskAssessment assessSingleThread() {
+        return riskEngine.assess(requests[ThreadLocalRandom.current().nextInt(requests.length)]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public RiskAssessment assessContended() {
+        return riskEngine.assess(requests[ThreadLocalRandom.current().nextInt(requests.length)]);
+    }
+
+    private static RiskRuleDefinition rule(String name, int score, Consumer<RiskRuleDefinition> conditions) {
+        RiskRuleDefinition definition = new RiskRuleDefinition();
+        definition.setName(name);
+        definition.setScore(score);
+        conditions.accept(definition);
+        return definition;
+    }
+}
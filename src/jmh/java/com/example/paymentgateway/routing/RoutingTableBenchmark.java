@@ -0,0 +1,63 @@
+package com.example.paymentgateway.routing;
+
+import com.example.paymentgateway.dto.RouteDefinition;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RoutingTableBenchmark {
+
+    private static final String[] CURRENCIES = {"USD", "EUR", "GBP", "JPY", "CHF"};
+
+    @Param({"100", "10000"})
+    public int routeCount;
+
+    private RoutingTable routingTable;
+    private AcquirerHealth[] health;
+    private String[] cardNumbers;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        Map<String, Integer> acquirers = new HashMap<>();
+        health = new AcquirerHealth[4];
+        for (int i = 0; i < health.length; i++) {
+            acquirers.put("acquirer-" + i, i);
+            health[i] = new AcquirerHealth("acquirer-" + i);
+            health[i].onStart();
+            health[i].onComplete(1_000_000L * (i + 1), false);
+        }
+
+        // Overlapping ranges across the 6-digit BIN space, each served by two acquirers
+        List<RouteDefinition> routes = new ArrayList<>();
+        int width = 1_000_000 / routeCount;
+        for (int i = 0; i < routeCount; i++) {
+            String from = String.format("%06d", i * width);
+            String to = String.format("%06d", Math.min(999_999, (i + 2) * width - 1));
+            List<String> currencies = List.of(CURRENCIES[i % CURRENCIES.length], CURRENCIES[(i + 1) % CURRENCIES.length]);
+            routes.add(new RouteDefinition("acquirer-" + i % health.length, from, to, currencies, i % 2));
+            routes.add(new RouteDefinition("acquirer-" + (i + 1) % health.length, from, to, List.of(), 1));
+        }
+        routingTable = RoutingTable.compile(routes, acquirers);
+
+        cardNumbers = new String[1024];
+        for (int i = 0; i < cardNumbers.length; i++) {
+            cardNumbers[i] = String.format("%016d", random.nextLong(1_000_000_000_000_000L, 10_000_000_000_000_000L));
+        }
+    }
+
+    @Benchmark
+    public int selectRoute() {
+        String cardNumber = cardNumbers[next++ & (cardNumbers.length - 1)];
+        return routingTable.select(cardNumber, CURRENCIES[next % CURRENCIES.length], health);
+    }
+}
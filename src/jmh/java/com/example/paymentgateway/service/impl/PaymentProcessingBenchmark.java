@@ -0,0 +1,77 @@
+package com.example.paymentgateway.service.impl;
+
+import com.example.paymentgateway.cache.PaymentDetailsCache;
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.dto.PaymentResponse;
+import com.example.paymentgateway.dto.PaymentDetailsResponse;
+import com.example.paymentgateway.service.PaymentProcessingService;
+import com.example.paymentgateway.support.BenchmarkContexts;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PaymentProcessingBenchmark {
+
+    @Param({BenchmarkContexts.IN_MEMORY, BenchmarkContexts.H2})
+    public String store;
+
+    private final AtomicLong keys = new AtomicLong();
+    private final String keyPrefix = UUID.randomUUID() + "-";
+
+    private ConfigurableApplicationContext context;
+    private PaymentProcessingService paymentProcessingService;
+    private PaymentDetailsCache paymentDetailsCache;
+    private PaymentRequest replayRequest;
+    private String storedPaymentId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start(store);
+        paymentProcessingService = context.getBean(PaymentProcessingService.class);
+        paymentDetailsCache = context.getBean(PaymentDetailsCache.class);
+
+        replayRequest = request(keyPrefix + "replay");
+        storedPaymentId = paymentProcessingService.processPayment(replayRequest).getPaymentId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public PaymentResponse processNewPayment() {
+        return paymentProcessingService.processPayment(request(keyPrefix + keys.incrementAndGet()));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public PaymentResponse processIdempotentReplay() {
+        return paymentProcessingService.processPayment(replayRequest);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public PaymentDetailsResponse retrievePaymentDetails() {
+        return paymentProcessingService.retrievePaymentDetails(storedPaymentId);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public PaymentDetailsResponse retrievePaymentDetailsUncached() {
+        paymentDetailsCache.invalidate(Long.parseLong(storedPaymentId));
+        return paymentProcessingService.retrievePaymentDetails(storedPaymentId);
+    }
+
+    private static PaymentRequest request(String idempotencyKey) {
+        return new PaymentRequest("4242424242424242", "12", "2030", "123", new BigDecimal("100.50"), "USD", idempotencyKey);
+    }
+}
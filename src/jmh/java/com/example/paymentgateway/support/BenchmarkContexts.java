@@ -0,0 +1,53 @@
+package com.example.paymentgateway.support;
+
+import com.example.paymentgateway.PaymentGatewayApplication;
+import com.example.paymentgateway.persistence.PaymentRepository;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Starts the application without a web server for benchmarks, backed either by H2 or by the in-memory
+ * repository stand-in.
+ */
+public final class BenchmarkContexts {
+
+    public static final String IN_MEMORY = "in-memory";
+    public static final String H2 = "h2";
+
+    private BenchmarkContexts() {
+    }
+
+    public static ConfigurableApplicationContext start(String store, String... properties) {
+        List<Class<?>> sources = new ArrayList<>(List.of(PaymentGatewayApplication.class));
+        if (IN_MEMORY.equals(store)) {
+            sources.add(InMemoryRepositoryConfiguration.class);
+        }
+        List<String> allProperties = new ArrayList<>(List.of(
+                "spring.datasource.url=jdbc:h2:mem:benchmark-" + System.nanoTime(),
+                "spring.jpa.show-sql=false",
+                "logging.level.root=WARN"));
+        allProperties.addAll(Arrays.asList(properties));
+        return new SpringApplicationBuilder(sources.toArray(Class<?>[]::new))
+                .web(WebApplicationType.NONE)
+                .properties(allProperties.toArray(String[]::new))
+                .run();
+    }
+
+    @Configuration
+    static class InMemoryRepositoryConfiguration {
+
+        @Bean
+        @Primary
+        PaymentRepository inMemoryPaymentRepository() {
+            return new InMemoryPaymentRepository();
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.example.paymentgateway.support;
+
+import com.example.paymentgateway.dto.PaymentExportRow;
+import com.example.paymentgateway.dto.PaymentSummary;
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.persistence.IdempotencyKeyView;
+import com.example.paymentgateway.persistence.Payment;
+import com.example.paymentgateway.persistence.PaymentCursor;
+import com.example.paymentgateway.persistence.PaymentRepository;
+import com.example.paymentgateway.persistence.PaymentSearchCriteria;
+import com.example.paymentgateway.persistence.PaymentStatus;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.query.FluentQuery;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Map-backed stand-in for {@link PaymentRepository}, used to benchmark the service without database cost. Every
+ * method the application calls is implemented; only sorting by arbitrary properties and query by example are not.
+ */
+public final class InMemoryPaymentRepository implements PaymentRepository {
+
+    private static final Comparator<Payment> CREATION_ORDER = Comparator.comparing(Payment::getCreatedAt)
+            .thenComparing(Payment::getId);
+
+    private final NavigableMap<Long, Payment> paymentsById = new ConcurrentSkipListMap<>();
+    private final Map<String, Payment> paymentsByIdempotencyKey = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Override
+    public <S extends Payment> S save(S payment) {
+        if (payment.getId() == null) {
+            payment.setId(sequence.incrementAndGet());
+        }
+        paymentsById.put(payment.getId(), payment);
+        paymentsByIdempotencyKey.put(payment.getIdempotencyKey(), payment);
+        return payment;
+    }
+
+    @Override
+    public <S extends Payment> List<S> saveAll(Iterable<S> payments) {
+        List<S> saved = new ArrayList<>();
+        for (S payment : payments) {
+            saved.add(save(payment));
+        }
+        return saved;
+    }
+
+    @Override
+    public <S extends Payment> S saveAndFlush(S payment) {
+        return save(payment);
+    }
+
+    @Override
+    public <S extends Payment> List<S> saveAllAndFlush(Iterable<S> payments) {
+        return saveAll(payments);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public Optional<Payment> findById(Long id) {
+        return Optional.ofNullable(paymentsById.get(id));
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return paymentsById.containsKey(id);
+    }
+
+    @Override
+    public List<Payment> findAll() {
+        return new ArrayList<>(paymentsById.values());
+    }
+
+    @Override
+    public List<Payment> findAllById(Iterable<Long> ids) {
+        List<Payment> found = new ArrayList<>();
+        for (Long id : ids) {
+            findById(id).ifPresent(found::add);
+        }
+        return found;
+    }
+
+    @Override
+    public List<Payment> findAll(Sort sort) {
+        if (sort.isUnsorted()) {
+            return findAll();
+        }
+        throw new UnsupportedOperationException("Sorting is not supported: " + sort);
+    }
+
+    @Override
+    public Page<Payment> findAll(Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(findAll());
+        }
+        List<Payment> page = findAll(pageable.getSort()).stream()
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .toList();
+        return new PageImpl<>(page, pageable, paymentsById.size());
+    }
+
+    @Override
+    public long count() {
+        return paymentsById.size();
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        Payment removed = paymentsById.remove(id);
+        if (removed != null) {
+            paymentsByIdempotencyKey.remove(removed.getIdempotencyKey(), removed);
+        }
+    }
+
+    @Override
+    public void delete(Payment payment) {
+        deleteById(payment.getId());
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends Long> ids) {
+        ids.forEach(this::deleteById);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Payment> payments) {
+        payments.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        paymentsById.clear();
+        paymentsByIdempotencyKey.clear();
+    }
+
+    @Override
+    public void deleteAllInBatch(Iterable<Payment> payments) {
+        deleteAll(payments);
+    }
+
+    @Override
+    public void deleteAllByIdInBatch(Iterable<Long> ids) {
+        deleteAllById(ids);
+    }
+
+    @Override
+    public void deleteAllInBatch() {
+        deleteAll();
+    }
+
+    @Override
+    @Deprecated
+    public Payment getOne(Long id) {
+        return getReferenceById(id);
+    }
+
+    @Override
+    @Deprecated
+    public Payment getById(Long id) {
+        return getReferenceById(id);
+    }
+
+    @Override
+    public Payment getReferenceById(Long id) {
+        return findById(id).orElseThrow(() -> new EntityNotFoundException("Payment with ID " + id + " not found."));
+    }
+
+    @Override
+    public Optional<Payment> findByIdempotencyKey(String idempotencyKey) {
+        return Optional.ofNullable(paymentsByIdempotencyKey.get(idempotencyKey));
+    }
+
+    @Override
+    public List<Payment> findByIdempotencyKeyIn(Collection<String> idempotencyKeys) {
+        List<Payment> found = new ArrayList<>();
+        for (String idempotencyKey : idempotencyKeys) {
+            Payment payment = paymentsByIdempotencyKey.get(idempotencyKey);
+            if (payment != null) {
+                found.add(payment);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<IdempotencyKeyView> findTop10000ByIdGreaterThanOrderByIdAsc(Long id) {
+        return paymentsById.tailMap(id, false).values().stream()
+                .limit(10000)
+                .<IdempotencyKeyView>map(payment -> new IndexedKey(payment.getId(), payment.getIdempotencyKey()))
+                .toList();
+    }
+
+    @Override
+    public List<Payment> findTop100ByStatusAndAttemptedAtBeforeOrderByAttemptedAtAsc(PaymentStatus status, Instant before) {
+        return paymentsById.values().stream()
+                .filter(payment -> payment.getStatus() == status && payment.getAttemptedAt() != null && payment.getAttemptedAt().isBefore(before))
+                .sorted(Comparator.comparing(Payment::getAttemptedAt))
+                .limit(100)
+                .toList();
+    }
+
+    @Override
+    public List<Payment> findByIdLessThanOrderByIdAsc(Long id, Pageable pageable) {
+        Stream<Payment> payments = paymentsById.headMap(id, false).values().stream();
+        return (pageable.isPaged() ? payments.limit(pageable.getPageSize()) : payments).toList();
+    }
+
+    @Override
+    public List<PaymentSummary> search(PaymentSearchCriteria criteria, PaymentCursor after, int limit) {
+        return matching(criteria)
+                .sorted(CREATION_ORDER.reversed())
+                .filter(payment -> after == null || payment.getCreatedAt().isBefore(after.createdAt())
+                        || (payment.getCreatedAt().equals(after.createdAt()) && payment.getId() < after.id()))
+                .limit(limit)
+                .map(payment -> new PaymentSummary(payment.getId().toString(), payment.getMerchantId(), payment.getAmount(),
+                        payment.getAmount().getCurrency().getCode(), payment.getStatus().name(), payment.getCreatedAt()))
+                .toList();
+    }
+
+    @Override
+    public Stream<PaymentExportRow> streamForExport(PaymentSearchCriteria criteria) {
+        return matching(criteria)
+                .sorted(CREATION_ORDER)
+                .map(payment -> new PaymentExportRow(payment.getId(), payment.getMerchantId(), payment.getMaskedCardNumber(), payment.getAmount(),
+                        payment.getAmount().getCurrency().getCode(), payment.getStatus().name(), payment.getCreatedAt()));
+    }
+
+    private Stream<Payment> matching(PaymentSearchCriteria criteria) {
+        // Same filters as PaymentSearchRepositoryImpl: an amount bound implies its currency
+        CurrencyUnit currency = criteria.getCurrency() != null ? criteria.getCurrency()
+                : criteria.getMinAmount() != null ? criteria.getMinAmount().getCurrency()
+                : criteria.getMaxAmount() != null ? criteria.getMaxAmount().getCurrency()
+                : null;
+        return paymentsById.values().stream()
+                .filter(payment -> criteria.getMerchantId().equals(payment.getMerchantId()))
+                .filter(payment -> criteria.getStatus() == null || criteria.getStatus() == payment.getStatus())
+                .filter(payment -> currency == null || currency == payment.getAmount().getCurrency())
+                .filter(payment -> criteria.getMinAmount() == null || payment.getAmount().compareTo(criteria.getMinAmount()) >= 0)
+                .filter(payment -> criteria.getMaxAmount() == null || payment.getAmount().compareTo(criteria.getMaxAmount()) <= 0)
+                .filter(payment -> criteria.getFrom() == null || !payment.getCreatedAt().isBefore(criteria.getFrom()))
+                .filter(payment -> criteria.getTo() == null || payment.getCreatedAt().isBefore(criteria.getTo()));
+    }
+
+    @Override
+    public <S extends Payment> Optional<S> findOne(Example<S> example) {
+        throw new UnsupportedOperationException("Query by example is not supported");
+    }
+
+    @Override
+    public <S extends Payment> List<S> findAll(Example<S> example) {
+        throw new UnsupportedOperationException("Query by example is not supported");
+    }
+
+    @Override
+    public <S extends Payment> List<S> findAll(Example<S> example, Sort sort) {
+        throw new UnsupportedOperationException("Query by example is not supported");
+    }
+
+    @Override
+    public <S extends Payment> Page<S> findAll(Example<S> example, Pageable pageable) {
+        throw new UnsupportedOperationException("Query by example is not supported");
+    }
+
+    @Override
+    public <S extends Payment> long count(Example<S> example) {
+        throw new UnsupportedOperationException("Query by example is not supported");
+    }
+
+    @Override
+    public <S extends Payment> boolean exists(Example<S> example) {
+        throw new UnsupportedOperationException("Query by example is not supported");
+    }
+
+    @Override
+    public <S extends Payment, R> R findBy(Example<S> example, Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        throw new UnsupportedOperationException("Query by example is not supported");
+    }
+
+    private record IndexedKey(Long id, String idempotencyKey) implements IdempotencyKeyView {
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getIdempotencyKey() {
+            return idempotencyKey;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.paymentgateway.vault.impl;
+
+import com.example.paymentgateway.persistence.VaultEntryRepository;
+import com.example.paymentgateway.vault.CardNumbers;
+import com.example.paymentgateway.vault.CardToken;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of card tokenization: masking, the HMAC token, AES-GCM encryption, and the full tokenization of a card the
+ * vault has already stored versus a new one. Storage is a no-op so only the CPU cost is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CardVaultBenchmark {
+
+    private static final String KEY = Base64.getEncoder().encodeToString(new byte[32]);
+
+    private final char[] knownCard = "4111111111111112".toCharArray();
+    private final byte[] knownDigits = "4111111111111112".getBytes();
+    private final char[] newCard = "4000000000000000".toCharArray();
+
+    private CardVaultImpl cardVault;
+    private String knownToken;
+    private long next;
+
+    @Setup
+    public void setUp() {
+        VaultEntryRepository repository = (VaultEntryRepository) Proxy.newProxyInstance(VaultEntryRepository.class.getClassLoader(),
+                new Class<?>[]{VaultEntryRepository.class}, (proxy, method, args) -> "save".equals(method.getName()) ? args[0] : null);
+        cardVault = new CardVaultImpl(repository, KEY, KEY, 100_000);
+        knownToken = cardVault.tokenize(knownCard).token();
+    }
+
+    @Benchmark
+    public String maskCardNumber() {
+        return CardNumbers.mask(knownCard);
+    }
+
+    @Benchmark
+    public String hmacToken() {
+        return cardVault.token(knownDigits);
+    }
+
+    @Benchmark
+    public byte[] encryptCardNumber() {
+        return cardVault.encrypt(knownToken, knownDigits);
+    }
+
+    @Benchmark
+    public CardToken tokenizeKnownCard() {
+        return cardVault.tokenize(knownCard);
+    }
+
+    @Benchmark
+    public CardToken tokenizeNewCard() {
+        long digits = next++;
+        for (int i = newCard.length - 1; i >= 6; i--) {
+            newCard[i] = (char) ('0' + digits % 10);
+            digits /= 10;
+        }
+        return cardVault.tokenize(newCard);
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.paymentgateway.load;
+
+import com.example.paymentgateway.PaymentGatewayApplication;
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.simulator.BankSimulator;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives {@code POST /api/payments} end-to-end against an embedded server, for each combination of Spring profile and
+ * payment pipeline, and reports sustained requests/sec, latency percentiles and server-side allocation per request.
+ * <p>
+ * Without a target rate each run is closed-loop: it keeps {@code load.concurrency} requests in flight and measures
+ * the highest rate the gateway sustains. With {@code load.target-rps} it is open-loop: requests are scheduled at that
+ * rate, at most {@code load.concurrency} in flight, and latency counts from the scheduled time, so a stalled gateway
+ * shows as latency rather than as fewer requests sent.
+ * <p>
+ * Allocation is read per thread from the JVM, excluding the harness's own threads; threads that end during a run,
+ * and virtual threads, are not counted.
+ * <p>
+ * Tuned with system properties: {@code load.profiles}, {@code load.modes}, {@code load.target-rps},
+ * {@code load.concurrency}, {@code load.duration}, {@code load.warmup}, {@code load.bank-latency-ms} and
+ * {@code load.tomcat-threads}.
+ */
+public class PaymentLoadHarness {
+
+    private static final List<String> PROFILES = List.of(System.getProperty("load.profiles", "default,high-throughput").split(","));
+    private static final List<String> MODES = List.of(System.getProperty("load.modes", "sync,async").split(","));
+    private static final int TARGET_RPS = Integer.getInteger("load.target-rps", 0);
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 400);
+    private static final Duration DURATION = Duration.parse(System.getProperty("load.duration", "PT20S"));
+    private static final Duration WARMUP = Duration.parse(System.getProperty("load.warmup", "PT5S"));
+    private static final long BANK_LATENCY_MS = Long.getLong("load.bank-latency-ms", 50);
+    private static final int TOMCAT_THREADS = Integer.getInteger("load.tomcat-threads", 100);
+    private static final String CLIENT_THREAD_PREFIX = "load-client-";
+
+    public static void main(String[] args) throws Exception {
+        List<Result> results = new ArrayList<>();
+        for (String profile : PROFILES) {
+            for (String mode : MODES) {
+                results.add(run(profile.trim(), mode.trim()));
+            }
+        }
+
+        System.out.printf("%n%-16s %-6s %10s %12s %9s %9s %9s %9s %12s %8s%n", "profile", "mode", "target/s",
+                "requests/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "alloc KB/req", "errors");
+        results.forEach(Result::print);
+    }
+
+    private static Result run(String profile, String mode) throws Exception {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(PaymentGatewayApplication.class, SlowBankConfiguration.class)
+                .properties(
+                        "server.port=0",
+                        "server.tomcat.threads.max=" + TOMCAT_THREADS,
+                        "payment.async.enabled=" + "async".equals(mode),
+                        "load.bank-latency-ms=" + BANK_LATENCY_MS,
+                        "logging.level.root=WARN");
+        if (!"default".equals(profile)) {
+            builder.profiles(profile);
+        }
+        ConfigurableApplicationContext context = builder.run();
+        AtomicInteger clientThreads = new AtomicInteger();
+        ExecutorService clientExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, CLIENT_THREAD_PREFIX + clientThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URI uri = URI.create("http://localhost:" + port + "/api/payments");
+            HttpClient client = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .executor(clientExecutor)
+                    .build();
+
+            drive(client, uri, WARMUP, null);
+            System.gc();
+            Map<Long, Long> allocatedBefore = serverAllocatedBytes();
+            Run run = drive(client, uri, DURATION, new long[1 << 22]);
+            long allocated = allocatedSince(allocatedBefore);
+            return new Result(profile, mode, run.latencies(), run.elapsedNanos(), run.errors(), allocated);
+        } finally {
+            context.close();
+            clientExecutor.shutdownNow();
+        }
+    }
+
+    private static Run drive(HttpClient client, URI uri, Duration duration, long[] latencies) throws InterruptedException {
+        Semaphore permits = new Semaphore(CONCURRENCY);
+        AtomicInteger recorded = new AtomicInteger();
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        long intervalNanos = TARGET_RPS > 0 ? 1_000_000_000L / TARGET_RPS : 0;
+
+        for (long sent = 0; ; sent++) {
+            long sendAt = start + sent * intervalNanos;
+            if (sendAt >= deadline || System.nanoTime() >= deadline) {
+                break;
+            }
+            long wait;
+            while ((wait = sendAt - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            permits.acquire();
+            // Open-loop latency starts at the scheduled time, closed-loop at the actual send
+            long sentAt = intervalNanos > 0 ? sendAt : System.nanoTime();
+            client.sendAsync(paymentRequest(uri), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, ex) -> {
+                        long latency = System.nanoTime() - sentAt;
+                        if (ex != null || response.statusCode() / 100 != 2) {
+                            errors.incrementAndGet();
+                        } else if (latencies != null) {
+                            int slot = recorded.getAndIncrement();
+                            if (slot < latencies.length) {
+                                latencies[slot] = latency;
+                            }
+                        }
+                        permits.release();
+                    });
+        }
+        permits.acquire(CONCURRENCY);
+        long elapsed = System.nanoTime() - start;
+
+        int count = Math.min(recorded.get(), latencies == null ? 0 : latencies.length);
+        return new Run(latencies == null ? new long[0] : Arrays.copyOf(latencies, count), elapsed, errors.get());
+    }
+
+    private static Map<Long, Long> serverAllocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Map<Long, Long> allocated = new HashMap<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            String name = thread.getName();
+            // The driver, its HTTP client and the client's selector thread are not the gateway's work
+            if (thread != Thread.currentThread() && !name.startsWith(CLIENT_THREAD_PREFIX) && !name.startsWith("HttpClient-")) {
+                long bytes = threads.getThreadAllocatedBytes(thread.getId());
+                if (bytes >= 0) {
+                    allocated.put(thread.getId(), bytes);
+                }
+            }
+        }
+        return allocated;
+    }
+
+    private static long allocatedSince(Map<Long, Long> before) {
+        long total = 0;
+        for (Map.Entry<Long, Long> after : serverAllocatedBytes().entrySet()) {
+            total += after.getValue() - before.getOrDefault(after.getKey(), 0L);
+        }
+        return total;
+    }
+
+    private static HttpRequest paymentRequest(URI uri) {
+        String body = "{\"cardNumber\":\"4242424242424242\",\"expiryMonth\":\"12\",\"expiryYear\":\"2030\",\"cvv\":\"123\","
+                + "\"amount\":100.50,\"currency\":\"USD\",\"idempotencyKey\":\"" + UUID.randomUUID() + "\"}";
+        return HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .header("Merchant-Id", "load-harness")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private record Run(long[] latencies, long elapsedNanos, long errors) {
+    }
+
+    private record Result(String profile, String mode, long[] latencies, long elapsedNanos, long errors, long allocatedBytes) {
+
+        void print() {
+            Arrays.sort(latencies);
+            double seconds = elapsedNanos / 1e9;
+            long requests = latencies.length + errors;
+            System.out.printf("%-16s %-6s %10s %12.0f %9.2f %9.2f %9.2f %9.2f %12.1f %8d%n", profile, mode,
+                    TARGET_RPS > 0 ? String.valueOf(TARGET_RPS) : "max", latencies.length / seconds,
+                    percentile(0.50), percentile(0.99), percentile(0.999), percentile(1.0),
+                    requests == 0 ? Double.NaN : allocatedBytes / 1024.0 / requests, errors);
+        }
+
+        double percentile(double quantile) {
+            if (latencies.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.min(latencies.length - 1, Math.ceil(quantile * latencies.length) - 1);
+            return latencies[Math.max(index, 0)] / 1e6;
+        }
+    }
+
+    /**
+     * Replaces the instantaneous bank simulator with one that takes a fixed time to answer, like a real acquirer.
+     */
+    @Configuration
+    static class SlowBankConfiguration {
+
+        @Bean
+        @Primary
+        BankSimulator slowBankSimulator(org.springframework.core.env.Environment environment) {
+            long latencyMs = environment.getProperty("load.bank-latency-ms", Long.class, 50L);
+            return (PaymentRequest paymentRequest) -> {
+                try {
+                    Thread.sleep(latencyMs);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            };
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.paymentgateway.admission;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.LongSupplier;
+
+/**
+ * Global limit on requests in flight, adjusted by additive increase and multiplicative decrease on observed latency.
+ * Each request completing within the latency threshold while the limit is in use raises the limit by about one per
+ * limit's worth of requests; a request exceeding it, or failing from overload, cuts the limit by the backoff ratio,
+ * at most once per threshold so that a single slow burst does not collapse it. Excess requests are rejected instead
+ * of queued, so latency stays near the threshold while the gateway sheds load.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final LongSupplier ticker;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // The limit as the bits of a double, so increases of a fraction of a request accumulate
+    private final AtomicLong limitBits;
+    private final AtomicLong lastDecreaseNanos;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold, double backoffRatio) {
+        this(initialLimit, minLimit, maxLimit, latencyThreshold, backoffRatio, System::nanoTime);
+    }
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold, double backoffRatio,
+                                      LongSupplier ticker) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits should satisfy 1 <= min <= initial <= max.");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("The backoff ratio should be between 0 and 1.");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.ticker = ticker;
+        this.limitBits = new AtomicLong(Double.doubleToRawLongBits(initialLimit));
+        this.lastDecreaseNanos = new AtomicLong(ticker.getAsLong() - latencyThresholdNanos);
+    }
+
+    /**
+     * Take a slot for a request if the limit allows it. An acquired slot must be released with
+     * {@link #onSuccess(long)} or {@link #onOverload()}.
+     *
+     * @return true if the request may proceed
+     */
+    public boolean tryAcquire() {
+        int limit = getLimit();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Release a slot after the request completed.
+     *
+     * @param latencyNanos how long the request took
+     */
+    public void onSuccess(long latencyNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        if (latencyNanos > latencyThresholdNanos) {
+            decrease();
+            return;
+        }
+        double limit = limit();
+        // Only grow a limit that is actually being reached; an idle gateway says nothing about its capacity
+        if (inFlightBefore * 2 >= limit) {
+            update(current -> Math.min(maxLimit, current + 1 / current));
+        }
+    }
+
+    /**
+     * Release a slot after the request failed because a downstream system was overloaded.
+     */
+    public void onOverload() {
+        inFlight.decrementAndGet();
+        decrease();
+    }
+
+    public int getLimit() {
+        return (int) limit();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void decrease() {
+        long now = ticker.getAsLong();
+        long last = lastDecreaseNanos.get();
+        if (now - last >= latencyThresholdNanos && lastDecreaseNanos.compareAndSet(last, now)) {
+            update(current -> Math.max(minLimit, current * backoffRatio));
+        }
+    }
+
+    private double limit() {
+        return Double.longBitsToDouble(limitBits.get());
+    }
+
+    private void update(DoubleUnaryOperator function) {
+        long bits;
+        long updated;
+        do {
+            bits = limitBits.get();
+            updated = Double.doubleToRawLongBits(function.applyAsDouble(Double.longBitsToDouble(bits)));
+        } while (bits != updated && !limitBits.compareAndSet(bits, updated));
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.paymentgateway.admission;
+
+import com.example.paymentgateway.util.KeyHash;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free per-key rate limiter using the generic cell rate algorithm: each key only stores its theoretical
+ * arrival time, the instant at which its bucket would be full again, and a request is admitted when that instant is
+ * at most the burst tolerance ahead of now.
+ * <p>
+ * State lives in a fixed open-addressing table of two long arrays, 16 bytes per slot and two slots per key, indexed
+ * by a 64-bit hash of the key. A slot whose arrival time is in the past holds no information, as its key would be admitted with a full
+ * burst anyway, so a key that finds no slot of its own takes over such a slot. Memory is therefore bounded by the
+ * number of keys active within one burst period rather than by all keys ever seen. When every probed slot is active
+ * the key is refused with {@link #SATURATED}, so an undersized or flooded table fails closed and the caller can fall
+ * back to a coarser key.
+ */
+public class GcraRateLimiter {
+
+    /**
+     * Returned by {@link #tryAcquire} when the table has no slot for the key.
+     */
+    public static final long SATURATED = -1;
+
+    private static final int MAX_PROBES = 16;
+
+    private final AtomicLongArray keyHashes;
+    private final AtomicLongArray arrivalTimes;
+    private final int mask;
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final LongSupplier ticker;
+    // Arrival times are stored relative to this origin, so that 0 can mean "no arrival yet"
+    private final long origin;
+
+    public GcraRateLimiter(double ratePerSecond, int burst, int maxKeys) {
+        this(ratePerSecond, burst, maxKeys, System::nanoTime);
+    }
+
+    public GcraRateLimiter(double ratePerSecond, int burst, int maxKeys, LongSupplier ticker) {
+        if (ratePerSecond <= 0 || burst < 1 || maxKeys < 1) {
+            throw new IllegalArgumentException("Rate, burst and key capacity should be positive.");
+        }
+        // Twice as many slots as keys keeps probe sequences short
+        int capacity = Integer.highestOneBit(Math.max(1, maxKeys - 1)) << 2;
+        this.keyHashes = new AtomicLongArray(capacity);
+        this.arrivalTimes = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        this.emissionIntervalNanos = Math.max(1, (long) (1e9 / ratePerSecond));
+        this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+        this.ticker = ticker;
+        this.origin = ticker.getAsLong() - 1;
+    }
+
+    /**
+     * Admit one request for a key if its rate allows it.
+     *
+     * @param key the key, e.g. a merchant identifier
+     * @return 0 if the request is admitted, {@link #SATURATED} if every slot the key may use is held by another active
+     * key, otherwise the nanoseconds after which it would be admitted
+     */
+    public long tryAcquire(CharSequence key) {
+        long now = ticker.getAsLong() - origin;
+        int index = slot(hash(key), now);
+        return index < 0 ? SATURATED : acquire(index, now);
+    }
+
+    /**
+     * Charge a key for requests admitted without acquiring, such as the remaining items of a batch admitted as one
+     * request. The charge is not refused: it pushes the key's next admission back by the time the requests would
+     * have taken at the rate.
+     *
+     * @param key      the key the requests were admitted under
+     * @param requests the number of requests
+     */
+    public void charge(CharSequence key, int requests) {
+        if (requests <= 0) {
+            return;
+        }
+        long now = ticker.getAsLong() - origin;
+        int index = slot(hash(key), now);
+        if (index >= 0) {
+            arrivalTimes.getAndAccumulate(index, requests * emissionIntervalNanos,
+                    (arrivalTime, cost) -> Math.max(arrivalTime, now) + cost);
+        }
+    }
+
+    private int slot(long hash, long now) {
+        int index = (int) hash & mask;
+        int reusable = -1;
+        for (int probe = 0; probe < MAX_PROBES; probe++, index = (index + 1) & mask) {
+            long slotHash = keyHashes.get(index);
+            if (slotHash == hash) {
+                return index;
+            }
+            if (slotHash == 0) {
+                if (keyHashes.compareAndSet(index, 0, hash) || keyHashes.get(index) == hash) {
+                    return index;
+                }
+            } else if (reusable < 0 && arrivalTimes.get(index) <= now) {
+                reusable = index;
+            }
+        }
+        if (reusable >= 0) {
+            long expiredHash = keyHashes.get(reusable);
+            // A request of the expired key racing with the takeover may charge its arrival to this key once
+            if (keyHashes.compareAndSet(reusable, expiredHash, hash) || keyHashes.get(reusable) == hash) {
+                return reusable;
+            }
+        }
+        return -1;
+    }
+
+    private long acquire(int index, long now) {
+        while (true) {
+            long arrivalTime = arrivalTimes.get(index);
+            long start = Math.max(arrivalTime, now);
+            long waitNanos = start - burstToleranceNanos - now;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (arrivalTimes.compareAndSet(index, arrivalTime, start + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    private static long hash(CharSequence key) {
+        // 0 marks an empty slot
+        long hash = KeyHash.hash(key);
+        return hash == 0 ? 1 : hash;
+    }
+}
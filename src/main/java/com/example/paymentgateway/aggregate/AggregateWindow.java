@@ -0,0 +1,41 @@
+package com.example.paymentgateway.aggregate;
+
+import java.time.Duration;
+
+public enum AggregateWindow {
+    ONE_MINUTE("1m", Duration.ofMinutes(1)),
+    FIVE_MINUTES("5m", Duration.ofMinutes(5)),
+    ONE_HOUR("1h", Duration.ofHours(1));
+
+    private final String label;
+    private final Duration duration;
+
+    AggregateWindow(String label, Duration duration) {
+        this.label = label;
+        this.duration = duration;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public Duration duration() {
+        return duration;
+    }
+
+    /**
+     * Find a window by its label, such as "5m".
+     *
+     * @param label the label
+     * @return the window
+     * @throws IllegalArgumentException if no window has this label
+     */
+    public static AggregateWindow fromLabel(String label) {
+        for (AggregateWindow window : values()) {
+            if (window.label.equals(label)) {
+                return window;
+            }
+        }
+        throw new IllegalArgumentException("Unknown window " + label);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.paymentgateway.aggregate;
+
+import com.example.paymentgateway.dto.PaymentAggregateResponse;
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
+import com.example.paymentgateway.persistence.PaymentStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Live payment count, amount and approval rate per currency and status over the last minute, five minutes and
+ * hour. The last five minutes are kept in one-second buckets and the last hour in one-minute buckets, and amounts are
+ * summed in minor units. Currencies beyond the configured maximum are folded into {@value #OTHER_CURRENCY} so memory
+ * stays bounded; its amounts mix currencies and are not reported.
+ */
+@Component
+public class PaymentAggregator {
+
+    public static final String OTHER_CURRENCY = "OTHER";
+
+    // Counted outcomes: authorized and failed
+    private static final int OUTCOMES = 2;
+    private static final long SECOND_MILLIS = 1_000;
+    private static final long MINUTE_MILLIS = 60_000;
+
+    private final ConcurrentHashMap<String, CurrencyCounters> byCurrency = new ConcurrentHashMap<>();
+    private final int maxCurrencies;
+    private final LongSupplier clock;
+
+    @Autowired
+    public PaymentAggregator(@Value("${payment.aggregates.max-currencies:64}") int maxCurrencies) {
+        this(maxCurrencies, System::currentTimeMillis);
+    }
+
+    public PaymentAggregator(int maxCurrencies, LongSupplier clock) {
+        this.maxCurrencies = maxCurrencies;
+        this.clock = clock;
+    }
+
+    /**
+     * Record the outcome of a payment's authorization, once the bank decided it.
+     *
+     * @param amount the amount
+     * @param status the payment status after authorization
+     * @throws IllegalArgumentException if the payment is still pending
+     */
+    public void record(Money amount, PaymentStatus status) {
+        CurrencyUnit currency = amount.getCurrency();
+        CurrencyCounters counters = byCurrency.get(currency.getCode());
+        if (counters == null) {
+            counters = byCurrency.size() < maxCurrencies
+                    ? byCurrency.computeIfAbsent(currency.getCode(), key -> new CurrencyCounters(currency))
+                    : byCurrency.computeIfAbsent(OTHER_CURRENCY, key -> new CurrencyCounters(null));
+        }
+        int statusIndex = statusIndex(status);
+        long now = clock.getAsLong();
+        counters.seconds[statusIndex].add(now, amount.getMinorUnits());
+        counters.minutes[statusIndex].add(now, amount.getMinorUnits());
+    }
+
+    /**
+     * Aggregates of every currency seen in the window, ordered by currency.
+     *
+     * @param window the window
+     * @return one aggregate per currency
+     */
+    public List<PaymentAggregateResponse> aggregates(AggregateWindow window) {
+        long now = clock.getAsLong();
+        Map<String, CurrencyCounters> currencies = new TreeMap<>(byCurrency);
+        List<PaymentAggregateResponse> aggregates = new ArrayList<>(currencies.size());
+        currencies.forEach((currency, counters) -> {
+            RollingCounter.Totals[] totals = new RollingCounter.Totals[OUTCOMES];
+            for (int i = 0; i < OUTCOMES; i++) {
+                totals[i] = window.duration().toMillis() <= counters.secondsSpanMillis()
+                        ? counters.seconds[i].totals(now, (int) (window.duration().toMillis() / SECOND_MILLIS))
+                        : counters.minutes[i].totals(now, (int) (window.duration().toMillis() / MINUTE_MILLIS));
+            }
+            long count = totals[0].count() + totals[1].count();
+            if (count == 0) {
+                return;
+            }
+            aggregates.add(new PaymentAggregateResponse(
+                    window.label(),
+                    currency,
+                    count,
+                    counters.money(totals[0].sum() + totals[1].sum()),
+                    totals[0].count(), counters.money(totals[0].sum()),
+                    totals[1].count(), counters.money(totals[1].sum()),
+                    (double) totals[0].count() / count));
+        });
+        return aggregates;
+    }
+
+    private static int statusIndex(PaymentStatus status) {
+        return switch (status) {
+            case PENDING -> throw new IllegalArgumentException("A pending payment has no outcome yet");
+            case FAILED -> 1;
+            default -> 0;
+        };
+    }
+
+    private static final class CurrencyCounters {
+
+        private static final int SECOND_BUCKETS = 300;
+        private static final int MINUTE_BUCKETS = 60;
+
+        private final CurrencyUnit currency;
+        private final RollingCounter[] seconds = new RollingCounter[OUTCOMES];
+        private final RollingCounter[] minutes = new RollingCounter[OUTCOMES];
+
+        private CurrencyCounters(CurrencyUnit currency) {
+            this.currency = currency;
+            for (int i = 0; i < OUTCOMES; i++) {
+                seconds[i] = new RollingCounter(SECOND_MILLIS, SECOND_BUCKETS);
+                minutes[i] = new RollingCounter(MINUTE_MILLIS, MINUTE_BUCKETS);
+            }
+        }
+
+        private Money money(long minorUnits) {
+            return currency == null ? null : Money.ofMinor(minorUnits, currency);
+        }
+
+        private long secondsSpanMillis() {
+            return SECOND_BUCKETS * SECOND_MILLIS;
+        }
+    }
+}
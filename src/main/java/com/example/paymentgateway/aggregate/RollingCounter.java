@@ -0,0 +1,85 @@
+package com.example.paymentgateway.aggregate;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count and sum of events over a sliding time window, kept in a ring of fixed-width time buckets. Each bucket is a
+ * pair of striped adders tagged with the epoch it counts; a writer landing on a bucket from an older epoch claims
+ * it and clears it. Recording is lock-free and allocation-free. Totals are approximate at bucket rollover, where a
+ * concurrent increment may land just before the bucket is cleared.
+ */
+public class RollingCounter {
+
+    private final long bucketMillis;
+    private final AtomicLongArray epochs;
+    private final LongAdder[] counts;
+    private final LongAdder[] sums;
+
+    public RollingCounter(long bucketMillis, int buckets) {
+        if (bucketMillis <= 0 || buckets <= 0) {
+            throw new IllegalArgumentException("bucketMillis and buckets must be positive");
+        }
+        this.bucketMillis = bucketMillis;
+        this.epochs = new AtomicLongArray(buckets);
+        this.counts = new LongAdder[buckets];
+        this.sums = new LongAdder[buckets];
+        for (int i = 0; i < buckets; i++) {
+            epochs.set(i, -1);
+            counts[i] = new LongAdder();
+            sums[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Record one event.
+     *
+     * @param nowMillis the current time in milliseconds
+     * @param amount    the amount to add to the sum, in minor units
+     */
+    public void add(long nowMillis, long amount) {
+        long epoch = nowMillis / bucketMillis;
+        int index = (int) (epoch % counts.length);
+        long bucketEpoch = epochs.get(index);
+        if (bucketEpoch != epoch) {
+            if (bucketEpoch < epoch && epochs.compareAndSet(index, bucketEpoch, epoch)) {
+                counts[index].reset();
+                sums[index].reset();
+            } else if (epochs.get(index) != epoch) {
+                // The bucket already moved on to a newer epoch; this event is too late to count
+                return;
+            }
+        }
+        counts[index].increment();
+        sums[index].add(amount);
+    }
+
+    /**
+     * Total of the events in the most recent buckets, the current one included.
+     *
+     * @param nowMillis the current time in milliseconds
+     * @param buckets   the number of buckets in the window, at most the size of the ring
+     * @return the count and sum of the events in the window
+     */
+    public Totals totals(long nowMillis, int buckets) {
+        long epoch = nowMillis / bucketMillis;
+        long count = 0;
+        long sum = 0;
+        for (int i = 0; i < Math.min(buckets, counts.length); i++) {
+            long bucketEpoch = epoch - i;
+            int index = (int) (bucketEpoch % counts.length);
+            if (epochs.get(index) == bucketEpoch) {
+                count += counts[index].sum();
+                sum += sums[index].sum();
+            }
+        }
+        return new Totals(count, sum);
+    }
+
+    public long bucketMillis() {
+        return bucketMillis;
+    }
+
+    public record Totals(long count, long sum) {
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.paymentgateway.archive;
+
+import com.example.paymentgateway.persistence.Payment;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Cold storage for payments past their retention age. Archived payments leave the payment table, so they are found
+ * by identifier only: searches, exports and idempotency key lookups cover the table alone, and an archived payment
+ * can no longer change status. The retention age must therefore exceed the period in which merchants may retry a
+ * payment or capture and refund it.
+ */
+public interface PaymentArchive {
+
+    /**
+     * Look up an archived payment.
+     *
+     * @param paymentId the payment identifier
+     * @return the payment, detached, or empty if it is not archived
+     */
+    Optional<Payment> find(long paymentId);
+
+    /**
+     * Move the payments created before the given time out of the payment table into the archive. Creation is judged
+     * by the time encoded in the payment identifier.
+     *
+     * @param cutoff the time before which payments are archived
+     * @return the number of payments archived
+     */
+    int archiveBefore(Instant cutoff);
+}
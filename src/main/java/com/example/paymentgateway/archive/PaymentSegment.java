@@ -0,0 +1,352 @@
+package com.example.paymentgateway.archive;
+
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
+import com.example.paymentgateway.persistence.Payment;
+import com.example.paymentgateway.persistence.PaymentStatus;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A read-only, memory-mapped segment of archived payments of one shard, written by {@link PaymentSegmentWriter}.
+ * <p>
+ * The file starts with a header holding the identifier and creation time ranges of the segment, followed by an index
+ * of its blocks and the blocks themselves. Each block holds up to a fixed number of consecutive payments, deflated,
+ * stored column by column: identifiers as varint deltas, creation times as zigzag varint deltas in microseconds,
+ * other numbers as varints, statuses as their code and strings as their UTF-8 length plus one, 0 meaning null,
+ * followed by their bytes. A lookup binary searches the index and inflates a single block, so it reads a few
+ * kilobytes of the file whatever its size, and the operating system caches the pages of recent lookups.
+ */
+public final class PaymentSegment implements Closeable {
+
+    static final long MAGIC = 0x5041_5953_4547_3031L;  // "PAYSEG01"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int INDEX_ENTRY_BYTES = 32;
+
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = 8;
+    static final int SHARD_OFFSET = 12;
+    static final int ROWS_OFFSET = 16;
+    static final int BLOCKS_OFFSET = 20;
+    static final int BLOCK_ROWS_OFFSET = 24;
+    static final int MIN_ID_OFFSET = 32;
+    static final int MAX_ID_OFFSET = 40;
+    static final int MIN_CREATED_AT_OFFSET = 48;
+    static final int MAX_CREATED_AT_OFFSET = 56;
+
+    // Within an index entry
+    static final int FIRST_ID_OFFSET = 0;
+    static final int LAST_ID_OFFSET = 8;
+    static final int BLOCK_OFFSET_OFFSET = 16;
+    static final int COMPRESSED_LENGTH_OFFSET = 24;
+    static final int UNCOMPRESSED_LENGTH_OFFSET = 28;
+
+    // Columns of a block, in order; the block starts with the end offset of each
+    static final int ID = 0;
+    static final int VERSION_NUMBER = 1;
+    static final int CREATED_AT = 2;
+    static final int AMOUNT = 3;
+    static final int CURRENCY = 4;
+    static final int STATUS = 5;
+    static final int MERCHANT_ID = 6;
+    static final int IDEMPOTENCY_KEY = 7;
+    static final int CARD_TOKEN = 8;
+    static final int CARD_BIN = 9;
+    static final int CARD_LAST4 = 10;
+    static final int MASKED_CARD_NUMBER = 11;
+    static final int EXPIRY_MONTH = 12;
+    static final int EXPIRY_YEAR = 13;
+    static final int COLUMNS = 14;
+
+    // Stands for a null creation time, so the column needs no presence flags
+    static final long NULL_MICROS = Long.MIN_VALUE;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int shard;
+    private final int rowCount;
+    private final int blockCount;
+    private final int blockRows;
+    private final long minId;
+    private final long maxId;
+    private final long minCreatedAtMicros;
+    private final long maxCreatedAtMicros;
+
+    private PaymentSegment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.shard = buffer.getInt(SHARD_OFFSET);
+        this.rowCount = buffer.getInt(ROWS_OFFSET);
+        this.blockCount = buffer.getInt(BLOCKS_OFFSET);
+        this.blockRows = buffer.getInt(BLOCK_ROWS_OFFSET);
+        this.minId = buffer.getLong(MIN_ID_OFFSET);
+        this.maxId = buffer.getLong(MAX_ID_OFFSET);
+        this.minCreatedAtMicros = buffer.getLong(MIN_CREATED_AT_OFFSET);
+        this.maxCreatedAtMicros = buffer.getLong(MAX_CREATED_AT_OFFSET);
+    }
+
+    /**
+     * Map a segment file.
+     *
+     * @param path the file
+     * @return the segment
+     * @throws IOException if the file cannot be read or is not a segment
+     */
+    public static PaymentSegment open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Not a payment segment: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getLong(MAGIC_OFFSET) != MAGIC || buffer.getInt(VERSION_OFFSET) != VERSION) {
+                throw new IOException("Not a payment segment: " + path);
+            }
+            if (HEADER_BYTES + (long) buffer.getInt(BLOCKS_OFFSET) * INDEX_ENTRY_BYTES > size) {
+                throw new IOException("Truncated payment segment: " + path);
+            }
+            return new PaymentSegment(path, channel, buffer);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public long getMinId() {
+        return minId;
+    }
+
+    public long getMaxId() {
+        return maxId;
+    }
+
+    /**
+     * The earliest creation time in the segment, or null if no payment in it has one.
+     */
+    public Instant getMinCreatedAt() {
+        return instantOf(minCreatedAtMicros);
+    }
+
+    /**
+     * The latest creation time in the segment, or null if no payment in it has one.
+     */
+    public Instant getMaxCreatedAt() {
+        return instantOf(maxCreatedAtMicros);
+    }
+
+    /**
+     * Look up an archived payment.
+     *
+     * @param paymentId the payment identifier
+     * @return the payment, detached, or empty if the segment does not hold it
+     */
+    public Optional<Payment> find(long paymentId) {
+        if (paymentId < minId || paymentId > maxId) {
+            return Optional.empty();
+        }
+        int block = blockOf(paymentId);
+        if (block < 0) {
+            return Optional.empty();
+        }
+        byte[] data = inflate(block);
+        int rows = block == blockCount - 1 ? rowCount - block * blockRows : blockRows;
+
+        Cursor ids = column(data, ID);
+        long id = 0;
+        for (int row = 0; row < rows; row++) {
+            id += ids.readVarLong();
+            if (id == paymentId) {
+                return Optional.of(decode(data, row, id));
+            }
+            if (id > paymentId) {
+                break;
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The mapping itself is released once the buffer is collected, so lookups in progress stay valid
+        channel.close();
+    }
+
+    private int blockOf(long paymentId) {
+        // The last block starting at or before the identifier
+        int low = 0;
+        int high = blockCount - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (buffer.getLong(indexEntry(mid) + FIRST_ID_OFFSET) <= paymentId) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found >= 0 && buffer.getLong(indexEntry(found) + LAST_ID_OFFSET) >= paymentId ? found : -1;
+    }
+
+    private byte[] inflate(int block) {
+        int entry = indexEntry(block);
+        int offset = (int) buffer.getLong(entry + BLOCK_OFFSET_OFFSET);
+        int compressedLength = buffer.getInt(entry + COMPRESSED_LENGTH_OFFSET);
+        byte[] data = new byte[buffer.getInt(entry + UNCOMPRESSED_LENGTH_OFFSET)];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(buffer.slice(offset, compressedLength));
+            int length = 0;
+            while (length < data.length && !inflater.finished()) {
+                int inflated = inflater.inflate(data, length, data.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != data.length) {
+                throw new IllegalStateException("Corrupt block " + block + " in payment segment " + path);
+            }
+            return data;
+        } catch (DataFormatException ex) {
+            throw new IllegalStateException("Corrupt block " + block + " in payment segment " + path, ex);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static Payment decode(byte[] data, int row, long id) {
+        Cursor createdAt = column(data, CREATED_AT);
+        long createdAtMicros = 0;
+        for (int i = 0; i <= row; i++) {
+            createdAtMicros += zigzagDecode(createdAt.readVarLong());
+        }
+        long version = skipTo(column(data, VERSION_NUMBER), row).readVarLong();
+        long amountMinorUnits = zigzagDecode(skipTo(column(data, AMOUNT), row).readVarLong());
+        String currency = skipStringsTo(column(data, CURRENCY), row).readString();
+        byte status = data[columnStart(data, STATUS) + row];
+
+        return Payment.builder()
+                .id(id)
+                .version(version == 0 ? null : version - 1)
+                .createdAt(instantOf(createdAtMicros))
+                .amount(currency == null ? null : Money.ofMinor(amountMinorUnits, CurrencyUnit.of(currency)))
+                .status(status == 0 ? null : PaymentStatus.ofCode((char) status))
+                .merchantId(stringAt(data, MERCHANT_ID, row))
+                .idempotencyKey(stringAt(data, IDEMPOTENCY_KEY, row))
+                .cardToken(stringAt(data, CARD_TOKEN, row))
+                .cardBin(stringAt(data, CARD_BIN, row))
+                .cardLast4(stringAt(data, CARD_LAST4, row))
+                .maskedCardNumber(stringAt(data, MASKED_CARD_NUMBER, row))
+                .expiryMonth(stringAt(data, EXPIRY_MONTH, row))
+                .expiryYear(stringAt(data, EXPIRY_YEAR, row))
+                .build();
+    }
+
+    private static String stringAt(byte[] data, int column, int row) {
+        return skipStringsTo(column(data, column), row).readString();
+    }
+
+    private static Cursor skipTo(Cursor cursor, int row) {
+        for (int i = 0; i < row; i++) {
+            cursor.readVarLong();
+        }
+        return cursor;
+    }
+
+    private static Cursor skipStringsTo(Cursor cursor, int row) {
+        for (int i = 0; i < row; i++) {
+            int length = (int) cursor.readVarLong();
+            cursor.position += Math.max(0, length - 1);
+        }
+        return cursor;
+    }
+
+    private static Cursor column(byte[] data, int column) {
+        return new Cursor(data, columnStart(data, column));
+    }
+
+    private static int columnStart(byte[] data, int column) {
+        if (column == 0) {
+            return COLUMNS * 4;
+        }
+        // A column starts where the previous one ends
+        int at = (column - 1) * 4;
+        return data[at] & 0xff | (data[at + 1] & 0xff) << 8 | (data[at + 2] & 0xff) << 16 | data[at + 3] << 24;
+    }
+
+    private static int indexEntry(int block) {
+        return HEADER_BYTES + block * INDEX_ENTRY_BYTES;
+    }
+
+    private static Instant instantOf(long micros) {
+        if (micros == NULL_MICROS) {
+            return null;
+        }
+        return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000), Math.floorMod(micros, 1_000_000) * 1_000L);
+    }
+
+    private static long zigzagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Cursor {
+
+        private final byte[] data;
+        private int position;
+
+        private Cursor(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[position++];
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        private String readString() {
+            int length = (int) readVarLong();
+            if (length == 0) {
+                return null;
+            }
+            String value = new String(data, position, length - 1, StandardCharsets.UTF_8);
+            position += length - 1;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.paymentgateway.archive;
+
+import com.example.paymentgateway.persistence.Payment;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import static com.example.paymentgateway.archive.PaymentSegment.*;
+
+/**
+ * Writes payments into a {@link PaymentSegment} file. The segment is built in memory, written to a temporary file,
+ * forced to disk and then renamed over the target, so a segment file is either complete or absent.
+ */
+public final class PaymentSegmentWriter {
+
+    private PaymentSegmentWriter() {
+    }
+
+    /**
+     * Write a segment.
+     *
+     * @param path      the segment file, replaced if it exists
+     * @param shard     the shard the payments come from
+     * @param payments  the payments, in strictly increasing identifier order
+     * @param blockRows the number of payments per block
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path path, int shard, List<Payment> payments, int blockRows) throws IOException {
+        if (payments.isEmpty() || blockRows < 1) {
+            throw new IllegalArgumentException("A segment needs payments and a positive block size.");
+        }
+        int blockCount = (payments.size() + blockRows - 1) / blockRows;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + blockCount * INDEX_ENTRY_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        Column blocks = new Column(payments.size() * 32);
+
+        long minCreatedAtMicros = Long.MAX_VALUE;
+        long maxCreatedAtMicros = NULL_MICROS;
+        long previousId = 0;
+        Deflater deflater = new Deflater();
+        try {
+            for (int block = 0; block < blockCount; block++) {
+                List<Payment> rows = payments.subList(block * blockRows, Math.min(payments.size(), (block + 1) * blockRows));
+                for (Payment payment : rows) {
+                    if (payment.getId() <= previousId) {
+                        throw new IllegalArgumentException("Payments should be in increasing identifier order.");
+                    }
+                    previousId = payment.getId();
+                    long createdAtMicros = microsOf(payment.getCreatedAt());
+                    if (createdAtMicros != NULL_MICROS) {
+                        minCreatedAtMicros = Math.min(minCreatedAtMicros, createdAtMicros);
+                        maxCreatedAtMicros = Math.max(maxCreatedAtMicros, createdAtMicros);
+                    }
+                }
+                byte[] data = encode(rows);
+                int offset = HEADER_BYTES + blockCount * INDEX_ENTRY_BYTES + blocks.length;
+                deflater.reset();
+                deflater.setInput(data);
+                deflater.finish();
+                while (!deflater.finished()) {
+                    blocks.ensureCapacity(4096);
+                    blocks.length += deflater.deflate(blocks.bytes, blocks.length, blocks.bytes.length - blocks.length);
+                }
+
+                int entry = HEADER_BYTES + block * INDEX_ENTRY_BYTES;
+                header.putLong(entry + FIRST_ID_OFFSET, rows.get(0).getId());
+                header.putLong(entry + LAST_ID_OFFSET, rows.get(rows.size() - 1).getId());
+                header.putLong(entry + BLOCK_OFFSET_OFFSET, offset);
+                header.putInt(entry + COMPRESSED_LENGTH_OFFSET, HEADER_BYTES + blockCount * INDEX_ENTRY_BYTES + blocks.length - offset);
+                header.putInt(entry + UNCOMPRESSED_LENGTH_OFFSET, data.length);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        header.putLong(MAGIC_OFFSET, MAGIC);
+        header.putInt(VERSION_OFFSET, VERSION);
+        header.putInt(SHARD_OFFSET, shard);
+        header.putInt(ROWS_OFFSET, payments.size());
+        header.putInt(BLOCKS_OFFSET, blockCount);
+        header.putInt(BLOCK_ROWS_OFFSET, blockRows);
+        header.putLong(MIN_ID_OFFSET, payments.get(0).getId());
+        header.putLong(MAX_ID_OFFSET, payments.get(payments.size() - 1).getId());
+        header.putLong(MIN_CREATED_AT_OFFSET, maxCreatedAtMicros == NULL_MICROS ? NULL_MICROS : minCreatedAtMicros);
+        header.putLong(MAX_CREATED_AT_OFFSET, maxCreatedAtMicros);
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer[] buffers = {header.clear(), ByteBuffer.wrap(blocks.bytes, 0, blocks.length)};
+            while (buffers[1].hasRemaining()) {
+                channel.write(buffers);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static byte[] encode(List<Payment> rows) {
+        Column[] columns = new Column[COLUMNS];
+        for (int i = 0; i < COLUMNS; i++) {
+            columns[i] = new Column(rows.size() * 4);
+        }
+        long previousId = 0;
+        long previousCreatedAtMicros = 0;
+        for (Payment payment : rows) {
+            columns[ID].writeVarLong(payment.getId() - previousId);
+            previousId = payment.getId();
+            columns[VERSION_NUMBER].writeVarLong(payment.getVersion() == null ? 0 : payment.getVersion() + 1);
+            long createdAtMicros = microsOf(payment.getCreatedAt());
+            columns[CREATED_AT].writeVarLong(zigzagEncode(createdAtMicros - previousCreatedAtMicros));
+            previousCreatedAtMicros = createdAtMicros;
+            if (payment.getAmount() == null) {
+                columns[AMOUNT].writeVarLong(0);
+                columns[CURRENCY].writeString(null);
+            } else {
+                columns[AMOUNT].writeVarLong(zigzagEncode(payment.getAmount().getMinorUnits()));
+                columns[CURRENCY].writeString(payment.getAmount().getCurrency().getCode());
+            }
+            columns[STATUS].writeByte(payment.getStatus() == null ? 0 : payment.getStatus().getCode());
+            columns[MERCHANT_ID].writeString(payment.getMerchantId());
+            columns[IDEMPOTENCY_KEY].writeString(payment.getIdempotencyKey());
+            columns[CARD_TOKEN].writeString(payment.getCardToken());
+            columns[CARD_BIN].writeString(payment.getCardBin());
+            columns[CARD_LAST4].writeString(payment.getCardLast4());
+            columns[MASKED_CARD_NUMBER].writeString(payment.getMaskedCardNumber());
+            columns[EXPIRY_MONTH].writeString(payment.getExpiryMonth());
+            columns[EXPIRY_YEAR].writeString(payment.getExpiryYear());
+        }
+
+        Column block = new Column(COLUMNS * 4 + Arrays.stream(columns).mapToInt(column -> column.length).sum());
+        block.length = COLUMNS * 4;
+        for (int i = 0; i < COLUMNS; i++) {
+            block.ensureCapacity(columns[i].length);
+            System.arraycopy(columns[i].bytes, 0, block.bytes, block.length, columns[i].length);
+            block.length += columns[i].length;
+            int end = block.length;
+            block.bytes[i * 4] = (byte) end;
+            block.bytes[i * 4 + 1] = (byte) (end >>> 8);
+            block.bytes[i * 4 + 2] = (byte) (end >>> 16);
+            block.bytes[i * 4 + 3] = (byte) (end >>> 24);
+        }
+        return Arrays.copyOf(block.bytes, block.length);
+    }
+
+    private static long microsOf(Instant instant) {
+        if (instant == null) {
+            return NULL_MICROS;
+        }
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+    }
+
+    private static long zigzagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static final class Column {
+
+        private byte[] bytes;
+        private int length;
+
+        private Column(int capacity) {
+            this.bytes = new byte[Math.max(16, capacity)];
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(length + extra, bytes.length * 2));
+            }
+        }
+
+        private void writeByte(int value) {
+            ensureCapacity(1);
+            bytes[length++] = (byte) value;
+        }
+
+        private void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7fL) != 0) {
+                bytes[length++] = (byte) (value & 0x7f | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        private void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(utf8.length + 1L);
+            ensureCapacity(utf8.length);
+            System.arraycopy(utf8, 0, bytes, length, utf8.length);
+            length += utf8.length;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.paymentgateway.archive.impl;
+
+import com.example.paymentgateway.archive.PaymentArchive;
+import com.example.paymentgateway.persistence.Payment;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Component
+@ConditionalOnProperty(name = "payment.archive.enabled", havingValue = "false", matchIfMissing = true)
+public class NoOpPaymentArchive implements PaymentArchive {
+
+    @Override
+    public Optional<Payment> find(long paymentId) {
+        return Optional.empty();
+    }
+
+    @Override
+    public int archiveBefore(Instant cutoff) {
+        return 0;
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.paymentgateway.archive.impl;
+
+import com.example.paymentgateway.archive.PaymentArchive;
+import com.example.paymentgateway.archive.PaymentSegment;
+import com.example.paymentgateway.archive.PaymentSegmentWriter;
+import com.example.paymentgateway.persistence.Payment;
+import com.example.paymentgateway.persistence.PaymentRepository;
+import com.example.paymentgateway.persistence.ShardRouter;
+import com.example.paymentgateway.persistence.impl.SnowflakeIdGenerator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Archives payments past the retention age into {@link PaymentSegment} files, one directory for all shards, on a
+ * single background thread. Each run moves a shard's oldest payments in identifier order, a segment at a time: the
+ * payments are locked, written to a new segment, made visible to lookups, and deleted from the table in the same
+ * transaction. A failure before the commit leaves them in the table, and the next run rewrites the same segment.
+ * <p>
+ * The segments of a shard cover disjoint identifier ranges, so a lookup goes to the one segment whose range may hold
+ * the identifier.
+ * <p>
+ * Segments live on this node's disk while the payments leave the shared table, so other nodes sharing the store could
+ * no longer find them. The archive therefore refuses to start when other nodes may share the store.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "payment.archive.enabled", havingValue = "true")
+public class SegmentPaymentArchive implements PaymentArchive {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    private final PaymentRepository paymentRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final Path directory;
+    private final Duration retention;
+    private final long intervalMillis;
+    private final int segmentRows;
+    private final int blockRows;
+    // Per shard, the segments by their first identifier
+    private final ConcurrentSkipListMap<Long, PaymentSegment>[] segments;
+
+    private volatile boolean running;
+    private Thread archiver;
+
+    @SuppressWarnings("unchecked")
+    public SegmentPaymentArchive(PaymentRepository paymentRepository,
+                                 ShardRouter shardRouter,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${payment.archive.directory:${java.io.tmpdir}/payment-gateway/archive}") Path directory,
+                                 @Value("${payment.archive.retention:90d}") Duration retention,
+                                 @Value("${payment.archive.interval:1h}") Duration interval,
+                                 @Value("${payment.archive.segment-rows:65536}") int segmentRows,
+                                 @Value("${payment.archive.block-rows:256}") int blockRows,
+                                 @Value("${payment.cluster.multi-node:false}") boolean multiNode) {
+        if (multiNode) {
+            throw new IllegalArgumentException("payment.archive.enabled requires a single gateway node, without payment.cluster.multi-node");
+        }
+        this.paymentRepository = paymentRepository;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = transactionTemplate;
+        this.directory = directory;
+        this.retention = retention;
+        this.intervalMillis = interval.toMillis();
+        this.segmentRows = segmentRows;
+        this.blockRows = blockRows;
+        this.segments = new ConcurrentSkipListMap[SnowflakeIdGenerator.MAX_SHARDS];
+        for (int shard = 0; shard < segments.length; shard++) {
+            segments[shard] = new ConcurrentSkipListMap<>();
+        }
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        Files.createDirectories(directory);
+        long payments = 0;
+        int opened = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                PaymentSegment segment = PaymentSegment.open(file);
+                register(segment);
+                payments += segment.getRowCount();
+                opened++;
+            }
+        }
+        log.info("Payment archive {} opened {} segments holding {} payments", directory, opened, payments);
+
+        if (intervalMillis > 0) {
+            running = true;
+            archiver = new Thread(this::archiveLoop, "payment-archiver");
+            archiver.setDaemon(true);
+            archiver.start();
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (archiver != null) {
+            archiver.interrupt();
+            archiver.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        for (Map<Long, PaymentSegment> shardSegments : segments) {
+            shardSegments.values().forEach(this::closeQuietly);
+        }
+    }
+
+    @Override
+    public Optional<Payment> find(long paymentId) {
+        int shard = shardRouter.shardOf(paymentId);
+        if (shard >= segments.length) {
+            return Optional.empty();
+        }
+        Map.Entry<Long, PaymentSegment> entry = segments[shard].floorEntry(paymentId);
+        return entry == null ? Optional.empty() : entry.getValue().find(paymentId);
+    }
+
+    @Override
+    public synchronized int archiveBefore(Instant cutoff) {
+        long cutoffId = SnowflakeIdGenerator.firstIdAt(cutoff.toEpochMilli());
+        int archived = 0;
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            int shardId = shard;
+            int moved;
+            do {
+                moved = shardRouter.onShard(shard,
+                        () -> transactionTemplate.execute(status -> archiveSegment(shardId, cutoffId)));
+                archived += moved;
+            } while (moved == segmentRows);
+        }
+        return archived;
+    }
+
+    private int archiveSegment(int shard, long cutoffId) {
+        List<Payment> payments = paymentRepository.findByIdLessThanOrderByIdAsc(cutoffId, PageRequest.of(0, segmentRows));
+        if (payments.isEmpty()) {
+            return 0;
+        }
+        // Named by shard and first identifier, so rewriting a segment after a failed run replaces the file
+        Path path = directory.resolve(String.format("payments-%03d-%019d%s", shard, payments.get(0).getId(), SEGMENT_SUFFIX));
+        try {
+            PaymentSegmentWriter.write(path, shard, payments, blockRows);
+            // Registered before the delete commits, so a lookup never misses a payment in between
+            register(PaymentSegment.open(path));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to write payment segment " + path, ex);
+        }
+        List<Long> ids = payments.stream().map(Payment::getId).toList();
+        for (int from = 0; from < ids.size(); from += DELETE_BATCH_SIZE) {
+            paymentRepository.deleteAllByIdInBatch(ids.subList(from, Math.min(from + DELETE_BATCH_SIZE, ids.size())));
+        }
+        return payments.size();
+    }
+
+    private void register(PaymentSegment segment) {
+        PaymentSegment replaced = segments[segment.getShard()].put(segment.getMinId(), segment);
+        if (replaced != null) {
+            closeQuietly(replaced);
+        }
+    }
+
+    private void archiveLoop() {
+        while (running) {
+            try {
+                long startedAt = System.nanoTime();
+                int archived = archiveBefore(Instant.now().minus(retention));
+                if (archived > 0) {
+                    log.info("Archived {} payments older than {} in {} ms", archived, retention,
+                            (System.nanoTime() - startedAt) / 1_000_000);
+                }
+            } catch (RuntimeException ex) {
+                // Unarchived payments stay in the table and are picked up by the next run
+                log.warn("Payment archival failed, retrying in {} ms: {}", intervalMillis, ex.getMessage());
+            }
+            try {
+                Thread.sleep(intervalMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void closeQuietly(PaymentSegment segment) {
+        try {
+            segment.close();
+        } catch (IOException ex) {
+            log.warn("Failed to close payment segment {}: {}", segment.getPath(), ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.paymentgateway.cache;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A bounded, concurrent cache whose entries expire a fixed time after they were written.
+ * When the cache grows beyond its maximum size the oldest inserted entries are evicted first.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class ExpiringCache<K, V> {
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<K> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier ticker;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ExpiringCache(int maxSize, Duration ttl) {
+        this(maxSize, ttl, System::nanoTime);
+    }
+
+    public ExpiringCache(int maxSize, Duration ttl, LongSupplier ticker) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.ticker = ticker;
+    }
+
+    /**
+     * Get the value stored for a key.
+     *
+     * @param key the key
+     * @return the value, or null if the key is absent or its entry has expired
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (ticker.getAsLong() - entry.expiresAt > 0) {
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * Store a value, replacing any previous value for the key and restarting its time to live.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    public void put(K key, V value) {
+        Entry<V> previous = entries.put(key, new Entry<>(value, ticker.getAsLong() + ttlNanos));
+        if (previous == null) {
+            insertionOrder.offer(key);
+            queued.incrementAndGet();
+            evictOverflow();
+        }
+    }
+
+    /**
+     * Store a value only if the key has no live entry. Used for read-through population, so that a value loaded
+     * before a concurrent write cannot overwrite the fresher value stored by that write.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return true if the value was stored
+     */
+    public boolean putIfAbsent(K key, V value) {
+        Entry<V> entry = new Entry<>(value, ticker.getAsLong() + ttlNanos);
+        Entry<V> existing = entries.putIfAbsent(key, entry);
+        if (existing == null) {
+            insertionOrder.offer(key);
+            queued.incrementAndGet();
+            evictOverflow();
+            return true;
+        }
+        if (ticker.getAsLong() - existing.expiresAt > 0 && entries.replace(key, existing, entry)) {
+            evictions.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Remove the value stored for a key, if any.
+     *
+     * @param key the key
+     */
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private void evictOverflow() {
+        while (entries.size() > maxSize) {
+            K oldest = insertionOrder.poll();
+            if (oldest == null) {
+                return;
+            }
+            queued.decrementAndGet();
+            if (entries.remove(oldest) != null) {
+                evictions.increment();
+            }
+        }
+        // Invalidated and re-inserted keys leave stale slots behind; drop them before the queue outgrows the cache
+        if (queued.get() > 2 * maxSize) {
+            compactInsertionOrder();
+        }
+    }
+
+    private synchronized void compactInsertionOrder() {
+        if (queued.get() <= 2 * maxSize) {
+            return;
+        }
+        Set<K> seen = new HashSet<>();
+        insertionOrder.removeIf(key -> {
+            if (entries.containsKey(key) && seen.add(key)) {
+                return false;
+            }
+            queued.decrementAndGet();
+            return true;
+        });
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.paymentgateway.cache;
+
+import com.example.paymentgateway.dto.PaymentDetailsResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Cache of already-masked payment details keyed by payment id. Writers of a payment store its details with
+ * {@link #put}, which always wins, while read-through loads use {@link #putIfAbsent} so that a row read before a
+ * status change can never replace the details stored by that change.
+ * <p>
+ * Only this node's status changes reach the cache. When other nodes may share the payment store, a capture or refund
+ * there would leave this node serving the old status until the entry expires, so the cache stays empty and every
+ * read goes to the store.
+ */
+@Component
+public class PaymentDetailsCache {
+
+    private final ExpiringCache<Long, PaymentDetailsResponse> cache;
+    private final boolean enabled;
+
+    public PaymentDetailsCache(int maxSize, Duration ttl) {
+        this(maxSize, ttl, false);
+    }
+
+    @Autowired
+    public PaymentDetailsCache(@Value("${payment.details-cache.max-size:100000}") int maxSize,
+                               @Value("${payment.details-cache.ttl:PT5M}") Duration ttl,
+                               @Value("${payment.cluster.multi-node:false}") boolean multiNode) {
+        this.cache = new ExpiringCache<>(maxSize, ttl);
+        this.enabled = !multiNode;
+    }
+
+    public PaymentDetailsResponse get(Long paymentId) {
+        return enabled ? cache.get(paymentId) : null;
+    }
+
+    public void put(Long paymentId, PaymentDetailsResponse details) {
+        if (enabled) {
+            cache.put(paymentId, details);
+        }
+    }
+
+    public void putIfAbsent(Long paymentId, PaymentDetailsResponse details) {
+        if (enabled) {
+            cache.putIfAbsent(paymentId, details);
+        }
+    }
+
+    public void invalidate(Long paymentId) {
+        cache.invalidate(paymentId);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long hitCount() {
+        return cache.hitCount();
+    }
+
+    public long missCount() {
+        return cache.missCount();
+    }
+
+    public long evictionCount() {
+        return cache.evictionCount();
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.paymentgateway.config;
+
+import com.example.paymentgateway.admission.AdaptiveConcurrencyLimiter;
+import com.example.paymentgateway.admission.GcraRateLimiter;
+import com.example.paymentgateway.presentation.AdmissionControlFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+@Configuration
+public class AdmissionControlConfig {
+
+    /**
+     * Admission control in front of payment submission, single and batch. Each limiter is only created when enabled,
+     * and the filter only registered when one is.
+     */
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${payment.rate-limit.enabled:false}") boolean rateLimitEnabled,
+            @Value("${payment.rate-limit.requests-per-second:100}") double requestsPerSecond,
+            @Value("${payment.rate-limit.burst:200}") int burst,
+            @Value("${payment.rate-limit.max-keys:262144}") int maxKeys,
+            @Value("${payment.admission.enabled:false}") boolean admissionEnabled,
+            @Value("${payment.admission.initial-limit:200}") int initialLimit,
+            @Value("${payment.admission.min-limit:10}") int minLimit,
+            @Value("${payment.admission.max-limit:1000}") int maxLimit,
+            @Value("${payment.admission.latency-threshold:1s}") Duration latencyThreshold,
+            @Value("${payment.admission.backoff-ratio:0.9}") double backoffRatio) {
+        GcraRateLimiter rateLimiter = rateLimitEnabled ? new GcraRateLimiter(requestsPerSecond, burst, maxKeys) : null;
+        AdaptiveConcurrencyLimiter concurrencyLimiter = admissionEnabled
+                ? new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, latencyThreshold, backoffRatio)
+                : null;
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(
+                new AdmissionControlFilter(rateLimiter, concurrencyLimiter, objectMapper, meterRegistry));
+        registration.addUrlPatterns("/api/payments", "/api/payments/batch");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        registration.setEnabled(rateLimiter != null || concurrencyLimiter != null);
+        return registration;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.paymentgateway.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+@Slf4j
+public class AsyncPaymentConfig {
+
+    /**
+     * Executor running the bank call and persistence of asynchronously processed payments. Uses a virtual thread
+     * per task when the runtime supports it (Java 21+), and a bounded platform thread pool otherwise.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService paymentExecutor(@Value("${payment.async.virtual-threads:true}") boolean virtualThreads,
+                                           @Value("${payment.async.pool-size:200}") int poolSize) {
+        if (virtualThreads) {
+            try {
+                var factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                log.info("Processing asynchronous payments on virtual threads");
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException ex) {
+                log.info("Virtual threads are not available on Java {}, using a pool of {} platform threads",
+                        Runtime.version().feature(), poolSize);
+            }
+        }
+        return Executors.newFixedThreadPool(poolSize, namedThreadFactory("payment-exec-"));
+    }
+
+    /**
+     * Executor running the workers of payment batches, apart from the payment executor so that large batches cannot
+     * take every thread from single payments and background authorizations.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService batchExecutor(@Value("${payment.batch.pool-size:64}") int poolSize) {
+        return Executors.newFixedThreadPool(poolSize, namedThreadFactory("payment-batch-"));
+    }
+
+    /**
+     * Executor releasing the idempotency leases of batch payments once they are stored. Batch workers waiting to
+     * acquire a lease must not be able to hold up its release.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService leaseReleaseExecutor(@Value("${payment.idempotency.lease.release-pool-size:4}") int poolSize) {
+        return Executors.newFixedThreadPool(poolSize, namedThreadFactory("lease-release-"));
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
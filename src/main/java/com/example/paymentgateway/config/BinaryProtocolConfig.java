@@ -0,0 +1,22 @@
+package com.example.paymentgateway.config;
+
+import com.example.paymentgateway.presentation.PaymentBinaryHttpMessageConverter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+@ConditionalOnProperty(name = "payment.binary-protocol.enabled", havingValue = "true", matchIfMissing = true)
+public class BinaryProtocolConfig implements WebMvcConfigurer {
+
+    /**
+     * The compact binary encoding is added last, so it only serves the requests that ask for it by media type.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new PaymentBinaryHttpMessageConverter());
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.paymentgateway.config;
+
+import com.example.paymentgateway.risk.RiskProperties;
+import com.example.paymentgateway.risk.impl.VelocityRiskEngine;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "payment.risk.enabled", havingValue = "true")
+@EnableConfigurationProperties(RiskProperties.class)
+public class RiskConfig {
+
+    @Bean
+    public VelocityRiskEngine velocityRiskEngine(RiskProperties riskProperties) {
+        return new VelocityRiskEngine(riskProperties);
+    }
+}
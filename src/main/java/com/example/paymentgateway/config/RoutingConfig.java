@@ -0,0 +1,22 @@
+package com.example.paymentgateway.config;
+
+import com.example.paymentgateway.routing.RoutingBankSimulator;
+import com.example.paymentgateway.routing.RoutingProperties;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+@Configuration
+@ConditionalOnProperty(name = "payment.routing.enabled", havingValue = "true")
+@EnableConfigurationProperties(RoutingProperties.class)
+public class RoutingConfig {
+
+    @Bean
+    @Primary
+    public RoutingBankSimulator routingBankSimulator(ListableBeanFactory beanFactory, RoutingProperties routingProperties) {
+        return new RoutingBankSimulator(beanFactory, routingProperties);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.paymentgateway.config;
+
+import com.example.paymentgateway.persistence.impl.PaymentIdentifierGenerator;
+import com.example.paymentgateway.persistence.impl.ShardRoutingDataSource;
+import com.example.paymentgateway.persistence.impl.SnowflakeIdGenerator;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.relational.SchemaManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@Slf4j
+public class ShardingConfig {
+
+    /**
+     * One connection pool per shard behind a routing data source. A single shard uses the database of
+     * {@code spring.datasource.url}; with more, shard N uses the database of the URL template formatted with N.
+     */
+    @Bean
+    public ShardRoutingDataSource dataSource(DataSourceProperties properties,
+                                             Environment environment,
+                                             @Value("${payment.sharding.shards:1}") int shards,
+                                             @Value("${payment.sharding.node-id:0}") int nodeId,
+                                             @Value("${payment.sharding.url-template:jdbc:h2:mem:payment-shard-%d}") String urlTemplate,
+                                             @Value("${payment.cluster.multi-node:false}") boolean multiNode) {
+        if (shards < 1 || shards > SnowflakeIdGenerator.MAX_SHARDS) {
+            throw new IllegalArgumentException("payment.sharding.shards must be between 1 and " + SnowflakeIdGenerator.MAX_SHARDS);
+        }
+        if (nodeId != 0 && !multiNode) {
+            // Node ids only tell nodes sharing the store apart
+            throw new IllegalArgumentException("payment.sharding.node-id " + nodeId + " requires payment.cluster.multi-node");
+        }
+
+        Binder binder = Binder.get(environment);
+        List<HikariDataSource> pools = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            String url = shards == 1 ? properties.determineUrl() : String.format(urlTemplate, shard);
+            HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(url).build();
+            // Every shard gets the pool settings Spring Boot would have applied to its own data source
+            binder.bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+            pool.setPoolName("payment-shard-" + shard);
+            pools.add(pool);
+        }
+        if (shards > 1) {
+            log.info("Payment store split across {} shards, node {}", shards, nodeId);
+        }
+        return new ShardRoutingDataSource(pools);
+    }
+
+    @Bean
+    public SnowflakeIdGenerator snowflakeIdGenerator(@Value("${payment.sharding.node-id:0}") int nodeId) {
+        return new SnowflakeIdGenerator(nodeId);
+    }
+
+    /**
+     * Hands this context's identifier generator to the {@link PaymentIdentifierGenerator} instances Hibernate creates.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer snowflakeIdGeneratorSetting(SnowflakeIdGenerator snowflakeIdGenerator) {
+        return properties -> properties.put(PaymentIdentifierGenerator.GENERATOR_SETTING, snowflakeIdGenerator);
+    }
+
+    /**
+     * Hibernate generates the schema on the shard it connects to at startup, shard 0. Generate it on the other
+     * shards as soon as the entity manager factory is built, before any repository can reach them.
+     */
+    @Bean
+    public static BeanPostProcessor shardSchemaGenerator(@Value("${payment.sharding.shards:1}") int shards) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (shards > 1 && bean instanceof EntityManagerFactory entityManagerFactory) {
+                    createSchema(entityManagerFactory, shards);
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static void createSchema(EntityManagerFactory entityManagerFactory, int shards) {
+        Object action = entityManagerFactory.getProperties().get(AvailableSettings.HBM2DDL_AUTO);
+        if (action == null || !action.toString().startsWith("create")) {
+            return;
+        }
+        SchemaManager schemaManager = entityManagerFactory.unwrap(SessionFactory.class).getSchemaManager();
+        for (int shard = 1; shard < shards; shard++) {
+            ShardRoutingDataSource.callOn(shard, () -> {
+                schemaManager.dropMappedObjects(true);
+                schemaManager.exportMappedObjects(true);
+                return null;
+            });
+        }
+    }
+}
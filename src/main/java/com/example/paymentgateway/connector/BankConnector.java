@@ -0,0 +1,14 @@
+package com.example.paymentgateway.connector;
+
+import com.example.paymentgateway.dto.PaymentRequest;
+
+public interface BankConnector {
+
+    /**
+     * Send a transaction to the bank, bounded by the configured deadline and concurrency limits.
+     *
+     * @param paymentRequest the payment request
+     * @return the outcome of the transaction
+     */
+    BankOutcome authorize(PaymentRequest paymentRequest);
+}
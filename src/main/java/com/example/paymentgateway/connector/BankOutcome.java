@@ -0,0 +1,15 @@
+package com.example.paymentgateway.connector;
+
+public enum BankOutcome {
+    /** The bank approved the transaction. */
+    APPROVED,
+    /** The bank declined the transaction. */
+    DECLINED,
+    /**
+     * The bank did not answer before the deadline, or the call failed after the transaction was sent, so whether
+     * it processed the transaction is unknown.
+     */
+    TIMEOUT,
+    /** The transaction was not sent because the bank is failing or the connector is saturated. */
+    UNAVAILABLE
+}
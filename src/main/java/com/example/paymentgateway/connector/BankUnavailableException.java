@@ -0,0 +1,12 @@
+package com.example.paymentgateway.connector;
+
+/**
+ * Thrown when a payment could not be sent to the bank at all, so the client can safely retry it with the same
+ * idempotency key.
+ */
+public class BankUnavailableException extends RuntimeException {
+
+    public BankUnavailableException(String message) {
+        super(message);
+    }
+}
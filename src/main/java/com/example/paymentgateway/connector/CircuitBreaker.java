@@ -0,0 +1,132 @@
+package com.example.paymentgateway.connector;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker. It opens when the failure rate over the last {@code windowSize} calls reaches the
+ * threshold, rejects calls while open, and after the open duration lets a single trial call through to decide
+ * whether to close again.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final boolean[] window;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final LongSupplier ticker;
+
+    private State state = State.CLOSED;
+    private int next;
+    private int recorded;
+    private int failures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int windowSize, double failureRateThreshold, Duration openDuration) {
+        this(windowSize, failureRateThreshold, openDuration, System::nanoTime);
+    }
+
+    public CircuitBreaker(int windowSize, double failureRateThreshold, Duration openDuration, LongSupplier ticker) {
+        this.window = new boolean[windowSize];
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.ticker = ticker;
+    }
+
+    /**
+     * Ask whether a call may proceed. A permitted call must be followed by {@link #onSuccess()} or
+     * {@link #onFailure()}.
+     *
+     * @return true if the call may proceed
+     */
+    public synchronized boolean tryAcquirePermission() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (ticker.getAsLong() - openedAt < openNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            close();
+        } else {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else {
+            record(true);
+        }
+    }
+
+    /**
+     * Whether {@link #tryAcquirePermission()} would currently let a call through, without taking the permission.
+     *
+     * @return true unless the circuit is open, or half open with its trial call in flight
+     */
+    public synchronized boolean allowsCalls() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> ticker.getAsLong() - openedAt >= openNanos;
+            case HALF_OPEN -> !trialInFlight;
+        };
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == window.length) {
+            if (window[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        window[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % window.length;
+        if (recorded == window.length && failures >= failureRateThreshold * window.length) {
+            open();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = ticker.getAsLong();
+        trialInFlight = false;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        trialInFlight = false;
+        next = 0;
+        recorded = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.paymentgateway.connector.impl;
+
+import com.example.paymentgateway.connector.BankConnector;
+import com.example.paymentgateway.connector.BankOutcome;
+import com.example.paymentgateway.connector.BankUnavailableException;
+import com.example.paymentgateway.connector.CircuitBreaker;
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.simulator.BankSimulator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Calls the bank with a per-call deadline, a bulkhead limiting concurrent calls, a circuit breaker failing fast
+ * while the bank is degraded and, optionally, a hedged second attempt when the first is slow.
+ * <p>
+ * Hedging sends the same transaction twice, so it must only be enabled for acquirers that deduplicate on the
+ * idempotency key carried by the request.
+ * <p>
+ * With acquirer routing the circuit breaker is left to the router, which keeps one per acquirer.
+ */
+@Service
+@Slf4j
+public class ResilientBankConnector implements BankConnector {
+
+    private final BankSimulator bankSimulator;
+    private final long timeoutNanos;
+    private final Semaphore bulkhead;
+    private final long bulkheadMaxWaitNanos;
+    private final CircuitBreaker circuitBreaker;
+    private final boolean hedgeEnabled;
+    private final long hedgeDelayNanos;
+    private final ExecutorService bankCallExecutor;
+    private final Counter[] outcomeCounters = new Counter[BankOutcome.values().length];
+
+    public ResilientBankConnector(BankSimulator bankSimulator,
+                                  MeterRegistry meterRegistry,
+                                  Duration timeout,
+                                  int maxConcurrentCalls,
+                                  Duration bulkheadMaxWait,
+                                  int circuitBreakerWindowSize,
+                                  double failureRateThreshold,
+                                  Duration circuitBreakerOpenDuration,
+                                  boolean hedgeEnabled,
+                                  Duration hedgeDelay) {
+        this(bankSimulator, meterRegistry, timeout, maxConcurrentCalls, bulkheadMaxWait, circuitBreakerWindowSize,
+                failureRateThreshold, circuitBreakerOpenDuration, hedgeEnabled, hedgeDelay, false);
+    }
+
+    @Autowired
+    public ResilientBankConnector(BankSimulator bankSimulator,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${payment.bank.timeout:2s}") Duration timeout,
+                                  @Value("${payment.bank.bulkhead.max-concurrent-calls:100}") int maxConcurrentCalls,
+                                  @Value("${payment.bank.bulkhead.max-wait:0ms}") Duration bulkheadMaxWait,
+                                  @Value("${payment.bank.circuit-breaker.window-size:50}") int circuitBreakerWindowSize,
+                                  @Value("${payment.bank.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                                  @Value("${payment.bank.circuit-breaker.open-duration:10s}") Duration circuitBreakerOpenDuration,
+                                  @Value("${payment.bank.hedge.enabled:false}") boolean hedgeEnabled,
+                                  @Value("${payment.bank.hedge.delay:200ms}") Duration hedgeDelay,
+                                  @Value("${payment.routing.enabled:false}") boolean routingEnabled) {
+        this.bankSimulator = bankSimulator;
+        this.timeoutNanos = timeout.toNanos();
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.bulkheadMaxWaitNanos = bulkheadMaxWait.toNanos();
+        // A routed payment goes through the breaker of its acquirer, so one failing acquirer cannot cut off the others
+        this.circuitBreaker = routingEnabled ? null : new CircuitBreaker(circuitBreakerWindowSize, failureRateThreshold, circuitBreakerOpenDuration);
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgeDelayNanos = hedgeDelay.toNanos();
+
+        AtomicInteger threads = new AtomicInteger();
+        // Unbounded pool, but the bulkhead caps it at two threads (attempt and hedge) per permit
+        this.bankCallExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "bank-call-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (BankOutcome outcome : BankOutcome.values()) {
+            outcomeCounters[outcome.ordinal()] = Counter.builder("payment.bank.outcome")
+                    .tag("outcome", outcome.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+        if (circuitBreaker != null) {
+            Gauge.builder("payment.bank.circuit_breaker.state", circuitBreaker, breaker -> breaker.state().ordinal())
+                    .description("0 = closed, 1 = open, 2 = half open")
+                    .register(meterRegistry);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        bankCallExecutor.shutdownNow();
+    }
+
+    @Override
+    public BankOutcome authorize(PaymentRequest paymentRequest) {
+        BankOutcome outcome = doAuthorize(paymentRequest);
+        outcomeCounters[outcome.ordinal()].increment();
+        return outcome;
+    }
+
+    public CircuitBreaker.State circuitBreakerState() {
+        return circuitBreaker == null ? CircuitBreaker.State.CLOSED : circuitBreaker.state();
+    }
+
+    private BankOutcome doAuthorize(PaymentRequest paymentRequest) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        try {
+            if (!bulkhead.tryAcquire(bulkheadMaxWaitNanos, TimeUnit.NANOSECONDS)) {
+                log.warn("Bank bulkhead full, rejecting payment with idempotency key {}", paymentRequest.getIdempotencyKey());
+                return BankOutcome.UNAVAILABLE;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return BankOutcome.UNAVAILABLE;
+        }
+        if (circuitBreaker != null && !circuitBreaker.tryAcquirePermission()) {
+            bulkhead.release();
+            return BankOutcome.UNAVAILABLE;
+        }
+
+        // The permit is held until this call and every attempt it started have finished, so calls stuck in the
+        // bank keep counting against the bulkhead after their caller has timed out
+        Attempts attempts = new Attempts();
+        CompletableFuture<Boolean> primary;
+        try {
+            primary = attempts.submit(paymentRequest);
+        } catch (RejectedExecutionException ex) {
+            // Shutting down; the transaction never left the gateway
+            attempts.release();
+            onFailure();
+            return BankOutcome.UNAVAILABLE;
+        }
+        try {
+            CompletableFuture<Boolean> result = primary;
+            if (hedgeEnabled && hedgeDelayNanos < timeoutNanos) {
+                try {
+                    return succeeded(primary.get(hedgeDelayNanos, TimeUnit.NANOSECONDS));
+                } catch (TimeoutException slow) {
+                    log.debug("Hedging slow bank call for idempotency key {}", paymentRequest.getIdempotencyKey());
+                    result = hedge(primary, attempts, paymentRequest);
+                }
+            }
+            return succeeded(result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+        } catch (TimeoutException ex) {
+            onFailure();
+            attempts.cancel();
+            return BankOutcome.TIMEOUT;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof BankUnavailableException) {
+                // Not sent, e.g. every acquirer routed to was open or full
+                onFailure();
+                return BankOutcome.UNAVAILABLE;
+            }
+            // The transaction was sent and may have been processed before the call failed, so its outcome is
+            // unknown; only failures before sending (bulkhead, circuit, rejected submit) are UNAVAILABLE
+            log.warn("Bank call failed for idempotency key {}", paymentRequest.getIdempotencyKey(), ex.getCause());
+            onFailure();
+            return BankOutcome.TIMEOUT;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            onFailure();
+            attempts.cancel();
+            return BankOutcome.TIMEOUT;
+        } finally {
+            attempts.release();
+        }
+    }
+
+    private BankOutcome succeeded(boolean approved) {
+        if (circuitBreaker != null) {
+            circuitBreaker.onSuccess();
+        }
+        return approved ? BankOutcome.APPROVED : BankOutcome.DECLINED;
+    }
+
+    private void onFailure() {
+        if (circuitBreaker != null) {
+            circuitBreaker.onFailure();
+        }
+    }
+
+    private CompletableFuture<Boolean> hedge(CompletableFuture<Boolean> primary, Attempts attempts, PaymentRequest paymentRequest) {
+        try {
+            return firstSuccessful(primary, attempts.submit(paymentRequest));
+        } catch (RejectedExecutionException ex) {
+            return primary;
+        }
+    }
+
+    private static CompletableFuture<Boolean> firstSuccessful(CompletableFuture<Boolean> first, CompletableFuture<Boolean> second) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        AtomicInteger failed = new AtomicInteger();
+        for (CompletableFuture<Boolean> attempt : List.of(first, second)) {
+            attempt.whenComplete((approved, ex) -> {
+                if (ex == null) {
+                    result.complete(approved);
+                } else if (failed.incrementAndGet() == 2) {
+                    result.completeExceptionally(ex);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Tracks the attempts started for one call. The caller holds one reference and every attempt holds another;
+     * the bulkhead permit is returned when the last reference is dropped.
+     */
+    private final class Attempts {
+
+        private final AtomicInteger references = new AtomicInteger(1);
+        private final List<Attempt> started = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<Boolean> submit(PaymentRequest paymentRequest) {
+            references.incrementAndGet();
+            Attempt attempt = new Attempt();
+            try {
+                attempt.task = bankCallExecutor.submit(() -> attempt.run(paymentRequest));
+            } catch (RejectedExecutionException ex) {
+                release();
+                throw ex;
+            }
+            started.add(attempt);
+            return attempt.result;
+        }
+
+        void cancel() {
+            started.forEach(Attempt::cancel);
+        }
+
+        void release() {
+            if (references.decrementAndGet() == 0) {
+                bulkhead.release();
+            }
+        }
+
+        private final class Attempt {
+
+            private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+            private final AtomicBoolean claimed = new AtomicBoolean();
+            private volatile Future<?> task;
+
+            void run(PaymentRequest paymentRequest) {
+                if (!claimed.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    result.complete(bankSimulator.processTransaction(paymentRequest));
+                } catch (RuntimeException ex) {
+                    result.completeExceptionally(ex);
+                } finally {
+                    release();
+                }
+            }
+
+            void cancel() {
+                if (claimed.compareAndSet(false, true)) {
+                    // Never started, so it will not run and its reference is dropped here
+                    result.cancel(false);
+                    release();
+                } else if (task != null) {
+                    // Interrupt a call stuck in the bank; its reference is dropped when it returns
+                    task.cancel(true);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.paymentgateway.dto;
+
+public enum ExportFormat {
+    CSV,
+    NDJSON
+}
@@ -0,0 +1,28 @@
+package com.example.paymentgateway.dto;
+
+import com.example.paymentgateway.money.Money;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentAggregateResponse {
+    private String window;
+    private String currency;
+    private long count;
+
+    /** Amounts are null for the currencies folded together beyond the configured maximum. */
+    private Money amount;
+    /** Payments authorized by the bank. */
+    private long successCount;
+    private Money successAmount;
+    private long failureCount;
+    private Money failureAmount;
+
+    /** AUTHORIZED / (AUTHORIZED + FAILED). */
+    private double approvalRate;
+}
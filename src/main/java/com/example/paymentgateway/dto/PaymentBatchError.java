@@ -0,0 +1,15 @@
+package com.example.paymentgateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/** Stands in a batch result for a payment that could not be processed, so it has no payment id nor status. */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentBatchError {
+    private String error;
+}
@@ -1,5 +1,6 @@
 package com.example.paymentgateway.dto;
 
+import com.example.paymentgateway.money.Money;
 import lombok.*;
 
 @Getter
@@ -12,7 +13,7 @@ public class PaymentDetailsResponse {
     private String maskedCardNumber;
     private String expiryMonth;
     private String expiryYear;
-    private Double amount;
+    private Money amount;
     private String currency;
     private String status;
 }
\ No newline at end of file
@@ -5,8 +5,11 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.*;
 
+import java.math.BigDecimal;
+
 @Getter
 @Setter
 @NoArgsConstructor
@@ -31,11 +34,19 @@ public class PaymentRequest {
 
     @NotNull(message = "Amount is required.")
     @Positive(message = "Amount should be positive.")
-    private Double amount;
+    private BigDecimal amount;
 
     @NotBlank(message = "Currency is required.")
     private String currency;
 
     @NotBlank(message = "Idempotency Key is required.")
     private String idempotencyKey;
-}
\ No newline at end of file
+
+    /** Taken from the Merchant-Id header rather than the request body. */
+    @JsonIgnore
+    private String merchantId;
+
+    public PaymentRequest(String cardNumber, String expiryMonth, String expiryYear, String cvv, BigDecimal amount, String currency, String idempotencyKey) {
+        this(cardNumber, expiryMonth, expiryYear, cvv, amount, currency, idempotencyKey, null);
+    }
+}
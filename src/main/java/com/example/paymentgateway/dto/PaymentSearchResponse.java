@@ -0,0 +1,19 @@
+package com.example.paymentgateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentSearchResponse {
+    private List<PaymentSummary> payments;
+
+    /** Cursor of the next page, or null on the last page. */
+    private String nextCursor;
+}
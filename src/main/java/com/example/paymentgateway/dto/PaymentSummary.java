@@ -0,0 +1,29 @@
+package com.example.paymentgateway.dto;
+
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
+import com.example.paymentgateway.persistence.PaymentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentSummary {
+    private String paymentId;
+    private String merchantId;
+    private Money amount;
+    private String currency;
+    private String status;
+    private Instant createdAt;
+
+    /** Projection of a payment row, see {@code PaymentSearchRepositoryImpl}. */
+    public PaymentSummary(String paymentId, String merchantId, Long amountMinorUnits, CurrencyUnit currency, PaymentStatus status, Instant createdAt) {
+        this(paymentId, merchantId, Money.ofMinor(amountMinorUnits, currency), currency.getCode(), status.name(), createdAt);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.paymentgateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RouteDefinition {
+
+    private String acquirer;
+
+    /** First BIN of the range, 1 to 8 digits; padded with zeros to 8 digits. */
+    private String binFrom;
+
+    /** Last BIN of the range, 1 to 8 digits; padded with nines to 8 digits. */
+    private String binTo;
+
+    /** Currencies this route accepts; an empty list accepts any currency. */
+    private List<String> currencies = new ArrayList<>();
+
+    /** Routes with a lower priority value are preferred; routes with equal priority compete on health. */
+    private int priority;
+}
@@ -0,0 +1,20 @@
+package com.example.paymentgateway.events;
+
+import com.example.paymentgateway.money.Money;
+
+import java.time.Instant;
+
+/**
+ * A payment was created or changed status. Events are delivered at least once; the event identifier is stable
+ * across redeliveries, so subscribers can discard duplicates with it. The amount is in the major unit of the currency
+ * named alongside it.
+ */
+public record PaymentEvent(long eventId,
+                           PaymentEventType type,
+                           long paymentId,
+                           String merchantId,
+                           Money amount,
+                           String currency,
+                           String status,
+                           Instant occurredAt) {
+}
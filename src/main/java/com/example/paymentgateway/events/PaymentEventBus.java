@@ -0,0 +1,21 @@
+package com.example.paymentgateway.events;
+
+import java.util.List;
+
+public interface PaymentEventBus {
+
+    /**
+     * Publish events to every subscriber. Blocks while the slowest subscriber is a whole buffer behind, so a stuck
+     * subscriber pushes back on the publisher rather than growing memory.
+     *
+     * @param events the events
+     * @return the sequence number of the last event published
+     * @throws InterruptedException if interrupted while waiting for buffer space
+     */
+    long publish(List<PaymentEvent> events) throws InterruptedException;
+
+    /**
+     * The sequence number up to which every subscriber has handled the published events, -1 before the first.
+     */
+    long handledSequence();
+}
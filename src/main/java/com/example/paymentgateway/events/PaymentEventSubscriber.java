@@ -0,0 +1,14 @@
+package com.example.paymentgateway.events;
+
+import java.util.List;
+
+public interface PaymentEventSubscriber {
+
+    /**
+     * Handle a batch of events, in the order they were published. Returning acknowledges the whole batch; throwing
+     * makes the bus deliver the same batch again after a backoff, so handlers must tolerate redelivery.
+     *
+     * @param events the events
+     */
+    void onEvents(List<PaymentEvent> events);
+}
@@ -0,0 +1,6 @@
+package com.example.paymentgateway.events;
+
+public enum PaymentEventType {
+    PAYMENT_CREATED,
+    PAYMENT_STATUS_CHANGED
+}
@@ -0,0 +1,243 @@
+package com.example.paymentgateway.events.impl;
+
+import com.example.paymentgateway.events.PaymentEventBus;
+import com.example.paymentgateway.persistence.OutboxEvent;
+import com.example.paymentgateway.persistence.OutboxEventRepository;
+import com.example.paymentgateway.persistence.OutboxRelayLeaseRepository;
+import com.example.paymentgateway.persistence.ShardRouter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves outbox events into the event bus in batches, on a single background thread, and deletes them once every
+ * subscriber has handled them. Delivery is at least once: events published but not yet handled when the
+ * application stops are published again after the restart.
+ * <p>
+ * Gateway nodes sharing a payment store relay each shard from one node at a time: a node relays a shard only while it
+ * holds the shard's lease row, renewing it at half its duration. A node that dies stops renewing, and another takes
+ * the shard over once the lease expires, publishing again whatever the dead node had not deleted.
+ * <p>
+ * Each shard is read past the last event relayed from it. A shard's events are committed in identifier order by its
+ * write-behind flusher; when that is disabled a transaction may commit behind the mark, so the shard is read again
+ * from its start whenever all its relayed events have been deleted, and at the rescan interval in any case, skipping
+ * the events still in flight.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "payment.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxRelayLeaseRepository leaseRepository;
+    private final ShardRouter shardRouter;
+    private final PaymentEventBus paymentEventBus;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long pollIntervalMillis;
+    private final long leaseMillis;
+    private final long rescanIntervalNanos;
+    // Unique per instance, so nodes configured with the same node id still tell their leases apart
+    private final String ownerId = UUID.randomUUID().toString();
+    private final long[] relayedUpTo;
+    private final int[] batchesInFlight;
+    private final long[] leasedUntil;
+    private final Queue<RelayedBatch> inFlight = new ArrayDeque<>();
+    private final Set<Long> inFlightIds = new HashSet<>();
+    private long nextRescanAt;
+
+    private volatile boolean running;
+    private Thread relay;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       OutboxRelayLeaseRepository leaseRepository,
+                       ShardRouter shardRouter,
+                       PaymentEventBus paymentEventBus,
+                       TransactionTemplate transactionTemplate,
+                       @Value("${payment.outbox.relay.batch-size:500}") int batchSize,
+                       @Value("${payment.outbox.relay.poll-interval:20ms}") Duration pollInterval,
+                       @Value("${payment.outbox.relay.lease-duration:10s}") Duration leaseDuration,
+                       @Value("${payment.outbox.relay.rescan-interval:1s}") Duration rescanInterval) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.leaseRepository = leaseRepository;
+        this.shardRouter = shardRouter;
+        this.paymentEventBus = paymentEventBus;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.pollIntervalMillis = pollInterval.toMillis();
+        this.leaseMillis = leaseDuration.toMillis();
+        this.rescanIntervalNanos = rescanInterval.toNanos();
+        this.relayedUpTo = new long[shardRouter.shardCount()];
+        this.batchesInFlight = new int[shardRouter.shardCount()];
+        this.leasedUntil = new long[shardRouter.shardCount()];
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        nextRescanAt = System.nanoTime();
+        relay = new Thread(this::relayLoop, "outbox-relay");
+        relay.setDaemon(true);
+        relay.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        relay.interrupt();
+        relay.join(TimeUnit.SECONDS.toMillis(10));
+        for (int shard = 0; shard < leasedUntil.length; shard++) {
+            if (leasedUntil[shard] > System.currentTimeMillis()) {
+                releaseLease(shard);
+            }
+        }
+    }
+
+    private void relayLoop() {
+        while (running) {
+            try {
+                boolean relayed = false;
+                boolean rescan = System.nanoTime() - nextRescanAt >= 0;
+                if (rescan) {
+                    nextRescanAt = System.nanoTime() + rescanIntervalNanos;
+                }
+                for (int shard = 0; shard < relayedUpTo.length; shard++) {
+                    if (!holdsLease(shard)) {
+                        continue;
+                    }
+                    if (rescan) {
+                        relayed |= rescanShard(shard);
+                    }
+                    relayed |= relayShard(shard);
+                }
+                deleteHandled();
+                if (!relayed) {
+                    Thread.sleep(pollIntervalMillis);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                // The events stay in the outbox and are read again on the next poll
+                log.warn("Outbox relay failed, retrying: {}", ex.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean holdsLease(int shard) {
+        long now = System.currentTimeMillis();
+        if (now < leasedUntil[shard] - leaseMillis / 2) {
+            return true;
+        }
+        boolean held = shardRouter.onShard(shard, () -> transactionTemplate.execute(status ->
+                leaseRepository.renewOrTakeOver(shard, ownerId, now + leaseMillis, now) == 1)) || insertLease(shard, now);
+        if (!held && leasedUntil[shard] > now) {
+            log.warn("The outbox relay lease on shard {} was taken over while this node held it", shard);
+        }
+        leasedUntil[shard] = held ? now + leaseMillis : 0;
+        return held;
+    }
+
+    private boolean insertLease(int shard, long now) {
+        try {
+            return shardRouter.onShard(shard, () -> transactionTemplate.execute(status ->
+                    leaseRepository.insert(shard, ownerId, now + leaseMillis) == 1));
+        } catch (DataIntegrityViolationException ex) {
+            // Another node relays the shard
+            return false;
+        }
+    }
+
+    private void releaseLease(int shard) {
+        try {
+            shardRouter.onShard(shard, () -> transactionTemplate.execute(status -> leaseRepository.release(shard, ownerId)));
+        } catch (RuntimeException ex) {
+            // The lease expires on its own
+            log.warn("Could not release the outbox relay lease on shard {}: {}", shard, ex.getMessage());
+        }
+    }
+
+    private boolean relayShard(int shard) throws InterruptedException {
+        long after = batchesInFlight[shard] == 0 ? 0 : relayedUpTo[shard];
+        List<OutboxEvent> events = read(shard, after);
+        if (events.isEmpty()) {
+            return false;
+        }
+        publish(shard, events);
+        relayedUpTo[shard] = events.get(events.size() - 1).getId();
+        return true;
+    }
+
+    private boolean rescanShard(int shard) throws InterruptedException {
+        boolean relayed = false;
+        long upTo = relayedUpTo[shard];
+        long after = 0;
+        while (after < upTo) {
+            List<OutboxEvent> events = read(shard, after);
+            if (events.isEmpty()) {
+                break;
+            }
+            List<OutboxEvent> missed = events.stream()
+                    .filter(event -> event.getId() <= upTo && !inFlightIds.contains(event.getId()))
+                    .toList();
+            if (!missed.isEmpty()) {
+                publish(shard, missed);
+                relayed = true;
+            }
+            after = events.get(events.size() - 1).getId();
+        }
+        return relayed;
+    }
+
+    private List<OutboxEvent> read(int shard, long after) {
+        return shardRouter.onShard(shard,
+                () -> outboxEventRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, batchSize)));
+    }
+
+    private void publish(int shard, List<OutboxEvent> events) throws InterruptedException {
+        long sequence = paymentEventBus.publish(events.stream().map(OutboxEvent::toPaymentEvent).toList());
+        List<Long> ids = events.stream().map(OutboxEvent::getId).toList();
+        inFlight.add(new RelayedBatch(shard, sequence, ids));
+        inFlightIds.addAll(ids);
+        batchesInFlight[shard]++;
+    }
+
+    private void deleteHandled() {
+        long handled = paymentEventBus.handledSequence();
+        RelayedBatch batch;
+        while ((batch = inFlight.peek()) != null && batch.lastSequence() <= handled) {
+            List<Long> ids = batch.ids();
+            shardRouter.onShard(batch.shard(), () -> {
+                outboxEventRepository.deleteAllByIdInBatch(ids);
+                return null;
+            });
+            inFlight.remove();
+            ids.forEach(inFlightIds::remove);
+            batchesInFlight[batch.shard()]--;
+        }
+    }
+
+    private record RelayedBatch(int shard, long lastSequence, List<Long> ids) {
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.paymentgateway.events.impl;
+
+import com.example.paymentgateway.events.PaymentEvent;
+import com.example.paymentgateway.events.PaymentEventBus;
+import com.example.paymentgateway.events.PaymentEventSubscriber;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Disruptor-style event bus: events are written into a preallocated ring and every subscriber reads them on its own
+ * thread, tracking its own sequence, so subscribers never contend with each other and a slow one only holds back
+ * the publisher once it is a whole ring behind. A subscriber takes every event available up to the batch size at
+ * once, so it catches up in large batches after a stall. A batch it fails on is redelivered with exponential backoff
+ * and its sequence does not advance.
+ */
+@Component
+@Slf4j
+public class RingBufferPaymentEventBus implements PaymentEventBus {
+
+    private static final int SPINS_BEFORE_PARKING = 100;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final PaymentEvent[] ring;
+    private final int mask;
+    private final int maxBatchSize;
+    private final long retryBackoffNanos;
+    private final long maxRetryBackoffNanos;
+    private final AtomicLong publishedSequence = new AtomicLong(-1);
+    private final List<Consumer> consumers = new ArrayList<>();
+
+    private volatile boolean running;
+
+    @Autowired
+    public RingBufferPaymentEventBus(ObjectProvider<PaymentEventSubscriber> subscribers,
+                                     @Value("${payment.events.ring-size:8192}") int ringSize,
+                                     @Value("${payment.events.max-batch-size:500}") int maxBatchSize,
+                                     @Value("${payment.events.retry-backoff:100ms}") Duration retryBackoff,
+                                     @Value("${payment.events.max-retry-backoff:30s}") Duration maxRetryBackoff) {
+        this(subscribers.orderedStream().toList(), ringSize, maxBatchSize, retryBackoff, maxRetryBackoff);
+    }
+
+    public RingBufferPaymentEventBus(List<PaymentEventSubscriber> subscribers, int ringSize, int maxBatchSize,
+                                     Duration retryBackoff, Duration maxRetryBackoff) {
+        if (ringSize <= 0 || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("The ring size must be a power of two.");
+        }
+        this.ring = new PaymentEvent[ringSize];
+        this.mask = ringSize - 1;
+        this.maxBatchSize = maxBatchSize;
+        this.retryBackoffNanos = retryBackoff.toNanos();
+        this.maxRetryBackoffNanos = maxRetryBackoff.toNanos();
+        for (PaymentEventSubscriber subscriber : subscribers) {
+            consumers.add(new Consumer(subscriber));
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (Consumer consumer : consumers) {
+            consumer.thread = new Thread(consumer::run, "payment-events-" + consumer.subscriber.getClass().getSimpleName());
+            consumer.thread.setDaemon(true);
+            consumer.thread.start();
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Events not handled yet are still in the outbox and are published again on the next start
+        running = false;
+        for (Consumer consumer : consumers) {
+            if (consumer.thread != null) {
+                consumer.thread.interrupt();
+                consumer.thread.join(TimeUnit.SECONDS.toMillis(10));
+            }
+        }
+    }
+
+    @Override
+    public synchronized long publish(List<PaymentEvent> events) throws InterruptedException {
+        long sequence = publishedSequence.get();
+        for (PaymentEvent event : events) {
+            long next = sequence + 1;
+            while (next - ring.length > handledSequence()) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            ring[(int) next & mask] = event;
+            // The volatile write makes the slot visible to consumers reading the sequence
+            publishedSequence.set(next);
+            sequence = next;
+        }
+        return sequence;
+    }
+
+    @Override
+    public long handledSequence() {
+        long handled = publishedSequence.get();
+        for (Consumer consumer : consumers) {
+            handled = Math.min(handled, consumer.sequence.get());
+        }
+        return handled;
+    }
+
+    private final class Consumer {
+
+        private final PaymentEventSubscriber subscriber;
+        private final AtomicLong sequence = new AtomicLong(-1);
+        private Thread thread;
+
+        private Consumer(PaymentEventSubscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        private void run() {
+            int idleSpins = 0;
+            long backoffNanos = retryBackoffNanos;
+            while (running) {
+                long next = sequence.get() + 1;
+                long available = publishedSequence.get();
+                if (available < next) {
+                    if (++idleSpins < SPINS_BEFORE_PARKING) {
+                        Thread.onSpinWait();
+                    } else {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    }
+                    continue;
+                }
+                idleSpins = 0;
+                long last = Math.min(available, next + maxBatchSize - 1);
+                List<PaymentEvent> batch = new ArrayList<>((int) (last - next + 1));
+                for (long s = next; s <= last; s++) {
+                    batch.add(ring[(int) s & mask]);
+                }
+                try {
+                    subscriber.onEvents(batch);
+                    sequence.set(last);
+                    backoffNanos = retryBackoffNanos;
+                } catch (RuntimeException ex) {
+                    if (!running) {
+                        return;
+                    }
+                    log.warn("{} failed on {} payment events, retrying in {} ms: {}", subscriber.getClass().getSimpleName(),
+                            batch.size(), TimeUnit.NANOSECONDS.toMillis(backoffNanos), ex.getMessage());
+                    LockSupport.parkNanos(backoffNanos);
+                    backoffNanos = Math.min(backoffNanos * 2, maxRetryBackoffNanos);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.paymentgateway.events.impl;
+
+import com.example.paymentgateway.events.PaymentEvent;
+import com.example.paymentgateway.events.PaymentEventSubscriber;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Posts payment events to a webhook endpoint as JSON arrays of up to the configured batch size. A failed delivery
+ * is retried with jittered exponential backoff until it succeeds, holding back only this subscriber; the events
+ * stay in the outbox meanwhile.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "payment.webhooks.enabled", havingValue = "true")
+public class WebhookPaymentEventSubscriber implements PaymentEventSubscriber {
+
+    private final HttpClient httpClient;
+    private final URI url;
+    private final ObjectWriter eventsWriter;
+    private final int batchSize;
+    private final Duration timeout;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+
+    @Autowired
+    public WebhookPaymentEventSubscriber(ObjectMapper objectMapper,
+                                         @Value("${payment.webhooks.url}") URI url,
+                                         @Value("${payment.webhooks.batch-size:100}") int batchSize,
+                                         @Value("${payment.webhooks.timeout:5s}") Duration timeout,
+                                         @Value("${payment.webhooks.initial-backoff:200ms}") Duration initialBackoff,
+                                         @Value("${payment.webhooks.max-backoff:1m}") Duration maxBackoff) {
+        this(HttpClient.newBuilder().connectTimeout(timeout).build(), objectMapper, url, batchSize, timeout, initialBackoff, maxBackoff);
+    }
+
+    public WebhookPaymentEventSubscriber(HttpClient httpClient, ObjectMapper objectMapper, URI url, int batchSize,
+                                         Duration timeout, Duration initialBackoff, Duration maxBackoff) {
+        this.httpClient = httpClient;
+        this.url = url;
+        this.eventsWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, PaymentEvent.class));
+        this.batchSize = batchSize;
+        this.timeout = timeout;
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+    }
+
+    @Override
+    public void onEvents(List<PaymentEvent> events) {
+        for (int from = 0; from < events.size(); from += batchSize) {
+            deliver(events.subList(from, Math.min(from + batchSize, events.size())));
+        }
+    }
+
+    private void deliver(List<PaymentEvent> events) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(url)
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(eventsWriter.writeValueAsBytes(events)))
+                    .build();
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        long backoffNanos = initialBackoffNanos;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                if (status / 100 == 2) {
+                    return;
+                }
+                log.warn("Webhook {} answered {} to {} payment events, attempt {}", url, status, events.size(), attempt);
+            } catch (IOException ex) {
+                log.warn("Webhook {} failed on {} payment events, attempt {}: {}", url, events.size(), attempt, ex.getMessage());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while delivering payment events", ex);
+            }
+            try {
+                // Half the backoff plus a random half, so that gateway nodes retrying together spread out
+                TimeUnit.NANOSECONDS.sleep(backoffNanos / 2 + ThreadLocalRandom.current().nextLong(backoffNanos / 2 + 1));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while delivering payment events", ex);
+            }
+            backoffNanos = Math.min(backoffNanos * 2, maxBackoffNanos);
+        }
+    }
+}
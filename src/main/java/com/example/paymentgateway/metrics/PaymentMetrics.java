@@ -0,0 +1,97 @@
+package com.example.paymentgateway.metrics;
+
+import com.example.paymentgateway.cache.PaymentDetailsCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Meters for the payment pipeline. All meters are registered up front and looked up by ordinal, so recording on
+ * the hot path is a clock read and a lock-free histogram update.
+ */
+@Component
+public class PaymentMetrics {
+
+    public enum Stage {
+        REQUEST_DESERIALIZATION,
+        REQUEST_VALIDATION,
+        IDEMPOTENCY_LOOKUP,
+        RISK_SCREENING,
+        BANK_CALL,
+        PERSISTENCE,
+        PROCESS_PAYMENT,
+        RETRIEVE_PAYMENT_DETAILS,
+        SEARCH_PAYMENTS
+    }
+
+    public enum Outcome {
+        SUCCESS,
+        FAILURE,
+        UNKNOWN,
+        IDEMPOTENT_REPLAY,
+        RISK_DECLINED
+    }
+
+    private final Timer[] stageTimers = new Timer[Stage.values().length];
+    private final Counter[] outcomeCounters = new Counter[Outcome.values().length];
+    private final AtomicInteger inFlightPayments = new AtomicInteger();
+
+    public PaymentMetrics(MeterRegistry meterRegistry, PaymentDetailsCache paymentDetailsCache) {
+        for (Stage stage : Stage.values()) {
+            stageTimers[stage.ordinal()] = Timer.builder("payment.stage")
+                    .description("Time spent in each stage of payment processing")
+                    .tag("stage", stage.name().toLowerCase())
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+        for (Outcome outcome : Outcome.values()) {
+            outcomeCounters[outcome.ordinal()] = Counter.builder("payment.outcome")
+                    .description("Processed payments by outcome")
+                    .tag("outcome", outcome.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+        Gauge.builder("payment.in_flight", inFlightPayments, AtomicInteger::get)
+                .description("Payments currently being processed")
+                .register(meterRegistry);
+
+        FunctionCounter.builder("payment.details_cache.requests", paymentDetailsCache, PaymentDetailsCache::hitCount)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("payment.details_cache.requests", paymentDetailsCache, PaymentDetailsCache::missCount)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("payment.details_cache.evictions", paymentDetailsCache, PaymentDetailsCache::evictionCount)
+                .register(meterRegistry);
+        Gauge.builder("payment.details_cache.size", paymentDetailsCache, PaymentDetailsCache::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Record the time elapsed in a stage.
+     *
+     * @param stage      the stage
+     * @param startNanos the {@link System#nanoTime()} reading taken when the stage started
+     */
+    public void recordSince(Stage stage, long startNanos) {
+        stageTimers[stage.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordOutcome(Outcome outcome) {
+        outcomeCounters[outcome.ordinal()].increment();
+    }
+
+    public void paymentStarted() {
+        inFlightPayments.incrementAndGet();
+    }
+
+    public void paymentFinished() {
+        inFlightPayments.decrementAndGet();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.paymentgateway.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+
+/**
+ * Times the deserialization of request bodies. Reading a body starts and ends on the same thread, so the start
+ * time is kept in a reusable per-thread slot instead of a request attribute.
+ */
+@ControllerAdvice
+@RequiredArgsConstructor
+public class RequestBodyTimingAdvice extends RequestBodyAdviceAdapter {
+
+    private static final ThreadLocal<long[]> READ_STARTED_AT = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final PaymentMetrics paymentMetrics;
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public HttpInputMessage beforeBodyRead(HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                           Class<? extends HttpMessageConverter<?>> converterType) {
+        READ_STARTED_AT.get()[0] = System.nanoTime();
+        return inputMessage;
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                Class<? extends HttpMessageConverter<?>> converterType) {
+        paymentMetrics.recordSince(PaymentMetrics.Stage.REQUEST_DESERIALIZATION, READ_STARTED_AT.get()[0]);
+        return body;
+    }
+}
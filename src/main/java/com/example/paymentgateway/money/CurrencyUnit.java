@@ -0,0 +1,93 @@
+package com.example.paymentgateway.money;
+
+import java.util.Currency;
+
+/**
+ * An ISO 4217 currency and the number of digits of its minor unit. Every currency the JDK knows with a minor unit is
+ * precomputed into a table indexed by its three letters, so a lookup by code neither hashes nor allocates.
+ */
+public final class CurrencyUnit implements Comparable<CurrencyUnit> {
+
+    private static final CurrencyUnit[] TABLE = new CurrencyUnit[26 * 26 * 26];
+
+    static {
+        for (Currency currency : Currency.getAvailableCurrencies()) {
+            int index = index(currency.getCurrencyCode());
+            // Funds and metals such as XAU have no minor unit and cannot be paid in
+            if (index >= 0 && currency.getDefaultFractionDigits() >= 0) {
+                TABLE[index] = new CurrencyUnit(currency.getCurrencyCode(), currency.getDefaultFractionDigits());
+            }
+        }
+    }
+
+    public static final CurrencyUnit USD = of("USD");
+    public static final CurrencyUnit EUR = of("EUR");
+
+    private final String code;
+    private final int fractionDigits;
+
+    private CurrencyUnit(String code, int fractionDigits) {
+        this.code = code;
+        this.fractionDigits = fractionDigits;
+    }
+
+    /**
+     * Look up a currency by its alphabetic code.
+     *
+     * @param code the upper-case ISO 4217 code
+     * @return the currency, or null if the code is not a supported currency
+     */
+    public static CurrencyUnit find(CharSequence code) {
+        int index = index(code);
+        return index < 0 ? null : TABLE[index];
+    }
+
+    /**
+     * Look up a currency by its alphabetic code.
+     *
+     * @param code the upper-case ISO 4217 code
+     * @return the currency
+     * @throws IllegalArgumentException if the code is not a supported currency
+     */
+    public static CurrencyUnit of(String code) {
+        CurrencyUnit currency = find(code);
+        if (currency == null) {
+            throw new IllegalArgumentException("Unsupported currency " + code);
+        }
+        return currency;
+    }
+
+    private static int index(CharSequence code) {
+        if (code == null || code.length() != 3) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = 0; i < 3; i++) {
+            int letter = code.charAt(i) - 'A';
+            if (letter < 0 || letter >= 26) {
+                return -1;
+            }
+            index = index * 26 + letter;
+        }
+        return index;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    /** Digits after the decimal point of the minor unit: 2 for USD, 0 for JPY, 3 for KWD. */
+    public int getFractionDigits() {
+        return fractionDigits;
+    }
+
+    @Override
+    public int compareTo(CurrencyUnit other) {
+        return code.compareTo(other.code);
+    }
+
+    @Override
+    public String toString() {
+        return code;
+    }
+}
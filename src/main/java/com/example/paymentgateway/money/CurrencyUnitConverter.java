@@ -0,0 +1,18 @@
+package com.example.paymentgateway.money;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter(autoApply = true)
+public class CurrencyUnitConverter implements AttributeConverter<CurrencyUnit, String> {
+
+    @Override
+    public String convertToDatabaseColumn(CurrencyUnit currency) {
+        return currency == null ? null : currency.getCode();
+    }
+
+    @Override
+    public CurrencyUnit convertToEntityAttribute(String code) {
+        return code == null ? null : CurrencyUnit.of(code);
+    }
+}
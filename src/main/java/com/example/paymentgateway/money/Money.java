@@ -0,0 +1,113 @@
+package com.example.paymentgateway.money;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Embeddable;
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * An amount of money as a whole number of minor units of its currency: 100.50 USD is 10050 cents. Arithmetic is
+ * exact and stays on primitive longs.
+ */
+@Embeddable
+@Getter
+@EqualsAndHashCode
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@JsonSerialize(using = MoneySerializer.class)
+@Schema(type = "number", example = "100.50", description = "Amount in the major unit of the currency")
+public final class Money implements Comparable<Money> {
+
+    @Column(name = "amount_minor")
+    private long minorUnits;
+
+    @Convert(converter = CurrencyUnitConverter.class)
+    @Column(name = "currency", length = 3)
+    private CurrencyUnit currency;
+
+    private Money(long minorUnits, CurrencyUnit currency) {
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+    }
+
+    public static Money ofMinor(long minorUnits, CurrencyUnit currency) {
+        if (currency == null) {
+            throw new IllegalArgumentException("currency is required");
+        }
+        return new Money(minorUnits, currency);
+    }
+
+    /**
+     * Convert a decimal amount in the major unit of a currency.
+     *
+     * @param amount   the amount, for example 100.50
+     * @param currency the currency
+     * @return the money
+     * @throws ArithmeticException if the amount has more decimals than the currency or does not fit in a long of
+     *                             minor units
+     */
+    public static Money of(BigDecimal amount, CurrencyUnit currency) {
+        return ofMinor(amount.movePointRight(currency.getFractionDigits()).longValueExact(), currency);
+    }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public boolean isPositive() {
+        return minorUnits > 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, currency.getFractionDigits());
+    }
+
+    /** The amount in the major unit with the currency's number of decimals, such as {@code 100.50}. */
+    public String toPlainString() {
+        int fractionDigits = currency.getFractionDigits();
+        if (fractionDigits == 0) {
+            return Long.toString(minorUnits);
+        }
+        // Unsigned so that the magnitude of Long.MIN_VALUE prints correctly
+        String digits = Long.toUnsignedString(minorUnits < 0 ? -minorUnits : minorUnits);
+        StringBuilder builder = new StringBuilder(digits.length() + fractionDigits + 2);
+        if (minorUnits < 0) {
+            builder.append('-');
+        }
+        int integerDigits = digits.length() - fractionDigits;
+        if (integerDigits <= 0) {
+            builder.append("0.");
+            for (int i = integerDigits; i < 0; i++) {
+                builder.append('0');
+            }
+            builder.append(digits);
+        } else {
+            builder.append(digits, 0, integerDigits).append('.').append(digits, integerDigits, digits.length());
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return toPlainString() + " " + currency.getCode();
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (currency != other.currency) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " and " + other.currency);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.paymentgateway.persistence;
+
+public interface IdempotencyKeyIndex {
+
+    /**
+     * Check whether a payment with the given idempotency key may already be stored. A negative answer is definite,
+     * so the database lookup can be skipped; a positive answer may be a false positive.
+     *
+     * @param idempotencyKey the idempotency key
+     * @return false if no payment with this key has been stored
+     */
+    boolean mightContain(String idempotencyKey);
+
+    /**
+     * Add an idempotency key. Keys are added before their payment is persisted, so the index never misses a
+     * stored payment.
+     *
+     * @param idempotencyKey the idempotency key
+     */
+    void add(String idempotencyKey);
+
+    /**
+     * Record that a payment has been persisted with its key already indexed. The highest such identifier is where
+     * the next startup resumes indexing existing payments.
+     *
+     * @param paymentId the identifier of the persisted payment
+     */
+    void markPersisted(long paymentId);
+}
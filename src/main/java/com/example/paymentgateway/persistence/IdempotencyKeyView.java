@@ -0,0 +1,11 @@
+package com.example.paymentgateway.persistence;
+
+/**
+ * Projection of a payment to the columns needed to rebuild the idempotency key index.
+ */
+public interface IdempotencyKeyView {
+
+    Long getId();
+
+    String getIdempotencyKey();
+}
@@ -0,0 +1,28 @@
+package com.example.paymentgateway.persistence;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * A gateway node's claim on an idempotency key while it processes the payment, stored on the shard of the key. The
+ * row is deleted once the payment is stored or has failed; a node that dies leaves it behind until its lease expires
+ * and another node takes it over.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "idempotency_lease")
+public class IdempotencyLease {
+
+    @Id
+    private String idempotencyKey;
+    private String ownerId;
+    // Epoch milliseconds on the owner's clock
+    private long expiresAt;
+}
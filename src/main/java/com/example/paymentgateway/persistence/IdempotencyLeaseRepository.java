@@ -0,0 +1,50 @@
+package com.example.paymentgateway.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface IdempotencyLeaseRepository extends JpaRepository<IdempotencyLease, String> {
+
+    /**
+     * Insert a lease. Unlike {@code save}, which would overwrite the lease of another owner, this fails with a
+     * constraint violation when the key is already leased.
+     *
+     * @param idempotencyKey the idempotency key
+     * @param ownerId        the claiming node
+     * @param expiresAt      the expiry of the lease, in epoch milliseconds
+     * @return the number of inserted rows
+     */
+    @Modifying
+    @Query(value = "insert into idempotency_lease (idempotency_key, owner_id, expires_at) values (:idempotencyKey, :ownerId, :expiresAt)",
+            nativeQuery = true)
+    int insert(@Param("idempotencyKey") String idempotencyKey, @Param("ownerId") String ownerId, @Param("expiresAt") long expiresAt);
+
+    /**
+     * Take over a lease that has expired.
+     *
+     * @param idempotencyKey the idempotency key
+     * @param ownerId        the claiming node
+     * @param expiresAt      the expiry of the new lease, in epoch milliseconds
+     * @param now            the current time, in epoch milliseconds
+     * @return 1 if the lease was taken over, 0 if it is still live or no longer exists
+     */
+    @Modifying
+    @Query("update IdempotencyLease l set l.ownerId = :ownerId, l.expiresAt = :expiresAt where l.idempotencyKey = :idempotencyKey and l.expiresAt < :now")
+    int takeOverExpired(@Param("idempotencyKey") String idempotencyKey, @Param("ownerId") String ownerId,
+                        @Param("expiresAt") long expiresAt, @Param("now") long now);
+
+    /**
+     * Delete a lease, unless another node has taken it over.
+     *
+     * @param idempotencyKey the idempotency key
+     * @param ownerId        the owner of the lease
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Query("delete from IdempotencyLease l where l.idempotencyKey = :idempotencyKey and l.ownerId = :ownerId")
+    int release(@Param("idempotencyKey") String idempotencyKey, @Param("ownerId") String ownerId);
+}
@@ -0,0 +1,53 @@
+package com.example.paymentgateway.persistence;
+
+import com.example.paymentgateway.events.PaymentEvent;
+import com.example.paymentgateway.events.PaymentEventType;
+import com.example.paymentgateway.money.Money;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * A payment event waiting to be published, written in the transaction that stores the payment change and deleted
+ * once every subscriber has handled it.
+ */
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "payment_outbox")
+public class OutboxEvent {
+
+    @Id
+    @SnowflakeId  // Generated on the shard of the payment, in insertion order
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private PaymentEventType type;
+    private Long paymentId;
+    private String merchantId;
+    @Embedded
+    private Money amount;
+    private PaymentStatus status;
+    private Instant occurredAt;
+
+    public static OutboxEvent of(PaymentEventType type, Payment payment) {
+        return OutboxEvent.builder()
+                .type(type)
+                .paymentId(payment.getId())
+                .merchantId(payment.getMerchantId())
+                .amount(payment.getAmount())
+                .status(payment.getStatus())
+                .occurredAt(Instant.now())
+                .build();
+    }
+
+    public PaymentEvent toPaymentEvent() {
+        return new PaymentEvent(id, type, paymentId, merchantId, amount, amount.getCurrency().getCode(), status.name(), occurredAt);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.paymentgateway.persistence;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Find the events following the given identifier, in identifier order.
+     *
+     * @param id       the identifier to start after
+     * @param pageable the number of events to return
+     * @return the events
+     */
+    List<OutboxEvent> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+}
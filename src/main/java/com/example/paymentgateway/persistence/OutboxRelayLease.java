@@ -0,0 +1,27 @@
+package com.example.paymentgateway.persistence;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * A gateway node's claim on relaying the outbox of a shard, stored on that shard. The owner renews it while it
+ * relays; a node that dies leaves it behind until it expires and another node takes it over.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "outbox_relay_lease")
+public class OutboxRelayLease {
+
+    @Id
+    private Integer shard;
+    private String ownerId;
+    // Epoch milliseconds on the owner's clock
+    private long expiresAt;
+}
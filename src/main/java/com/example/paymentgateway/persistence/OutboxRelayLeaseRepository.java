@@ -0,0 +1,49 @@
+package com.example.paymentgateway.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxRelayLeaseRepository extends JpaRepository<OutboxRelayLease, Integer> {
+
+    /**
+     * Insert a lease. Fails with a constraint violation when the shard is already leased.
+     *
+     * @param shard     the shard
+     * @param ownerId   the claiming node
+     * @param expiresAt the expiry of the lease, in epoch milliseconds
+     * @return the number of inserted rows
+     */
+    @Modifying
+    @Query(value = "insert into outbox_relay_lease (shard, owner_id, expires_at) values (:shard, :ownerId, :expiresAt)",
+            nativeQuery = true)
+    int insert(@Param("shard") int shard, @Param("ownerId") String ownerId, @Param("expiresAt") long expiresAt);
+
+    /**
+     * Renew a lease held by the given node, or take over one that has expired.
+     *
+     * @param shard     the shard
+     * @param ownerId   the claiming node
+     * @param expiresAt the expiry of the new lease, in epoch milliseconds
+     * @param now       the current time, in epoch milliseconds
+     * @return 1 if the node now holds the lease, 0 if another node holds a live one or no lease exists
+     */
+    @Modifying
+    @Query("update OutboxRelayLease l set l.ownerId = :ownerId, l.expiresAt = :expiresAt where l.shard = :shard and (l.ownerId = :ownerId or l.expiresAt < :now)")
+    int renewOrTakeOver(@Param("shard") int shard, @Param("ownerId") String ownerId,
+                        @Param("expiresAt") long expiresAt, @Param("now") long now);
+
+    /**
+     * Delete a lease, unless another node has taken it over.
+     *
+     * @param shard   the shard
+     * @param ownerId the owner of the lease
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Query("delete from OutboxRelayLease l where l.shard = :shard and l.ownerId = :ownerId")
+    int release(@Param("shard") int shard, @Param("ownerId") String ownerId);
+}
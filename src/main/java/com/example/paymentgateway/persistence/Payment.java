@@ -1,30 +1,51 @@
 package com.example.paymentgateway.persistence;
 
+import com.example.paymentgateway.money.Money;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import jakarta.persistence.*;
+import java.time.Instant;
 
 @Data
 @Entity
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "payment")
+@Table(name = "payment", indexes = {
+        // Keyset pagination walks these in (createdAt, id) order within a merchant, optionally narrowed by status
+        @Index(name = "idx_payment_merchant_created", columnList = "merchantId, createdAt, id"),
+        @Index(name = "idx_payment_merchant_status_created", columnList = "merchantId, status, createdAt, id"),
+        // The re-drive of stale pending payments walks this
+        @Index(name = "idx_payment_status_attempted", columnList = "status, attemptedAt")
+})
 public class Payment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId  // Encodes the shard holding the payment, so a lookup by id goes straight to it
     private Long id;
 
-    private String cardNumber;
+    // The card number itself only lives encrypted in the card vault
+    private String cardToken;
+    private String cardBin;
+    private String cardLast4;
+    private String maskedCardNumber;
     private String expiryMonth;
     private String expiryYear;
-    private Double amount;
-    private String currency;
-    private String status;
+    @Embedded
+    private Money amount;
+    private PaymentStatus status;
     @Column(unique = true)  // This ensures that the idempotency key is unique across all payments
     private String idempotencyKey;
+    private String merchantId;
+    private Instant createdAt;
+    // Bank calls made for the payment and the start of the last one; a pending payment is sent again once stale
+    private int authorizationAttempts;
+    private Instant attemptedAt;
+
+    // Status transitions race with each other and with the background authorization; the loser retries
+    @Version
+    private Long version;
 }
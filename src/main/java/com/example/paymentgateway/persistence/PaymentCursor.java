@@ -0,0 +1,31 @@
+package com.example.paymentgateway.persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Position of the last payment of a page in the (createdAt, id) order of a search, encoded as an opaque token.
+ */
+public record PaymentCursor(Instant createdAt, long id) {
+
+    public String encode() {
+        String position = createdAt.getEpochSecond() + ":" + createdAt.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Decode a cursor token.
+     *
+     * @param token the token returned with a previous page
+     * @return the cursor
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static PaymentCursor decode(String token) {
+        String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII).split(":");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Malformed cursor " + token);
+        }
+        return new PaymentCursor(Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1])), Long.parseLong(parts[2]));
+    }
+}
@@ -1,12 +1,18 @@
 package com.example.paymentgateway.persistence;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface PaymentRepository extends JpaRepository<Payment, Long> {
+public interface PaymentRepository extends JpaRepository<Payment, Long>, PaymentSearchRepository {
     /**
      * Find a payment by its idempotency key.
      *
@@ -14,4 +20,40 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
      * @return an Optional containing the found payment, or empty if not found
      */
     Optional<Payment> findByIdempotencyKey(String idempotencyKey);
+
+    /**
+     * Find the payments matching any of the given idempotency keys.
+     *
+     * @param idempotencyKeys the idempotency keys
+     * @return the payments found, in no particular order
+     */
+    List<Payment> findByIdempotencyKeyIn(Collection<String> idempotencyKeys);
+
+    /**
+     * Find the idempotency keys of the payments following the given identifier, in identifier order.
+     *
+     * @param id the identifier to start after
+     * @return up to 10000 idempotency keys with their payment identifiers
+     */
+    List<IdempotencyKeyView> findTop10000ByIdGreaterThanOrderByIdAsc(Long id);
+
+    /**
+     * Find the payments in a status whose last bank call started before the given instant, oldest call first.
+     *
+     * @param status the status
+     * @param before the instant
+     * @return up to 100 payments
+     */
+    List<Payment> findTop100ByStatusAndAttemptedAtBeforeOrderByAttemptedAtAsc(PaymentStatus status, Instant before);
+
+    /**
+     * Find and lock the payments preceding the given identifier, in identifier order. The locks hold until the
+     * transaction ends, so the payments cannot change while they are being archived.
+     *
+     * @param id       the identifier to stop before
+     * @param pageable the number of payments to return
+     * @return the payments
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<Payment> findByIdLessThanOrderByIdAsc(Long id, Pageable pageable);
 }
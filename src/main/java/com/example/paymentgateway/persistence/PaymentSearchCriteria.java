@@ -0,0 +1,31 @@
+package com.example.paymentgateway.persistence;
+
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * Filters of a payment search. The merchant is required; any other filter left null is not applied.
+ */
+@Getter
+@Builder
+public class PaymentSearchCriteria {
+    private final String merchantId;
+    private final PaymentStatus status;
+    private final CurrencyUnit currency;
+
+    /** Inclusive lower bound of the amount; only payments in the bound's currency match. */
+    private final Money minAmount;
+
+    /** Inclusive upper bound of the amount; only payments in the bound's currency match. */
+    private final Money maxAmount;
+
+    /** Inclusive lower bound of the creation time. */
+    private final Instant from;
+
+    /** Exclusive upper bound of the creation time. */
+    private final Instant to;
+}
@@ -0,0 +1,32 @@
+package com.example.paymentgateway.persistence;
+
+import com.example.paymentgateway.dto.PaymentExportRow;
+import com.example.paymentgateway.dto.PaymentSummary;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface PaymentSearchRepository {
+
+    /**
+     * Find the payments of a merchant matching the criteria, newest first, using keyset pagination: the page
+     * starts right after the cursor instead of skipping rows with an offset. Rows are projected straight into
+     * summaries without loading entities.
+     *
+     * @param criteria the search criteria
+     * @param after    the cursor of the previous page, or null for the first page
+     * @param limit    the maximum number of payments to return
+     * @return the matching payments ordered by creation time and identifier, descending
+     */
+    List<PaymentSummary> search(PaymentSearchCriteria criteria, PaymentCursor after, int limit);
+
+    /**
+     * Stream the payments of a merchant matching the criteria, oldest first, for export. Rows are read through a
+     * forward-only cursor in fetch-size chunks and projected with the precomputed masked card number. The stream must
+     * be consumed inside a transaction and closed.
+     *
+     * @param criteria the search criteria
+     * @return the matching payments ordered by creation time and identifier
+     */
+    Stream<PaymentExportRow> streamForExport(PaymentSearchCriteria criteria);
+}
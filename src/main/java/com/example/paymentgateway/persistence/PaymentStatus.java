@@ -0,0 +1,47 @@
+package com.example.paymentgateway.persistence;
+
+/**
+ * Lifecycle of a payment. A payment starts PENDING, or directly in the status its bank answer gives it, and only
+ * moves forward: a pending payment is authorized or fails, an authorized one is captured and a captured one
+ * refunded. Stored as a one-character code, see {@link PaymentStatusConverter}.
+ */
+public enum PaymentStatus {
+    /** The bank has not answered yet, or did not answer before the deadline. */
+    PENDING('P'),
+    /** The bank approved the transaction. */
+    AUTHORIZED('A'),
+    /** The authorized amount was collected. */
+    CAPTURED('C'),
+    /** The bank declined the transaction, or it could not be sent. */
+    FAILED('F'),
+    /** The captured amount was returned to the card holder. */
+    REFUNDED('R');
+
+    private final char code;
+
+    PaymentStatus(char code) {
+        this.code = code;
+    }
+
+    public char getCode() {
+        return code;
+    }
+
+    public boolean canTransitionTo(PaymentStatus next) {
+        return switch (this) {
+            case PENDING -> next == AUTHORIZED || next == FAILED;
+            case AUTHORIZED -> next == CAPTURED;
+            case CAPTURED -> next == REFUNDED;
+            case FAILED, REFUNDED -> false;
+        };
+    }
+
+    public static PaymentStatus ofCode(char code) {
+        for (PaymentStatus status : values()) {
+            if (status.code == code) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown payment status code " + code);
+    }
+}
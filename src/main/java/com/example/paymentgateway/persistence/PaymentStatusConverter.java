@@ -0,0 +1,18 @@
+package com.example.paymentgateway.persistence;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter(autoApply = true)
+public class PaymentStatusConverter implements AttributeConverter<PaymentStatus, Character> {
+
+    @Override
+    public Character convertToDatabaseColumn(PaymentStatus status) {
+        return status == null ? null : status.getCode();
+    }
+
+    @Override
+    public PaymentStatus convertToEntityAttribute(Character code) {
+        return code == null ? null : PaymentStatus.ofCode(code);
+    }
+}
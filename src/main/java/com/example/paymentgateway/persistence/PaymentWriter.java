@@ -0,0 +1,25 @@
+package com.example.paymentgateway.persistence;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface PaymentWriter {
+
+    /**
+     * Queue a payment for insertion. Payments are written in multi-row JDBC batches, and the returned future
+     * completes only once the transaction containing the payment has committed.
+     *
+     * @param payment the payment to insert
+     * @return a future completed with the saved payment
+     */
+    CompletableFuture<Payment> write(Payment payment);
+
+    /**
+     * Queue a payment for insertion and wait until the batch containing it has committed.
+     *
+     * @param payment the payment to insert
+     * @return the saved payment
+     * @throws org.springframework.dao.QueryTimeoutException if the batch has not committed within the configured
+     *                                                       timeout; the payment may still be stored afterwards
+     */
+    Payment writeAndAwait(Payment payment);
+}
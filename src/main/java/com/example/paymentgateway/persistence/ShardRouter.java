@@ -0,0 +1,39 @@
+package com.example.paymentgateway.persistence;
+
+import java.util.function.Supplier;
+
+/**
+ * Routes payment store operations to shards. A payment lives in the shard its idempotency key hashes to, and its
+ * identifier encodes that shard, so both lookups by key and by identifier go to a single shard without an index.
+ * Repository calls run on the shard selected by {@link #onShard}; outside of it they go to shard 0.
+ */
+public interface ShardRouter {
+
+    int shardCount();
+
+    /**
+     * The shard storing the payment with the given idempotency key.
+     *
+     * @param idempotencyKey the idempotency key
+     * @return the shard
+     */
+    int shardForIdempotencyKey(String idempotencyKey);
+
+    /**
+     * The shard storing the payment with the given identifier.
+     *
+     * @param paymentId the payment identifier
+     * @return the shard
+     */
+    int shardOf(long paymentId);
+
+    /**
+     * Run repository calls against a shard. Transactions must begin inside the action, as their shard is fixed when
+     * they acquire a connection.
+     *
+     * @param shard  the shard
+     * @param action the action
+     * @return the result of the action
+     */
+    <T> T onShard(int shard, Supplier<T> action);
+}
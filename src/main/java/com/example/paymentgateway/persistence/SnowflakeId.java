@@ -0,0 +1,19 @@
+package com.example.paymentgateway.persistence;
+
+import com.example.paymentgateway.persistence.impl.PaymentIdentifierGenerator;
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates the identifier as a Snowflake-style id encoding the creation time and the shard the entity is inserted
+ * into.
+ */
+@IdGeneratorType(PaymentIdentifierGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface SnowflakeId {
+}
@@ -0,0 +1,39 @@
+package com.example.paymentgateway.persistence;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+@Getter
+@Setter
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "card_vault")
+public class VaultEntry implements Persistable<String> {
+
+    @Id
+    @Column(length = 32)
+    private String token;
+
+    /** AES-GCM nonce followed by the ciphertext and authentication tag of the card number. */
+    @Column(nullable = false, length = 64)
+    private byte[] encryptedCardNumber;
+
+    @Override
+    public String getId() {
+        return token;
+    }
+
+    @Override
+    public boolean isNew() {
+        // Tokens are assigned, never generated, so always insert instead of letting save() merge with a select
+        return true;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.paymentgateway.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface VaultEntryRepository extends JpaRepository<VaultEntry, String> {
+}
@@ -0,0 +1,164 @@
+package com.example.paymentgateway.persistence.impl;
+
+import com.example.paymentgateway.util.KeyHash;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Bloom filter over strings stored in a memory-mapped file. The bit array lives off-heap in the page cache, its
+ * size is fixed when the file is created, and bits are set with atomic ORs so concurrent adds need no locking.
+ * The file header records the filter parameters and a caller-defined watermark; a file whose parameters do not
+ * match is discarded and recreated empty.
+ */
+public final class MappedBloomFilter implements Closeable {
+
+    private static final long MAGIC = 0x4944_4b42_4c4f_4f4dL;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 8;
+    private static final int HASHES_OFFSET = 12;
+    private static final int BITS_OFFSET = 16;
+    private static final int WATERMARK_OFFSET = 24;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long numBits;
+    private final int numHashes;
+    private final boolean created;
+
+    private MappedBloomFilter(FileChannel channel, MappedByteBuffer buffer, long numBits, int numHashes, boolean created) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.numBits = numBits;
+        this.numHashes = numHashes;
+        this.created = created;
+    }
+
+    /**
+     * Open the filter stored in a file, creating it if it is missing or was sized for other parameters.
+     *
+     * @param path               the file
+     * @param expectedInsertions the number of keys the filter is sized for
+     * @param falsePositiveRate  the false positive rate at the expected number of keys
+     * @return the filter
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public static MappedBloomFilter open(Path path, long expectedInsertions, double falsePositiveRate) throws IOException {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Expected insertions should be positive and the false positive rate between 0 and 1.");
+        }
+        long numBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        numBits = (numBits + 63) & ~63L;
+        int numHashes = Math.max(1, (int) Math.round((double) numBits / expectedInsertions * Math.log(2)));
+        long fileSize = HEADER_BYTES + numBits / 8;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A filter for " + expectedInsertions + " keys does not fit in a single mapped file.");
+        }
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean created = channel.size() != fileSize;
+            if (created) {
+                channel.truncate(0);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            if (!created && !matches(buffer, numBits, numHashes)) {
+                // Same size but another layout; start from zeroed bits rather than trusting them
+                for (int offset = 0; offset < fileSize - 7; offset += 8) {
+                    buffer.putLong(offset, 0L);
+                }
+                created = true;
+            }
+            if (created) {
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putLong(MAGIC_OFFSET, MAGIC);
+                buffer.putInt(VERSION_OFFSET, VERSION);
+                buffer.putInt(HASHES_OFFSET, numHashes);
+                buffer.putLong(BITS_OFFSET, numBits);
+                buffer.putLong(WATERMARK_OFFSET, 0L);
+                buffer.force();
+            }
+            return new MappedBloomFilter(channel, buffer, numBits, numHashes, created);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    private static boolean matches(MappedByteBuffer buffer, long numBits, int numHashes) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer.getLong(MAGIC_OFFSET) == MAGIC
+                && buffer.getInt(VERSION_OFFSET) == VERSION
+                && buffer.getInt(HASHES_OFFSET) == numHashes
+                && buffer.getLong(BITS_OFFSET) == numBits;
+    }
+
+    /**
+     * Whether the file was created, or recreated, by {@link #open}, in which case the filter is empty.
+     */
+    public boolean isCreated() {
+        return created;
+    }
+
+    public boolean mightContain(CharSequence key) {
+        long hash1 = KeyHash.hash(key);
+        long hash2 = KeyHash.mix(hash1 ^ 0x9e37_79b9_7f4a_7c15L) | 1;
+        for (int i = 0; i < numHashes; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, numBits);
+            long word = (long) LONGS.get(buffer, wordOffset(bit));
+            if ((word & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void add(CharSequence key) {
+        long hash1 = KeyHash.hash(key);
+        long hash2 = KeyHash.mix(hash1 ^ 0x9e37_79b9_7f4a_7c15L) | 1;
+        for (int i = 0; i < numHashes; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, numBits);
+            LONGS.getAndBitwiseOr(buffer, wordOffset(bit), 1L << bit);
+        }
+    }
+
+    public long watermark() {
+        return (long) LONGS.getVolatile(buffer, WATERMARK_OFFSET);
+    }
+
+    /**
+     * Flush the bits to disk, then record the watermark, so a watermark on disk never covers keys that are not.
+     *
+     * @param watermark the new watermark
+     */
+    public void checkpoint(long watermark) {
+        buffer.force();
+        LONGS.setVolatile(buffer, WATERMARK_OFFSET, watermark);
+        buffer.force();
+    }
+
+    public long sizeInBytes() {
+        return HEADER_BYTES + numBits / 8;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private static int wordOffset(long bit) {
+        return HEADER_BYTES + (int) (bit >>> 6) * 8;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.paymentgateway.persistence.impl;
+
+import com.example.paymentgateway.persistence.IdempotencyKeyIndex;
+import com.example.paymentgateway.persistence.IdempotencyKeyView;
+import com.example.paymentgateway.persistence.PaymentRepository;
+import com.example.paymentgateway.persistence.ShardRouter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Idempotency key index backed by a memory-mapped Bloom filter. On startup it reopens the filter file and only
+ * indexes the payments stored after the watermark of its last clean shutdown, so warm-up does not rescan the
+ * table. Memory use is fixed by the configured capacity, off-heap, at about 1.2 bytes per key for a 1% false
+ * positive rate.
+ * <p>
+ * The filter only learns the keys this node stores, so it is only used by a single node owning its database: with
+ * {@code payment.cluster.multi-node}, other nodes share the tables and every lookup goes to the database.
+ */
+@Component
+@Slf4j
+@ConditionalOnExpression(MappedIdempotencyKeyIndex.ENABLED)
+public class MappedIdempotencyKeyIndex implements IdempotencyKeyIndex {
+
+    static final String ENABLED = "${payment.idempotency.index.enabled:false} and !${payment.cluster.multi-node:false}";
+
+    private final PaymentRepository paymentRepository;
+    private final ShardRouter shardRouter;
+    private final Path path;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final AtomicLong highestPersistedId = new AtomicLong();
+
+    private MappedBloomFilter filter;
+
+    public MappedIdempotencyKeyIndex(PaymentRepository paymentRepository,
+                                     ShardRouter shardRouter,
+                                     @Value("${payment.idempotency.index.path:${java.io.tmpdir}/payment-gateway/idempotency-keys.bloom}") Path path,
+                                     @Value("${payment.idempotency.index.expected-insertions:50000000}") long expectedInsertions,
+                                     @Value("${payment.idempotency.index.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.paymentRepository = paymentRepository;
+        this.shardRouter = shardRouter;
+        this.path = path;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    @PostConstruct
+    void open() throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        filter = MappedBloomFilter.open(path, expectedInsertions, falsePositiveRate);
+        long watermark = filter.watermark();
+        highestPersistedId.set(watermark);
+
+        long startedAt = System.nanoTime();
+        long indexed = 0;
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            indexed += catchUp(shard, watermark);
+        }
+        log.info("Idempotency key index {} ({} MB, {}) caught up on {} payments in {} ms", path,
+                filter.sizeInBytes() >> 20, filter.isCreated() ? "created" : "reopened", indexed,
+                (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    private long catchUp(int shard, long watermark) {
+        long indexed = 0;
+        long after = watermark;
+        List<IdempotencyKeyView> page;
+        while (!(page = nextPage(shard, after)).isEmpty()) {
+            for (IdempotencyKeyView view : page) {
+                filter.add(view.getIdempotencyKey());
+            }
+            indexed += page.size();
+            after = page.get(page.size() - 1).getId();
+            markPersisted(after);
+        }
+        return indexed;
+    }
+
+    private List<IdempotencyKeyView> nextPage(int shard, long after) {
+        return shardRouter.onShard(shard, () -> paymentRepository.findTop10000ByIdGreaterThanOrderByIdAsc(after));
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        filter.checkpoint(highestPersistedId.get());
+        filter.close();
+    }
+
+    @Override
+    public boolean mightContain(String idempotencyKey) {
+        return filter.mightContain(idempotencyKey);
+    }
+
+    @Override
+    public void add(String idempotencyKey) {
+        filter.add(idempotencyKey);
+    }
+
+    @Override
+    public void markPersisted(long paymentId) {
+        highestPersistedId.accumulateAndGet(paymentId, Math::max);
+    }
+}
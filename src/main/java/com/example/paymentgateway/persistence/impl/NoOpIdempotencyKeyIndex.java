@@ -0,0 +1,23 @@
+package com.example.paymentgateway.persistence.impl;
+
+import com.example.paymentgateway.persistence.IdempotencyKeyIndex;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnExpression("!(" + MappedIdempotencyKeyIndex.ENABLED + ")")
+public class NoOpIdempotencyKeyIndex implements IdempotencyKeyIndex {
+
+    @Override
+    public boolean mightContain(String idempotencyKey) {
+        return true;
+    }
+
+    @Override
+    public void add(String idempotencyKey) {
+    }
+
+    @Override
+    public void markPersisted(long paymentId) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.paymentgateway.persistence.impl;
+
+import com.example.paymentgateway.persistence.SnowflakeId;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import java.lang.reflect.Member;
+
+/**
+ * Assigns payment identifiers encoding the shard selected on the inserting thread. Hibernate instantiates the
+ * generator itself, so it takes the application's {@link SnowflakeIdGenerator} from the session factory settings,
+ * where {@code ShardingConfig} puts it; each application context thus numbers with its own node id.
+ */
+public class PaymentIdentifierGenerator implements IdentifierGenerator {
+
+    public static final String GENERATOR_SETTING = "payment.snowflake-id-generator";
+
+    private final SnowflakeIdGenerator generator;
+
+    public PaymentIdentifierGenerator(SnowflakeId config, Member idMember, CustomIdGeneratorCreationContext creationContext) {
+        Object generator = creationContext.getServiceRegistry().getService(ConfigurationService.class).getSettings().get(GENERATOR_SETTING);
+        if (!(generator instanceof SnowflakeIdGenerator snowflakeIdGenerator)) {
+            throw new IllegalStateException("Hibernate setting " + GENERATOR_SETTING + " should hold the SnowflakeIdGenerator");
+        }
+        this.generator = snowflakeIdGenerator;
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object payment) {
+        return generator.nextId(ShardRoutingDataSource.currentShard());
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.paymentgateway.persistence.impl;
+
+import com.example.paymentgateway.dto.PaymentExportRow;
+import com.example.paymentgateway.dto.PaymentSummary;
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.persistence.PaymentCursor;
+import com.example.paymentgateway.persistence.PaymentSearchCriteria;
+import com.example.paymentgateway.persistence.PaymentSearchRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public class PaymentSearchRepositoryImpl implements PaymentSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${payment.export.fetch-size:1000}")
+    private int exportFetchSize;
+
+    @Override
+    public List<PaymentSummary> search(PaymentSearchCriteria criteria, PaymentCursor after, int limit) {
+        StringBuilder jpql = new StringBuilder("select new com.example.paymentgateway.dto.PaymentSummary("
+                + "cast(p.id as String), p.merchantId, p.amount.minorUnits, p.amount.currency, p.status, p.createdAt) "
+                + "from Payment p where p.merchantId = :merchantId");
+        Map<String, Object> parameters = new HashMap<>();
+        appendFilters(criteria, jpql, parameters);
+        if (after != null) {
+            // Seek past the previous page; with the composite index this costs the same on every page
+            jpql.append(" and (p.createdAt < :cursorCreatedAt or (p.createdAt = :cursorCreatedAt and p.id < :cursorId))");
+            parameters.put("cursorCreatedAt", after.createdAt());
+            parameters.put("cursorId", after.id());
+        }
+        jpql.append(" order by p.createdAt desc, p.id desc");
+
+        TypedQuery<PaymentSummary> query = entityManager.createQuery(jpql.toString(), PaymentSummary.class);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public Stream<PaymentExportRow> streamForExport(PaymentSearchCriteria criteria) {
+        StringBuilder jpql = new StringBuilder("select new com.example.paymentgateway.dto.PaymentExportRow("
+                + "p.id, p.merchantId, p.maskedCardNumber, p.amount.minorUnits, p.amount.currency, p.status, p.createdAt) "
+                + "from Payment p where p.merchantId = :merchantId");
+        Map<String, Object> parameters = new HashMap<>();
+        appendFilters(criteria, jpql, parameters);
+        jpql.append(" order by p.createdAt, p.id");
+
+        TypedQuery<PaymentExportRow> query = entityManager.createQuery(jpql.toString(), PaymentExportRow.class);
+        parameters.forEach(query::setParameter);
+        return query.setHint(HibernateHints.HINT_FETCH_SIZE, exportFetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    private static void appendFilters(PaymentSearchCriteria criteria, StringBuilder jpql, Map<String, Object> parameters) {
+        parameters.put("merchantId", criteria.getMerchantId());
+        if (criteria.getStatus() != null) {
+            jpql.append(" and p.status = :status");
+            parameters.put("status", criteria.getStatus());
+        }
+        // Minor units only compare within a currency, so an amount bound implies its currency
+        CurrencyUnit currency = criteria.getCurrency() != null ? criteria.getCurrency()
+                : criteria.getMinAmount() != null ? criteria.getMinAmount().getCurrency()
+                : criteria.getMaxAmount() != null ? criteria.getMaxAmount().getCurrency()
+                : null;
+        if (currency != null) {
+            jpql.append(" and p.amount.currency = :currency");
+            parameters.put("currency", currency);
+        }
+        if (criteria.getMinAmount() != null) {
+            jpql.append(" and p.amount.minorUnits >= :minAmount");
+            parameters.put("minAmount", criteria.getMinAmount().getMinorUnits());
+        }
+        if (criteria.getMaxAmount() != null) {
+            jpql.append(" and p.amount.minorUnits <= :maxAmount");
+            parameters.put("maxAmount", criteria.getMaxAmount().getMinorUnits());
+        }
+        if (criteria.getFrom() != null) {
+            jpql.append(" and p.createdAt >= :from");
+            parameters.put("from", criteria.getFrom());
+        }
+        if (criteria.getTo() != null) {
+            jpql.append(" and p.createdAt < :to");
+            parameters.put("to", criteria.getTo());
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.paymentgateway.persistence.impl;
+
+import com.example.paymentgateway.events.PaymentEventType;
+import com.example.paymentgateway.persistence.IdempotencyKeyIndex;
+import com.example.paymentgateway.persistence.OutboxEvent;
+import com.example.paymentgateway.persistence.OutboxEventRepository;
+import com.example.paymentgateway.persistence.Payment;
+import com.example.paymentgateway.persistence.PaymentRepository;
+import com.example.paymentgateway.persistence.PaymentWriter;
+import com.example.paymentgateway.persistence.ShardRouter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Write-behind stage collecting payments from concurrent requests into bounded queues and flushing them in
+ * multi-row batches. Each shard has its own queue and flusher thread, so shards commit independently and write
+ * throughput grows with their number. A batch is flushed when it is full or when the oldest payment in it has
+ * waited for the configured delay, and every caller is released only after its batch has committed. Each payment
+ * is committed together with its creation event in the outbox.
+ */
+@Component
+@Slf4j
+public class PaymentWriterImpl implements PaymentWriter {
+
+    private final PaymentRepository paymentRepository;
+    private final OutboxEventRepository outboxEventRepository;
+    private final IdempotencyKeyIndex idempotencyKeyIndex;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final Duration awaitTimeout;
+    private final List<BlockingQueue<PendingWrite>> queues;
+    private final List<Thread> flushers = new ArrayList<>();
+
+    private volatile boolean running;
+
+    public PaymentWriterImpl(PaymentRepository paymentRepository,
+                             OutboxEventRepository outboxEventRepository,
+                             IdempotencyKeyIndex idempotencyKeyIndex,
+                             ShardRouter shardRouter,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${payment.persistence.write-behind.enabled:true}") boolean enabled,
+                             @Value("${payment.persistence.write-behind.batch-size:50}") int batchSize,
+                             @Value("${payment.persistence.write-behind.queue-capacity:10000}") int queueCapacity,
+                             @Value("${payment.persistence.write-behind.max-delay:2ms}") Duration maxDelay,
+                             @Value("${payment.persistence.write-behind.await-timeout:30s}") Duration awaitTimeout) {
+        this.paymentRepository = paymentRepository;
+        this.outboxEventRepository = outboxEventRepository;
+        this.idempotencyKeyIndex = idempotencyKeyIndex;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.awaitTimeout = awaitTimeout;
+        this.queues = new ArrayList<>(shardRouter.shardCount());
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            queues.add(new ArrayBlockingQueue<>(queueCapacity));
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        for (int shard = 0; shard < queues.size(); shard++) {
+            int flushedShard = shard;
+            Thread flusher = new Thread(() -> flushLoop(flushedShard), queues.size() == 1 ? "payment-writer" : "payment-writer-" + shard);
+            flusher.setDaemon(true);
+            flusher.start();
+            flushers.add(flusher);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (Thread flusher : flushers) {
+            TimeUnit.NANOSECONDS.timedJoin(flusher, Math.max(1, deadline - System.nanoTime()));
+        }
+        // Flush anything queued by callers that raced with shutdown, and fail whatever could not be flushed
+        for (int shard = 0; shard < queues.size(); shard++) {
+            List<PendingWrite> remaining = new ArrayList<>();
+            queues.get(shard).drainTo(remaining);
+            try {
+                if (!remaining.isEmpty()) {
+                    flush(shard, remaining);
+                }
+            } finally {
+                for (PendingWrite pendingWrite : remaining) {
+                    pendingWrite.future().completeExceptionally(new IllegalStateException("Payment writer stopped"));
+                }
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<Payment> write(Payment payment) {
+        // Indexed before it is stored, so the index never answers "new" for a key that is in the database
+        idempotencyKeyIndex.add(payment.getIdempotencyKey());
+        int shard = shardRouter.shardForIdempotencyKey(payment.getIdempotencyKey());
+        if (!running) {
+            return writeDirectly(shard, payment);
+        }
+        PendingWrite pendingWrite = new PendingWrite(payment, new CompletableFuture<>());
+        BlockingQueue<PendingWrite> queue = queues.get(shard);
+        try {
+            // Blocks when the queue is full, pushing back on callers instead of buffering without bound
+            queue.put(pendingWrite);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(ex);
+        }
+        // Stopped while enqueueing: unless the flusher or stop() already took the payment, nobody will
+        if (!running && queue.remove(pendingWrite)) {
+            return writeDirectly(shard, payment);
+        }
+        return pendingWrite.future();
+    }
+
+    @Override
+    public Payment writeAndAwait(Payment payment) {
+        try {
+            return write(payment).get(awaitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new CompletionException(ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new QueryTimeoutException("Payment was not committed within " + awaitTimeout);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(ex);
+        }
+    }
+
+    private CompletableFuture<Payment> writeDirectly(int shard, Payment payment) {
+        try {
+            Payment saved = shardRouter.onShard(shard, () -> transactionTemplate.execute(status -> save(payment)));
+            idempotencyKeyIndex.markPersisted(saved.getId());
+            return CompletableFuture.completedFuture(saved);
+        } catch (RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    private void flushLoop(int shard) {
+        BlockingQueue<PendingWrite> queue = queues.get(shard);
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        while ((running && !Thread.currentThread().isInterrupted()) || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(queue, batch);
+            } catch (InterruptedException ex) {
+                running = false;
+                Thread.currentThread().interrupt();
+                queue.drainTo(batch);
+            }
+            if (!batch.isEmpty()) {
+                flush(shard, batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void fillBatch(BlockingQueue<PendingWrite> queue, List<PendingWrite> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                return;
+            }
+            PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(int shard, List<PendingWrite> batch) {
+        List<Payment> payments = new ArrayList<>(batch.size());
+        for (PendingWrite pendingWrite : batch) {
+            payments.add(pendingWrite.payment());
+        }
+        try {
+            List<Payment> saved = shardRouter.onShard(shard, () -> transactionTemplate.execute(status -> saveAll(payments)));
+            for (int i = 0; i < batch.size(); i++) {
+                idempotencyKeyIndex.markPersisted(saved.get(i).getId());
+                batch.get(i).future().complete(saved.get(i));
+            }
+        } catch (RuntimeException ex) {
+            if (batch.size() == 1) {
+                batch.get(0).future().completeExceptionally(ex);
+                return;
+            }
+            // A single bad row (e.g. a duplicate idempotency key) must not fail the rest of its batch
+            log.warn("Batch of {} payments failed, retrying them one by one: {}", batch.size(), ex.getMessage());
+            for (PendingWrite pendingWrite : batch) {
+                flushOne(shard, pendingWrite);
+            }
+        }
+    }
+
+    private void flushOne(int shard, PendingWrite pendingWrite) {
+        try {
+            // The rolled back batch has already assigned an identifier and version, which would turn the insert into a merge
+            pendingWrite.payment().setId(null);
+            pendingWrite.payment().setVersion(null);
+            Payment saved = shardRouter.onShard(shard, () -> transactionTemplate.execute(status -> save(pendingWrite.payment())));
+            idempotencyKeyIndex.markPersisted(saved.getId());
+            pendingWrite.future().complete(saved);
+        } catch (RuntimeException ex) {
+            pendingWrite.future().completeExceptionally(ex);
+        }
+    }
+
+    private Payment save(Payment payment) {
+        Payment saved = paymentRepository.save(payment);
+        outboxEventRepository.save(OutboxEvent.of(PaymentEventType.PAYMENT_CREATED, saved));
+        return saved;
+    }
+
+    private List<Payment> saveAll(List<Payment> payments) {
+        List<Payment> saved = paymentRepository.saveAll(payments);
+        List<OutboxEvent> events = new ArrayList<>(saved.size());
+        for (Payment payment : saved) {
+            events.add(OutboxEvent.of(PaymentEventType.PAYMENT_CREATED, payment));
+        }
+        outboxEventRepository.saveAll(events);
+        return saved;
+    }
+
+    private record PendingWrite(Payment payment, CompletableFuture<Payment> future) {
+    }
+}
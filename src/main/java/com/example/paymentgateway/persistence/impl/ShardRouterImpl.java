@@ -0,0 +1,42 @@
+package com.example.paymentgateway.persistence.impl;
+
+import com.example.paymentgateway.persistence.ShardRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+@Component
+public class ShardRouterImpl implements ShardRouter {
+
+    private final int shardCount;
+
+    public ShardRouterImpl(@Value("${payment.sharding.shards:1}") int shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    @Override
+    public int shardCount() {
+        return shardCount;
+    }
+
+    @Override
+    public int shardForIdempotencyKey(String idempotencyKey) {
+        if (shardCount == 1) {
+            return 0;
+        }
+        // String.hashCode is specified, so every node maps a key to the same shard; the mix spreads its low bits
+        int hash = idempotencyKey.hashCode() * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), shardCount);
+    }
+
+    @Override
+    public int shardOf(long paymentId) {
+        return shardCount == 1 ? 0 : SnowflakeIdGenerator.shardOf(paymentId);
+    }
+
+    @Override
+    public <T> T onShard(int shard, Supplier<T> action) {
+        return ShardRoutingDataSource.callOn(shard, action);
+    }
+}
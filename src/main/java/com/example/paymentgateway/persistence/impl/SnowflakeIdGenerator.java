@@ -0,0 +1,81 @@
+package com.example.paymentgateway.persistence.impl;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Snowflake-style 64-bit identifiers: 41 bits of milliseconds since 2024-01-01, 8 bits of shard, 4 bits of node and
+ * a 10-bit sequence. Identifiers of a shard generated on one node are strictly increasing; across shards and nodes
+ * they are ordered by time to the millisecond. Each shard has its own lock-free sequence, so shards do not contend.
+ * When a shard issues more than 1024 identifiers in a millisecond, or the clock steps back, its timestamp runs ahead
+ * of the clock until the clock catches up.
+ */
+public class SnowflakeIdGenerator {
+
+    public static final long EPOCH_MILLIS = 1_704_067_200_000L;
+    public static final int MAX_SHARDS = 1 << 8;
+    public static final int MAX_NODES = 1 << 4;
+
+    private static final int SEQUENCE_BITS = 10;
+    private static final int NODE_SHIFT = SEQUENCE_BITS;
+    private static final int SHARD_SHIFT = NODE_SHIFT + 4;
+    private static final int TIMESTAMP_SHIFT = SHARD_SHIFT + 8;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final int nodeId;
+    private final LongSupplier clock;
+    // Per shard, the last timestamp shifted left over the last sequence, so one CAS moves both
+    private final AtomicLongArray lastTimestampAndSequence = new AtomicLongArray(MAX_SHARDS);
+
+    public SnowflakeIdGenerator(int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    SnowflakeIdGenerator(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId >= MAX_NODES) {
+            throw new IllegalArgumentException("nodeId must be between 0 and " + (MAX_NODES - 1));
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    public long nextId(int shard) {
+        if (shard < 0 || shard >= MAX_SHARDS) {
+            throw new IllegalArgumentException("shard must be between 0 and " + (MAX_SHARDS - 1));
+        }
+        long now = (clock.getAsLong() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long last;
+        long next;
+        do {
+            last = lastTimestampAndSequence.get(shard);
+            // A sequence overflow carries into the timestamp
+            next = Math.max(now, last + 1);
+        } while (!lastTimestampAndSequence.compareAndSet(shard, last, next));
+        return (next >>> SEQUENCE_BITS) << TIMESTAMP_SHIFT
+                | (long) shard << SHARD_SHIFT
+                | (long) nodeId << NODE_SHIFT
+                | next & SEQUENCE_MASK;
+    }
+
+    public static int shardOf(long id) {
+        return (int) (id >>> SHARD_SHIFT) & (MAX_SHARDS - 1);
+    }
+
+    public static int nodeOf(long id) {
+        return (int) (id >>> NODE_SHIFT) & (MAX_NODES - 1);
+    }
+
+    public static long timestampMillisOf(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + EPOCH_MILLIS;
+    }
+
+    /**
+     * The smallest identifier with the given timestamp: every identifier below it was generated earlier.
+     *
+     * @param timestampMillis the time in milliseconds since the Unix epoch
+     * @return the identifier
+     */
+    public static long firstIdAt(long timestampMillis) {
+        return Math.max(0, timestampMillis - EPOCH_MILLIS) << TIMESTAMP_SHIFT;
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.paymentgateway.presentation;
+
+import com.example.paymentgateway.admission.AdaptiveConcurrencyLimiter;
+import com.example.paymentgateway.admission.GcraRateLimiter;
+import com.example.paymentgateway.dto.ErrorResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
+
+/**
+ * Admits payment submissions before their body is read: first against the rate of the calling merchant, then against
+ * the global concurrency limit. Rejected requests get a 429 with a Retry-After header and cost no database or bank
+ * work. Either limiter may be absent.
+ * <p>
+ * A batch is admitted as one request, as its size is unknown until the body is read. The filter leaves a charge in
+ * the {@link #RATE_LIMIT_CHARGE_ATTRIBUTE} request attribute, which the controller calls with the number of further
+ * items once it has parsed the batch, so that the caller's rate covers every payment it submits.
+ * <p>
+ * Calls are limited by their merchant identifier, or by remote address without one. When the rate limiter has no
+ * room for a merchant identifier, as when a caller makes up a new one per request, the call is limited by its remote
+ * address instead, and refused if that has no room either.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    public static final String RATE_LIMIT_CHARGE_ATTRIBUTE = AdmissionControlFilter.class.getName() + ".rateLimitCharge";
+
+    private final GcraRateLimiter rateLimiter;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final ObjectMapper objectMapper;
+    private final Counter rateLimitedRequests;
+    private final Counter overCapacityRequests;
+
+    public AdmissionControlFilter(GcraRateLimiter rateLimiter, AdaptiveConcurrencyLimiter concurrencyLimiter,
+                                  ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.objectMapper = objectMapper;
+        this.rateLimitedRequests = Counter.builder("payment.admission.rejected")
+                .description("Payment submissions rejected before processing")
+                .tag("reason", "rate_limit")
+                .register(meterRegistry);
+        this.overCapacityRequests = Counter.builder("payment.admission.rejected")
+                .description("Payment submissions rejected before processing")
+                .tag("reason", "concurrency_limit")
+                .register(meterRegistry);
+        if (concurrencyLimiter != null) {
+            Gauge.builder("payment.admission.limit", concurrencyLimiter, AdaptiveConcurrencyLimiter::getLimit)
+                    .description("Current limit on payment submissions in flight")
+                    .register(meterRegistry);
+            Gauge.builder("payment.admission.in_flight", concurrencyLimiter, AdaptiveConcurrencyLimiter::getInFlight)
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (rateLimiter != null) {
+            String key = clientKey(request);
+            long waitNanos = rateLimiter.tryAcquire(key);
+            if (waitNanos == GcraRateLimiter.SATURATED) {
+                key = remoteAddressKey(request);
+                waitNanos = rateLimiter.tryAcquire(key);
+            }
+            if (waitNanos != 0) {
+                rateLimitedRequests.increment();
+                reject(response, waitNanos > 0 ? waitNanos : TimeUnit.SECONDS.toNanos(1), "Too many payment requests, retry later.");
+                return;
+            }
+            String chargedKey = key;
+            request.setAttribute(RATE_LIMIT_CHARGE_ATTRIBUTE, (IntConsumer) requests -> rateLimiter.charge(chargedKey, requests));
+        }
+        if (concurrencyLimiter == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!concurrencyLimiter.tryAcquire()) {
+            overCapacityRequests.increment();
+            reject(response, TimeUnit.SECONDS.toNanos(1), "The payment gateway is at capacity, retry later.");
+            return;
+        }
+
+        Release release = new Release(response, System.nanoTime());
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException ex) {
+            release.overload();
+            throw ex;
+        }
+        if (request.isAsyncStarted()) {
+            // The payment completes on another thread; its slot is held until the response is written
+            request.getAsyncContext().addListener(release);
+        } else {
+            release.complete();
+        }
+    }
+
+    private static String clientKey(HttpServletRequest request) {
+        String merchantId = request.getHeader(PaymentController.MERCHANT_ID_HEADER);
+        return merchantId != null ? merchantId : remoteAddressKey(request);
+    }
+
+    private static String remoteAddressKey(HttpServletRequest request) {
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletResponse response, long retryAfterNanos, String message) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (retryAfterNanos + 999_999_999) / 1_000_000_000)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ErrorResponse(
+                LocalDateTime.now().toString(),
+                HttpStatus.TOO_MANY_REQUESTS.value(),
+                message,
+                null
+        ));
+    }
+
+    private final class Release implements AsyncListener {
+
+        private final HttpServletResponse response;
+        private final long startedAt;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Release(HttpServletResponse response, long startedAt) {
+            this.response = response;
+            this.startedAt = startedAt;
+        }
+
+        private void complete() {
+            if (released.compareAndSet(false, true)) {
+                if (response.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value()) {
+                    concurrencyLimiter.onOverload();
+                } else {
+                    concurrencyLimiter.onSuccess(System.nanoTime() - startedAt);
+                }
+            }
+        }
+
+        private void overload() {
+            if (released.compareAndSet(false, true)) {
+                concurrencyLimiter.onOverload();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            complete();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            overload();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            overload();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.paymentgateway.presentation;
+
+import com.example.paymentgateway.aggregate.AggregateWindow;
+import com.example.paymentgateway.aggregate.PaymentAggregator;
+import com.example.paymentgateway.dto.PaymentAggregateResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/aggregates")
+@Tag(name = "Aggregates", description = "Live payment volume and approval rate")
+@RequiredArgsConstructor
+public class AggregateController {
+
+    private final PaymentAggregator paymentAggregator;
+
+    @GetMapping
+    @Operation(summary = "Rolling aggregates", description = "Returns payment count, amount and approval rate per currency and status over the last 1m, 5m or 1h.")
+    public ResponseEntity<List<PaymentAggregateResponse>> aggregates(@RequestParam(defaultValue = "1m") String window) {
+        AggregateWindow aggregateWindow;
+        try {
+            aggregateWindow = AggregateWindow.fromLabel(window);
+        } catch (IllegalArgumentException ex) {
+            throw new PaymentValidationException(Map.of("window", "Window should be one of 1m, 5m or 1h."));
+        }
+        return ResponseEntity.ok(paymentAggregator.aggregates(aggregateWindow));
+    }
+}
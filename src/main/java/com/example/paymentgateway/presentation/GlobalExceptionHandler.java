@@ -1,10 +1,17 @@
 package com.example.paymentgateway.presentation;
 
+import com.example.paymentgateway.connector.BankUnavailableException;
 import com.example.paymentgateway.dto.ErrorResponse;
+import com.example.paymentgateway.risk.RiskDeclinedException;
+import com.example.paymentgateway.routing.InvalidRouteException;
+import com.example.paymentgateway.service.IdempotencyKeyInUseException;
+import com.example.paymentgateway.service.IllegalPaymentTransitionException;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.MissingRequestHeaderException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -34,6 +41,28 @@ public class GlobalExceptionHandler {
         );
     }
 
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(PaymentValidationException.class)
+    public ErrorResponse handlePaymentValidationException(PaymentValidationException ex) {
+        return new ErrorResponse(
+                LocalDateTime.now().toString(),
+                HttpStatus.BAD_REQUEST.value(),
+                "Validation failed",
+                ex.getValidationErrors()
+        );
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(MissingRequestHeaderException.class)
+    public ErrorResponse handleMissingRequestHeaderException(MissingRequestHeaderException ex) {
+        return new ErrorResponse(
+                LocalDateTime.now().toString(),
+                HttpStatus.BAD_REQUEST.value(),
+                "Header " + ex.getHeaderName() + " is required.",
+                null
+        );
+    }
+
     @ResponseStatus(HttpStatus.NOT_FOUND)
     @ExceptionHandler(EntityNotFoundException.class)
     public ErrorResponse handleEntityNotFoundException(EntityNotFoundException ex) {
@@ -44,4 +73,70 @@ public class GlobalExceptionHandler {
                 null
         );
     }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(BankUnavailableException.class)
+    public ErrorResponse handleBankUnavailableException(BankUnavailableException ex) {
+        return new ErrorResponse(
+                LocalDateTime.now().toString(),
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                ex.getMessage(),
+                null
+        );
+    }
+
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    @ExceptionHandler(RiskDeclinedException.class)
+    public ErrorResponse handleRiskDeclinedException(RiskDeclinedException ex) {
+        return new ErrorResponse(
+                LocalDateTime.now().toString(),
+                HttpStatus.UNPROCESSABLE_ENTITY.value(),
+                ex.getMessage(),
+                null
+        );
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidRouteException.class)
+    public ErrorResponse handleInvalidRouteException(InvalidRouteException ex) {
+        return new ErrorResponse(
+                LocalDateTime.now().toString(),
+                HttpStatus.BAD_REQUEST.value(),
+                ex.getMessage(),
+                null
+        );
+    }
+
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(IllegalPaymentTransitionException.class)
+    public ErrorResponse handleIllegalPaymentTransitionException(IllegalPaymentTransitionException ex) {
+        return new ErrorResponse(
+                LocalDateTime.now().toString(),
+                HttpStatus.CONFLICT.value(),
+                ex.getMessage(),
+                null
+        );
+    }
+
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ErrorResponse handleOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+        return new ErrorResponse(
+                LocalDateTime.now().toString(),
+                HttpStatus.CONFLICT.value(),
+                "The payment is being changed concurrently, retry later.",
+                null
+        );
+    }
+
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(IdempotencyKeyInUseException.class)
+    public ErrorResponse handleIdempotencyKeyInUseException(IdempotencyKeyInUseException ex) {
+        return new ErrorResponse(
+                LocalDateTime.now().toString(),
+                HttpStatus.CONFLICT.value(),
+                ex.getMessage(),
+                null
+        );
+    }
 }
@@ -0,0 +1,311 @@
+package com.example.paymentgateway.presentation;
+
+import com.example.paymentgateway.dto.ErrorResponse;
+import com.example.paymentgateway.dto.PaymentDetailsResponse;
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.dto.PaymentResponse;
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of the payment API messages, for high-volume callers that would rather not pay for JSON.
+ * <p>
+ * A message is a version byte and a type byte followed by its fields in declaration order, without names: strings
+ * as their UTF-8 length plus one as a varint, 0 meaning null, followed by their bytes; integers as zigzag varints;
+ * decimals as their zigzag varint scale plus one, 0 meaning null, followed by their unscaled value; money as its
+ * currency code followed by its minor units. A payment request takes about 75 bytes against about 170 in JSON.
+ * <p>
+ * An instance owns the buffer messages are encoded into, reused from one message to the next, so it must not be
+ * shared between threads. Decoding is static and reads straight into the message object, with no intermediate tree.
+ */
+public final class PaymentBinaryCodec {
+
+    public static final String MEDIA_TYPE = "application/vnd.payment-gateway.v1+binary";
+
+    static final int VERSION = 1;
+    static final int PAYMENT_REQUEST = 1;
+    static final int PAYMENT_RESPONSE = 2;
+    static final int PAYMENT_DETAILS_RESPONSE = 3;
+    static final int ERROR_RESPONSE = 4;
+    static final int MAX_DECIMAL_SCALE = 18;
+
+    private byte[] buffer;
+    private int length;
+
+    public PaymentBinaryCodec(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public static boolean supports(Class<?> type) {
+        return type == PaymentRequest.class || type == PaymentResponse.class
+                || type == PaymentDetailsResponse.class || type == ErrorResponse.class;
+    }
+
+    /**
+     * Encode a message into the buffer of this codec, replacing the previous one.
+     *
+     * @param message a message of a supported type
+     * @return the length of the encoded message, at the start of {@link #buffer()}
+     */
+    public int encode(Object message) {
+        length = 0;
+        writeByte(VERSION);
+        if (message instanceof PaymentRequest request) {
+            writeByte(PAYMENT_REQUEST);
+            writeString(request.getCardNumber());
+            writeString(request.getExpiryMonth());
+            writeString(request.getExpiryYear());
+            writeString(request.getCvv());
+            writeDecimal(request.getAmount());
+            writeString(request.getCurrency());
+            writeString(request.getIdempotencyKey());
+        } else if (message instanceof PaymentResponse response) {
+            writeByte(PAYMENT_RESPONSE);
+            writeString(response.getPaymentId());
+            writeString(response.getStatus());
+            writeString(response.getMessage());
+        } else if (message instanceof PaymentDetailsResponse details) {
+            writeByte(PAYMENT_DETAILS_RESPONSE);
+            writeString(details.getPaymentId());
+            writeString(details.getMaskedCardNumber());
+            writeString(details.getExpiryMonth());
+            writeString(details.getExpiryYear());
+            writeMoney(details.getAmount());
+            writeString(details.getCurrency());
+            writeString(details.getStatus());
+        } else if (message instanceof ErrorResponse error) {
+            writeByte(ERROR_RESPONSE);
+            writeString(error.getTimestamp());
+            writeVarLong(zigzagEncode(error.getStatus()));
+            writeString(error.getError());
+            Map<String, String> validationErrors = error.getValidationErrors();
+            writeVarLong(validationErrors == null ? 0 : validationErrors.size() + 1L);
+            if (validationErrors != null) {
+                for (Map.Entry<String, String> entry : validationErrors.entrySet()) {
+                    writeString(entry.getKey());
+                    writeString(entry.getValue());
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Cannot encode " + (message == null ? "null" : message.getClass().getName()));
+        }
+        return length;
+    }
+
+    /**
+     * The buffer holding the last encoded message; valid until the next call to {@link #encode}.
+     */
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Decode a message.
+     *
+     * @param type   the expected message type
+     * @param data   the buffer holding the message
+     * @param offset where the message starts
+     * @param length the length of the message
+     * @return the message
+     * @throws IllegalArgumentException if the bytes are not a message of the expected type
+     */
+    public static <T> T decode(Class<T> type, byte[] data, int offset, int length) {
+        Reader reader = new Reader(data, offset, offset + length);
+        int version = reader.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported message version " + version + ".");
+        }
+        int tag = reader.readByte();
+        Object message;
+        if (type == PaymentRequest.class && tag == PAYMENT_REQUEST) {
+            PaymentRequest request = new PaymentRequest();
+            request.setCardNumber(reader.readString());
+            request.setExpiryMonth(reader.readString());
+            request.setExpiryYear(reader.readString());
+            request.setCvv(reader.readString());
+            request.setAmount(reader.readDecimal());
+            request.setCurrency(reader.readString());
+            request.setIdempotencyKey(reader.readString());
+            message = request;
+        } else if (type == PaymentResponse.class && tag == PAYMENT_RESPONSE) {
+            message = new PaymentResponse(reader.readString(), reader.readString(), reader.readString());
+        } else if (type == PaymentDetailsResponse.class && tag == PAYMENT_DETAILS_RESPONSE) {
+            message = new PaymentDetailsResponse(reader.readString(), reader.readString(), reader.readString(),
+                    reader.readString(), reader.readMoney(), reader.readString(), reader.readString());
+        } else if (type == ErrorResponse.class && tag == ERROR_RESPONSE) {
+            String timestamp = reader.readString();
+            int status = (int) zigzagDecode(reader.readVarLong());
+            String error = reader.readString();
+            long entries = reader.readVarLong();
+            Map<String, String> validationErrors = null;
+            if (entries > 0) {
+                validationErrors = new LinkedHashMap<>();
+                for (long i = 1; i < entries; i++) {
+                    validationErrors.put(reader.readString(), reader.readString());
+                }
+            }
+            message = new ErrorResponse(timestamp, status, error, validationErrors);
+        } else {
+            throw new IllegalArgumentException("Expected a " + type.getSimpleName() + " message, got type " + tag + ".");
+        }
+        if (reader.position != reader.limit) {
+            throw new IllegalArgumentException("Unexpected bytes after the message.");
+        }
+        return type.cast(message);
+    }
+
+    private void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) value;
+    }
+
+    private void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7fL) != 0) {
+            buffer[length++] = (byte) (value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+    }
+
+    private void writeString(String value) {
+        if (value == null) {
+            writeVarLong(0);
+            return;
+        }
+        // Most fields are ASCII, which is copied straight into the buffer without an intermediate byte array
+        int chars = value.length();
+        boolean ascii = true;
+        for (int i = 0; i < chars && ascii; i++) {
+            ascii = value.charAt(i) < 0x80;
+        }
+        if (ascii) {
+            writeVarLong(chars + 1L);
+            ensureCapacity(chars);
+            for (int i = 0; i < chars; i++) {
+                buffer[length++] = (byte) value.charAt(i);
+            }
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(utf8.length + 1L);
+        ensureCapacity(utf8.length);
+        System.arraycopy(utf8, 0, buffer, length, utf8.length);
+        length += utf8.length;
+    }
+
+    private void writeDecimal(BigDecimal value) {
+        if (value == null) {
+            writeVarLong(0);
+            return;
+        }
+        if (value.scale() < 0) {
+            value = value.setScale(0);
+        }
+        if (value.scale() > MAX_DECIMAL_SCALE || value.unscaledValue().bitLength() > 63) {
+            throw new IllegalArgumentException("Amount " + value + " is out of range.");
+        }
+        // 0 is taken by null, so the scale is shifted by one
+        writeVarLong(zigzagEncode(value.scale()) + 1);
+        writeVarLong(zigzagEncode(value.unscaledValue().longValue()));
+    }
+
+    private void writeMoney(Money value) {
+        if (value == null) {
+            writeString(null);
+            return;
+        }
+        writeString(value.getCurrency().getCode());
+        writeVarLong(zigzagEncode(value.getMinorUnits()));
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(length + extra, buffer.length * 2));
+        }
+    }
+
+    private static long zigzagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long zigzagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Reader {
+
+        private final byte[] data;
+        private final int limit;
+        private int position;
+
+        private Reader(byte[] data, int position, int limit) {
+            this.data = data;
+            this.position = position;
+            this.limit = limit;
+        }
+
+        private int readByte() {
+            if (position >= limit) {
+                throw new IllegalArgumentException("Truncated message.");
+            }
+            return data[position++];
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint.");
+        }
+
+        private String readString() {
+            long length = readVarLong();
+            if (length == 0) {
+                return null;
+            }
+            if (length < 0 || length - 1 > limit - position) {
+                throw new IllegalArgumentException("Truncated message.");
+            }
+            String value = new String(data, position, (int) length - 1, StandardCharsets.UTF_8);
+            position += (int) length - 1;
+            return value;
+        }
+
+        private BigDecimal readDecimal() {
+            long scale = readVarLong();
+            if (scale == 0) {
+                return null;
+            }
+            long decodedScale = zigzagDecode(scale - 1);
+            // An amount has no negative scale, and no more fraction digits than a long holds
+            if (decodedScale < 0 || decodedScale > MAX_DECIMAL_SCALE) {
+                throw new IllegalArgumentException("Decimal scale " + decodedScale + " is out of range.");
+            }
+            return BigDecimal.valueOf(zigzagDecode(readVarLong()), (int) decodedScale);
+        }
+
+        private Money readMoney() {
+            String currency = readString();
+            if (currency == null) {
+                return null;
+            }
+            return Money.ofMinor(zigzagDecode(readVarLong()), CurrencyUnit.of(currency));
+        }
+    }
+}
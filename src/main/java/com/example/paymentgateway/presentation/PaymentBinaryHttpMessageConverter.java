@@ -0,0 +1,65 @@
+package com.example.paymentgateway.presentation;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads and writes payment API messages in the {@link PaymentBinaryCodec} encoding, for requests whose Content-Type
+ * or Accept header asks for it. Registered after the JSON converter, so JSON stays the default.
+ * <p>
+ * Each thread reads bodies into, and encodes messages in, buffers of its own that are reused across requests, and
+ * responses are written straight from the encoding buffer with their Content-Length, without a copy.
+ */
+public class PaymentBinaryHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    // Far above any valid payment message; a body this large is rejected rather than buffered
+    private static final int MAX_MESSAGE_BYTES = 16 * 1024;
+    // Buffers grown past this by an unusual message are dropped rather than kept by the thread
+    private static final int MAX_RETAINED_BYTES = 4 * 1024;
+
+    private static final ThreadLocal<byte[]> READ_BUFFERS = ThreadLocal.withInitial(() -> new byte[MAX_MESSAGE_BYTES + 1]);
+    private static final ThreadLocal<PaymentBinaryCodec> CODECS = ThreadLocal.withInitial(() -> new PaymentBinaryCodec(512));
+
+    public PaymentBinaryHttpMessageConverter() {
+        super(MediaType.parseMediaType(PaymentBinaryCodec.MEDIA_TYPE));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return PaymentBinaryCodec.supports(clazz);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        byte[] buffer = READ_BUFFERS.get();
+        int length;
+        try (InputStream body = inputMessage.getBody()) {
+            length = body.readNBytes(buffer, 0, buffer.length);
+        }
+        if (length > MAX_MESSAGE_BYTES) {
+            throw new HttpMessageNotReadableException("Payment message exceeds " + MAX_MESSAGE_BYTES + " bytes.", inputMessage);
+        }
+        try {
+            return PaymentBinaryCodec.decode(clazz, buffer, 0, length);
+        } catch (IllegalArgumentException ex) {
+            throw new HttpMessageNotReadableException("Payment message is not valid: " + ex.getMessage(), ex, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object message, HttpOutputMessage outputMessage) throws IOException {
+        PaymentBinaryCodec codec = CODECS.get();
+        int length = codec.encode(message);
+        outputMessage.getHeaders().setContentLength(length);
+        outputMessage.getBody().write(codec.buffer(), 0, length);
+        if (codec.buffer().length > MAX_RETAINED_BYTES) {
+            CODECS.remove();
+        }
+    }
+}
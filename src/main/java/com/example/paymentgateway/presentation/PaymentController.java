@@ -1,30 +1,209 @@
 package com.example.paymentgateway.presentation;
 
+import com.example.paymentgateway.connector.BankUnavailableException;
+import com.example.paymentgateway.dto.ExportFormat;
+import com.example.paymentgateway.dto.PaymentBatchError;
 import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.dto.PaymentResponse;
+import com.example.paymentgateway.dto.PaymentSearchResponse;
+import com.example.paymentgateway.metrics.PaymentMetrics;
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
+import com.example.paymentgateway.persistence.PaymentCursor;
+import com.example.paymentgateway.persistence.PaymentSearchCriteria;
+import com.example.paymentgateway.persistence.PaymentStatus;
+import com.example.paymentgateway.risk.RiskDeclinedException;
+import com.example.paymentgateway.service.IdempotencyKeyInUseException;
+import com.example.paymentgateway.service.PaymentExportService;
 import com.example.paymentgateway.service.PaymentProcessingService;
+import com.example.paymentgateway.validation.PaymentRequestValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import jakarta.validation.Valid;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.IntConsumer;
+import java.util.zip.GZIPOutputStream;
+
 @RestController
 @RequestMapping("/api/payments")
 @Tag(name = "Payment", description = "Payment processing and retrieval")
 @RequiredArgsConstructor
+@Slf4j
 public class PaymentController {
 
+    public static final String MERCHANT_ID_HEADER = "Merchant-Id";
+
     private final PaymentProcessingService paymentProcessingService;
+    private final PaymentExportService paymentExportService;
+    private final PaymentRequestValidator paymentRequestValidator;
+    private final PaymentMetrics paymentMetrics;
+    private final ObjectMapper objectMapper;
+
+    @Value("${payment.async.enabled:false}")
+    private boolean asyncEnabled;
+
+    @Value("${payment.batch.max-size:10000}")
+    private int batchMaxSize;
+
+    @Value("${payment.search.max-limit:500}")
+    private int searchMaxLimit;
 
     @PostMapping
-    @Operation(summary = "Process a payment", description = "Processes a payment through the payment gateway.")
-    public ResponseEntity<?> processPayment(@Valid @RequestBody PaymentRequest paymentRequest) {
-        // Logic to process the payment
+    @Operation(summary = "Process a payment", description = "Processes a payment through the payment gateway. Answers 202 with the payment's location while it is PENDING; poll it for the outcome.")
+    public Object processPayment(@RequestBody PaymentRequest paymentRequest,
+                                 @RequestHeader(MERCHANT_ID_HEADER) String merchantId) {
+        validateAndAssign(paymentRequest, merchantId);
+        if (asyncEnabled) {
+            // The request thread is released while the bank call and persistence run on the payment executor
+            return paymentProcessingService.processPaymentAsync(paymentRequest).thenApply(PaymentController::toResponseEntity);
+        }
         var response = paymentProcessingService.processPayment(paymentRequest);
+        return toResponseEntity(response);
+    }
+
+    private void validateAndAssign(PaymentRequest paymentRequest, String merchantId) {
+        Map<String, String> errors = validate(paymentRequest);
+        if (!errors.isEmpty()) {
+            throw new PaymentValidationException(errors);
+        }
+        paymentRequest.setMerchantId(merchantId);
+    }
+
+    private static ResponseEntity<?> toResponseEntity(PaymentResponse response) {
+        if (PaymentStatus.PENDING.name().equals(response.getStatus())) {
+            return ResponseEntity.accepted().location(URI.create("/api/payments/" + response.getPaymentId())).body(response);
+        }
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping(value = "/batch", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "Process a batch of payments", description = "Processes a list of payments and streams one result per payment, in request order, as NDJSON or a JSON array. A payment that could not be processed is reported as an object with only an error message.")
+    public void processPaymentBatch(@RequestBody List<PaymentRequest> paymentRequests,
+                                    @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                    @RequestHeader(MERCHANT_ID_HEADER) String merchantId,
+                                    @RequestAttribute(name = AdmissionControlFilter.RATE_LIMIT_CHARGE_ATTRIBUTE, required = false) IntConsumer rateLimitCharge,
+                                    HttpServletResponse response) throws IOException {
+        validateBatch(paymentRequests);
+        if (rateLimitCharge != null) {
+            // Admission counted the batch as one payment
+            rateLimitCharge.accept(paymentRequests.size() - 1);
+        }
+        paymentRequests.forEach(paymentRequest -> paymentRequest.setMerchantId(merchantId));
+        var results = paymentProcessingService.processPaymentBatch(paymentRequests);
+
+        boolean jsonArray = accept != null && accept.contains(MediaType.APPLICATION_JSON_VALUE) && !accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setContentType(jsonArray ? MediaType.APPLICATION_JSON_VALUE : MediaType.APPLICATION_NDJSON_VALUE);
+        // Written on the request thread straight to the servlet stream: an async response would be cut off by the
+        // async request timeout on large batches
+        writeBatchResults(results, response.getOutputStream(), jsonArray);
+        response.flushBuffer();
+    }
+
+    @GetMapping
+    @Operation(summary = "Search payments", description = "Lists the payments of the calling merchant, newest first, filtered by status, currency, amount range and creation time. Pass the returned cursor to get the next page.")
+    public ResponseEntity<PaymentSearchResponse> searchPayments(@RequestHeader(MERCHANT_ID_HEADER) String merchantId,
+                                                                @RequestParam(required = false) String status,
+                                                                @RequestParam(required = false) String currency,
+                                                                @RequestParam(required = false) BigDecimal minAmount,
+                                                                @RequestParam(required = false) BigDecimal maxAmount,
+                                                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                                                @RequestParam(required = false) String cursor,
+                                                                @RequestParam(defaultValue = "50") int limit) {
+        Map<String, String> errors = new LinkedHashMap<>();
+        PaymentStatus paymentStatus = parseStatus(status, errors);
+        CurrencyUnit currencyUnit = parseCurrency(currency, errors);
+        if ((minAmount != null || maxAmount != null) && currency == null) {
+            errors.put("currency", "Currency is required to filter by amount.");
+        }
+        Money min = parseAmount("minAmount", minAmount, currencyUnit, errors);
+        Money max = parseAmount("maxAmount", maxAmount, currencyUnit, errors);
+        if (limit < 1 || limit > searchMaxLimit) {
+            errors.put("limit", "Limit should be between 1 and " + searchMaxLimit + ".");
+        }
+        PaymentCursor after = null;
+        if (cursor != null) {
+            try {
+                after = PaymentCursor.decode(cursor);
+            } catch (IllegalArgumentException ex) {
+                errors.put("cursor", "Cursor is not valid.");
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new PaymentValidationException(errors);
+        }
+
+        PaymentSearchCriteria criteria = PaymentSearchCriteria.builder()
+                .merchantId(merchantId)
+                .status(paymentStatus)
+                .currency(currencyUnit)
+                .minAmount(min)
+                .maxAmount(max)
+                .from(from)
+                .to(to)
+                .build();
+        return ResponseEntity.ok(paymentProcessingService.searchPayments(criteria, after, limit));
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Export payments", description = "Streams the payments of the calling merchant, oldest first, as CSV or NDJSON with masked card numbers, optionally gzip-compressed.")
+    public void exportPayments(@RequestHeader(MERCHANT_ID_HEADER) String merchantId,
+                               @RequestParam(defaultValue = "CSV") ExportFormat format,
+                               @RequestParam(defaultValue = "false") boolean gzip,
+                               @RequestParam(required = false) String status,
+                               @RequestParam(required = false) String currency,
+                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                               HttpServletResponse response) throws IOException {
+        Map<String, String> errors = new LinkedHashMap<>();
+        PaymentStatus paymentStatus = parseStatus(status, errors);
+        CurrencyUnit currencyUnit = parseCurrency(currency, errors);
+        if (!errors.isEmpty()) {
+            throw new PaymentValidationException(errors);
+        }
+        PaymentSearchCriteria criteria = PaymentSearchCriteria.builder()
+                .merchantId(merchantId)
+                .status(paymentStatus)
+                .currency(currencyUnit)
+                .from(from)
+                .to(to)
+                .build();
+
+        // Written on the request thread straight to the servlet stream: an async response would be cut off by the
+        // async request timeout on large exports
+        String extension = format == ExportFormat.CSV ? "csv" : "ndjson";
+        response.setContentType(format == ExportFormat.CSV ? "text/csv;charset=UTF-8" : MediaType.APPLICATION_NDJSON_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"payments." + extension + "\"");
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            GZIPOutputStream gzipStream = new GZIPOutputStream(response.getOutputStream(), 64 * 1024);
+            paymentExportService.exportPayments(criteria, format, gzipStream);
+            gzipStream.finish();
+        } else {
+            paymentExportService.exportPayments(criteria, format, response.getOutputStream());
+        }
+        response.flushBuffer();
+    }
+
     @GetMapping("/{paymentId}")
     @Operation(summary = "Retrieve payment details", description = "Retrieves details of a previously made payment using its identifier.")
     public ResponseEntity<?> retrievePaymentDetails(@PathVariable String paymentId) {
@@ -32,4 +211,124 @@ public class PaymentController {
         var response = paymentProcessingService.retrievePaymentDetails(paymentId);
         return ResponseEntity.ok(response);
     }
+
+    @PostMapping("/{paymentId}/capture")
+    @Operation(summary = "Capture a payment", description = "Collects the amount of an AUTHORIZED payment. Answers 409 if the payment is in any other status than AUTHORIZED or CAPTURED.")
+    public ResponseEntity<?> capturePayment(@PathVariable String paymentId) {
+        return ResponseEntity.ok(paymentProcessingService.capturePayment(paymentId));
+    }
+
+    @PostMapping("/{paymentId}/refund")
+    @Operation(summary = "Refund a payment", description = "Returns the amount of a CAPTURED payment. Answers 409 if the payment is in any other status than CAPTURED or REFUNDED.")
+    public ResponseEntity<?> refundPayment(@PathVariable String paymentId) {
+        return ResponseEntity.ok(paymentProcessingService.refundPayment(paymentId));
+    }
+
+    private static PaymentStatus parseStatus(String status, Map<String, String> errors) {
+        if (status == null) {
+            return null;
+        }
+        try {
+            return PaymentStatus.valueOf(status);
+        } catch (IllegalArgumentException ex) {
+            errors.put("status", "Status is not valid.");
+            return null;
+        }
+    }
+
+    private static CurrencyUnit parseCurrency(String currency, Map<String, String> errors) {
+        if (currency == null) {
+            return null;
+        }
+        CurrencyUnit currencyUnit = CurrencyUnit.find(currency);
+        if (currencyUnit == null) {
+            errors.put("currency", "Currency is not supported.");
+        }
+        return currencyUnit;
+    }
+
+    private static Money parseAmount(String name, BigDecimal amount, CurrencyUnit currency, Map<String, String> errors) {
+        if (amount == null || currency == null) {
+            return null;
+        }
+        try {
+            return Money.of(amount, currency);
+        } catch (ArithmeticException ex) {
+            errors.put(name, "Amount does not fit the minor unit of the currency.");
+            return null;
+        }
+    }
+
+    private void validateBatch(List<PaymentRequest> paymentRequests) {
+        Map<String, String> errors = new LinkedHashMap<>();
+        if (paymentRequests == null || paymentRequests.isEmpty()) {
+            errors.put("payments", "At least one payment is required.");
+        } else if (paymentRequests.size() > batchMaxSize) {
+            errors.put("payments", "A batch should not contain more than " + batchMaxSize + " payments.");
+        } else {
+            for (int i = 0; i < paymentRequests.size(); i++) {
+                for (Map.Entry<String, String> error : validate(paymentRequests.get(i)).entrySet()) {
+                    errors.put("[" + i + "]." + error.getKey(), error.getValue());
+                }
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new PaymentValidationException(errors);
+        }
+    }
+
+    private Map<String, String> validate(PaymentRequest paymentRequest) {
+        long startedAt = System.nanoTime();
+        Map<String, String> errors = paymentRequestValidator.validate(paymentRequest);
+        paymentMetrics.recordSince(PaymentMetrics.Stage.REQUEST_VALIDATION, startedAt);
+        return errors;
+    }
+
+    private void writeBatchResults(List<CompletableFuture<PaymentResponse>> results, OutputStream outputStream, boolean jsonArray) throws IOException {
+        if (jsonArray) {
+            outputStream.write('[');
+        }
+        for (int i = 0; i < results.size(); i++) {
+            CompletableFuture<PaymentResponse> result = results.get(i);
+            if (!result.isDone()) {
+                // Push what is ready to the client before waiting on the next bank call
+                outputStream.flush();
+            }
+            if (jsonArray && i > 0) {
+                outputStream.write(',');
+            }
+            outputStream.write(objectMapper.writeValueAsBytes(awaitBatchResult(result)));
+            if (!jsonArray) {
+                outputStream.write('\n');
+            }
+        }
+        if (jsonArray) {
+            outputStream.write(']');
+        }
+        outputStream.flush();
+    }
+
+    private Object awaitBatchResult(CompletableFuture<PaymentResponse> result) {
+        try {
+            return result.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+            return new PaymentBatchError(batchErrorMessage(cause));
+        }
+    }
+
+    // Fixed messages, as GlobalExceptionHandler answers single payments; exception messages may carry internals
+    private static String batchErrorMessage(Throwable cause) {
+        if (cause instanceof RiskDeclinedException) {
+            return "Payment declined by risk screening.";
+        }
+        if (cause instanceof BankUnavailableException) {
+            return "Bank unavailable, the payment was not attempted.";
+        }
+        if (cause instanceof IdempotencyKeyInUseException) {
+            return "A payment with this idempotency key is being processed, retry later.";
+        }
+        log.error("Batch payment failed", cause);
+        return "The payment could not be processed.";
+    }
 }
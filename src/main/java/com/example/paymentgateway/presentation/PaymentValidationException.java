@@ -0,0 +1,19 @@
+package com.example.paymentgateway.presentation;
+
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Thrown when a payment request fails validation outside of Spring's {@code @Valid} argument binding.
+ */
+@Getter
+public class PaymentValidationException extends RuntimeException {
+
+    private final Map<String, String> validationErrors;
+
+    public PaymentValidationException(Map<String, String> validationErrors) {
+        super("Validation failed");
+        this.validationErrors = validationErrors;
+    }
+}
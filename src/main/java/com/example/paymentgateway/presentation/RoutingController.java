@@ -0,0 +1,35 @@
+package com.example.paymentgateway.presentation;
+
+import com.example.paymentgateway.dto.RouteDefinition;
+import com.example.paymentgateway.routing.RoutingBankSimulator;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/routing/routes")
+@Tag(name = "Routing", description = "Acquirer routing table management")
+@ConditionalOnProperty(name = "payment.routing.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class RoutingController {
+
+    private final RoutingBankSimulator routingBankSimulator;
+
+    @GetMapping
+    @Operation(summary = "List routes", description = "Returns the routes currently in use.")
+    public ResponseEntity<List<RouteDefinition>> routes() {
+        return ResponseEntity.ok(routingBankSimulator.routes());
+    }
+
+    @PutMapping
+    @Operation(summary = "Replace routes", description = "Replaces the whole routing table without a restart.")
+    public ResponseEntity<List<RouteDefinition>> reload(@RequestBody List<RouteDefinition> routes) {
+        routingBankSimulator.reload(routes);
+        return ResponseEntity.ok(routingBankSimulator.routes());
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.paymentgateway.risk;
+
+import com.example.paymentgateway.money.CurrencyUnit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exponentially weighted average payment amount per currency, in minor units, against which outlier amounts are
+ * judged. Concurrent updates may lose a sample, which only makes the average slightly less smooth.
+ */
+public class AmountBaseline {
+
+    private static final double WEIGHT = 0.01;
+    private static final long MIN_SAMPLES = 100;
+
+    private final ConcurrentHashMap<CurrencyUnit, Average> averages = new ConcurrentHashMap<>();
+
+    /**
+     * Add an amount to the average of its currency.
+     *
+     * @param currency   the currency
+     * @param minorUnits the amount in minor units
+     * @return the average before this amount, or NaN while the currency has too few samples to judge by
+     */
+    public double observe(CurrencyUnit currency, long minorUnits) {
+        Average average = averages.get(currency);
+        if (average == null) {
+            average = averages.computeIfAbsent(currency, key -> new Average());
+        }
+        long samples = average.samples.getAndIncrement();
+        double before = Double.longBitsToDouble(average.meanBits.get());
+        double updated = samples == 0 ? minorUnits : before + WEIGHT * (minorUnits - before);
+        average.meanBits.set(Double.doubleToRawLongBits(updated));
+        return samples < MIN_SAMPLES ? Double.NaN : before;
+    }
+
+    private static final class Average {
+        private final AtomicLong samples = new AtomicLong();
+        private final AtomicLong meanBits = new AtomicLong();
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.paymentgateway.risk;
+
+import java.util.List;
+
+/**
+ * Outcome of screening a payment.
+ *
+ * @param score          the summed score of the rules that matched
+ * @param triggeredRules the names of the rules that matched
+ * @param declined       whether the score reached the blocking threshold
+ */
+public record RiskAssessment(int score, List<String> triggeredRules, boolean declined) {
+
+    public static final RiskAssessment CLEAR = new RiskAssessment(0, List.of(), false);
+}
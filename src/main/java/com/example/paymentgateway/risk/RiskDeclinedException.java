@@ -0,0 +1,12 @@
+package com.example.paymentgateway.risk;
+
+/**
+ * Thrown when risk screening declines a payment before it reaches the bank. Nothing is stored, and which rules
+ * matched is only logged.
+ */
+public class RiskDeclinedException extends RuntimeException {
+
+    public RiskDeclinedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.paymentgateway.risk;
+
+import com.example.paymentgateway.dto.PaymentRequest;
+
+public interface RiskEngine {
+
+    /**
+     * Screen a payment before it is sent to the bank. The payment counts towards the velocity of its card, BIN and
+     * idempotency key prefix whether or not it is declined, so repeated attempts keep raising the score.
+     *
+     * @param paymentRequest a validated payment request
+     * @return the assessment, declined if the payment should not be sent
+     */
+    RiskAssessment assess(PaymentRequest paymentRequest);
+}
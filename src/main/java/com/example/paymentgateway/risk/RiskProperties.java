@@ -0,0 +1,38 @@
+package com.example.paymentgateway.risk;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "payment.risk")
+public class RiskProperties {
+
+    private boolean enabled;
+
+    /** Payments whose rules add up to this score are declined without calling the bank. */
+    private int blockScore = 100;
+
+    /** Columns of each velocity sketch; keep it well above the number of keys active within a window. */
+    private int sketchWidth = 16384;
+
+    /** Rows of each velocity sketch; each row is an independent chance to avoid a collision. */
+    private int sketchDepth = 4;
+
+    /** Time buckets per velocity window. */
+    private int buckets = 10;
+
+    private Duration cardWindow = Duration.ofMinutes(10);
+    private Duration binWindow = Duration.ofMinutes(1);
+    private Duration keyPrefixWindow = Duration.ofMinutes(1);
+
+    /** Leading characters of the idempotency key counted together, catching scripts that number their keys. */
+    private int keyPrefixLength = 8;
+
+    private List<RiskRuleDefinition> rules = new ArrayList<>();
+}
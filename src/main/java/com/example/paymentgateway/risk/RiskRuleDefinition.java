@@ -0,0 +1,40 @@
+package com.example.paymentgateway.risk;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A risk rule as configured. The rule matches when every condition that is set holds, and adds its score to the
+ * payment's; at least one condition is required.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class RiskRuleDefinition {
+
+    private String name;
+    private int score;
+
+    /** Currencies the rule applies to; an empty list applies it to any currency. */
+    private List<String> currencies = new ArrayList<>();
+
+    /** Matches amounts above this, in major units of the payment's currency. */
+    private BigDecimal amountAbove;
+
+    /** Matches amounts above this multiple of the average amount in the payment's currency. */
+    private Double amountAboveAverage;
+
+    /** Matches when the card was used more than this many times in the card velocity window. */
+    private Integer cardCountAbove;
+
+    /** Matches when the BIN was used more than this many times in the BIN velocity window. */
+    private Integer binCountAbove;
+
+    /** Matches when the idempotency key prefix was used more than this many times in its velocity window. */
+    private Integer keyPrefixCountAbove;
+}
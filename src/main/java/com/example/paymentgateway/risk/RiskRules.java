@@ -0,0 +1,133 @@
+package com.example.paymentgateway.risk;
+
+import com.example.paymentgateway.money.CurrencyUnit;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable risk rules compiled from their definitions. Each rule becomes a conjunction of predicates over
+ * {@link RiskSignals}, one per condition it sets: amounts in major units are turned into minor-unit thresholds per
+ * number of currency digits up front, so evaluating a rule compares primitives and allocates nothing unless it
+ * matches.
+ */
+public final class RiskRules {
+
+    private static final int MAX_FRACTION_DIGITS = 9;
+
+    private final Rule[] rules;
+    private final int blockScore;
+
+    private RiskRules(Rule[] rules, int blockScore) {
+        this.rules = rules;
+        this.blockScore = blockScore;
+    }
+
+    /**
+     * Compile rule definitions.
+     *
+     * @param definitions the rule definitions
+     * @param blockScore  the score from which a payment is declined
+     * @return the compiled rules
+     * @throws IllegalArgumentException if a rule is malformed
+     */
+    public static RiskRules compile(List<RiskRuleDefinition> definitions, int blockScore) {
+        if (blockScore < 1) {
+            throw new IllegalArgumentException("The blocking score should be positive.");
+        }
+        Rule[] rules = new Rule[definitions.size()];
+        for (int i = 0; i < rules.length; i++) {
+            rules[i] = compile(definitions.get(i));
+        }
+        return new RiskRules(rules, blockScore);
+    }
+
+    private static Rule compile(RiskRuleDefinition definition) {
+        String name = definition.getName();
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Every risk rule needs a name.");
+        }
+        if (definition.getScore() < 1) {
+            throw new IllegalArgumentException("Risk rule " + name + " should have a positive score.");
+        }
+
+        List<Predicate<RiskSignals>> conditions = new ArrayList<>();
+        if (definition.getAmountAbove() != null) {
+            long[] thresholds = minorUnitThresholds(definition.getAmountAbove());
+            conditions.add(signals -> signals.amountMinorUnits() > thresholds[signals.currency().getFractionDigits()]);
+        }
+        if (definition.getAmountAboveAverage() != null) {
+            double multiple = definition.getAmountAboveAverage();
+            // False while the average is NaN, i.e. not known yet
+            conditions.add(signals -> signals.amountMinorUnits() > multiple * signals.averageMinorUnits());
+        }
+        if (definition.getCardCountAbove() != null) {
+            int limit = definition.getCardCountAbove();
+            conditions.add(signals -> signals.cardCount() > limit);
+        }
+        if (definition.getBinCountAbove() != null) {
+            int limit = definition.getBinCountAbove();
+            conditions.add(signals -> signals.binCount() > limit);
+        }
+        if (definition.getKeyPrefixCountAbove() != null) {
+            int limit = definition.getKeyPrefixCountAbove();
+            conditions.add(signals -> signals.keyPrefixCount() > limit);
+        }
+        if (conditions.isEmpty()) {
+            throw new IllegalArgumentException("Risk rule " + name + " should set at least one condition.");
+        }
+        if (definition.getCurrencies() != null && !definition.getCurrencies().isEmpty()) {
+            Set<CurrencyUnit> currencies = definition.getCurrencies().stream()
+                    .map(CurrencyUnit::of)
+                    .collect(Collectors.toUnmodifiableSet());
+            // Checked first, as it rules out most payments of a currency-specific rule
+            conditions.add(0, signals -> currencies.contains(signals.currency()));
+        }
+        return new Rule(name, definition.getScore(), conditions.stream().reduce(Predicate::and).orElseThrow());
+    }
+
+    private static long[] minorUnitThresholds(BigDecimal amount) {
+        if (amount.signum() < 0) {
+            throw new IllegalArgumentException("Amount thresholds should not be negative.");
+        }
+        long[] thresholds = new long[MAX_FRACTION_DIGITS + 1];
+        for (int digits = 0; digits < thresholds.length; digits++) {
+            // An integer amount in minor units exceeds x exactly when it exceeds the floor of x
+            thresholds[digits] = amount.movePointRight(digits).setScale(0, RoundingMode.FLOOR).longValueExact();
+        }
+        return thresholds;
+    }
+
+    /**
+     * Score a payment against every rule.
+     *
+     * @param signals what is known of the payment
+     * @return the assessment, {@link RiskAssessment#CLEAR} if no rule matched
+     */
+    public RiskAssessment assess(RiskSignals signals) {
+        int score = 0;
+        List<String> triggered = null;
+        for (Rule rule : rules) {
+            if (rule.predicate().test(signals)) {
+                score += rule.score();
+                if (triggered == null) {
+                    triggered = new ArrayList<>(2);
+                }
+                triggered.add(rule.name());
+            }
+        }
+        return triggered == null ? RiskAssessment.CLEAR : new RiskAssessment(score, triggered, score >= blockScore);
+    }
+
+    public int size() {
+        return rules.length;
+    }
+
+    private record Rule(String name, int score, Predicate<RiskSignals> predicate) {
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.paymentgateway.risk;
+
+import com.example.paymentgateway.money.CurrencyUnit;
+
+/**
+ * What the risk rules know about a payment.
+ *
+ * @param cardCount          payments with the same card in the card velocity window, this one included
+ * @param binCount           payments with the same BIN in the BIN velocity window, this one included
+ * @param keyPrefixCount     payments whose idempotency key has the same prefix in its window, this one included
+ * @param amountMinorUnits   the amount in minor units
+ * @param currency           the currency
+ * @param averageMinorUnits  the average amount in the currency, or NaN while it is not known yet
+ */
+public record RiskSignals(int cardCount, int binCount, int keyPrefixCount, long amountMinorUnits, CurrencyUnit currency,
+                          double averageMinorUnits) {
+}
@@ -0,0 +1,106 @@
+package com.example.paymentgateway.risk;
+
+import com.example.paymentgateway.util.KeyHash;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Approximate number of events per key over a sliding window: a count-min sketch whose cells are each split into a
+ * ring of time buckets. A bucket packs the epoch it counts with its count in one long, so a stale bucket is reset by
+ * the increment that finds it instead of by sweeping the table, and counting is lock-free and allocation-free.
+ * <p>
+ * Memory is fixed by width, depth and bucket count, 8 bytes each, however many keys are seen. An estimate never
+ * undercounts; it overcounts when every row of a key collides with busier keys, which is unlikely while the width is
+ * well above the number of keys active in the window. The window is rounded to whole buckets, the current partial
+ * one included.
+ */
+public class VelocitySketch {
+
+    private static final long COUNT_MASK = 0xffff_ffffL;
+
+    private final AtomicLongArray buckets;
+    private final int width;
+    private final int depth;
+    private final int bucketCount;
+    private final long bucketMillis;
+    // Drawn per instance, so which keys collide cannot be worked out in advance
+    private final long seed = ThreadLocalRandom.current().nextLong();
+
+    public VelocitySketch(int width, int depth, Duration window, int bucketCount) {
+        if (width < 1 || depth < 1 || bucketCount < 1 || window.toMillis() < bucketCount) {
+            throw new IllegalArgumentException("Width, depth and buckets should be positive, and the window at least a millisecond per bucket.");
+        }
+        // A power of two, so a column is a mask of the hash
+        this.width = width == 1 ? 1 : Integer.highestOneBit(width - 1) << 1;
+        this.depth = depth;
+        this.bucketCount = bucketCount;
+        this.bucketMillis = window.toMillis() / bucketCount;
+        this.buckets = new AtomicLongArray(Math.multiplyExact(Math.multiplyExact(this.width, depth), bucketCount));
+    }
+
+    /**
+     * Count one event for a key and estimate the key's events in the window, this one included.
+     *
+     * @param key       the key
+     * @param length    how many leading characters of the key identify it, e.g. 6 for the BIN of a card number
+     * @param nowMillis the current time in milliseconds
+     * @return the estimated number of events in the window
+     */
+    public int incrementAndCount(CharSequence key, int length, long nowMillis) {
+        return count(key, length, nowMillis, true);
+    }
+
+    /**
+     * Estimate a key's events in the window without counting one.
+     *
+     * @param key       the key
+     * @param length    how many leading characters of the key identify it
+     * @param nowMillis the current time in milliseconds
+     * @return the estimated number of events in the window
+     */
+    public int count(CharSequence key, int length, long nowMillis) {
+        return count(key, length, nowMillis, false);
+    }
+
+    private int count(CharSequence key, int length, long nowMillis, boolean increment) {
+        long hash = KeyHash.hash(key, Math.min(length, key.length()), seed);
+        // Rows are indexed by double hashing from the two halves of one 64-bit hash; the odd step visits distinct columns
+        int column = (int) hash;
+        int step = (int) (hash >>> 32) | 1;
+        long epoch = nowMillis / bucketMillis;
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++, column += step) {
+            int cell = (row * width + (column & (width - 1))) * bucketCount;
+            if (increment) {
+                increment(cell + (int) (epoch % bucketCount), epoch);
+            }
+            estimate = Math.min(estimate, sum(cell, epoch));
+        }
+        return estimate;
+    }
+
+    private void increment(int index, long epoch) {
+        long tag = epoch & COUNT_MASK;
+        while (true) {
+            long bucket = buckets.get(index);
+            long updated = bucket >>> 32 == tag ? bucket + 1 : tag << 32 | 1;
+            if (buckets.compareAndSet(index, bucket, updated)) {
+                return;
+            }
+        }
+    }
+
+    private int sum(int cell, long epoch) {
+        int sum = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            long bucketEpoch = epoch - i;
+            long bucket = buckets.get(cell + (int) (bucketEpoch % bucketCount));
+            if (bucket >>> 32 == (bucketEpoch & COUNT_MASK)) {
+                sum += (int) (bucket & COUNT_MASK);
+            }
+        }
+        return sum;
+    }
+}
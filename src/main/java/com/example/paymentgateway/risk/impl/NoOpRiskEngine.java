@@ -0,0 +1,17 @@
+package com.example.paymentgateway.risk.impl;
+
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.risk.RiskAssessment;
+import com.example.paymentgateway.risk.RiskEngine;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "payment.risk.enabled", havingValue = "false", matchIfMissing = true)
+public class NoOpRiskEngine implements RiskEngine {
+
+    @Override
+    public RiskAssessment assess(PaymentRequest paymentRequest) {
+        return RiskAssessment.CLEAR;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.paymentgateway.risk.impl;
+
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
+import com.example.paymentgateway.risk.AmountBaseline;
+import com.example.paymentgateway.risk.RiskAssessment;
+import com.example.paymentgateway.risk.RiskEngine;
+import com.example.paymentgateway.risk.RiskProperties;
+import com.example.paymentgateway.risk.RiskRules;
+import com.example.paymentgateway.risk.RiskSignals;
+import com.example.paymentgateway.risk.VelocitySketch;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Scores payments from in-memory velocity counters and amount statistics, without any I/O. Cards are counted by
+ * their number, which identifies a card exactly as its vault token does but without tokenizing cards that are about
+ * to be declined; the sketches only hold counters, never the numbers.
+ */
+public class VelocityRiskEngine implements RiskEngine {
+
+    private static final int BIN_LENGTH = 6;
+
+    private final RiskRules rules;
+    private final VelocitySketch cardVelocity;
+    private final VelocitySketch binVelocity;
+    private final VelocitySketch keyPrefixVelocity;
+    private final AmountBaseline amountBaseline = new AmountBaseline();
+    private final int keyPrefixLength;
+    private final LongSupplier clock;
+
+    public VelocityRiskEngine(RiskProperties properties) {
+        this(properties, System::currentTimeMillis);
+    }
+
+    public VelocityRiskEngine(RiskProperties properties, LongSupplier clock) {
+        this.rules = RiskRules.compile(properties.getRules(), properties.getBlockScore());
+        this.cardVelocity = sketch(properties, properties.getCardWindow());
+        this.binVelocity = sketch(properties, properties.getBinWindow());
+        this.keyPrefixVelocity = sketch(properties, properties.getKeyPrefixWindow());
+        this.keyPrefixLength = properties.getKeyPrefixLength();
+        this.clock = clock;
+    }
+
+    private static VelocitySketch sketch(RiskProperties properties, Duration window) {
+        return new VelocitySketch(properties.getSketchWidth(), properties.getSketchDepth(), window, properties.getBuckets());
+    }
+
+    @Override
+    public RiskAssessment assess(PaymentRequest paymentRequest) {
+        long now = clock.getAsLong();
+        String cardNumber = paymentRequest.getCardNumber();
+        String idempotencyKey = paymentRequest.getIdempotencyKey();
+        CurrencyUnit currency = CurrencyUnit.of(paymentRequest.getCurrency());
+        long amount = Money.of(paymentRequest.getAmount(), currency).getMinorUnits();
+
+        RiskSignals signals = new RiskSignals(
+                cardVelocity.incrementAndCount(cardNumber, cardNumber.length(), now),
+                binVelocity.incrementAndCount(cardNumber, BIN_LENGTH, now),
+                keyPrefixVelocity.incrementAndCount(idempotencyKey, keyPrefixLength, now),
+                amount,
+                currency,
+                amountBaseline.observe(currency, amount));
+        return rules.assess(signals);
+    }
+}
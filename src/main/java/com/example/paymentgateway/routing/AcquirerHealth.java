@@ -0,0 +1,106 @@
+package com.example.paymentgateway.routing;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Live health of one acquirer: outstanding requests plus exponentially weighted moving averages of latency and
+ * error rate. All updates are lock-free.
+ * <p>
+ * Both averages decay towards zero while no samples arrive, halving every half-life. An acquirer that stopped
+ * receiving traffic because it was slow or degraded therefore wins a selection again after a while, and the
+ * payments it then gets either confirm its recovery or push its averages back up.
+ */
+public final class AcquirerHealth {
+
+    private static final double ALPHA = 0.2;
+    private static final double DEGRADED_ERROR_RATE = 0.5;
+    private static final Duration DEFAULT_DECAY_HALF_LIFE = Duration.ofSeconds(30);
+
+    private final String name;
+    private final double decayPerNano;
+    private final LongSupplier ticker;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicLong ewmaLatencyNanos = new AtomicLong();
+    private final AtomicLong errorRateBits = new AtomicLong(Double.doubleToRawLongBits(0.0));
+    private final AtomicLong lastSampleAt;
+
+    public AcquirerHealth(String name) {
+        this(name, DEFAULT_DECAY_HALF_LIFE);
+    }
+
+    public AcquirerHealth(String name, Duration decayHalfLife) {
+        this(name, decayHalfLife, System::nanoTime);
+    }
+
+    public AcquirerHealth(String name, Duration decayHalfLife, LongSupplier ticker) {
+        this.name = name;
+        // A zero half-life turns decay off
+        this.decayPerNano = decayHalfLife.isZero() ? 0 : Math.log(2) / decayHalfLife.toNanos();
+        this.ticker = ticker;
+        this.lastSampleAt = new AtomicLong(ticker.getAsLong());
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public void onStart() {
+        outstanding.incrementAndGet();
+    }
+
+    public void onComplete(long latencyNanos, boolean error) {
+        outstanding.decrementAndGet();
+        long now = ticker.getAsLong();
+        // The older the average, the less it weighs against the new sample
+        double previousWeight = (1 - ALPHA) * decay(now - lastSampleAt.getAndSet(now));
+
+        long previousLatency;
+        long nextLatency;
+        do {
+            previousLatency = ewmaLatencyNanos.get();
+            nextLatency = previousLatency == 0 ? latencyNanos : (long) (previousWeight * previousLatency + (1 - previousWeight) * latencyNanos);
+        } while (!ewmaLatencyNanos.compareAndSet(previousLatency, nextLatency));
+
+        long previousBits;
+        long nextBits;
+        do {
+            previousBits = errorRateBits.get();
+            double previousRate = Double.longBitsToDouble(previousBits);
+            nextBits = Double.doubleToRawLongBits(previousWeight * previousRate + (1 - previousWeight) * (error ? 1.0 : 0.0));
+        } while (!errorRateBits.compareAndSet(previousBits, nextBits));
+    }
+
+    /**
+     * Lower is better: expected latency scaled by the number of requests already queued on the acquirer.
+     */
+    public double score() {
+        return (ewmaLatencyNanos() + 1.0) * (outstanding.get() + 1);
+    }
+
+    public boolean isDegraded() {
+        return errorRate() > DEGRADED_ERROR_RATE;
+    }
+
+    public int outstanding() {
+        return outstanding.get();
+    }
+
+    public long ewmaLatencyNanos() {
+        return (long) (ewmaLatencyNanos.get() * decaySinceLastSample());
+    }
+
+    public double errorRate() {
+        return Double.longBitsToDouble(errorRateBits.get()) * decaySinceLastSample();
+    }
+
+    private double decaySinceLastSample() {
+        return decay(ticker.getAsLong() - lastSampleAt.get());
+    }
+
+    private double decay(long elapsedNanos) {
+        return elapsedNanos <= 0 ? 1.0 : Math.exp(-decayPerNano * elapsedNanos);
+    }
+}
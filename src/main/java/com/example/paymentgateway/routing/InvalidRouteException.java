@@ -0,0 +1,8 @@
+package com.example.paymentgateway.routing;
+
+public class InvalidRouteException extends RuntimeException {
+
+    public InvalidRouteException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.paymentgateway.routing;
+
+import com.example.paymentgateway.connector.BankUnavailableException;
+import com.example.paymentgateway.connector.CircuitBreaker;
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.dto.RouteDefinition;
+import com.example.paymentgateway.simulator.BankSimulator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bank simulator that routes each payment to one of the other {@link BankSimulator} beans, the acquirers, by BIN
+ * range, currency and live acquirer health. The compiled routing table is swapped atomically on reload, so
+ * in-flight payments finish on the table they started with.
+ * <p>
+ * Each acquirer has its own circuit breaker and bulkhead; an acquirer whose circuit is open or whose bulkhead is full
+ * is passed over, and a payment no available acquirer can take is not sent.
+ */
+@Slf4j
+public class RoutingBankSimulator implements BankSimulator, SmartInitializingSingleton {
+
+    private final ListableBeanFactory beanFactory;
+    private final RoutingProperties routingProperties;
+    private final AtomicReference<RoutingTable> routingTable = new AtomicReference<>();
+
+    private BankSimulator[] acquirers;
+    private AcquirerHealth[] health;
+    private CircuitBreaker[] circuitBreakers;
+    private Semaphore[] bulkheads;
+    private Map<String, Integer> acquirerIndex;
+    private int defaultAcquirer;
+
+    public RoutingBankSimulator(ListableBeanFactory beanFactory, RoutingProperties routingProperties) {
+        this.beanFactory = beanFactory;
+        this.routingProperties = routingProperties;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        // Acquirers are resolved once every bean exists, as this bean is itself a BankSimulator
+        Map<String, BankSimulator> beans = new HashMap<>(beanFactory.getBeansOfType(BankSimulator.class));
+        beans.values().removeIf(RoutingBankSimulator.class::isInstance);
+        String[] names = beans.keySet().stream().sorted().toArray(String[]::new);
+
+        acquirers = new BankSimulator[names.length];
+        health = new AcquirerHealth[names.length];
+        circuitBreakers = new CircuitBreaker[names.length];
+        bulkheads = new Semaphore[names.length];
+        acquirerIndex = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            acquirers[i] = beans.get(names[i]);
+            health[i] = new AcquirerHealth(names[i], routingProperties.getHealthDecayHalfLife());
+            circuitBreakers[i] = new CircuitBreaker(routingProperties.getAcquirerCircuitBreakerWindowSize(),
+                    routingProperties.getAcquirerCircuitBreakerFailureRateThreshold(),
+                    routingProperties.getAcquirerCircuitBreakerOpenDuration());
+            bulkheads[i] = new Semaphore(routingProperties.getAcquirerMaxConcurrentCalls());
+            acquirerIndex.put(names[i], i);
+        }
+
+        String defaultAcquirerName = routingProperties.getDefaultAcquirer();
+        if (defaultAcquirerName != null) {
+            Integer index = acquirerIndex.get(defaultAcquirerName);
+            if (index == null) {
+                throw new InvalidRouteException("Unknown default acquirer " + defaultAcquirerName + ".");
+            }
+            defaultAcquirer = index;
+        } else {
+            defaultAcquirer = names.length == 1 ? 0 : -1;
+        }
+
+        reload(routingProperties.getRoutes());
+        log.info("Routing payments across acquirers {}", Arrays.toString(names));
+    }
+
+    @Override
+    public boolean processTransaction(PaymentRequest paymentRequest) {
+        RoutingTable table = routingTable.get();
+        int acquirer = table.select(paymentRequest.getCardNumber(), paymentRequest.getCurrency(), health, this::isAvailable);
+        if (acquirer < 0) {
+            // Every matching acquirer may be open or full, which taking its permits below reports
+            acquirer = table.select(paymentRequest.getCardNumber(), paymentRequest.getCurrency(), health);
+        }
+        if (acquirer < 0) {
+            acquirer = defaultAcquirer;
+        }
+        if (acquirer < 0) {
+            throw new IllegalStateException("No route for the card and currency " + paymentRequest.getCurrency() + ".");
+        }
+
+        // Checked again while taking them, as another payment may have taken the last permit since the selection
+        if (!bulkheads[acquirer].tryAcquire()) {
+            throw new BankUnavailableException("Acquirer " + health[acquirer].name() + " is at its concurrency limit.");
+        }
+        try {
+            CircuitBreaker circuitBreaker = circuitBreakers[acquirer];
+            if (!circuitBreaker.tryAcquirePermission()) {
+                throw new BankUnavailableException("Acquirer " + health[acquirer].name() + " is unavailable.");
+            }
+            AcquirerHealth acquirerHealth = health[acquirer];
+            acquirerHealth.onStart();
+            long startedAt = System.nanoTime();
+            boolean failed = true;
+            try {
+                boolean approved = acquirers[acquirer].processTransaction(paymentRequest);
+                failed = false;
+                return approved;
+            } finally {
+                acquirerHealth.onComplete(System.nanoTime() - startedAt, failed);
+                if (failed) {
+                    circuitBreaker.onFailure();
+                } else {
+                    circuitBreaker.onSuccess();
+                }
+            }
+        } finally {
+            bulkheads[acquirer].release();
+        }
+    }
+
+    private boolean isAvailable(int acquirer) {
+        return bulkheads[acquirer].availablePermits() > 0 && circuitBreakers[acquirer].allowsCalls();
+    }
+
+    /**
+     * Replace the routes. The new table is compiled before it is published, so an invalid definition leaves the
+     * current routes in place.
+     *
+     * @param routes the new route definitions
+     * @throws InvalidRouteException if a route is malformed or targets an unknown acquirer
+     */
+    public void reload(List<RouteDefinition> routes) {
+        routingTable.set(RoutingTable.compile(routes, acquirerIndex));
+        log.info("Loaded {} payment routes", routes.size());
+    }
+
+    public List<RouteDefinition> routes() {
+        return routingTable.get().routes();
+    }
+
+    public List<AcquirerHealth> acquirerHealth() {
+        return List.of(health);
+    }
+}
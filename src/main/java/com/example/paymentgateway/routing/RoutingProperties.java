@@ -0,0 +1,39 @@
+package com.example.paymentgateway.routing;
+
+import com.example.paymentgateway.dto.RouteDefinition;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "payment.routing")
+public class RoutingProperties {
+
+    private boolean enabled;
+
+    /** Bean name of the acquirer used when no route matches; optional when there is a single acquirer. */
+    private String defaultAcquirer;
+
+    /** Time for an idle acquirer's latency and error averages to halve, so that a degraded acquirer is tried again. */
+    private Duration healthDecayHalfLife = Duration.ofSeconds(30);
+
+    /** Concurrent calls each acquirer takes; an acquirer at the limit is passed over. */
+    private int acquirerMaxConcurrentCalls = 50;
+
+    /** Calls over which each acquirer's circuit breaker measures its failure rate. */
+    private int acquirerCircuitBreakerWindowSize = 20;
+
+    /** Failure rate opening an acquirer's circuit breaker, so the acquirer is passed over. */
+    private double acquirerCircuitBreakerFailureRateThreshold = 0.5;
+
+    /** Time an acquirer's circuit stays open before a trial call. */
+    private Duration acquirerCircuitBreakerOpenDuration = Duration.ofSeconds(10);
+
+    /** Routes loaded at startup; they can be replaced at runtime through the routing endpoint. */
+    private List<RouteDefinition> routes = new ArrayList<>();
+}
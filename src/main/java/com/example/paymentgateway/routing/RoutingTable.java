@@ -0,0 +1,202 @@
+package com.example.paymentgateway.routing;
+
+import com.example.paymentgateway.dto.RouteDefinition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.IntPredicate;
+
+/**
+ * Immutable routing table compiled from route definitions. BIN ranges are flattened into sorted, non-overlapping
+ * intervals over the first 8 digits of the card number, each holding its candidate routes ordered by priority,
+ * and currencies are compiled into bit masks. Selecting a route is a binary search plus a scan of a few
+ * candidates, without allocation.
+ */
+public final class RoutingTable {
+
+    private static final int BIN_DIGITS = 8;
+    private static final int MAX_CURRENCIES = 64;
+
+    private final List<RouteDefinition> routes;
+    private final int[] intervalStarts;
+    private final Candidate[][] intervalCandidates;
+    private final Map<String, Integer> currencyBits;
+
+    private RoutingTable(List<RouteDefinition> routes, int[] intervalStarts, Candidate[][] intervalCandidates, Map<String, Integer> currencyBits) {
+        this.routes = routes;
+        this.intervalStarts = intervalStarts;
+        this.intervalCandidates = intervalCandidates;
+        this.currencyBits = currencyBits;
+    }
+
+    /**
+     * Compile route definitions.
+     *
+     * @param routes    the route definitions
+     * @param acquirers index of each known acquirer by name
+     * @return the compiled table
+     * @throws InvalidRouteException if a route is malformed or targets an unknown acquirer
+     */
+    public static RoutingTable compile(List<RouteDefinition> routes, Map<String, Integer> acquirers) {
+        Map<String, Integer> currencyBits = new HashMap<>();
+        List<Candidate> compiled = new ArrayList<>(routes.size());
+        TreeSet<Integer> boundaries = new TreeSet<>();
+
+        for (RouteDefinition route : routes) {
+            Integer acquirer = acquirers.get(route.getAcquirer());
+            if (acquirer == null) {
+                throw new InvalidRouteException("Unknown acquirer " + route.getAcquirer() + ".");
+            }
+            int from = parseBin(route.getBinFrom(), '0');
+            int to = parseBin(route.getBinTo(), '9');
+            if (from > to) {
+                throw new InvalidRouteException("BIN range " + route.getBinFrom() + "-" + route.getBinTo() + " is empty.");
+            }
+
+            boolean anyCurrency = route.getCurrencies() == null || route.getCurrencies().isEmpty();
+            long currencyMask = 0;
+            if (!anyCurrency) {
+                for (String currency : route.getCurrencies()) {
+                    Integer bit = currencyBits.computeIfAbsent(currency, key -> currencyBits.size());
+                    if (bit >= MAX_CURRENCIES) {
+                        throw new InvalidRouteException("Routes may not name more than " + MAX_CURRENCIES + " currencies.");
+                    }
+                    currencyMask |= 1L << bit;
+                }
+            }
+            compiled.add(new Candidate(acquirer, route.getPriority(), from, to, anyCurrency, currencyMask));
+            boundaries.add(from);
+            if (to < maxBin()) {
+                boundaries.add(to + 1);
+            }
+        }
+
+        int[] intervalStarts = boundaries.stream().mapToInt(Integer::intValue).toArray();
+        Candidate[][] intervalCandidates = new Candidate[intervalStarts.length][];
+        compiled.sort(Comparator.comparingInt(Candidate::priority));
+        for (int i = 0; i < intervalStarts.length; i++) {
+            int start = intervalStarts[i];
+            Candidate[] covering = compiled.stream()
+                    .filter(candidate -> candidate.from() <= start && start <= candidate.to())
+                    .toArray(Candidate[]::new);
+            intervalCandidates[i] = covering.length == 0 ? null : covering;
+        }
+        return new RoutingTable(List.copyOf(routes), intervalStarts, intervalCandidates, Map.copyOf(currencyBits));
+    }
+
+    public List<RouteDefinition> routes() {
+        return routes;
+    }
+
+    /**
+     * Select an acquirer for a card and currency. Among the matching routes with the best priority that are not
+     * degraded, the acquirer with the lowest health score wins; if all of them are degraded, lower priorities are
+     * tried, and if every match is degraded the highest-priority match is used anyway.
+     *
+     * @param cardNumber the card number
+     * @param currency   the currency
+     * @param health     health of each acquirer, by acquirer index
+     * @return the acquirer index, or -1 if no route matches
+     */
+    public int select(CharSequence cardNumber, String currency, AcquirerHealth[] health) {
+        return select(cardNumber, currency, health, acquirer -> true);
+    }
+
+    /**
+     * Select an acquirer as {@link #select(CharSequence, String, AcquirerHealth[])} does, among the available ones
+     * only.
+     *
+     * @param cardNumber the card number
+     * @param currency   the currency
+     * @param health     health of each acquirer, by acquirer index
+     * @param available  whether an acquirer, by index, can take a call
+     * @return the acquirer index, or -1 if no available route matches
+     */
+    public int select(CharSequence cardNumber, String currency, AcquirerHealth[] health, IntPredicate available) {
+        int bin = bin(cardNumber);
+        if (bin < 0) {
+            return -1;
+        }
+        int interval = Arrays.binarySearch(intervalStarts, bin);
+        if (interval < 0) {
+            interval = -interval - 2;
+        }
+        if (interval < 0 || intervalCandidates[interval] == null) {
+            return -1;
+        }
+
+        Integer bit = currency == null ? null : currencyBits.get(currency);
+        long currencyMask = bit == null ? 0 : 1L << bit;
+
+        int fallback = -1;
+        int best = -1;
+        int bestPriority = 0;
+        double bestScore = 0;
+        for (Candidate candidate : intervalCandidates[interval]) {
+            if (!candidate.anyCurrency() && (candidate.currencyMask() & currencyMask) == 0) {
+                continue;
+            }
+            if (!available.test(candidate.acquirer())) {
+                continue;
+            }
+            if (best >= 0 && candidate.priority() > bestPriority) {
+                break;
+            }
+            if (fallback < 0) {
+                fallback = candidate.acquirer();
+            }
+            AcquirerHealth acquirerHealth = health[candidate.acquirer()];
+            if (acquirerHealth.isDegraded()) {
+                continue;
+            }
+            double score = acquirerHealth.score();
+            if (best < 0 || score < bestScore) {
+                best = candidate.acquirer();
+                bestPriority = candidate.priority();
+                bestScore = score;
+            }
+        }
+        return best >= 0 ? best : fallback;
+    }
+
+    /**
+     * The first 8 digits of a card number as an int, or -1 if the card number is too short or not numeric.
+     */
+    static int bin(CharSequence cardNumber) {
+        if (cardNumber == null || cardNumber.length() < BIN_DIGITS) {
+            return -1;
+        }
+        int bin = 0;
+        for (int i = 0; i < BIN_DIGITS; i++) {
+            int digit = cardNumber.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            bin = bin * 10 + digit;
+        }
+        return bin;
+    }
+
+    private static int parseBin(String value, char padding) {
+        if (value == null || value.isEmpty() || value.length() > BIN_DIGITS || !value.chars().allMatch(Character::isDigit)) {
+            throw new InvalidRouteException("BIN " + value + " should be 1 to " + BIN_DIGITS + " digits.");
+        }
+        StringBuilder padded = new StringBuilder(value);
+        while (padded.length() < BIN_DIGITS) {
+            padded.append(padding);
+        }
+        return Integer.parseInt(padded.toString());
+    }
+
+    private static int maxBin() {
+        return 99_999_999;
+    }
+
+    private record Candidate(int acquirer, int priority, int from, int to, boolean anyCurrency, long currencyMask) {
+    }
+}
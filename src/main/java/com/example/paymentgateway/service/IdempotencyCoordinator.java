@@ -0,0 +1,25 @@
+package com.example.paymentgateway.service;
+
+import com.example.paymentgateway.persistence.Payment;
+
+import java.util.Optional;
+
+public interface IdempotencyCoordinator {
+
+    /**
+     * Claim an idempotency key for this node before its payment is sent to the bank, waiting while another node
+     * holds it. Every claim must be followed by {@link #release(String)}.
+     *
+     * @param idempotencyKey the idempotency key
+     * @return empty once this node holds the key, or the payment another node stored under it
+     * @throws IdempotencyKeyInUseException if another node still holds the key after the configured wait
+     */
+    Optional<Payment> acquire(String idempotencyKey);
+
+    /**
+     * Release a key claimed by {@link #acquire(String)}, once its payment is stored or has failed.
+     *
+     * @param idempotencyKey the idempotency key
+     */
+    void release(String idempotencyKey);
+}
@@ -0,0 +1,12 @@
+package com.example.paymentgateway.service;
+
+/**
+ * Thrown when a payment is submitted while another gateway node is still processing a payment with the same
+ * idempotency key; retrying later replays that payment.
+ */
+public class IdempotencyKeyInUseException extends RuntimeException {
+
+    public IdempotencyKeyInUseException(String idempotencyKey) {
+        super("A payment with idempotency key " + idempotencyKey + " is being processed, retry later.");
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.paymentgateway.service;
+
+import com.example.paymentgateway.dto.PaymentResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+public interface IdempotencyRegistry {
+
+    /**
+     * Run an action at most once per idempotency key among concurrent callers. Callers arriving while the action
+     * is in flight share its result, and callers arriving shortly after it completed get the cached result.
+     *
+     * @param idempotencyKey the idempotency key
+     * @param action         the action producing the payment response
+     * @return the response produced by the action, possibly by another caller
+     */
+    PaymentResponse execute(String idempotencyKey, Supplier<PaymentResponse> action);
+
+    /**
+     * Asynchronous variant of {@link #execute(String, Supplier)}.
+     *
+     * @param idempotencyKey the idempotency key
+     * @param action         the action producing a future of the payment response
+     * @return a future completed with the response produced by the action, possibly by another caller
+     */
+    CompletableFuture<PaymentResponse> executeAsync(String idempotencyKey, Supplier<CompletableFuture<PaymentResponse>> action);
+
+    /**
+     * Forget the cached result for a key, e.g. because its payment changed status, so that the next caller runs its
+     * action again and reads the stored payment.
+     *
+     * @param idempotencyKey the idempotency key
+     */
+    void evict(String idempotencyKey);
+}
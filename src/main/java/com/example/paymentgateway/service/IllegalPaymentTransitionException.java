@@ -0,0 +1,14 @@
+package com.example.paymentgateway.service;
+
+import com.example.paymentgateway.persistence.PaymentStatus;
+
+/**
+ * Thrown when a payment is asked to move to a status its current status cannot lead to, e.g. capturing a payment
+ * that failed.
+ */
+public class IllegalPaymentTransitionException extends RuntimeException {
+
+    public IllegalPaymentTransitionException(long paymentId, PaymentStatus from, PaymentStatus to) {
+        super("Payment with ID " + paymentId + " cannot move from " + from + " to " + to + ".");
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.paymentgateway.service;
+
+import com.example.paymentgateway.dto.ExportFormat;
+import com.example.paymentgateway.persistence.PaymentSearchCriteria;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface PaymentExportService {
+
+    /**
+     * Write the payments matching the criteria to a stream, with masked card numbers, shard by shard and oldest
+     * first within a shard. Rows are streamed from the database to the output one at a time, so memory use does not
+     * depend on the row count.
+     *
+     * @param criteria     the search criteria
+     * @param format       the output format
+     * @param outputStream the stream to write to; it is flushed but not closed
+     * @return the number of payments written
+     * @throws IOException if writing to the stream fails
+     */
+    long exportPayments(PaymentSearchCriteria criteria, ExportFormat format, OutputStream outputStream) throws IOException;
+}
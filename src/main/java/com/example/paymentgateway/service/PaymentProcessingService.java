@@ -3,10 +3,67 @@ package com.example.paymentgateway.service;
 import com.example.paymentgateway.dto.PaymentRequest;
 import com.example.paymentgateway.dto.PaymentResponse;
 import com.example.paymentgateway.dto.PaymentDetailsResponse;
+import com.example.paymentgateway.dto.PaymentSearchResponse;
+import com.example.paymentgateway.persistence.PaymentCursor;
+import com.example.paymentgateway.persistence.PaymentSearchCriteria;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface PaymentProcessingService {
 
+    /**
+     * Process a payment. When asynchronous authorization is enabled the payment is stored as PENDING and returned
+     * before the bank call, which completes in the background; its status is then polled.
+     *
+     * @param paymentRequest the payment request
+     * @return the payment response
+     */
     PaymentResponse processPayment(PaymentRequest paymentRequest);
 
+    /**
+     * Process a payment without blocking the calling thread. The bank call and persistence run on the
+     * payment executor.
+     *
+     * @param paymentRequest the payment request
+     * @return a future completed with the payment response
+     */
+    CompletableFuture<PaymentResponse> processPaymentAsync(PaymentRequest paymentRequest);
+
+    /**
+     * Process a batch of payments. Requests repeating an idempotency key, within the batch or against stored
+     * payments, are not sent to the bank again. Bank calls run in parallel up to the configured concurrency.
+     *
+     * @param paymentRequests the payment requests
+     * @return one future per request, in the order of the requests
+     */
+    List<CompletableFuture<PaymentResponse>> processPaymentBatch(List<PaymentRequest> paymentRequests);
+
     PaymentDetailsResponse retrievePaymentDetails(String paymentId);
-}
\ No newline at end of file
+
+    /**
+     * Capture an authorized payment.
+     *
+     * @param paymentId the payment identifier
+     * @return the details of the captured payment
+     */
+    PaymentDetailsResponse capturePayment(String paymentId);
+
+    /**
+     * Refund a captured payment.
+     *
+     * @param paymentId the payment identifier
+     * @return the details of the refunded payment
+     */
+    PaymentDetailsResponse refundPayment(String paymentId);
+
+    /**
+     * List the payments of a merchant matching the criteria, newest first, one page at a time.
+     *
+     * @param criteria the search criteria
+     * @param after    the cursor returned with the previous page, or null for the first page
+     * @param limit    the page size
+     * @return the page, with the cursor of the next page if there is one
+     */
+    PaymentSearchResponse searchPayments(PaymentSearchCriteria criteria, PaymentCursor after, int limit);
+}
@@ -0,0 +1,35 @@
+package com.example.paymentgateway.service;
+
+import com.example.paymentgateway.persistence.Payment;
+import com.example.paymentgateway.persistence.PaymentStatus;
+
+import java.util.Optional;
+
+public interface PaymentStateMachine {
+
+    /**
+     * Move a payment to a new status, recording a status change event in the same transaction. Concurrent
+     * transitions of the same payment are serialized by its version: the one committing second re-reads the payment
+     * and is retried against its new status, so exactly one of two conflicting transitions wins.
+     *
+     * @param paymentId the payment identifier
+     * @param target    the status to move to
+     * @return the payment in the target status, unchanged if it already was in it
+     * @throws jakarta.persistence.EntityNotFoundException if there is no such payment
+     * @throws IllegalPaymentTransitionException           if the current status cannot move to the target
+     */
+    Payment transition(long paymentId, PaymentStatus target);
+
+    /**
+     * Move a payment to a new status only if it is still in the expected one, as {@link #transition} does. Of several
+     * callers settling the same payment, only the one that actually moved it gets it back.
+     *
+     * @param paymentId the payment identifier
+     * @param expected  the status the payment must be in
+     * @param target    the status to move to
+     * @return the payment in the target status, or empty if it was no longer in the expected status
+     * @throws jakarta.persistence.EntityNotFoundException if there is no such payment
+     * @throws IllegalPaymentTransitionException           if the expected status cannot move to the target
+     */
+    Optional<Payment> transitionFrom(long paymentId, PaymentStatus expected, PaymentStatus target);
+}
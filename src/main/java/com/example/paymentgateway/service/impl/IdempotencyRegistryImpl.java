@@ -0,0 +1,104 @@
+package com.example.paymentgateway.service.impl;
+
+import com.example.paymentgateway.cache.ExpiringCache;
+import com.example.paymentgateway.dto.PaymentResponse;
+import com.example.paymentgateway.persistence.PaymentStatus;
+import com.example.paymentgateway.service.IdempotencyRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Completed responses are cached per node and evicted when this node changes the payment's status. Another node
+ * sharing the store could change it unseen, so nodes sharing it cache nothing and only coalesce concurrent callers.
+ */
+@Component
+public class IdempotencyRegistryImpl implements IdempotencyRegistry {
+
+    private final ConcurrentHashMap<String, CompletableFuture<PaymentResponse>> inFlight = new ConcurrentHashMap<>();
+    private final ExpiringCache<String, PaymentResponse> completed;
+
+    public IdempotencyRegistryImpl(int completedCacheMaxSize, Duration completedCacheTtl) {
+        this(completedCacheMaxSize, completedCacheTtl, false);
+    }
+
+    @Autowired
+    public IdempotencyRegistryImpl(@Value("${payment.idempotency.completed-cache.max-size:100000}") int completedCacheMaxSize,
+                                   @Value("${payment.idempotency.completed-cache.ttl:PT10M}") Duration completedCacheTtl,
+                                   @Value("${payment.cluster.multi-node:false}") boolean multiNode) {
+        this.completed = multiNode ? null : new ExpiringCache<>(completedCacheMaxSize, completedCacheTtl);
+    }
+
+    @Override
+    public PaymentResponse execute(String idempotencyKey, Supplier<PaymentResponse> action) {
+        try {
+            return executeAsync(idempotencyKey, () -> CompletableFuture.completedFuture(action.get())).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> executeAsync(String idempotencyKey, Supplier<CompletableFuture<PaymentResponse>> action) {
+        PaymentResponse cached = cached(idempotencyKey);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<PaymentResponse> promise = new CompletableFuture<>();
+        CompletableFuture<PaymentResponse> existing = inFlight.putIfAbsent(idempotencyKey, promise);
+        if (existing != null) {
+            // Another caller owns this key, share its result
+            return existing;
+        }
+
+        // The previous owner may have completed between the cache lookup and the registration above
+        cached = cached(idempotencyKey);
+        if (cached != null) {
+            inFlight.remove(idempotencyKey, promise);
+            promise.complete(cached);
+            return promise;
+        }
+
+        CompletableFuture<PaymentResponse> work;
+        try {
+            work = action.get();
+        } catch (RuntimeException ex) {
+            work = CompletableFuture.failedFuture(ex);
+        }
+        work.whenComplete((response, ex) -> {
+            // Publish to the completed cache before leaving the in-flight map so late callers always find the result.
+            // A pending payment is about to change status, possibly before its response would be cached
+            if (ex == null && completed != null && !PaymentStatus.PENDING.name().equals(response.getStatus())) {
+                completed.put(idempotencyKey, response);
+            }
+            inFlight.remove(idempotencyKey, promise);
+            if (ex == null) {
+                promise.complete(response);
+            } else {
+                promise.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+            }
+        });
+        return promise;
+    }
+
+    @Override
+    public void evict(String idempotencyKey) {
+        if (completed != null) {
+            completed.invalidate(idempotencyKey);
+        }
+    }
+
+    private PaymentResponse cached(String idempotencyKey) {
+        return completed != null ? completed.get(idempotencyKey) : null;
+    }
+}
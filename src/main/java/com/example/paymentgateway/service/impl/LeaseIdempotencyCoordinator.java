@@ -0,0 +1,115 @@
+package com.example.paymentgateway.service.impl;
+
+import com.example.paymentgateway.persistence.IdempotencyLeaseRepository;
+import com.example.paymentgateway.persistence.Payment;
+import com.example.paymentgateway.persistence.PaymentRepository;
+import com.example.paymentgateway.persistence.ShardRouter;
+import com.example.paymentgateway.service.IdempotencyCoordinator;
+import com.example.paymentgateway.service.IdempotencyKeyInUseException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Coordinates the gateway nodes sharing a payment store through a lease table on the shard of each key. A node
+ * claims a key by inserting its lease, so of two nodes racing for a key the second insert fails on the primary key
+ * instead of both calling the bank. A node that finds the key leased polls, with backoff, for the payment the holder
+ * stores, and claims the key itself if the holder releases it without storing one or lets its lease expire.
+ * <p>
+ * Leases expire by the clock of the node comparing them, so the lease duration must cover the bank call and
+ * persistence plus any clock skew between nodes.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "payment.idempotency.lease.enabled", havingValue = "true")
+public class LeaseIdempotencyCoordinator implements IdempotencyCoordinator {
+
+    private static final long MIN_POLL_MILLIS = 5;
+    private static final long MAX_POLL_MILLIS = 100;
+
+    private final IdempotencyLeaseRepository leaseRepository;
+    private final PaymentRepository paymentRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final long leaseMillis;
+    private final long waitTimeoutNanos;
+    // Unique per instance, so nodes configured with the same node id still tell their leases apart
+    private final String ownerId = UUID.randomUUID().toString();
+
+    public LeaseIdempotencyCoordinator(IdempotencyLeaseRepository leaseRepository,
+                                       PaymentRepository paymentRepository,
+                                       ShardRouter shardRouter,
+                                       TransactionTemplate transactionTemplate,
+                                       @Value("${payment.idempotency.lease.duration:30s}") Duration leaseDuration,
+                                       @Value("${payment.idempotency.lease.wait-timeout:5s}") Duration waitTimeout) {
+        this.leaseRepository = leaseRepository;
+        this.paymentRepository = paymentRepository;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = transactionTemplate;
+        this.leaseMillis = leaseDuration.toMillis();
+        this.waitTimeoutNanos = waitTimeout.toNanos();
+    }
+
+    @Override
+    public Optional<Payment> acquire(String idempotencyKey) {
+        int shard = shardRouter.shardForIdempotencyKey(idempotencyKey);
+        long deadline = System.nanoTime() + waitTimeoutNanos;
+        long pollMillis = MIN_POLL_MILLIS;
+        while (true) {
+            if (claim(shard, idempotencyKey)) {
+                // The previous holder may have stored the payment and released the key since the caller looked for it
+                Optional<Payment> stored = findPayment(shard, idempotencyKey);
+                if (stored.isPresent()) {
+                    release(idempotencyKey);
+                }
+                return stored;
+            }
+            Optional<Payment> stored = findPayment(shard, idempotencyKey);
+            if (stored.isPresent()) {
+                return stored;
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                throw new IdempotencyKeyInUseException(idempotencyKey);
+            }
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IdempotencyKeyInUseException(idempotencyKey);
+            }
+            pollMillis = Math.min(pollMillis * 2, MAX_POLL_MILLIS);
+        }
+    }
+
+    @Override
+    public void release(String idempotencyKey) {
+        int shard = shardRouter.shardForIdempotencyKey(idempotencyKey);
+        int released = shardRouter.onShard(shard, () -> transactionTemplate.execute(status -> leaseRepository.release(idempotencyKey, ownerId)));
+        if (released == 0) {
+            log.warn("The lease on idempotency key {} expired and was taken over while this node held it", idempotencyKey);
+        }
+    }
+
+    private boolean claim(int shard, String idempotencyKey) {
+        long now = System.currentTimeMillis();
+        try {
+            return shardRouter.onShard(shard, () -> transactionTemplate.execute(status ->
+                    leaseRepository.insert(idempotencyKey, ownerId, now + leaseMillis) == 1));
+        } catch (DataIntegrityViolationException ex) {
+            // Leased by another node, which may have stopped without releasing it
+            return shardRouter.onShard(shard, () -> transactionTemplate.execute(status ->
+                    leaseRepository.takeOverExpired(idempotencyKey, ownerId, now + leaseMillis, now) == 1));
+        }
+    }
+
+    private Optional<Payment> findPayment(int shard, String idempotencyKey) {
+        return shardRouter.onShard(shard, () -> paymentRepository.findByIdempotencyKey(idempotencyKey));
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.paymentgateway.service.impl;
+
+import com.example.paymentgateway.persistence.Payment;
+import com.example.paymentgateway.service.IdempotencyCoordinator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+@Component
+@ConditionalOnProperty(name = "payment.idempotency.lease.enabled", havingValue = "false", matchIfMissing = true)
+public class NoOpIdempotencyCoordinator implements IdempotencyCoordinator {
+
+    @Override
+    public Optional<Payment> acquire(String idempotencyKey) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void release(String idempotencyKey) {
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.paymentgateway.service.impl;
+
+import com.example.paymentgateway.dto.ExportFormat;
+import com.example.paymentgateway.dto.PaymentExportRow;
+import com.example.paymentgateway.persistence.PaymentRepository;
+import com.example.paymentgateway.persistence.PaymentSearchCriteria;
+import com.example.paymentgateway.persistence.ShardRouter;
+import com.example.paymentgateway.service.PaymentExportService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+@Slf4j
+public class PaymentExportServiceImpl implements PaymentExportService {
+
+    private static final String CSV_HEADER = "payment_id,merchant_id,masked_card_number,amount,currency,status,created_at\n";
+
+    private final PaymentRepository paymentRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectWriter rowWriter;
+
+    public PaymentExportServiceImpl(PaymentRepository paymentRepository, ShardRouter shardRouter,
+                                    PlatformTransactionManager transactionManager, ObjectMapper objectMapper) {
+        this.paymentRepository = paymentRepository;
+        this.shardRouter = shardRouter;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // Flushing after every row would turn each payment into its own network write
+        this.rowWriter = objectMapper.writerFor(PaymentExportRow.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @Override
+    public long exportPayments(PaymentSearchCriteria criteria, ExportFormat format, OutputStream outputStream) throws IOException {
+        long startedAt = System.nanoTime();
+        try {
+            long written = format == ExportFormat.CSV ? writeCsv(criteria, outputStream) : writeNdjson(criteria, outputStream);
+            log.info("Exported {} payments of merchant {} as {} in {} ms", written, criteria.getMerchantId(), format,
+                    (System.nanoTime() - startedAt) / 1_000_000);
+            return written;
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Stream the rows of every shard in turn, each in its own read-only transaction, so that only one shard
+     * connection is held at a time. Rows are oldest first within a shard.
+     */
+    private long forEachShard(PaymentSearchCriteria criteria, RowSink sink) {
+        long count = 0;
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            count += shardRouter.onShard(shard, () -> readOnlyTransaction.execute(status -> {
+                try (Stream<PaymentExportRow> rows = paymentRepository.streamForExport(criteria)) {
+                    return sink.write(rows.iterator());
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }));
+        }
+        return count;
+    }
+
+    private long writeCsv(PaymentSearchCriteria criteria, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write(CSV_HEADER);
+        long count = forEachShard(criteria, rows -> writeCsvRows(rows, writer));
+        writer.flush();
+        return count;
+    }
+
+    private long writeCsvRows(Iterator<PaymentExportRow> rows, Writer writer) throws IOException {
+        long count = 0;
+        while (rows.hasNext()) {
+            PaymentExportRow row = rows.next();
+            writer.write(String.valueOf(row.getPaymentId()));
+            writer.write(',');
+            writeCsvField(writer, row.getMerchantId());
+            writer.write(',');
+            writeCsvField(writer, row.getMaskedCardNumber());
+            writer.write(',');
+            writer.write(row.getAmount().toPlainString());
+            writer.write(',');
+            writeCsvField(writer, row.getCurrency());
+            writer.write(',');
+            writeCsvField(writer, row.getStatus());
+            writer.write(',');
+            writer.write(row.getCreatedAt() == null ? "" : row.getCreatedAt().toString());
+            writer.write('\n');
+            count++;
+        }
+        return count;
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private long writeNdjson(PaymentSearchCriteria criteria, OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = rowWriter.createGenerator(outputStream)) {
+            // The generator buffers internally and must not close the response stream
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            long count = forEachShard(criteria, rows -> {
+                long written = 0;
+                while (rows.hasNext()) {
+                    rowWriter.writeValue(generator, rows.next());
+                    generator.writeRaw('\n');
+                    written++;
+                }
+                return written;
+            });
+            generator.flush();
+            return count;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowSink {
+        long write(Iterator<PaymentExportRow> rows) throws IOException;
+    }
+}
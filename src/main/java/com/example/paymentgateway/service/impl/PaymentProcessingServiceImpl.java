@@ -1,85 +1,480 @@
 package com.example.paymentgateway.service.impl;
 
+import com.example.paymentgateway.aggregate.PaymentAggregator;
+import com.example.paymentgateway.archive.PaymentArchive;
+import com.example.paymentgateway.cache.PaymentDetailsCache;
+import com.example.paymentgateway.connector.BankConnector;
+import com.example.paymentgateway.connector.BankOutcome;
+import com.example.paymentgateway.connector.BankUnavailableException;
 import com.example.paymentgateway.dto.PaymentDetailsResponse;
 import com.example.paymentgateway.dto.PaymentRequest;
 import com.example.paymentgateway.dto.PaymentResponse;
+import com.example.paymentgateway.dto.PaymentSearchResponse;
+import com.example.paymentgateway.dto.PaymentSummary;
+import com.example.paymentgateway.metrics.PaymentMetrics;
+import com.example.paymentgateway.metrics.PaymentMetrics.Outcome;
+import com.example.paymentgateway.metrics.PaymentMetrics.Stage;
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
+import com.example.paymentgateway.persistence.IdempotencyKeyIndex;
 import com.example.paymentgateway.persistence.Payment;
+import com.example.paymentgateway.persistence.PaymentCursor;
 import com.example.paymentgateway.persistence.PaymentRepository;
+import com.example.paymentgateway.persistence.PaymentSearchCriteria;
+import com.example.paymentgateway.persistence.PaymentStatus;
+import com.example.paymentgateway.persistence.PaymentWriter;
+import com.example.paymentgateway.persistence.ShardRouter;
+import com.example.paymentgateway.risk.RiskAssessment;
+import com.example.paymentgateway.risk.RiskDeclinedException;
+import com.example.paymentgateway.risk.RiskEngine;
+import com.example.paymentgateway.service.IdempotencyCoordinator;
+import com.example.paymentgateway.service.IdempotencyRegistry;
 import com.example.paymentgateway.service.PaymentProcessingService;
-import com.example.paymentgateway.simulator.BankSimulator;
+import com.example.paymentgateway.vault.CardToken;
+import com.example.paymentgateway.vault.CardVault;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 import jakarta.persistence.EntityNotFoundException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class PaymentProcessingServiceImpl implements PaymentProcessingService {
 
-    private final BankSimulator bankSimulator;
+    private static final int IDEMPOTENCY_LOOKUP_CHUNK = 1000;
+    private static final Comparator<PaymentSummary> NEWEST_FIRST = Comparator.comparing(PaymentSummary::getCreatedAt)
+            .thenComparingLong(summary -> Long.parseLong(summary.getPaymentId()))
+            .reversed();
+
+    private final BankConnector bankConnector;
     private final PaymentRepository paymentRepository;
+    private final PaymentWriter paymentWriter;
+    private final PaymentStatusUpdater paymentStatusUpdater;
+    private final ShardRouter shardRouter;
+    private final IdempotencyKeyIndex idempotencyKeyIndex;
+    private final IdempotencyRegistry idempotencyRegistry;
+    private final IdempotencyCoordinator idempotencyCoordinator;
+    private final PaymentDetailsCache paymentDetailsCache;
+    private final ExecutorService paymentExecutor;
+    private final ExecutorService batchExecutor;
+    private final ExecutorService leaseReleaseExecutor;
+    private final PaymentMetrics paymentMetrics;
+    private final PaymentAggregator paymentAggregator;
+    private final CardVault cardVault;
+    private final RiskEngine riskEngine;
+    private final PaymentArchive paymentArchive;
+
+    @Value("${payment.batch.max-concurrency:32}")
+    private int batchMaxConcurrency;
+
+    @Value("${payment.async-authorization.enabled:false}")
+    private boolean asyncAuthorization;
 
     @Override
     public PaymentResponse processPayment(PaymentRequest paymentRequest) {
-        // Check if a payment with the given idempotency key already exists
         log.info("Payment request with idempotency key {}", paymentRequest.getIdempotencyKey());
-        Optional<Payment> existingPayment = paymentRepository.findByIdempotencyKey(paymentRequest.getIdempotencyKey());
+        long startedAt = System.nanoTime();
+        paymentMetrics.paymentStarted();
+        try {
+            boolean[] executed = new boolean[1];
+            // Concurrent retries with the same idempotency key are coalesced onto a single execution
+            PaymentResponse response = idempotencyRegistry.execute(paymentRequest.getIdempotencyKey(), () -> {
+                executed[0] = true;
+                return doProcessPayment(paymentRequest);
+            });
+            if (!executed[0]) {
+                paymentMetrics.recordOutcome(Outcome.IDEMPOTENT_REPLAY);
+            }
+            return response;
+        } finally {
+            paymentMetrics.paymentFinished();
+            paymentMetrics.recordSince(Stage.PROCESS_PAYMENT, startedAt);
+        }
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> processPaymentAsync(PaymentRequest paymentRequest) {
+        log.info("Async payment request with idempotency key {}", paymentRequest.getIdempotencyKey());
+        long startedAt = System.nanoTime();
+        paymentMetrics.paymentStarted();
+        boolean[] executed = new boolean[1];
+        return idempotencyRegistry.executeAsync(paymentRequest.getIdempotencyKey(),
+                        () -> CompletableFuture.supplyAsync(() -> {
+                            executed[0] = true;
+                            return doProcessPayment(paymentRequest);
+                        }, paymentExecutor))
+                .whenComplete((response, ex) -> {
+                    if (ex == null && !executed[0]) {
+                        paymentMetrics.recordOutcome(Outcome.IDEMPOTENT_REPLAY);
+                    }
+                    paymentMetrics.paymentFinished();
+                    paymentMetrics.recordSince(Stage.PROCESS_PAYMENT, startedAt);
+                });
+    }
+
+    @Override
+    public List<CompletableFuture<PaymentResponse>> processPaymentBatch(List<PaymentRequest> paymentRequests) {
+        log.info("Batch of {} payment requests", paymentRequests.size());
+        Map<String, Payment> storedPayments = findStoredPayments(paymentRequests);
+
+        // Requests repeating an idempotency key within the batch share the future of its first occurrence
+        Map<String, CompletableFuture<PaymentResponse>> byIdempotencyKey = new HashMap<>();
+        List<BatchItem> pendingItems = new ArrayList<>();
+        List<CompletableFuture<PaymentResponse>> results = new ArrayList<>(paymentRequests.size());
+        for (PaymentRequest paymentRequest : paymentRequests) {
+            results.add(byIdempotencyKey.computeIfAbsent(paymentRequest.getIdempotencyKey(), idempotencyKey -> {
+                Payment storedPayment = storedPayments.get(idempotencyKey);
+                if (storedPayment != null) {
+                    paymentMetrics.recordOutcome(Outcome.IDEMPOTENT_REPLAY);
+                    return CompletableFuture.completedFuture(toPaymentResponse(storedPayment));
+                }
+                return idempotencyRegistry.executeAsync(idempotencyKey, () -> {
+                    BatchItem item = new BatchItem(paymentRequest, new CompletableFuture<>());
+                    pendingItems.add(item);
+                    return item.response();
+                });
+            }));
+        }
+
+        dispatchBatch(pendingItems);
+        return results;
+    }
+
+    private Map<String, Payment> findStoredPayments(List<PaymentRequest> paymentRequests) {
+        List<String> idempotencyKeys = paymentRequests.stream()
+                .map(PaymentRequest::getIdempotencyKey)
+                .distinct()
+                .filter(idempotencyKeyIndex::mightContain)
+                .toList();
+        // Each key can only be stored on its own shard, so query every shard for its keys alone
+        List<List<String>> keysByShard = new ArrayList<>(shardRouter.shardCount());
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            keysByShard.add(new ArrayList<>());
+        }
+        for (String idempotencyKey : idempotencyKeys) {
+            keysByShard.get(shardRouter.shardForIdempotencyKey(idempotencyKey)).add(idempotencyKey);
+        }
+        Map<String, Payment> storedPayments = new HashMap<>();
+        for (int shard = 0; shard < keysByShard.size(); shard++) {
+            List<String> shardKeys = keysByShard.get(shard);
+            for (int from = 0; from < shardKeys.size(); from += IDEMPOTENCY_LOOKUP_CHUNK) {
+                List<String> chunk = shardKeys.subList(from, Math.min(from + IDEMPOTENCY_LOOKUP_CHUNK, shardKeys.size()));
+                shardRouter.onShard(shard, () -> paymentRepository.findByIdempotencyKeyIn(chunk))
+                        .forEach(payment -> storedPayments.put(payment.getIdempotencyKey(), payment));
+            }
+        }
+        return storedPayments;
+    }
+
+    private void dispatchBatch(List<BatchItem> items) {
+        // A fixed number of workers pull items in order, bounding the bank calls in flight for this batch
+        AtomicInteger next = new AtomicInteger();
+        int workers = Math.min(batchMaxConcurrency, items.size());
+        for (int worker = 0; worker < workers; worker++) {
+            batchExecutor.execute(() -> {
+                int index;
+                while ((index = next.getAndIncrement()) < items.size()) {
+                    processBatchItem(items.get(index));
+                }
+            });
+        }
+    }
+
+    private void processBatchItem(BatchItem item) {
+        String idempotencyKey = item.request().getIdempotencyKey();
+        try {
+            Optional<Payment> storedByOtherNode = idempotencyCoordinator.acquire(idempotencyKey);
+            if (storedByOtherNode.isPresent()) {
+                paymentMetrics.recordOutcome(Outcome.IDEMPOTENT_REPLAY);
+                item.response().complete(toPaymentResponse(storedByOtherNode.get()));
+                return;
+            }
+        } catch (RuntimeException ex) {
+            item.response().completeExceptionally(ex);
+            return;
+        }
+        try {
+            screen(item.request());
+            BankOutcome bankOutcome = authorize(item.request());
+            // Do not wait for the commit here; the writer groups the whole batch into multi-row inserts
+            paymentWriter.write(toPayment(item.request(), statusOf(bankOutcome)))
+                    .thenApply(payment -> {
+                        recordOutcome(payment.getAmount(), payment.getStatus());
+                        paymentDetailsCache.put(payment.getId(), toPaymentDetails(payment));
+                        return toPaymentResponse(payment);
+                    })
+                    .whenComplete((response, ex) -> {
+                        if (ex == null) {
+                            item.response().complete(response);
+                        } else {
+                            item.response().completeExceptionally(ex);
+                        }
+                    })
+                    // Off the writer's flusher thread, which must not wait on a transaction per payment
+                    .whenCompleteAsync((response, ex) -> idempotencyCoordinator.release(idempotencyKey), leaseReleaseExecutor);
+        } catch (RuntimeException ex) {
+            idempotencyCoordinator.release(idempotencyKey);
+            item.response().completeExceptionally(ex);
+        }
+    }
+
+    private PaymentResponse doProcessPayment(PaymentRequest paymentRequest) {
+        // Check if a payment with the given idempotency key already exists, unless the index knows it is new
+        long lookupStartedAt = System.nanoTime();
+        String idempotencyKey = paymentRequest.getIdempotencyKey();
+        Optional<Payment> existingPayment = idempotencyKeyIndex.mightContain(idempotencyKey)
+                ? shardRouter.onShard(shardRouter.shardForIdempotencyKey(idempotencyKey), () -> paymentRepository.findByIdempotencyKey(idempotencyKey))
+                : Optional.empty();
+        paymentMetrics.recordSince(Stage.IDEMPOTENCY_LOOKUP, lookupStartedAt);
         if (existingPayment.isPresent()) {
+            paymentMetrics.recordOutcome(Outcome.IDEMPOTENT_REPLAY);
             // Return the details of the existing payment
-            return new PaymentResponse(existingPayment.get().getId().toString(), existingPayment.get().getStatus(), "");
+            return toPaymentResponse(existingPayment.get());
         }
 
-        // If not, process the payment
-        boolean isSuccessful = bankSimulator.processTransaction(paymentRequest);
+        // Other gateway nodes may be processing the same key; only the one holding it goes on to the bank
+        Optional<Payment> storedByOtherNode = idempotencyCoordinator.acquire(idempotencyKey);
+        if (storedByOtherNode.isPresent()) {
+            paymentMetrics.recordOutcome(Outcome.IDEMPOTENT_REPLAY);
+            return toPaymentResponse(storedByOtherNode.get());
+        }
+        try {
+            // Declined payments are neither sent to the bank nor stored
+            screen(paymentRequest);
+
+            if (asyncAuthorization) {
+                // Store the payment as pending and answer right away; the bank call moves it on in the background
+                Payment payment = persist(toPayment(paymentRequest, PaymentStatus.PENDING));
+                paymentExecutor.execute(() -> completeAuthorization(payment, paymentRequest));
+                return toPaymentResponse(payment);
+            }
+
+            // If not, process the payment
+            BankOutcome bankOutcome = authorize(paymentRequest);
+            Payment payment = persist(toPayment(paymentRequest, statusOf(bankOutcome)));
+            recordOutcome(payment.getAmount(), payment.getStatus());
+            return toPaymentResponse(payment);
+        } catch (DataIntegrityViolationException ex) {
+            // A request that was not coordinated, e.g. on a node without leases, stored a payment with this key first
+            Payment stored = shardRouter.onShard(shardRouter.shardForIdempotencyKey(idempotencyKey),
+                    () -> paymentRepository.findByIdempotencyKey(idempotencyKey)).orElseThrow(() -> ex);
+            log.warn("Payment with idempotency key {} was stored concurrently as payment {}", idempotencyKey, stored.getId());
+            paymentMetrics.recordOutcome(Outcome.IDEMPOTENT_REPLAY);
+            return toPaymentResponse(stored);
+        } finally {
+            idempotencyCoordinator.release(idempotencyKey);
+        }
+    }
+
+    private Payment persist(Payment payment) {
+        // Returns once the batch containing this payment has committed
+        long persistenceStartedAt = System.nanoTime();
+        Payment saved = paymentWriter.writeAndAwait(payment);
+        paymentMetrics.recordSince(Stage.PERSISTENCE, persistenceStartedAt);
+        // Merchants poll the payment right after creating it, so cache its masked details now
+        paymentDetailsCache.put(saved.getId(), toPaymentDetails(saved));
+        return saved;
+    }
 
+    private void completeAuthorization(Payment payment, PaymentRequest paymentRequest) {
+        PaymentStatus status;
+        try {
+            status = statusOf(authorize(paymentRequest));
+        } catch (BankUnavailableException ex) {
+            // The merchant is no longer waiting to retry, so a payment that could not be sent fails
+            status = PaymentStatus.FAILED;
+        } catch (RuntimeException ex) {
+            log.error("Authorization of payment {} failed, it stays pending until re-driven", payment.getId(), ex);
+            return;
+        }
+        if (status == PaymentStatus.PENDING) {
+            log.warn("The bank did not answer in time for payment {}, it stays pending until re-driven", payment.getId());
+            return;
+        }
+        try {
+            paymentStatusUpdater.settlePending(payment.getId(), status);
+        } catch (RuntimeException ex) {
+            log.error("Could not move payment {} to {}, it stays pending until re-driven", payment.getId(), status, ex);
+        }
+    }
+
+    private void recordOutcome(Money amount, PaymentStatus status) {
+        // A pending payment is recorded once the re-drive settles it
+        if (status != PaymentStatus.PENDING) {
+            paymentAggregator.record(amount, status);
+        }
+    }
+
+    private void screen(PaymentRequest paymentRequest) {
+        long startedAt = System.nanoTime();
+        RiskAssessment assessment = riskEngine.assess(paymentRequest);
+        paymentMetrics.recordSince(Stage.RISK_SCREENING, startedAt);
+        if (assessment.declined()) {
+            paymentMetrics.recordOutcome(Outcome.RISK_DECLINED);
+            log.info("Payment with idempotency key {} declined by risk rules {}, score {}",
+                    paymentRequest.getIdempotencyKey(), assessment.triggeredRules(), assessment.score());
+            throw new RiskDeclinedException("Payment declined by risk screening.");
+        }
+    }
+
+    private BankOutcome authorize(PaymentRequest paymentRequest) {
+        long bankCallStartedAt = System.nanoTime();
+        BankOutcome bankOutcome = bankConnector.authorize(paymentRequest);
+        paymentMetrics.recordSince(Stage.BANK_CALL, bankCallStartedAt);
+        switch (bankOutcome) {
+            case APPROVED -> paymentMetrics.recordOutcome(Outcome.SUCCESS);
+            case DECLINED -> paymentMetrics.recordOutcome(Outcome.FAILURE);
+            case TIMEOUT -> paymentMetrics.recordOutcome(Outcome.UNKNOWN);
+            // Nothing was sent, so nothing is stored and the client may retry with the same idempotency key
+            case UNAVAILABLE -> throw new BankUnavailableException("Bank unavailable, the payment was not attempted.");
+        }
+        return bankOutcome;
+    }
+
+    private static PaymentStatus statusOf(BankOutcome bankOutcome) {
+        return switch (bankOutcome) {
+            case APPROVED -> PaymentStatus.AUTHORIZED;
+            case DECLINED, UNAVAILABLE -> PaymentStatus.FAILED;
+            case TIMEOUT -> PaymentStatus.PENDING;
+        };
+    }
+
+    private Payment toPayment(PaymentRequest paymentRequest, PaymentStatus status) {
         Payment payment = new Payment();
-        payment.setCardNumber(paymentRequest.getCardNumber());
+        char[] cardNumber = paymentRequest.getCardNumber().toCharArray();
+        try {
+            CardToken cardToken = cardVault.tokenize(cardNumber);
+            payment.setCardToken(cardToken.token());
+            payment.setCardBin(cardToken.bin());
+            payment.setCardLast4(cardToken.last4());
+            payment.setMaskedCardNumber(cardToken.maskedCardNumber());
+        } finally {
+            Arrays.fill(cardNumber, '\0');
+        }
         payment.setExpiryMonth(paymentRequest.getExpiryMonth());
         payment.setExpiryYear(paymentRequest.getExpiryYear());
-        payment.setAmount(paymentRequest.getAmount());
-        payment.setCurrency(paymentRequest.getCurrency());
-        payment.setStatus(isSuccessful ? "SUCCESS" : "FAILURE");
+        payment.setAmount(Money.of(paymentRequest.getAmount(), CurrencyUnit.of(paymentRequest.getCurrency())));
+        payment.setStatus(status);
         payment.setIdempotencyKey(paymentRequest.getIdempotencyKey());
-        paymentRepository.save(payment);
+        payment.setMerchantId(paymentRequest.getMerchantId());
+        payment.setCreatedAt(Instant.now());
+        payment.setAuthorizationAttempts(1);
+        payment.setAttemptedAt(payment.getCreatedAt());
+        return payment;
+    }
 
-        if (isSuccessful) {
-            return new PaymentResponse(payment.getId().toString(), "SUCCESS", "Payment processed successfully.");
-        } else {
-            return new PaymentResponse(payment.getId().toString(), "FAILURE", "Payment processing failed.");
-        }
+    private PaymentResponse toPaymentResponse(Payment payment) {
+        String message = switch (payment.getStatus()) {
+            case AUTHORIZED -> "Payment processed successfully.";
+            case FAILED -> "Payment processing failed.";
+            case PENDING -> asyncAuthorization
+                    ? "Payment accepted, poll its status for the outcome."
+                    : "The bank did not answer in time, the payment is pending.";
+            default -> "";
+        };
+        return new PaymentResponse(payment.getId().toString(), payment.getStatus().name(), message);
     }
 
     @Override
     public PaymentDetailsResponse retrievePaymentDetails(String paymentId) {
-        Optional<Payment> optionalPayment = paymentRepository.findById(Long.parseLong(paymentId));
+        long startedAt = System.nanoTime();
+        try {
+            Long id = Long.parseLong(paymentId);
+            PaymentDetailsResponse cached = paymentDetailsCache.get(id);
+            if (cached != null) {
+                return cached;
+            }
+
+            // The identifier names the shard holding the payment; one naming no configured shard cannot exist
+            int shard = shardRouter.shardOf(id);
+            Optional<Payment> optionalPayment = shard < shardRouter.shardCount()
+                    ? shardRouter.onShard(shard, () -> paymentRepository.findById(id))
+                    : Optional.empty();
+            if (optionalPayment.isEmpty()) {
+                // Payments past the retention age only live in the archive
+                optionalPayment = paymentArchive.find(id);
+            }
+
+            if (optionalPayment.isEmpty()) {
+                throw new EntityNotFoundException("Payment with ID " + paymentId + " not found.");
+            }
 
-        if (optionalPayment.isEmpty()) {
-            throw new EntityNotFoundException("Payment with ID " + paymentId + " not found.");
+            PaymentDetailsResponse details = toPaymentDetails(optionalPayment.get());
+            paymentDetailsCache.putIfAbsent(id, details);
+            return details;
+        } finally {
+            paymentMetrics.recordSince(Stage.RETRIEVE_PAYMENT_DETAILS, startedAt);
         }
+    }
 
-        Payment payment = optionalPayment.get();
+    @Override
+    public PaymentDetailsResponse capturePayment(String paymentId) {
+        return toPaymentDetails(paymentStatusUpdater.transition(Long.parseLong(paymentId), PaymentStatus.CAPTURED));
+    }
 
-        // Mask the card number for security reasons
-        String maskedCardNumber = maskCardNumber(payment.getCardNumber());
+    @Override
+    public PaymentDetailsResponse refundPayment(String paymentId) {
+        return toPaymentDetails(paymentStatusUpdater.transition(Long.parseLong(paymentId), PaymentStatus.REFUNDED));
+    }
 
+    @Override
+    public PaymentSearchResponse searchPayments(PaymentSearchCriteria criteria, PaymentCursor after, int limit) {
+        long startedAt = System.nanoTime();
+        try {
+            // One extra row tells whether there is a next page without a count query
+            List<PaymentSummary> payments = searchShards(criteria, after, limit + 1);
+            if (payments.size() <= limit) {
+                return new PaymentSearchResponse(payments, null);
+            }
+            List<PaymentSummary> page = payments.subList(0, limit);
+            PaymentSummary last = page.get(limit - 1);
+            return new PaymentSearchResponse(page, new PaymentCursor(last.getCreatedAt(), Long.parseLong(last.getPaymentId())).encode());
+        } finally {
+            paymentMetrics.recordSince(Stage.SEARCH_PAYMENTS, startedAt);
+        }
+    }
+
+    private List<PaymentSummary> searchShards(PaymentSearchCriteria criteria, PaymentCursor after, int limit) {
+        if (shardRouter.shardCount() == 1) {
+            return paymentRepository.search(criteria, after, limit);
+        }
+        // Every shard returns its own first rows past the cursor; the first rows of the merge are the page
+        List<PaymentSummary> merged = new ArrayList<>();
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            merged.addAll(shardRouter.onShard(shard, () -> paymentRepository.search(criteria, after, limit)));
+        }
+        merged.sort(NEWEST_FIRST);
+        return merged.size() <= limit ? merged : merged.subList(0, limit);
+    }
+
+    static PaymentDetailsResponse toPaymentDetails(Payment payment) {
+        // The masked card number is computed once, when the card is tokenized
         return new PaymentDetailsResponse(
                 payment.getId().toString(),
-                maskedCardNumber,
+                payment.getMaskedCardNumber(),
                 payment.getExpiryMonth(),
                 payment.getExpiryYear(),
                 payment.getAmount(),
-                payment.getCurrency(),
-                payment.getStatus()
+                payment.getAmount().getCurrency().getCode(),
+                payment.getStatus().name()
         );
     }
 
-    private String maskCardNumber(String cardNumber) {
-        int length = cardNumber.length();
-        String lastFourDigits = cardNumber.substring(length - 4);
-        return "XXXX-XXXX-XXXX-" + lastFourDigits;
+    private record BatchItem(PaymentRequest request, CompletableFuture<PaymentResponse> response) {
     }
-
 }
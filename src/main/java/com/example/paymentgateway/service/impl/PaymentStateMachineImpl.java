@@ -0,0 +1,90 @@
+package com.example.paymentgateway.service.impl;
+
+import com.example.paymentgateway.events.PaymentEventType;
+import com.example.paymentgateway.persistence.OutboxEvent;
+import com.example.paymentgateway.persistence.OutboxEventRepository;
+import com.example.paymentgateway.persistence.Payment;
+import com.example.paymentgateway.persistence.PaymentRepository;
+import com.example.paymentgateway.persistence.PaymentStatus;
+import com.example.paymentgateway.persistence.ShardRouter;
+import com.example.paymentgateway.service.IllegalPaymentTransitionException;
+import com.example.paymentgateway.service.PaymentStateMachine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityNotFoundException;
+
+import java.util.Optional;
+
+@Service
+@Slf4j
+public class PaymentStateMachineImpl implements PaymentStateMachine {
+
+    private final PaymentRepository paymentRepository;
+    private final OutboxEventRepository outboxEventRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+
+    public PaymentStateMachineImpl(PaymentRepository paymentRepository,
+                                   OutboxEventRepository outboxEventRepository,
+                                   ShardRouter shardRouter,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${payment.transitions.max-attempts:5}") int maxAttempts) {
+        this.paymentRepository = paymentRepository;
+        this.outboxEventRepository = outboxEventRepository;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = transactionTemplate;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @Override
+    public Payment transition(long paymentId, PaymentStatus target) {
+        return transition(paymentId, null, target);
+    }
+
+    @Override
+    public Optional<Payment> transitionFrom(long paymentId, PaymentStatus expected, PaymentStatus target) {
+        return Optional.ofNullable(transition(paymentId, expected, target));
+    }
+
+    private Payment transition(long paymentId, PaymentStatus expected, PaymentStatus target) {
+        int shard = shardRouter.shardOf(paymentId);
+        if (shard >= shardRouter.shardCount()) {
+            throw new EntityNotFoundException("Payment with ID " + paymentId + " not found.");
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return shardRouter.onShard(shard, () -> transactionTemplate.execute(status -> apply(paymentId, expected, target)));
+            } catch (OptimisticLockingFailureException ex) {
+                // Another transition committed first; the next attempt sees its status
+                if (attempt >= maxAttempts) {
+                    throw ex;
+                }
+                log.debug("Transition of payment {} to {} lost a race, attempt {}", paymentId, target, attempt);
+            }
+        }
+    }
+
+    private Payment apply(long paymentId, PaymentStatus expected, PaymentStatus target) {
+        Payment payment = paymentRepository.findById(paymentId)
+                .orElseThrow(() -> new EntityNotFoundException("Payment with ID " + paymentId + " not found."));
+        if (expected != null && payment.getStatus() != expected) {
+            return null;
+        }
+        if (payment.getStatus() == target) {
+            return payment;
+        }
+        if (!payment.getStatus().canTransitionTo(target)) {
+            throw new IllegalPaymentTransitionException(paymentId, payment.getStatus(), target);
+        }
+        payment.setStatus(target);
+        // Flushed here, so a concurrent update fails inside the retry loop rather than at commit
+        Payment saved = paymentRepository.saveAndFlush(payment);
+        outboxEventRepository.save(OutboxEvent.of(PaymentEventType.PAYMENT_STATUS_CHANGED, saved));
+        return saved;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.paymentgateway.service.impl;
+
+import com.example.paymentgateway.aggregate.PaymentAggregator;
+import com.example.paymentgateway.cache.PaymentDetailsCache;
+import com.example.paymentgateway.persistence.Payment;
+import com.example.paymentgateway.persistence.PaymentStatus;
+import com.example.paymentgateway.service.IdempotencyRegistry;
+import com.example.paymentgateway.service.PaymentStateMachine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Moves stored payments to a new status and refreshes what was derived from the old one: the cached details, the
+ * idempotent replay and, when a pending payment settles, the aggregates.
+ */
+@Component
+@RequiredArgsConstructor
+class PaymentStatusUpdater {
+
+    private final PaymentStateMachine paymentStateMachine;
+    private final PaymentDetailsCache paymentDetailsCache;
+    private final IdempotencyRegistry idempotencyRegistry;
+    private final PaymentAggregator paymentAggregator;
+
+    Payment transition(long paymentId, PaymentStatus target) {
+        return refresh(paymentStateMachine.transition(paymentId, target));
+    }
+
+    /**
+     * Moves a pending payment to the bank's answer, unless it left PENDING meanwhile, e.g. settled by the re-drive or
+     * by a late background authorization; only the caller that moved it records it.
+     *
+     * @return whether this call settled the payment
+     */
+    boolean settlePending(long paymentId, PaymentStatus status) {
+        Optional<Payment> settled = paymentStateMachine.transitionFrom(paymentId, PaymentStatus.PENDING, status);
+        settled.ifPresent(payment -> {
+            refresh(payment);
+            paymentAggregator.record(payment.getAmount(), status);
+        });
+        return settled.isPresent();
+    }
+
+    private Payment refresh(Payment payment) {
+        // Replaces whatever a concurrent read cached, since this runs after the commit
+        paymentDetailsCache.put(payment.getId(), PaymentProcessingServiceImpl.toPaymentDetails(payment));
+        idempotencyRegistry.evict(payment.getIdempotencyKey());
+        return payment;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.paymentgateway.service.impl;
+
+import com.example.paymentgateway.connector.BankConnector;
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.persistence.Payment;
+import com.example.paymentgateway.persistence.PaymentRepository;
+import com.example.paymentgateway.persistence.PaymentStatus;
+import com.example.paymentgateway.persistence.ShardRouter;
+import com.example.paymentgateway.vault.CardVault;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends stale pending payments to the bank again, on a single background thread. A payment stays pending when the
+ * bank did not answer in time, or when the node authorizing it in the background failed or stopped before storing
+ * the answer. Once its last bank call is older than the stale age it is sent again under its idempotency key, without
+ * the CVV, which is never stored; once it has had the maximum number of bank calls it fails.
+ * <p>
+ * Each attempt is claimed by counting it on the payment under its version, so of the nodes sharing a payment store
+ * only one makes it.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "payment.pending-redrive.enabled", havingValue = "true", matchIfMissing = true)
+public class PendingPaymentRedriver {
+
+    private final PaymentRepository paymentRepository;
+    private final ShardRouter shardRouter;
+    private final PaymentStatusUpdater paymentStatusUpdater;
+    private final BankConnector bankConnector;
+    private final CardVault cardVault;
+    private final long intervalMillis;
+    private final Duration staleAfter;
+    private final int maxAttempts;
+
+    private volatile boolean running;
+    private Thread redrive;
+
+    public PendingPaymentRedriver(PaymentRepository paymentRepository,
+                                  ShardRouter shardRouter,
+                                  PaymentStatusUpdater paymentStatusUpdater,
+                                  BankConnector bankConnector,
+                                  CardVault cardVault,
+                                  @Value("${payment.pending-redrive.interval:10s}") Duration interval,
+                                  @Value("${payment.pending-redrive.stale-after:1m}") Duration staleAfter,
+                                  @Value("${payment.pending-redrive.max-attempts:5}") int maxAttempts) {
+        this.paymentRepository = paymentRepository;
+        this.shardRouter = shardRouter;
+        this.paymentStatusUpdater = paymentStatusUpdater;
+        this.bankConnector = bankConnector;
+        this.cardVault = cardVault;
+        this.intervalMillis = interval.toMillis();
+        this.staleAfter = staleAfter;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        redrive = new Thread(this::redriveLoop, "pending-payment-redrive");
+        redrive.setDaemon(true);
+        redrive.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        redrive.interrupt();
+        redrive.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private void redriveLoop() {
+        while (running) {
+            try {
+                for (int shard = 0; shard < shardRouter.shardCount() && running; shard++) {
+                    redriveShard(shard);
+                }
+            } catch (RuntimeException ex) {
+                // The payments stay pending and are picked up again on the next round
+                log.warn("Re-drive of pending payments failed, retrying: {}", ex.getMessage());
+            }
+            try {
+                Thread.sleep(intervalMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void redriveShard(int shard) {
+        Instant staleBefore = Instant.now().minus(staleAfter);
+        List<Payment> payments = shardRouter.onShard(shard,
+                () -> paymentRepository.findTop100ByStatusAndAttemptedAtBeforeOrderByAttemptedAtAsc(PaymentStatus.PENDING, staleBefore));
+        for (Payment payment : payments) {
+            if (!running) {
+                return;
+            }
+            redrive(shard, payment);
+        }
+    }
+
+    private void redrive(int shard, Payment payment) {
+        if (payment.getAuthorizationAttempts() >= maxAttempts) {
+            log.warn("Payment {} is still pending after {} bank calls, it fails", payment.getId(), payment.getAuthorizationAttempts());
+            settle(payment, PaymentStatus.FAILED);
+            return;
+        }
+        Payment claimed;
+        try {
+            payment.setAuthorizationAttempts(payment.getAuthorizationAttempts() + 1);
+            payment.setAttemptedAt(Instant.now());
+            claimed = shardRouter.onShard(shard, () -> paymentRepository.saveAndFlush(payment));
+        } catch (OptimisticLockingFailureException ex) {
+            // Another node claimed this attempt, or the payment moved on
+            return;
+        }
+
+        PaymentStatus status;
+        try {
+            status = switch (bankConnector.authorize(toPaymentRequest(claimed))) {
+                case APPROVED -> PaymentStatus.AUTHORIZED;
+                case DECLINED -> PaymentStatus.FAILED;
+                case TIMEOUT, UNAVAILABLE -> PaymentStatus.PENDING;
+            };
+        } catch (RuntimeException ex) {
+            log.warn("Bank call {} for pending payment {} failed: {}", claimed.getAuthorizationAttempts(), claimed.getId(), ex.getMessage());
+            return;
+        }
+        if (status != PaymentStatus.PENDING) {
+            settle(claimed, status);
+        }
+    }
+
+    private void settle(Payment payment, PaymentStatus status) {
+        if (!paymentStatusUpdater.settlePending(payment.getId(), status)) {
+            log.debug("Pending payment {} was settled concurrently", payment.getId());
+        }
+    }
+
+    private PaymentRequest toPaymentRequest(Payment payment) {
+        char[] cardNumber = cardVault.detokenize(payment.getCardToken());
+        try {
+            return new PaymentRequest(new String(cardNumber), payment.getExpiryMonth(), payment.getExpiryYear(), null,
+                    payment.getAmount().toBigDecimal(), payment.getAmount().getCurrency().getCode(),
+                    payment.getIdempotencyKey(), payment.getMerchantId());
+        } finally {
+            Arrays.fill(cardNumber, '\0');
+        }
+    }
+}
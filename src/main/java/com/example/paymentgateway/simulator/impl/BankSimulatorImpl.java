@@ -2,9 +2,11 @@ package com.example.paymentgateway.simulator.impl;
 
 import com.example.paymentgateway.dto.PaymentRequest;
 import com.example.paymentgateway.simulator.BankSimulator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 @Service
+@ConditionalOnProperty(name = "payment.bank.fault-injection.enabled", havingValue = "false", matchIfMissing = true)
 public class BankSimulatorImpl implements BankSimulator {
 
     @Override
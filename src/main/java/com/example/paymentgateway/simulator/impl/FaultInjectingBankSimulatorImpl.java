@@ -0,0 +1,70 @@
+package com.example.paymentgateway.simulator.impl;
+
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.simulator.BankSimulator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Bank simulator with configurable latency and injected faults, for load-testing the bank connector locally.
+ * Each call waits a base latency plus uniform jitter, occasionally a much longer tail latency, and may fail or
+ * hang before delegating to {@link BankSimulatorImpl} for the approval decision. It replaces the plain simulator
+ * bean while enabled, so it can also be used as an acquirer behind the routing engine.
+ */
+@Service
+@ConditionalOnProperty(name = "payment.bank.fault-injection.enabled", havingValue = "true")
+public class FaultInjectingBankSimulatorImpl implements BankSimulator {
+
+    private final BankSimulatorImpl delegate = new BankSimulatorImpl();
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double tailProbability;
+    private final long tailLatencyMillis;
+    private final double failureProbability;
+    private final double hangProbability;
+
+    public FaultInjectingBankSimulatorImpl(@Value("${payment.bank.fault-injection.latency:20ms}") Duration latency,
+                                           @Value("${payment.bank.fault-injection.jitter:10ms}") Duration jitter,
+                                           @Value("${payment.bank.fault-injection.tail-probability:0.01}") double tailProbability,
+                                           @Value("${payment.bank.fault-injection.tail-latency:1s}") Duration tailLatency,
+                                           @Value("${payment.bank.fault-injection.failure-probability:0.0}") double failureProbability,
+                                           @Value("${payment.bank.fault-injection.hang-probability:0.0}") double hangProbability) {
+        this.latencyMillis = latency.toMillis();
+        this.jitterMillis = jitter.toMillis();
+        this.tailProbability = tailProbability;
+        this.tailLatencyMillis = tailLatency.toMillis();
+        this.failureProbability = failureProbability;
+        this.hangProbability = hangProbability;
+    }
+
+    @Override
+    public boolean processTransaction(PaymentRequest paymentRequest) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < hangProbability) {
+            // Simulates an acquirer that accepted the connection but never answers
+            sleep(Long.MAX_VALUE);
+        }
+        long delay = latencyMillis + (jitterMillis > 0 ? random.nextLong(jitterMillis + 1) : 0);
+        if (random.nextDouble() < tailProbability) {
+            delay += tailLatencyMillis;
+        }
+        sleep(delay);
+        if (random.nextDouble() < failureProbability) {
+            throw new IllegalStateException("Injected bank failure");
+        }
+        return delegate.processTransaction(paymentRequest);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Bank call interrupted", ex);
+        }
+    }
+}
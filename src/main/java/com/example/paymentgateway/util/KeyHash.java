@@ -0,0 +1,57 @@
+package com.example.paymentgateway.util;
+
+/**
+ * 64-bit hash of string keys for the off-heap and lock-free tables: FNV-1a over the UTF-16 code units, finished with
+ * the MurmurHash3 64-bit mixer so every bit of the result depends on every bit of the key. It reads the key in place
+ * and allocates nothing.
+ */
+public final class KeyHash {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf2_9ce4_8422_2325L;
+    private static final long FNV_PRIME = 0x100_0000_01b3L;
+
+    private KeyHash() {
+    }
+
+    /**
+     * Hash a whole key.
+     *
+     * @param key the key
+     * @return the 64-bit hash
+     */
+    public static long hash(CharSequence key) {
+        return hash(key, key.length(), 0);
+    }
+
+    /**
+     * Hash a prefix of a key under a seed, so that which keys collide differs from one seed to the next.
+     *
+     * @param key    the key
+     * @param length the number of leading characters to hash, at most the key length
+     * @param seed   the seed
+     * @return the 64-bit hash
+     */
+    public static long hash(CharSequence key, int length, long seed) {
+        long hash = FNV_OFFSET_BASIS ^ seed;
+        for (int i = 0; i < length; i++) {
+            hash ^= key.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Spread the bits of a value with the MurmurHash3 64-bit finalizer.
+     *
+     * @param hash the value
+     * @return the mixed value
+     */
+    public static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51_afd7_ed55_8ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ce_b9fe_1a85_ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
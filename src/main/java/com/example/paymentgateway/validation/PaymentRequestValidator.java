@@ -0,0 +1,21 @@
+package com.example.paymentgateway.validation;
+
+import com.example.paymentgateway.dto.PaymentRequest;
+
+import java.util.Map;
+
+/**
+ * Validates payment requests on the hot path without Bean Validation. Applies the constraints declared on
+ * {@link PaymentRequest}, with the same messages, plus a Luhn check of the card number, a check that the card has
+ * not expired, and checks that the currency is a supported ISO 4217 currency and that the amount fits its minor unit.
+ */
+public interface PaymentRequestValidator {
+
+    /**
+     * Validate a payment request.
+     *
+     * @param paymentRequest the payment request
+     * @return the error message of each invalid field, keyed by field name, or an empty map if the request is valid
+     */
+    Map<String, String> validate(PaymentRequest paymentRequest);
+}
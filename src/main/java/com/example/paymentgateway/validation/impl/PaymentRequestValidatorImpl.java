@@ -0,0 +1,178 @@
+package com.example.paymentgateway.validation.impl;
+
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.validation.PaymentRequestValidator;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+public class PaymentRequestValidatorImpl implements PaymentRequestValidator {
+
+    static final String CARD_NUMBER_REQUIRED = "Card number is required.";
+    static final String CARD_NUMBER_LENGTH = "Card number should be 16 digits.";
+    static final String CARD_NUMBER_INVALID = "Card number is not valid.";
+    static final String EXPIRY_MONTH_REQUIRED = "Expiry month is required.";
+    static final String EXPIRY_MONTH_FORMAT = "Expiry month should be MM format.";
+    static final String EXPIRY_YEAR_REQUIRED = "Expiry year is required.";
+    static final String EXPIRY_YEAR_FORMAT = "Expiry year should be YYYY format.";
+    static final String CARD_EXPIRED = "Card has expired.";
+    static final String CVV_REQUIRED = "CVV is required.";
+    static final String CVV_LENGTH = "CVV should be 3 or 4 digits.";
+    static final String AMOUNT_REQUIRED = "Amount is required.";
+    static final String AMOUNT_POSITIVE = "Amount should be positive.";
+    static final String AMOUNT_TOO_PRECISE = "Amount has more decimals than the currency allows.";
+    static final String AMOUNT_TOO_LARGE = "Amount is too large.";
+    static final String CURRENCY_REQUIRED = "Currency is required.";
+    static final String CURRENCY_NOT_SUPPORTED = "Currency is not supported.";
+    static final String IDEMPOTENCY_KEY_REQUIRED = "Idempotency Key is required.";
+
+    // Keeps any amount within a long of minor units, whatever the currency's number of decimals
+    private static final int MAX_INTEGER_DIGITS = 14;
+
+    private final Clock clock;
+
+    public PaymentRequestValidatorImpl() {
+        this(Clock.systemUTC());
+    }
+
+    PaymentRequestValidatorImpl(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public Map<String, String> validate(PaymentRequest paymentRequest) {
+        // Valid requests, the common case, return without allocating
+        Map<String, String> errors = null;
+        errors = addError(errors, "cardNumber", cardNumberError(paymentRequest.getCardNumber()));
+
+        String expiryMonth = paymentRequest.getExpiryMonth();
+        String expiryYear = paymentRequest.getExpiryYear();
+        int month = parseMonth(expiryMonth);
+        int year = parseYear(expiryYear);
+        errors = addError(errors, "expiryMonth", month > 0 ? null : isBlank(expiryMonth) ? EXPIRY_MONTH_REQUIRED : EXPIRY_MONTH_FORMAT);
+        if (year < 0) {
+            errors = addError(errors, "expiryYear", isBlank(expiryYear) ? EXPIRY_YEAR_REQUIRED : EXPIRY_YEAR_FORMAT);
+        } else if (month > 0 && isExpired(year, month)) {
+            errors = addError(errors, "expiryYear", CARD_EXPIRED);
+        }
+
+        String cvv = paymentRequest.getCvv();
+        errors = addError(errors, "cvv", isBlank(cvv) ? CVV_REQUIRED : cvv.length() < 3 || cvv.length() > 4 ? CVV_LENGTH : null);
+
+        String currencyCode = paymentRequest.getCurrency();
+        CurrencyUnit currency = CurrencyUnit.find(currencyCode);
+        errors = addError(errors, "amount", amountError(paymentRequest.getAmount(), currency));
+        errors = addError(errors, "currency", isBlank(currencyCode) ? CURRENCY_REQUIRED : currency == null ? CURRENCY_NOT_SUPPORTED : null);
+        errors = addError(errors, "idempotencyKey", isBlank(paymentRequest.getIdempotencyKey()) ? IDEMPOTENCY_KEY_REQUIRED : null);
+        return errors == null ? Map.of() : errors;
+    }
+
+    static String amountError(BigDecimal amount, CurrencyUnit currency) {
+        if (amount == null) {
+            return AMOUNT_REQUIRED;
+        }
+        if (amount.signum() <= 0) {
+            return AMOUNT_POSITIVE;
+        }
+        // In long, as a scale near Integer.MIN_VALUE would overflow the difference
+        if ((long) amount.precision() - amount.scale() > MAX_INTEGER_DIGITS) {
+            return AMOUNT_TOO_LARGE;
+        }
+        // Trailing zeros are fine: 100.00 JPY is 100 yen
+        if (currency != null && amount.scale() > currency.getFractionDigits()
+                && amount.stripTrailingZeros().scale() > currency.getFractionDigits()) {
+            return AMOUNT_TOO_PRECISE;
+        }
+        return null;
+    }
+
+    static String cardNumberError(String cardNumber) {
+        if (isBlank(cardNumber)) {
+            return CARD_NUMBER_REQUIRED;
+        }
+        if (cardNumber.length() != 16) {
+            return CARD_NUMBER_LENGTH;
+        }
+        // Luhn checksum from the rightmost digit, doubling every second digit; non-digits fail the check
+        int sum = 0;
+        for (int i = 0; i < 16; i++) {
+            int digit = cardNumber.charAt(15 - i) - '0';
+            if (digit < 0 || digit > 9) {
+                return CARD_NUMBER_INVALID;
+            }
+            if ((i & 1) == 1) {
+                digit <<= 1;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+        }
+        return sum % 10 == 0 ? null : CARD_NUMBER_INVALID;
+    }
+
+    /** Returns the month of a value matching {@code ^(0[1-9]|1[0-2])$}, or -1. */
+    static int parseMonth(String expiryMonth) {
+        if (expiryMonth == null || expiryMonth.length() != 2) {
+            return -1;
+        }
+        char tens = expiryMonth.charAt(0);
+        char units = expiryMonth.charAt(1);
+        if (tens == '0' && units >= '1' && units <= '9') {
+            return units - '0';
+        }
+        if (tens == '1' && units >= '0' && units <= '2') {
+            return 10 + units - '0';
+        }
+        return -1;
+    }
+
+    /** Returns the year of a value matching {@code ^20\d{2}$}, or -1. */
+    static int parseYear(String expiryYear) {
+        if (expiryYear == null || expiryYear.length() != 4 || expiryYear.charAt(0) != '2' || expiryYear.charAt(1) != '0') {
+            return -1;
+        }
+        char tens = expiryYear.charAt(2);
+        char units = expiryYear.charAt(3);
+        if (tens < '0' || tens > '9' || units < '0' || units > '9') {
+            return -1;
+        }
+        return 2000 + (tens - '0') * 10 + units - '0';
+    }
+
+    /** Matches {@code @NotBlank}: null, or only characters that {@link String#trim()} removes. */
+    static boolean isBlank(String value) {
+        if (value == null) {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isExpired(int year, int month) {
+        // A card is valid until the end of its expiry month
+        YearMonth now = YearMonth.now(clock);
+        return year < now.getYear() || year == now.getYear() && month < now.getMonthValue();
+    }
+
+    private static Map<String, String> addError(Map<String, String> errors, String field, String message) {
+        if (message == null) {
+            return errors;
+        }
+        if (errors == null) {
+            errors = new LinkedHashMap<>();
+        }
+        errors.put(field, message);
+        return errors;
+    }
+}
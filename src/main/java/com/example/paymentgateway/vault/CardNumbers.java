@@ -0,0 +1,27 @@
+package com.example.paymentgateway.vault;
+
+/**
+ * Helpers deriving the displayable parts of a card number from its digits without intermediate strings.
+ */
+public final class CardNumbers {
+
+    private static final char[] MASK_PREFIX = "XXXX-XXXX-XXXX-".toCharArray();
+
+    private CardNumbers() {
+    }
+
+    public static String mask(char[] cardNumber) {
+        char[] masked = new char[MASK_PREFIX.length + 4];
+        System.arraycopy(MASK_PREFIX, 0, masked, 0, MASK_PREFIX.length);
+        System.arraycopy(cardNumber, cardNumber.length - 4, masked, MASK_PREFIX.length, 4);
+        return new String(masked);
+    }
+
+    public static String bin(char[] cardNumber) {
+        return new String(cardNumber, 0, 6);
+    }
+
+    public static String last4(char[] cardNumber) {
+        return new String(cardNumber, cardNumber.length - 4, 4);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.paymentgateway.vault;
+
+/**
+ * Reference to a card stored in the vault, with the parts of the card number that may be kept in clear.
+ *
+ * @param token            the vault token
+ * @param bin              the first six digits of the card number
+ * @param last4            the last four digits of the card number
+ * @param maskedCardNumber the card number masked for display
+ */
+public record CardToken(String token, String bin, String last4, String maskedCardNumber) {
+}
@@ -0,0 +1,22 @@
+package com.example.paymentgateway.vault;
+
+public interface CardVault {
+
+    /**
+     * Store a card number in the vault, encrypted, and return its token. The same card number always yields the
+     * same token and is stored only once. The caller keeps ownership of the buffer and should zero it once done.
+     *
+     * @param cardNumber the card number digits
+     * @return the token with the BIN, last four digits and masked card number
+     */
+    CardToken tokenize(char[] cardNumber);
+
+    /**
+     * Decrypt the card number stored for a token. The caller should zero the returned buffer once done.
+     *
+     * @param token the token
+     * @return the card number digits
+     * @throws jakarta.persistence.EntityNotFoundException if the vault holds no card for the token
+     */
+    char[] detokenize(String token);
+}
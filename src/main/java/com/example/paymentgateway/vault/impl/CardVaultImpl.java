@@ -0,0 +1,190 @@
+package com.example.paymentgateway.vault.impl;
+
+import com.example.paymentgateway.cache.ExpiringCache;
+import com.example.paymentgateway.persistence.VaultEntry;
+import com.example.paymentgateway.persistence.VaultEntryRepository;
+import com.example.paymentgateway.vault.CardNumbers;
+import com.example.paymentgateway.vault.CardToken;
+import com.example.paymentgateway.vault.CardVault;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Card vault storing each card number once, encrypted with AES-256-GCM. The token is a keyed HMAC-SHA256 of the
+ * card number, so tokenizing a known card needs no database access, and the token is bound to the ciphertext as
+ * associated data. Card numbers are only handled as digit buffers that are zeroed after use. Cipher and MAC
+ * instances are pooled rather than kept per thread, as payments may run on short-lived virtual threads.
+ */
+@Component
+@Slf4j
+public class CardVaultImpl implements CardVault {
+
+    private static final String TOKEN_PREFIX = "tok_";
+    private static final int TOKEN_BYTES = 18;
+    private static final int NONCE_BYTES = 12;
+    private static final int TAG_BITS = 128;
+
+    private final VaultEntryRepository vaultEntryRepository;
+    private final SecretKey encryptionKey;
+    private final SecretKey tokenKey;
+    private final ExpiringCache<String, Boolean> storedTokens;
+    private final ConcurrentLinkedQueue<Cipher> ciphers = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Mac> macs = new ConcurrentLinkedQueue<>();
+    private final SecureRandom random = new SecureRandom();
+
+    public CardVaultImpl(VaultEntryRepository vaultEntryRepository, String encryptionKey, String tokenKey, int storedTokensMaxSize) {
+        this(vaultEntryRepository, encryptionKey, tokenKey, storedTokensMaxSize, false);
+    }
+
+    @Autowired
+    public CardVaultImpl(VaultEntryRepository vaultEntryRepository,
+                         @Value("${payment.vault.encryption-key:}") String encryptionKey,
+                         @Value("${payment.vault.token-key:}") String tokenKey,
+                         @Value("${payment.vault.stored-tokens.max-size:100000}") int storedTokensMaxSize,
+                         @Value("${payment.cluster.multi-node:false}") boolean multiNode) {
+        this.vaultEntryRepository = vaultEntryRepository;
+        this.encryptionKey = key(encryptionKey, "AES", "payment.vault.encryption-key", multiNode);
+        this.tokenKey = key(tokenKey, "HmacSHA256", "payment.vault.token-key", multiNode);
+        this.storedTokens = new ExpiringCache<>(storedTokensMaxSize, Duration.ofHours(24));
+    }
+
+    private SecretKey key(String base64Key, String algorithm, String property, boolean multiNode) {
+        byte[] keyBytes;
+        if (base64Key == null || base64Key.isBlank()) {
+            if (multiNode) {
+                // Each node would draw its own key, and could neither read the cards nor match the tokens of the others
+                throw new IllegalArgumentException(property + " is required with payment.cluster.multi-node");
+            }
+            // Fine for local runs against the in-memory database; stored cards become unreadable after a restart
+            log.warn("{} is not set, using a random key for this run", property);
+            keyBytes = new byte[32];
+            random.nextBytes(keyBytes);
+        } else {
+            keyBytes = Base64.getDecoder().decode(base64Key);
+        }
+        try {
+            return new SecretKeySpec(keyBytes, algorithm);
+        } finally {
+            Arrays.fill(keyBytes, (byte) 0);
+        }
+    }
+
+    @Override
+    public CardToken tokenize(char[] cardNumber) {
+        byte[] digits = new byte[cardNumber.length];
+        try {
+            for (int i = 0; i < cardNumber.length; i++) {
+                digits[i] = (byte) cardNumber[i];
+            }
+            String token = token(digits);
+            if (storedTokens.get(token) == null) {
+                store(token, digits);
+                storedTokens.put(token, Boolean.TRUE);
+            }
+            return new CardToken(token, CardNumbers.bin(cardNumber), CardNumbers.last4(cardNumber), CardNumbers.mask(cardNumber));
+        } finally {
+            Arrays.fill(digits, (byte) 0);
+        }
+    }
+
+    @Override
+    public char[] detokenize(String token) {
+        VaultEntry entry = vaultEntryRepository.findById(token)
+                .orElseThrow(() -> new EntityNotFoundException("No card stored for token " + token + "."));
+        byte[] encrypted = entry.getEncryptedCardNumber();
+        Cipher cipher = cipher();
+        byte[] digits = null;
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, encryptionKey, new GCMParameterSpec(TAG_BITS, encrypted, 0, NONCE_BYTES));
+            cipher.updateAAD(token.getBytes(StandardCharsets.US_ASCII));
+            digits = cipher.doFinal(encrypted, NONCE_BYTES, encrypted.length - NONCE_BYTES);
+            char[] cardNumber = new char[digits.length];
+            for (int i = 0; i < digits.length; i++) {
+                cardNumber[i] = (char) digits[i];
+            }
+            return cardNumber;
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Card vault entry " + token + " cannot be decrypted", ex);
+        } finally {
+            if (digits != null) {
+                Arrays.fill(digits, (byte) 0);
+            }
+            ciphers.offer(cipher);
+        }
+    }
+
+    private void store(String token, byte[] digits) {
+        byte[] encrypted = encrypt(token, digits);
+        try {
+            vaultEntryRepository.save(new VaultEntry(token, encrypted));
+        } catch (DataIntegrityViolationException ex) {
+            // Stored earlier, or concurrently by another payment with the same card
+            log.debug("Card for token {} is already in the vault", token);
+        }
+    }
+
+    String token(byte[] digits) {
+        Mac mac = macs.poll();
+        try {
+            if (mac == null) {
+                mac = Mac.getInstance("HmacSHA256");
+                mac.init(tokenKey);
+            }
+            byte[] hash = mac.doFinal(digits);
+            return TOKEN_PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, TOKEN_BYTES));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("HmacSHA256 is not available", ex);
+        } finally {
+            if (mac != null) {
+                macs.offer(mac);
+            }
+        }
+    }
+
+    byte[] encrypt(String token, byte[] digits) {
+        byte[] nonce = new byte[NONCE_BYTES];
+        random.nextBytes(nonce);
+        byte[] encrypted = new byte[NONCE_BYTES + digits.length + TAG_BITS / 8];
+        System.arraycopy(nonce, 0, encrypted, 0, NONCE_BYTES);
+        Cipher cipher = cipher();
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, encryptionKey, new GCMParameterSpec(TAG_BITS, nonce));
+            cipher.updateAAD(token.getBytes(StandardCharsets.US_ASCII));
+            cipher.doFinal(digits, 0, digits.length, encrypted, NONCE_BYTES);
+            return encrypted;
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Card number cannot be encrypted", ex);
+        } finally {
+            ciphers.offer(cipher);
+        }
+    }
+
+    private Cipher cipher() {
+        Cipher cipher = ciphers.poll();
+        if (cipher != null) {
+            return cipher;
+        }
+        try {
+            return Cipher.getInstance("AES/GCM/NoPadding");
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("AES/GCM is not available", ex);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.paymentgateway;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Starts several gateway nodes, each its own application context, sharing one file-based H2 database as they would
+ * share a database server behind a load balancer. The nodes run with {@code payment.cluster.multi-node}, their own
+ * node id, idempotency leases and the same vault keys.
+ */
+public final class GatewayNodes {
+
+    private static final String ENCRYPTION_KEY = "HUKYh1Brd5KNeERPRoItMme2OT6DAK6Xoi6PD+yig0Q=";
+    private static final String TOKEN_KEY = "6URr3ld0eKBx0H9kJVHrG54WMFJpa+pUs5uKlM28wZY=";
+
+    private GatewayNodes() {
+    }
+
+    /**
+     * Start the nodes one at a time, so that only the first creates the schema.
+     *
+     * @param directory     directory holding the database
+     * @param count         number of nodes
+     * @param configuration test configuration added to every node
+     * @param properties    further properties of each node, by node id
+     * @return the nodes, by node id
+     */
+    public static List<ConfigurableApplicationContext> start(Path directory, int count, Class<?> configuration,
+                                                             IntFunction<List<String>> properties) {
+        String url = "jdbc:h2:file:" + directory.resolve("gateway").toAbsolutePath();
+        List<ConfigurableApplicationContext> nodes = new ArrayList<>(count);
+        for (int node = 0; node < count; node++) {
+            List<String> nodeProperties = new ArrayList<>(List.of(
+                    "server.port=0",
+                    "spring.datasource.url=" + url,
+                    "spring.jpa.hibernate.ddl-auto=update",
+                    "payment.cluster.multi-node=true",
+                    "payment.sharding.node-id=" + node,
+                    "payment.idempotency.lease.enabled=true",
+                    "payment.vault.encryption-key=" + ENCRYPTION_KEY,
+                    "payment.vault.token-key=" + TOKEN_KEY));
+            nodeProperties.addAll(properties.apply(node));
+            nodes.add(new SpringApplicationBuilder(PaymentGatewayApplication.class, configuration)
+                    .properties(nodeProperties.toArray(String[]::new))
+                    .run());
+        }
+        return nodes;
+    }
+
+    public static void stop(List<ConfigurableApplicationContext> nodes) {
+        if (nodes != null) {
+            nodes.forEach(ConfigurableApplicationContext::close);
+        }
+    }
+}
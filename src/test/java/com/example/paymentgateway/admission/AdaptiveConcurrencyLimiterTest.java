@@ -0,0 +1,89 @@
+package com.example.paymentgateway.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(2);
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    public void testTryAcquire_RejectsBeyondTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, Duration.ofSeconds(1), 0.5, clock::get);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        limiter.onSuccess(FAST);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testOnSuccess_GrowsAReachedLimitAdditively() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 10, Duration.ofSeconds(1), 0.5, clock::get);
+
+        for (int round = 0; round < 9; round++) {
+            int limit = limiter.getLimit();
+            for (int i = 0; i < limit; i++) {
+                assertTrue(limiter.tryAcquire());
+            }
+            for (int i = 0; i < limit; i++) {
+                limiter.onSuccess(FAST);
+            }
+        }
+        // About half a request per round, as only the releases while the limit is half used count
+        assertEquals(8, limiter.getLimit());
+
+        for (int round = 0; round < 10; round++) {
+            int limit = limiter.getLimit();
+            for (int i = 0; i < limit; i++) {
+                assertTrue(limiter.tryAcquire());
+            }
+            for (int i = 0; i < limit; i++) {
+                limiter.onSuccess(FAST);
+            }
+        }
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    public void testOnSuccess_IdleTrafficDoesNotGrowTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 10, Duration.ofSeconds(1), 0.5, clock::get);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.onSuccess(FAST);
+        }
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    public void testOnSuccess_SlowRequestsCutTheLimitOncePerThreshold() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 2, 10, Duration.ofSeconds(1), 0.5, clock::get);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+
+        limiter.onSuccess(SLOW);
+        limiter.onSuccess(SLOW);
+        assertEquals(4, limiter.getLimit());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        limiter.onOverload();
+        assertEquals(2, limiter.getLimit());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        limiter.onOverload();
+        assertEquals(2, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.paymentgateway.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GcraRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong(1_000 * SECOND);
+
+    @Test
+    public void testTryAcquire_AdmitsTheBurstThenTheRate() {
+        GcraRateLimiter limiter = new GcraRateLimiter(10, 5, 16, clock::get);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.tryAcquire("merchant-1"));
+        }
+        long wait = limiter.tryAcquire("merchant-1");
+        assertEquals(SECOND / 10, wait);
+
+        clock.addAndGet(wait);
+        assertEquals(0, limiter.tryAcquire("merchant-1"));
+        assertTrue(limiter.tryAcquire("merchant-1") > 0);
+
+        // A full second refills ten requests' worth, capped at the burst
+        clock.addAndGet(SECOND);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.tryAcquire("merchant-1"));
+        }
+        assertTrue(limiter.tryAcquire("merchant-1") > 0);
+    }
+
+    @Test
+    public void testTryAcquire_KeysAreLimitedIndependently() {
+        GcraRateLimiter limiter = new GcraRateLimiter(1, 1, 16, clock::get);
+
+        assertEquals(0, limiter.tryAcquire("merchant-1"));
+        assertTrue(limiter.tryAcquire("merchant-1") > 0);
+        assertEquals(0, limiter.tryAcquire("merchant-2"));
+    }
+
+    @Test
+    public void testTryAcquire_IdleKeysGiveTheirSlotsToNewKeys() {
+        GcraRateLimiter limiter = new GcraRateLimiter(1, 1, 64, clock::get);
+        for (int i = 0; i < 64; i++) {
+            assertEquals(0, limiter.tryAcquire("old-" + i));
+        }
+        clock.addAndGet(2 * SECOND);
+
+        // Far more keys than slots over time, each still limited while it is active
+        for (int i = 0; i < 100_000; i++) {
+            assertEquals(0, limiter.tryAcquire("new-" + i));
+            assertTrue(limiter.tryAcquire("new-" + i) > 0, "new-" + i);
+            clock.addAndGet(SECOND / 20);
+        }
+    }
+
+    @Test
+    public void testTryAcquire_SaturatedTableRefusesNewKeys() {
+        GcraRateLimiter limiter = new GcraRateLimiter(1, 1, 1, clock::get);
+        int active = 0;
+        while (limiter.tryAcquire("active-" + active) == 0) {
+            active++;
+        }
+
+        assertEquals(GcraRateLimiter.SATURATED, limiter.tryAcquire("merchant-1"));
+        // Admitted again once the active keys are idle
+        clock.addAndGet(2 * SECOND);
+        assertEquals(0, limiter.tryAcquire("merchant-1"));
+    }
+
+    @Test
+    public void testCharge_PushesBackTheNextAdmission() {
+        GcraRateLimiter limiter = new GcraRateLimiter(10, 5, 16, clock::get);
+
+        assertEquals(0, limiter.tryAcquire("merchant-1"));
+        limiter.charge("merchant-1", 99);
+
+        // A hundred requests take ten seconds at ten per second, of which the burst tolerance covers four intervals
+        assertEquals(SECOND * 96 / 10, limiter.tryAcquire("merchant-1"));
+        clock.addAndGet(SECOND * 96 / 10);
+        assertEquals(0, limiter.tryAcquire("merchant-1"));
+    }
+
+    @Test
+    public void testTryAcquire_ConcurrentCallersShareTheBurst() throws Exception {
+        GcraRateLimiter limiter = new GcraRateLimiter(1, 1_000, 16, clock::get);
+        AtomicInteger admitted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    if (limiter.tryAcquire("merchant-1") == 0) {
+                        admitted.incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1_000, admitted.get());
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.paymentgateway.aggregate;
+
+import com.example.paymentgateway.dto.PaymentAggregateResponse;
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
+import com.example.paymentgateway.persistence.PaymentStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PaymentAggregatorTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    private final PaymentAggregator aggregator = new PaymentAggregator(2, now::get);
+
+    @Test
+    public void testAggregates_ByWindowCurrencyAndStatus() {
+        aggregator.record(money("USD", 1000), PaymentStatus.AUTHORIZED);
+        aggregator.record(money("USD", 2000), PaymentStatus.AUTHORIZED);
+        aggregator.record(money("USD", 500), PaymentStatus.FAILED);
+        aggregator.record(money("EUR", 700), PaymentStatus.FAILED);
+
+        now.addAndGet(120_000);
+        aggregator.record(money("USD", 100), PaymentStatus.FAILED);
+
+        List<PaymentAggregateResponse> lastMinute = aggregator.aggregates(AggregateWindow.ONE_MINUTE);
+        assertEquals(1, lastMinute.size());
+        assertEquals("USD", lastMinute.get(0).getCurrency());
+        assertEquals(1, lastMinute.get(0).getFailureCount());
+        assertEquals(0.0, lastMinute.get(0).getApprovalRate());
+
+        List<PaymentAggregateResponse> lastFiveMinutes = aggregator.aggregates(AggregateWindow.FIVE_MINUTES);
+        assertEquals(2, lastFiveMinutes.size());
+        PaymentAggregateResponse eur = lastFiveMinutes.get(0);
+        assertEquals("EUR", eur.getCurrency());
+        assertEquals(1, eur.getFailureCount());
+        assertEquals(money("EUR", 700), eur.getFailureAmount());
+        assertEquals(0.0, eur.getApprovalRate());
+        PaymentAggregateResponse usd = lastFiveMinutes.get(1);
+        assertEquals(4, usd.getCount());
+        assertEquals(money("USD", 3600), usd.getAmount());
+        assertEquals(2, usd.getSuccessCount());
+        assertEquals(money("USD", 3000), usd.getSuccessAmount());
+        assertEquals(0.5, usd.getApprovalRate());
+
+        // Past five minutes only the hourly buckets still hold the early payments
+        now.addAndGet(600_000);
+        assertTrue(aggregator.aggregates(AggregateWindow.FIVE_MINUTES).isEmpty());
+        assertEquals(4, aggregator.aggregates(AggregateWindow.ONE_HOUR).get(1).getCount());
+
+        now.addAndGet(3_600_000);
+        assertTrue(aggregator.aggregates(AggregateWindow.ONE_HOUR).isEmpty());
+    }
+
+    @Test
+    public void testRecord_FoldsCurrenciesBeyondLimit() {
+        aggregator.record(money("USD", 100), PaymentStatus.AUTHORIZED);
+        aggregator.record(money("EUR", 100), PaymentStatus.AUTHORIZED);
+        aggregator.record(money("GBP", 100), PaymentStatus.AUTHORIZED);
+        aggregator.record(money("JPY", 100), PaymentStatus.AUTHORIZED);
+
+        List<PaymentAggregateResponse> aggregates = aggregator.aggregates(AggregateWindow.ONE_MINUTE);
+        assertEquals(List.of("EUR", PaymentAggregator.OTHER_CURRENCY, "USD"),
+                aggregates.stream().map(PaymentAggregateResponse::getCurrency).toList());
+        assertEquals(2, aggregates.get(1).getCount());
+        // GBP and JPY amounts cannot be added up
+        assertNull(aggregates.get(1).getAmount());
+        assertEquals(money("USD", 100), aggregates.get(2).getAmount());
+    }
+
+    @Test
+    public void testRecord_ConcurrentWritersWithinOneBucket() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    aggregator.record(money("USD", 100), PaymentStatus.AUTHORIZED);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(80_000, aggregator.aggregates(AggregateWindow.ONE_MINUTE).get(0).getSuccessCount());
+    }
+
+    private static Money money(String currency, long minorUnits) {
+        return Money.ofMinor(minorUnits, CurrencyUnit.of(currency));
+    }
+}
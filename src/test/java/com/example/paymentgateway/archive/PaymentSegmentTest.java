@@ -0,0 +1,113 @@
+package com.example.paymentgateway.archive;
+
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
+import com.example.paymentgateway.persistence.Payment;
+import com.example.paymentgateway.persistence.PaymentStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PaymentSegmentTest {
+
+    private static final Instant CREATED_AT = Instant.parse("2024-03-01T10:15:30.123456Z");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testFind_ReturnsEveryPaymentAcrossBlocks() throws Exception {
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            payments.add(payment(1_000L + i * 7, i));
+        }
+        Path path = tempDir.resolve("payments.seg");
+        PaymentSegmentWriter.write(path, 3, payments, 64);
+
+        try (PaymentSegment segment = PaymentSegment.open(path)) {
+            assertEquals(3, segment.getShard());
+            assertEquals(1_000, segment.getRowCount());
+            assertEquals(1_000L, segment.getMinId());
+            assertEquals(1_000L + 999 * 7, segment.getMaxId());
+            assertEquals(CREATED_AT.minusSeconds(999), segment.getMinCreatedAt());
+            assertEquals(CREATED_AT, segment.getMaxCreatedAt());
+
+            for (Payment expected : payments) {
+                assertEquals(expected, segment.find(expected.getId()).orElseThrow());
+            }
+            // Identifiers between, before and after the stored ones
+            assertTrue(segment.find(1_001L).isEmpty());
+            assertTrue(segment.find(999L).isEmpty());
+            assertTrue(segment.find(1_000L + 999 * 7 + 1).isEmpty());
+        }
+    }
+
+    @Test
+    public void testFind_KeepsNullsAndMultiByteStrings() throws Exception {
+        Payment sparse = Payment.builder().id(5L).build();
+        Payment full = payment(6L, 0);
+        full.setMerchantId("h\u00e4ndler-\u00fcn\u00efcode-\u20ac");
+        Path path = tempDir.resolve("payments.seg");
+        PaymentSegmentWriter.write(path, 0, List.of(sparse, full), 1_024);
+
+        try (PaymentSegment segment = PaymentSegment.open(path)) {
+            assertEquals(sparse, segment.find(5L).orElseThrow());
+            assertEquals(full, segment.find(6L).orElseThrow());
+        }
+    }
+
+    @Test
+    public void testWrite_CompressesBelowTheRawSize() throws Exception {
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            payments.add(payment((1L << 22) + i, i));
+        }
+        Path path = tempDir.resolve("payments.seg");
+        PaymentSegmentWriter.write(path, 0, payments, 1_024);
+
+        // Card tokens are random-looking, so most of what remains is theirs
+        assertTrue(Files.size(path) < 10_000 * 64, "Segment size: " + Files.size(path));
+        assertFalse(Files.exists(tempDir.resolve("payments.seg.tmp")));
+    }
+
+    @Test
+    public void testWrite_RejectsUnorderedPayments() {
+        Path path = tempDir.resolve("payments.seg");
+        assertThrows(IllegalArgumentException.class,
+                () -> PaymentSegmentWriter.write(path, 0, List.of(payment(2L, 0), payment(1L, 1)), 16));
+        assertFalse(Files.exists(path));
+    }
+
+    @Test
+    public void testOpen_RejectsOtherFiles() throws Exception {
+        Path path = tempDir.resolve("other.seg");
+        Files.write(path, new byte[128]);
+        assertThrows(IOException.class, () -> PaymentSegment.open(path));
+    }
+
+    private static Payment payment(long id, int i) {
+        return Payment.builder()
+                .id(id)
+                .version((long) i % 3)
+                .cardToken("tok_" + Long.toHexString(id * 0x9e37_79b9_7f4a_7c15L))
+                .cardBin("411111")
+                .cardLast4(String.format("%04d", i % 10_000))
+                .maskedCardNumber(String.format("411111******%04d", i % 10_000))
+                .expiryMonth("12")
+                .expiryYear("2030")
+                .amount(Money.ofMinor(i % 2 == 0 ? 10_050 + i : -i, i % 5 == 0 ? CurrencyUnit.EUR : CurrencyUnit.USD))
+                .status(PaymentStatus.values()[i % PaymentStatus.values().length])
+                .idempotencyKey("key-" + id)
+                .merchantId("merchant-" + i % 10)
+                .createdAt(CREATED_AT.minusSeconds(999 - i % 1_000))
+                .build();
+    }
+}
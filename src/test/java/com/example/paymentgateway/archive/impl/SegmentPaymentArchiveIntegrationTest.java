@@ -0,0 +1,150 @@
+package com.example.paymentgateway.archive.impl;
+
+import com.example.paymentgateway.PaymentGatewayApplication;
+import com.example.paymentgateway.archive.PaymentArchive;
+import com.example.paymentgateway.cache.PaymentDetailsCache;
+import com.example.paymentgateway.dto.PaymentDetailsResponse;
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
+import com.example.paymentgateway.persistence.Payment;
+import com.example.paymentgateway.persistence.PaymentRepository;
+import com.example.paymentgateway.persistence.PaymentStatus;
+import com.example.paymentgateway.persistence.ShardRouter;
+import com.example.paymentgateway.service.PaymentProcessingService;
+import com.example.paymentgateway.service.PaymentStateMachine;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = PaymentGatewayApplication.class, properties = {
+        "payment.archive.enabled=true",
+        "payment.archive.interval=0s",
+        "payment.archive.segment-rows=100",
+        "payment.archive.block-rows=16"
+})
+public class SegmentPaymentArchiveIntegrationTest {
+
+    @TempDir
+    static Path archiveDir;
+
+    @DynamicPropertySource
+    static void archiveProperties(DynamicPropertyRegistry registry) {
+        registry.add("payment.archive.directory", () -> archiveDir.toAbsolutePath().toString());
+    }
+
+    @Autowired
+    private PaymentArchive paymentArchive;
+
+    @Autowired
+    private PaymentProcessingService paymentProcessingService;
+
+    @Autowired
+    private PaymentStateMachine paymentStateMachine;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentDetailsCache paymentDetailsCache;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    public void cleanup() {
+        paymentRepository.deleteAll();
+        paymentDetailsCache.invalidateAll();
+    }
+
+    @Test
+    public void testArchiveBefore_MovesOldPaymentsOutOfTheTableAndKeepsThemRetrievable() {
+        List<Payment> payments = store(250);
+
+        assertEquals(250, paymentArchive.archiveBefore(Instant.now().plusSeconds(1)));
+        assertEquals(0, paymentRepository.count());
+
+        for (Payment payment : payments) {
+            PaymentDetailsResponse details = paymentProcessingService.retrievePaymentDetails(payment.getId().toString());
+            assertEquals(payment.getId().toString(), details.getPaymentId());
+            assertEquals(payment.getStatus().name(), details.getStatus());
+            assertEquals(payment.getAmount(), details.getAmount());
+            assertEquals(payment.getMaskedCardNumber(), details.getMaskedCardNumber());
+        }
+        // Archived payments are read only
+        long archivedId = payments.get(0).getId();
+        assertThrows(EntityNotFoundException.class, () -> paymentStateMachine.transition(archivedId, PaymentStatus.CAPTURED));
+    }
+
+    @Test
+    public void testArchiveBefore_KeepsPaymentsNewerThanTheCutoff() {
+        List<Payment> payments = store(10);
+
+        assertEquals(0, paymentArchive.archiveBefore(Instant.now().minus(Duration.ofHours(1))));
+        assertEquals(10, paymentRepository.count());
+        assertTrue(paymentArchive.find(payments.get(0).getId()).isEmpty());
+    }
+
+    @Test
+    public void testStart_ReopensTheSegmentsOnDisk() throws Exception {
+        List<Payment> payments = store(120);
+        paymentArchive.archiveBefore(Instant.now().plusSeconds(1));
+
+        SegmentPaymentArchive reopened = new SegmentPaymentArchive(paymentRepository, shardRouter, transactionTemplate,
+                archiveDir, Duration.ofDays(90), Duration.ZERO, 100, 16, false);
+        reopened.start();
+        try {
+            for (Payment payment : payments) {
+                Payment archived = reopened.find(payment.getId()).orElseThrow();
+                assertEquals(payment.getIdempotencyKey(), archived.getIdempotencyKey());
+                assertEquals(payment.getStatus(), archived.getStatus());
+            }
+        } finally {
+            reopened.stop();
+        }
+    }
+
+    @Test
+    public void testConstructor_RefusesNodesSharingTheStore() {
+        assertThrows(IllegalArgumentException.class, () -> new SegmentPaymentArchive(paymentRepository, shardRouter,
+                transactionTemplate, archiveDir, Duration.ofDays(90), Duration.ZERO, 100, 16, true));
+    }
+
+    @Test
+    public void testRetrievePaymentDetails_UnknownIdIsNotFound() {
+        store(5);
+        paymentArchive.archiveBefore(Instant.now().plusSeconds(1));
+
+        assertThrows(EntityNotFoundException.class, () -> paymentProcessingService.retrievePaymentDetails("12345"));
+    }
+
+    private List<Payment> store(int count) {
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            payments.add(paymentRepository.save(Payment.builder()
+                    .status(i % 3 == 0 ? PaymentStatus.FAILED : PaymentStatus.CAPTURED)
+                    .amount(Money.ofMinor(10_000 + i, CurrencyUnit.USD))
+                    .maskedCardNumber("XXXX-XXXX-XXXX-1112").expiryMonth("12").expiryYear("2030")
+                    .idempotencyKey(UUID.randomUUID().toString()).merchantId("merchant-1").createdAt(Instant.now())
+                    .build()));
+        }
+        return payments;
+    }
+}
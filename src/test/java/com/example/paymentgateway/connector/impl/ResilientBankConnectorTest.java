@@ -0,0 +1,111 @@
+package com.example.paymentgateway.connector.impl;
+
+import com.example.paymentgateway.connector.BankOutcome;
+import com.example.paymentgateway.connector.CircuitBreaker;
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.simulator.BankSimulator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResilientBankConnectorTest {
+
+    private final PaymentRequest request = new PaymentRequest("4111111111111112", "12", "2025", "123", new BigDecimal("100.50"), "USD", UUID.randomUUID().toString());
+
+    @Test
+    public void testApprovedAndDeclined() {
+        assertEquals(BankOutcome.APPROVED, connector(paymentRequest -> true, false).authorize(request));
+        assertEquals(BankOutcome.DECLINED, connector(paymentRequest -> false, false).authorize(request));
+    }
+
+    @Test
+    public void testSlowBankTimesOut() {
+        var connector = connector(paymentRequest -> {
+            sleep(2_000);
+            return true;
+        }, false);
+
+        long startedAt = System.nanoTime();
+        assertEquals(BankOutcome.TIMEOUT, connector.authorize(request));
+        assertTrue(Duration.ofNanos(System.nanoTime() - startedAt).toMillis() < 1_000);
+    }
+
+    @Test
+    public void testCircuitOpensAndFailsFast() {
+        var calls = new AtomicInteger();
+        var connector = connector(paymentRequest -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("acquirer down");
+        }, false);
+
+        // A call that failed after it was sent may still have reached the bank
+        for (int i = 0; i < 10; i++) {
+            assertEquals(BankOutcome.TIMEOUT, connector.authorize(request));
+        }
+
+        // Once the circuit is open nothing is sent
+        assertEquals(CircuitBreaker.State.OPEN, connector.circuitBreakerState());
+        assertEquals(10, calls.get());
+        assertEquals(BankOutcome.UNAVAILABLE, connector.authorize(request));
+        assertEquals(10, calls.get());
+    }
+
+    @Test
+    public void testFullBulkheadIsUnavailableWithoutCallingTheBank() throws Exception {
+        var calls = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        var connector = new ResilientBankConnector(paymentRequest -> {
+            calls.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        }, new SimpleMeterRegistry(), Duration.ofSeconds(5), 1, Duration.ZERO, 10, 0.5, Duration.ofMinutes(1), false, Duration.ofMillis(50));
+        var busy = CompletableFuture.supplyAsync(() -> connector.authorize(request));
+        while (calls.get() == 0) {
+            Thread.sleep(5);
+        }
+
+        assertEquals(BankOutcome.UNAVAILABLE, connector.authorize(request));
+        assertEquals(1, calls.get());
+        release.countDown();
+        assertEquals(BankOutcome.APPROVED, busy.join());
+    }
+
+    @Test
+    public void testHedgedCallCutsTailLatency() {
+        var calls = new AtomicInteger();
+        var connector = connector(paymentRequest -> {
+            if (calls.incrementAndGet() == 1) {
+                sleep(2_000);
+            }
+            return true;
+        }, true);
+
+        assertEquals(BankOutcome.APPROVED, connector.authorize(request));
+        assertEquals(2, calls.get());
+    }
+
+    private static ResilientBankConnector connector(BankSimulator bankSimulator, boolean hedgeEnabled) {
+        return new ResilientBankConnector(bankSimulator, new SimpleMeterRegistry(), Duration.ofMillis(300), 10, Duration.ZERO,
+                10, 0.5, Duration.ofMinutes(1), hedgeEnabled, Duration.ofMillis(50));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
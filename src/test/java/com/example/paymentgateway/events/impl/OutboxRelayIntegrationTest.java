@@ -0,0 +1,93 @@
+package com.example.paymentgateway.events.impl;
+
+import com.example.paymentgateway.PaymentGatewayApplication;
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.events.PaymentEvent;
+import com.example.paymentgateway.events.PaymentEventSubscriber;
+import com.example.paymentgateway.events.PaymentEventType;
+import com.example.paymentgateway.persistence.OutboxEventRepository;
+import com.example.paymentgateway.persistence.PaymentRepository;
+import com.example.paymentgateway.service.PaymentProcessingService;
+import com.example.paymentgateway.simulator.BankSimulator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(classes = {PaymentGatewayApplication.class, OutboxRelayIntegrationTest.RecordingSubscriberConfiguration.class})
+public class OutboxRelayIntegrationTest {
+
+    @Autowired
+    private PaymentProcessingService paymentProcessingService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private RecordingSubscriber recordingSubscriber;
+
+    @MockBean
+    private BankSimulator bankSimulator;
+
+    @AfterEach
+    public void cleanup() {
+        paymentRepository.deleteAll();
+    }
+
+    @Test
+    public void testProcessPayment_PublishesCreationEventThenClearsOutbox() throws Exception {
+        when(bankSimulator.processTransaction(any(PaymentRequest.class))).thenReturn(true);
+        PaymentRequest request = new PaymentRequest("4242424242424242", "12", "2030", "123", new BigDecimal("42.10"), "EUR",
+                UUID.randomUUID().toString(), "merchant-events");
+
+        long paymentId = Long.parseLong(paymentProcessingService.processPayment(request).getPaymentId());
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!recordingSubscriber.byPaymentId.containsKey(paymentId) || outboxEventRepository.count() > 0) {
+            assertTrue(System.nanoTime() < deadline, "Event not relayed in time");
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        PaymentEvent event = recordingSubscriber.byPaymentId.get(paymentId);
+        assertEquals(PaymentEventType.PAYMENT_CREATED, event.type());
+        assertEquals("merchant-events", event.merchantId());
+        assertEquals("AUTHORIZED", event.status());
+        assertEquals("42.10", event.amount().toPlainString());
+        assertEquals("EUR", event.currency());
+    }
+
+    @TestConfiguration
+    static class RecordingSubscriberConfiguration {
+
+        @Bean
+        RecordingSubscriber recordingSubscriber() {
+            return new RecordingSubscriber();
+        }
+    }
+
+    static class RecordingSubscriber implements PaymentEventSubscriber {
+
+        private final Map<Long, PaymentEvent> byPaymentId = new ConcurrentHashMap<>();
+
+        @Override
+        public void onEvents(List<PaymentEvent> events) {
+            events.forEach(event -> byPaymentId.put(event.paymentId(), event));
+        }
+    }
+}
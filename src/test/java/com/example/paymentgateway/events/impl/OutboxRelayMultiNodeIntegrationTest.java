@@ -0,0 +1,85 @@
+package com.example.paymentgateway.events.impl;
+
+import com.example.paymentgateway.GatewayNodes;
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.events.PaymentEvent;
+import com.example.paymentgateway.events.PaymentEventSubscriber;
+import com.example.paymentgateway.persistence.OutboxEventRepository;
+import com.example.paymentgateway.service.PaymentProcessingService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two gateway nodes relaying the outbox of one file-based H2 database. Only the node holding the relay lease
+ * publishes, so each event reaches the subscribers once.
+ */
+public class OutboxRelayMultiNodeIntegrationTest {
+
+    private static final Map<Long, AtomicInteger> DELIVERIES = new ConcurrentHashMap<>();
+
+    @TempDir
+    static Path directory;
+
+    private static List<ConfigurableApplicationContext> nodes;
+
+    @BeforeAll
+    public static void startNodes() {
+        nodes = GatewayNodes.start(directory, 2, CountingSubscriberConfiguration.class, node -> List.of());
+    }
+
+    @AfterAll
+    public static void stopNodes() {
+        GatewayNodes.stop(nodes);
+    }
+
+    @Test
+    public void testEachEventIsRelayedByOneNode() throws Exception {
+        Set<Long> paymentIds = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            PaymentProcessingService service = nodes.get(i % 2).getBean(PaymentProcessingService.class);
+            paymentIds.add(Long.parseLong(service.processPayment(paymentRequest()).getPaymentId()));
+        }
+
+        OutboxEventRepository outboxEventRepository = nodes.get(0).getBean(OutboxEventRepository.class);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!DELIVERIES.keySet().containsAll(paymentIds) || outboxEventRepository.count() > 0) {
+            assertTrue(System.nanoTime() < deadline, "Events not relayed in time");
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        for (long paymentId : paymentIds) {
+            assertEquals(1, DELIVERIES.get(paymentId).get(), "Deliveries of payment " + paymentId);
+        }
+    }
+
+    private static PaymentRequest paymentRequest() {
+        return new PaymentRequest("4242424242424242", "12", "2030", "123", new BigDecimal("100.50"), "USD", UUID.randomUUID().toString());
+    }
+
+    @TestConfiguration
+    static class CountingSubscriberConfiguration {
+
+        @Bean
+        PaymentEventSubscriber countingSubscriber() {
+            return (List<PaymentEvent> events) -> events.forEach(event ->
+                    DELIVERIES.computeIfAbsent(event.paymentId(), paymentId -> new AtomicInteger()).incrementAndGet());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.paymentgateway.events.impl;
+
+import com.example.paymentgateway.events.PaymentEvent;
+import com.example.paymentgateway.events.PaymentEventType;
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RingBufferPaymentEventBusTest {
+
+    @Test
+    public void testPublish_EverySubscriberGetsEveryEventInOrderAcrossWraparound() throws Exception {
+        List<Long> first = Collections.synchronizedList(new ArrayList<>());
+        List<Long> second = Collections.synchronizedList(new ArrayList<>());
+        RingBufferPaymentEventBus bus = new RingBufferPaymentEventBus(
+                List.of(events -> events.forEach(event -> first.add(event.eventId())),
+                        events -> events.forEach(event -> second.add(event.eventId()))),
+                8, 3, Duration.ofMillis(1), Duration.ofMillis(10));
+        bus.start();
+        try {
+            long sequence = -1;
+            for (int i = 0; i < 100; i += 10) {
+                List<PaymentEvent> events = new ArrayList<>();
+                for (int j = i; j < i + 10; j++) {
+                    events.add(event(j));
+                }
+                sequence = bus.publish(events);
+            }
+            assertEquals(99, sequence);
+            awaitHandled(bus, 99);
+
+            List<Long> expected = new ArrayList<>();
+            for (long i = 0; i < 100; i++) {
+                expected.add(i);
+            }
+            assertEquals(expected, first);
+            assertEquals(expected, second);
+        } finally {
+            bus.stop();
+        }
+    }
+
+    @Test
+    public void testPublish_FailedBatchIsRedeliveredBeforeItIsHandled() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        List<Long> received = Collections.synchronizedList(new ArrayList<>());
+        RingBufferPaymentEventBus bus = new RingBufferPaymentEventBus(
+                List.of(events -> {
+                    if (calls.incrementAndGet() == 1) {
+                        throw new IllegalStateException("downstream unavailable");
+                    }
+                    events.forEach(event -> received.add(event.eventId()));
+                }),
+                16, 16, Duration.ofMillis(50), Duration.ofMillis(50));
+        bus.start();
+        try {
+            bus.publish(List.of(event(1), event(2)));
+            TimeUnit.MILLISECONDS.sleep(20);
+            assertEquals(-1, bus.handledSequence());
+
+            awaitHandled(bus, 1);
+            assertEquals(List.of(1L, 2L), received);
+            assertEquals(2, calls.get());
+        } finally {
+            bus.stop();
+        }
+    }
+
+    @Test
+    public void testHandledSequence_WithoutSubscribersFollowsPublished() throws Exception {
+        RingBufferPaymentEventBus bus = new RingBufferPaymentEventBus(List.of(), 4, 4, Duration.ofMillis(1), Duration.ofMillis(1));
+        bus.start();
+        try {
+            assertEquals(9, bus.publish(List.of(event(0), event(1), event(2), event(3), event(4), event(5), event(6), event(7), event(8), event(9))));
+            assertEquals(9, bus.handledSequence());
+        } finally {
+            bus.stop();
+        }
+    }
+
+    private static void awaitHandled(RingBufferPaymentEventBus bus, long sequence) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bus.handledSequence() < sequence) {
+            assertTrue(System.nanoTime() < deadline, "Events not handled in time");
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+    }
+
+    private static PaymentEvent event(long id) {
+        return new PaymentEvent(id, PaymentEventType.PAYMENT_CREATED, id, "merchant-1", Money.ofMinor(100, CurrencyUnit.USD), "USD", "AUTHORIZED", Instant.EPOCH);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.paymentgateway.events.impl;
+
+import com.example.paymentgateway.events.PaymentEvent;
+import com.example.paymentgateway.events.PaymentEventType;
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WebhookPaymentEventSubscriberTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final List<byte[]> bodies = new CopyOnWriteArrayList<>();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private HttpServer server;
+    private WebhookPaymentEventSubscriber subscriber;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/events", exchange -> {
+            bodies.add(exchange.getRequestBody().readAllBytes());
+            exchange.sendResponseHeaders(failuresLeft.getAndDecrement() > 0 ? 503 : 204, -1);
+            exchange.close();
+        });
+        server.start();
+        subscriber = new WebhookPaymentEventSubscriber(HttpClient.newHttpClient(), objectMapper,
+                URI.create("http://localhost:" + server.getAddress().getPort() + "/events"), 2,
+                Duration.ofSeconds(2), Duration.ofMillis(10), Duration.ofMillis(40));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testOnEvents_PostsEventsInBatches() throws Exception {
+        subscriber.onEvents(List.of(event(1), event(2), event(3)));
+
+        assertEquals(2, bodies.size());
+        JsonNode first = objectMapper.readTree(bodies.get(0));
+        assertEquals(2, first.size());
+        assertEquals(1, first.get(0).get("eventId").asLong());
+        assertEquals("PAYMENT_CREATED", first.get(0).get("type").asText());
+        assertTrue(new String(bodies.get(0), StandardCharsets.UTF_8).contains("\"amount\":1.00,\"currency\":\"USD\","));
+        assertEquals(3, objectMapper.readTree(bodies.get(1)).get(0).get("eventId").asLong());
+    }
+
+    @Test
+    public void testOnEvents_RetriesWithBackoffUntilDelivered() throws Exception {
+        failuresLeft.set(3);
+
+        subscriber.onEvents(List.of(event(1)));
+
+        assertEquals(4, bodies.size());
+        assertArrayEquals(bodies.get(0), bodies.get(3));
+    }
+
+    private static PaymentEvent event(long id) {
+        return new PaymentEvent(id, PaymentEventType.PAYMENT_CREATED, 100 + id, "merchant-1", Money.ofMinor(100, CurrencyUnit.USD), "USD", "AUTHORIZED", Instant.EPOCH);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.paymentgateway.money;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoneyTest {
+
+    private static final CurrencyUnit JPY = CurrencyUnit.of("JPY");
+    private static final CurrencyUnit KWD = CurrencyUnit.of("KWD");
+
+    @Test
+    public void testOf_ConvertsToMinorUnitsOfTheCurrency() {
+        assertEquals(10050, Money.of(new BigDecimal("100.50"), CurrencyUnit.USD).getMinorUnits());
+        assertEquals(100, Money.of(new BigDecimal("100.00"), JPY).getMinorUnits());
+        assertEquals(1005, Money.of(new BigDecimal("1.005"), KWD).getMinorUnits());
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("100.5"), JPY));
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("1E+20"), CurrencyUnit.USD));
+    }
+
+    @Test
+    public void testToPlainString_UsesTheCurrencyDecimals() {
+        assertEquals("100.50", Money.ofMinor(10050, CurrencyUnit.USD).toPlainString());
+        assertEquals("0.05", Money.ofMinor(5, CurrencyUnit.USD).toPlainString());
+        assertEquals("-0.05", Money.ofMinor(-5, CurrencyUnit.USD).toPlainString());
+        assertEquals("100", Money.ofMinor(100, JPY).toPlainString());
+        assertEquals("0.001", Money.ofMinor(1, KWD).toPlainString());
+        assertEquals("-92233720368547758.08", Money.ofMinor(Long.MIN_VALUE, CurrencyUnit.USD).toPlainString());
+        assertEquals(new BigDecimal("100.50"), Money.ofMinor(10050, CurrencyUnit.USD).toBigDecimal());
+    }
+
+    @Test
+    public void testPlus_RequiresTheSameCurrency() {
+        assertEquals(Money.ofMinor(150, CurrencyUnit.USD), Money.ofMinor(100, CurrencyUnit.USD).plus(Money.ofMinor(50, CurrencyUnit.USD)));
+        assertThrows(IllegalArgumentException.class, () -> Money.ofMinor(100, CurrencyUnit.USD).plus(Money.ofMinor(50, CurrencyUnit.EUR)));
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MAX_VALUE, CurrencyUnit.USD).plus(Money.ofMinor(1, CurrencyUnit.USD)));
+    }
+
+    @Test
+    public void testSerialize_AsJsonNumber() throws Exception {
+        String json = new ObjectMapper().writeValueAsString(Map.of("amount", Money.ofMinor(10050, CurrencyUnit.USD)));
+        assertEquals("{\"amount\":100.50}", json);
+    }
+
+    @Test
+    public void testCurrencyUnit_LooksUpSupportedCodes() {
+        assertSame(CurrencyUnit.USD, CurrencyUnit.find("USD"));
+        assertEquals(0, JPY.getFractionDigits());
+        assertNull(CurrencyUnit.find("usd"));
+        assertNull(CurrencyUnit.find("XAU"));
+        assertNull(CurrencyUnit.find("US"));
+        assertThrows(IllegalArgumentException.class, () -> CurrencyUnit.of("ABC"));
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.paymentgateway.persistence.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedBloomFilterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testMightContain_NoFalseNegativesAndBoundedFalsePositives() throws Exception {
+        try (MappedBloomFilter filter = MappedBloomFilter.open(tempDir.resolve("keys.bloom"), 100_000, 0.01)) {
+            for (int i = 0; i < 100_000; i++) {
+                filter.add("key-" + i);
+            }
+            for (int i = 0; i < 100_000; i++) {
+                assertTrue(filter.mightContain("key-" + i));
+            }
+            int falsePositives = 0;
+            for (int i = 0; i < 100_000; i++) {
+                if (filter.mightContain("other-" + i)) {
+                    falsePositives++;
+                }
+            }
+            assertTrue(falsePositives < 2_000, "False positives: " + falsePositives);
+        }
+    }
+
+    @Test
+    public void testOpen_ReopenKeepsKeysAndWatermark() throws Exception {
+        Path path = tempDir.resolve("keys.bloom");
+        try (MappedBloomFilter filter = MappedBloomFilter.open(path, 1_000, 0.01)) {
+            assertTrue(filter.isCreated());
+            filter.add("key-1");
+            filter.checkpoint(42);
+        }
+
+        try (MappedBloomFilter filter = MappedBloomFilter.open(path, 1_000, 0.01)) {
+            assertFalse(filter.isCreated());
+            assertTrue(filter.mightContain("key-1"));
+            assertEquals(42, filter.watermark());
+        }
+
+        // Other parameters mean another bit layout, so the file is started over
+        try (MappedBloomFilter filter = MappedBloomFilter.open(path, 2_000, 0.01)) {
+            assertTrue(filter.isCreated());
+            assertFalse(filter.mightContain("key-1"));
+            assertEquals(0, filter.watermark());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.paymentgateway.persistence.impl;
+
+import com.example.paymentgateway.GatewayNodes;
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.dto.PaymentResponse;
+import com.example.paymentgateway.persistence.IdempotencyKeyIndex;
+import com.example.paymentgateway.service.PaymentProcessingService;
+import com.example.paymentgateway.simulator.BankSimulator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two gateway nodes with the idempotency key index enabled, sharing one file-based H2 database. Neither node's
+ * filter sees the keys stored by the other, so both must look every key up in the database.
+ */
+public class MappedIdempotencyKeyIndexMultiNodeIntegrationTest {
+
+    private static final Map<String, AtomicInteger> BANK_CALLS = new ConcurrentHashMap<>();
+
+    @TempDir
+    static Path directory;
+
+    private static List<ConfigurableApplicationContext> nodes;
+
+    @BeforeAll
+    public static void startNodes() {
+        nodes = GatewayNodes.start(directory, 2, CountingBankConfiguration.class, node -> List.of(
+                "payment.idempotency.index.enabled=true",
+                "payment.idempotency.index.path=" + directory.resolve("node-" + node + ".bloom"),
+                "payment.outbox.relay.enabled=false"));
+    }
+
+    @AfterAll
+    public static void stopNodes() {
+        GatewayNodes.stop(nodes);
+    }
+
+    @Test
+    public void testIndexIsBypassedWhenNodesShareTheStore() {
+        for (ConfigurableApplicationContext node : nodes) {
+            assertInstanceOf(NoOpIdempotencyKeyIndex.class, node.getBean(IdempotencyKeyIndex.class));
+        }
+    }
+
+    @Test
+    public void testRetryOnAnotherNodeReplaysThePayment() {
+        String idempotencyKey = UUID.randomUUID().toString();
+        PaymentResponse first = nodes.get(0).getBean(PaymentProcessingService.class).processPayment(paymentRequest(idempotencyKey));
+
+        PaymentResponse retry = nodes.get(1).getBean(PaymentProcessingService.class).processPayment(paymentRequest(idempotencyKey));
+
+        assertEquals(first.getPaymentId(), retry.getPaymentId());
+        assertEquals(1, BANK_CALLS.get(idempotencyKey).get());
+    }
+
+    private static PaymentRequest paymentRequest(String idempotencyKey) {
+        return new PaymentRequest("4242424242424242", "12", "2030", "123", new BigDecimal("100.50"), "USD", idempotencyKey);
+    }
+
+    @TestConfiguration
+    static class CountingBankConfiguration {
+
+        @Bean
+        @Primary
+        BankSimulator countingBankSimulator() {
+            return (PaymentRequest paymentRequest) -> {
+                BANK_CALLS.computeIfAbsent(paymentRequest.getIdempotencyKey(), key -> new AtomicInteger()).incrementAndGet();
+                return true;
+            };
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.paymentgateway.persistence.impl;
+
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
+import com.example.paymentgateway.persistence.IdempotencyKeyIndex;
+import com.example.paymentgateway.persistence.OutboxEventRepository;
+import com.example.paymentgateway.persistence.Payment;
+import com.example.paymentgateway.persistence.PaymentRepository;
+import com.example.paymentgateway.persistence.PaymentStatus;
+import com.example.paymentgateway.persistence.PaymentWriter;
+import com.example.paymentgateway.persistence.ShardRouter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class PaymentWriterImplIntegrationTest {
+
+    @Autowired
+    private PaymentWriter paymentWriter;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private IdempotencyKeyIndex idempotencyKeyIndex;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    public void cleanup() {
+        paymentRepository.deleteAll();
+    }
+
+    @Test
+    public void testConcurrentWritesAreCommittedBeforeCompletion() {
+        List<CompletableFuture<Payment>> futures = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            futures.add(paymentWriter.write(payment(UUID.randomUUID().toString())));
+        }
+
+        for (CompletableFuture<Payment> future : futures) {
+            Payment saved = future.join();
+            assertNotNull(saved.getId());
+            assertTrue(paymentRepository.findById(saved.getId()).isPresent());
+        }
+        assertEquals(500, paymentRepository.count());
+    }
+
+    @Test
+    public void testDuplicateIdempotencyKeyOnlyFailsItsOwnWrite() {
+        var duplicateKey = UUID.randomUUID().toString();
+        var first = paymentWriter.write(payment(duplicateKey));
+        var duplicate = paymentWriter.write(payment(duplicateKey));
+        var other = paymentWriter.write(payment(UUID.randomUUID().toString()));
+
+        assertNotNull(first.join().getId());
+        assertThrows(CompletionException.class, duplicate::join);
+        assertNotNull(other.join().getId());
+        assertEquals(2, paymentRepository.count());
+    }
+
+    @Test
+    public void testWritesRacingWithStopAllComplete() throws Exception {
+        PaymentWriterImpl writer = new PaymentWriterImpl(paymentRepository, outboxEventRepository, idempotencyKeyIndex, shardRouter,
+                transactionTemplate, true, 50, 10000, Duration.ofMillis(2), Duration.ofSeconds(10));
+        writer.start();
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        List<CompletableFuture<Payment>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < 400; i++) {
+                futures.add(CompletableFuture.supplyAsync(() -> writer.writeAndAwait(payment(UUID.randomUUID().toString())), callers));
+            }
+            writer.stop();
+            // Every caller is answered, whether its payment was flushed, drained by stop() or written directly
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        } finally {
+            callers.shutdownNow();
+        }
+        assertEquals(400, paymentRepository.count());
+        assertNotNull(writer.writeAndAwait(payment(UUID.randomUUID().toString())).getId());
+    }
+
+    private static Payment payment(String idempotencyKey) {
+        return Payment.builder().status(PaymentStatus.AUTHORIZED).amount(Money.ofMinor(10000, CurrencyUnit.USD)).maskedCardNumber("XXXX-XXXX-XXXX-1112")
+                .expiryMonth("12").expiryYear("2030").idempotencyKey(idempotencyKey).build();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.paymentgateway.persistence.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnowflakeIdGeneratorTest {
+
+    @Test
+    public void testNextId_EncodesShardNodeAndTime() {
+        long now = SnowflakeIdGenerator.EPOCH_MILLIS + 123_456_789L;
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(5, () -> now);
+
+        long id = generator.nextId(200);
+
+        assertTrue(id > 0);
+        assertEquals(200, SnowflakeIdGenerator.shardOf(id));
+        assertEquals(5, SnowflakeIdGenerator.nodeOf(id));
+        assertEquals(now, SnowflakeIdGenerator.timestampMillisOf(id));
+    }
+
+    @Test
+    public void testFirstIdAt_BoundsTheIdentifiersGeneratedEarlier() {
+        long now = SnowflakeIdGenerator.EPOCH_MILLIS + 123_456_789L;
+        long earlier = new SnowflakeIdGenerator(15, () -> now - 1).nextId(255);
+        long atNow = new SnowflakeIdGenerator(0, () -> now).nextId(0);
+
+        assertTrue(earlier < SnowflakeIdGenerator.firstIdAt(now));
+        assertEquals(SnowflakeIdGenerator.firstIdAt(now), atNow);
+        assertEquals(0, SnowflakeIdGenerator.firstIdAt(0));
+    }
+
+    @Test
+    public void testNextId_IncreasesWithinAShardWhenTheSequenceOverflowsOrTheClockStepsBack() {
+        AtomicLong clock = new AtomicLong(SnowflakeIdGenerator.EPOCH_MILLIS + 1_000);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(0, clock::get);
+
+        long previous = 0;
+        for (int i = 0; i < 5_000; i++) {
+            if (i == 2_500) {
+                clock.addAndGet(-500);
+            }
+            long id = generator.nextId(3);
+            assertTrue(id > previous);
+            assertEquals(3, SnowflakeIdGenerator.shardOf(id));
+            previous = id;
+        }
+    }
+
+    @Test
+    public void testNextId_UniqueAcrossThreadsAndShards() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            int shard = thread % 2;
+            executor.execute(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    ids.add(generator.nextId(shard));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(8 * 50_000, ids.size());
+    }
+
+    @Test
+    public void testConstructor_RejectsOutOfRangeNode() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODES));
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(0).nextId(SnowflakeIdGenerator.MAX_SHARDS));
+    }
+}
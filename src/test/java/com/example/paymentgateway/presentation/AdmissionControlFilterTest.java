@@ -0,0 +1,44 @@
+package com.example.paymentgateway.presentation;
+
+import com.example.paymentgateway.admission.GcraRateLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControlFilterTest {
+
+    private final AdmissionControlFilter filter = new AdmissionControlFilter(new GcraRateLimiter(0.1, 2, 64), null,
+            new ObjectMapper(), new SimpleMeterRegistry());
+
+    @Test
+    public void testMadeUpMerchantIdsAreLimitedByAddress() throws Exception {
+        // Far more merchant identifiers than the rate limiter has room for, all from one address
+        int admitted = 0;
+        for (int i = 0; i < 2_000; i++) {
+            if (submit("merchant-" + UUID.randomUUID(), "10.0.0.1").getStatus() == 200) {
+                admitted++;
+            }
+        }
+
+        // The table's slots, then the burst of the address
+        assertTrue(admitted < 300, "admitted " + admitted);
+        assertEquals(429, submit("merchant-" + UUID.randomUUID(), "10.0.0.1").getStatus());
+        assertNotNull(submit("merchant-" + UUID.randomUUID(), "10.0.0.1").getHeader("Retry-After"));
+    }
+
+    private MockHttpServletResponse submit(String merchantId, String remoteAddress) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/payments");
+        request.addHeader(PaymentController.MERCHANT_ID_HEADER, merchantId);
+        request.setRemoteAddr(remoteAddress);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
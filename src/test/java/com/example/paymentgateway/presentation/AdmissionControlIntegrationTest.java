@@ -0,0 +1,106 @@
+package com.example.paymentgateway.presentation;
+
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.dto.PaymentResponse;
+import com.example.paymentgateway.service.PaymentProcessingService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "payment.rate-limit.enabled=true",
+        "payment.rate-limit.requests-per-second=0.1",
+        "payment.rate-limit.burst=2"
+})
+@AutoConfigureMockMvc
+public class AdmissionControlIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private PaymentProcessingService paymentProcessingService;
+
+    @Test
+    public void testProcessPayment_RejectsMerchantOverItsRateWith429() throws Exception {
+        when(paymentProcessingService.processPayment(any(PaymentRequest.class)))
+                .thenReturn(PaymentResponse.builder().paymentId("1").status("AUTHORIZED").build());
+
+        submit("merchant-limited").andExpect(status().isOk());
+        submit("merchant-limited").andExpect(status().isOk());
+        submit("merchant-limited")
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "10"))
+                .andExpect(jsonPath("$.status").value(429));
+
+        // Other merchants keep their own budget
+        submit("merchant-other").andExpect(status().isOk());
+    }
+
+    @Test
+    public void testProcessPaymentBatch_ChargesEveryItem() throws Exception {
+        when(paymentProcessingService.processPaymentBatch(any()))
+                .thenReturn(List.of(CompletableFuture.completedFuture(PaymentResponse.builder().paymentId("1").status("AUTHORIZED").build())));
+        List<PaymentRequest> batch = List.of(paymentRequest(), paymentRequest(), paymentRequest());
+
+        mockMvc.perform(post("/api/payments/batch")
+                        .header(PaymentController.MERCHANT_ID_HEADER, "merchant-batch")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(status().isOk());
+
+        // Three payments against a burst of two: the next one waits for two more at one per ten seconds
+        submit("merchant-batch")
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "20"));
+    }
+
+    @Test
+    public void testRetrievePaymentDetails_IsNotRateLimited() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            mockMvc.perform(get("/api/payments/123").header(PaymentController.MERCHANT_ID_HEADER, "merchant-reader"))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    @Test
+    public void testProcessPayment_RejectedBeforeTheServiceIsCalled() throws Exception {
+        submit("merchant-rejected");
+        submit("merchant-rejected");
+        submit("merchant-rejected").andExpect(status().isTooManyRequests());
+
+        verify(paymentProcessingService, times(2)).processPayment(any(PaymentRequest.class));
+    }
+
+    private ResultActions submit(String merchantId) throws Exception {
+        return mockMvc.perform(post("/api/payments")
+                .header(PaymentController.MERCHANT_ID_HEADER, merchantId)
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(paymentRequest())));
+    }
+
+    private static PaymentRequest paymentRequest() {
+        return new PaymentRequest("4242424242424242", "12", "2030", "123", new BigDecimal("100.50"), "USD", UUID.randomUUID().toString());
+    }
+}
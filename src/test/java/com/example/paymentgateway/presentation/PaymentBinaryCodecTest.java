@@ -0,0 +1,143 @@
+package com.example.paymentgateway.presentation;
+
+import com.example.paymentgateway.dto.ErrorResponse;
+import com.example.paymentgateway.dto.PaymentDetailsResponse;
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.dto.PaymentResponse;
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PaymentBinaryCodecTest {
+
+    private final PaymentBinaryCodec codec = new PaymentBinaryCodec(16);
+
+    @Test
+    public void testDecode_PaymentRequestRoundTrip() {
+        PaymentRequest request = new PaymentRequest("4242424242424242", "12", "2030", "123", new BigDecimal("100.50"), "USD",
+                "0b9f3c1e-8d7a-4a51-9a43-2f7a5c0c9e11");
+
+        PaymentRequest decoded = roundTrip(PaymentRequest.class, request);
+
+        assertEquals("4242424242424242", decoded.getCardNumber());
+        assertEquals("12", decoded.getExpiryMonth());
+        assertEquals("2030", decoded.getExpiryYear());
+        assertEquals("123", decoded.getCvv());
+        assertEquals(new BigDecimal("100.50"), decoded.getAmount());
+        assertEquals("USD", decoded.getCurrency());
+        assertEquals("0b9f3c1e-8d7a-4a51-9a43-2f7a5c0c9e11", decoded.getIdempotencyKey());
+        assertNull(decoded.getMerchantId());
+        // Under half of its JSON form, which spells out every field name
+        assertTrue(codec.encode(request) < 80, "Encoded size: " + codec.length());
+    }
+
+    @Test
+    public void testDecode_KeepsNullsNegativeAmountsAndNonAsciiStrings() {
+        PaymentRequest request = new PaymentRequest(null, "12", null, "\u00e9\u20ac", new BigDecimal("-12345678901234.5678"), "EUR", "");
+
+        PaymentRequest decoded = roundTrip(PaymentRequest.class, request);
+
+        assertNull(decoded.getCardNumber());
+        assertNull(decoded.getExpiryYear());
+        assertEquals("\u00e9\u20ac", decoded.getCvv());
+        assertEquals(new BigDecimal("-12345678901234.5678"), decoded.getAmount());
+        assertEquals("", decoded.getIdempotencyKey());
+
+        request.setAmount(null);
+        assertNull(roundTrip(PaymentRequest.class, request).getAmount());
+    }
+
+    @Test
+    public void testDecode_ResponsesRoundTrip() {
+        PaymentResponse response = roundTrip(PaymentResponse.class,
+                new PaymentResponse("7251092831744", "AUTHORIZED", "Payment processed successfully."));
+        assertEquals("7251092831744", response.getPaymentId());
+        assertEquals("AUTHORIZED", response.getStatus());
+        assertEquals("Payment processed successfully.", response.getMessage());
+
+        PaymentDetailsResponse details = roundTrip(PaymentDetailsResponse.class, new PaymentDetailsResponse("7251092831744",
+                "XXXX-XXXX-XXXX-1112", "12", "2030", Money.ofMinor(10050, CurrencyUnit.USD), "USD", "CAPTURED"));
+        assertEquals("XXXX-XXXX-XXXX-1112", details.getMaskedCardNumber());
+        assertEquals(Money.ofMinor(10050, CurrencyUnit.USD), details.getAmount());
+        assertEquals("CAPTURED", details.getStatus());
+
+        Map<String, String> validationErrors = new LinkedHashMap<>();
+        validationErrors.put("cardNumber", "Card number should be 16 digits.");
+        validationErrors.put("cvv", "CVV is required.");
+        ErrorResponse error = roundTrip(ErrorResponse.class, new ErrorResponse("2024-05-01T10:00:00", 400, "Validation failed", validationErrors));
+        assertEquals(400, error.getStatus());
+        assertEquals("Validation failed", error.getError());
+        assertEquals(validationErrors, error.getValidationErrors());
+        assertNull(roundTrip(ErrorResponse.class, new ErrorResponse("now", 404, "Not found", null)).getValidationErrors());
+    }
+
+    @Test
+    public void testDecode_RejectsMalformedMessages() {
+        int length = codec.encode(new PaymentResponse("1", "AUTHORIZED", null));
+        byte[] message = Arrays.copyOf(codec.buffer(), length);
+
+        // Another message type, truncated, trailing bytes, unknown version and a length running past the end
+        assertThrows(IllegalArgumentException.class, () -> PaymentBinaryCodec.decode(PaymentRequest.class, message, 0, length));
+        assertThrows(IllegalArgumentException.class, () -> PaymentBinaryCodec.decode(PaymentResponse.class, message, 0, length - 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> PaymentBinaryCodec.decode(PaymentResponse.class, Arrays.copyOf(message, length + 1), 0, length + 1));
+        byte[] otherVersion = message.clone();
+        otherVersion[0] = 2;
+        assertThrows(IllegalArgumentException.class, () -> PaymentBinaryCodec.decode(PaymentResponse.class, otherVersion, 0, length));
+        byte[] overlong = message.clone();
+        overlong[2] = 100;
+        assertThrows(IllegalArgumentException.class, () -> PaymentBinaryCodec.decode(PaymentResponse.class, overlong, 0, length));
+        assertThrows(IllegalArgumentException.class, () -> PaymentBinaryCodec.decode(PaymentResponse.class, new byte[0], 0, 0));
+    }
+
+    @Test
+    public void testDecimalScaleIsBounded() {
+        PaymentRequest request = new PaymentRequest("4242424242424242", "12", "2030", "123", new BigDecimal("1E+3"), "USD", "key");
+        assertEquals(0, new BigDecimal("1000").compareTo(roundTrip(PaymentRequest.class, request).getAmount()));
+        request.setAmount(new BigDecimal("1E-19"));
+        assertThrows(IllegalArgumentException.class, () -> codec.encode(request));
+
+        request.setAmount(new BigDecimal("1E-18"));
+        int length = codec.encode(request);
+        byte[] message = Arrays.copyOf(codec.buffer(), length);
+        // The scale of 18 is written as byte 37 (zigzag 36, plus one), which no digit or letter of the strings is
+        int scale = -1;
+        for (int i = 0; i < length; i++) {
+            if (message[i] == 37) {
+                scale = i;
+            }
+        }
+        byte[] tooPrecise = message.clone();
+        tooPrecise[scale] = 39;
+        assertThrows(IllegalArgumentException.class, () -> PaymentBinaryCodec.decode(PaymentRequest.class, tooPrecise, 0, length));
+        byte[] negative = message.clone();
+        negative[scale] = 2;
+        assertThrows(IllegalArgumentException.class, () -> PaymentBinaryCodec.decode(PaymentRequest.class, negative, 0, length));
+    }
+
+    @Test
+    public void testEncode_ReusesItsBufferAndGrowsForLargeMessages() {
+        codec.encode(new PaymentResponse("1", "AUTHORIZED", "x".repeat(10_000)));
+        assertTrue(codec.buffer().length >= 10_000);
+        byte[] buffer = codec.buffer();
+
+        int length = codec.encode(new PaymentResponse("2", "FAILED", null));
+        assertSame(buffer, codec.buffer());
+        assertEquals("2", PaymentBinaryCodec.decode(PaymentResponse.class, codec.buffer(), 0, length).getPaymentId());
+    }
+
+    private <T> T roundTrip(Class<T> type, Object message) {
+        int length = codec.encode(message);
+        // Decoding must not depend on where the message sits in the buffer
+        byte[] shifted = new byte[length + 3];
+        System.arraycopy(codec.buffer(), 0, shifted, 3, length);
+        return PaymentBinaryCodec.decode(type, shifted, 3, length);
+    }
+}
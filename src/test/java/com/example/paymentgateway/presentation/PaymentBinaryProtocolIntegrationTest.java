@@ -0,0 +1,124 @@
+package com.example.paymentgateway.presentation;
+
+import com.example.paymentgateway.dto.ErrorResponse;
+import com.example.paymentgateway.dto.PaymentDetailsResponse;
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.dto.PaymentResponse;
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
+import com.example.paymentgateway.service.PaymentProcessingService;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class PaymentBinaryProtocolIntegrationTest {
+
+    private static final MediaType BINARY = MediaType.parseMediaType(PaymentBinaryCodec.MEDIA_TYPE);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private PaymentProcessingService paymentProcessingService;
+
+    private final PaymentBinaryCodec codec = new PaymentBinaryCodec(256);
+
+    @Test
+    public void testProcessPayment_BinaryRequestAndResponse() throws Exception {
+        PaymentRequest request = new PaymentRequest("4242424242424242", "12", "2030", "123", new BigDecimal("100.50"), "USD", UUID.randomUUID().toString());
+        when(paymentProcessingService.processPayment(any(PaymentRequest.class)))
+                .thenReturn(new PaymentResponse("7251092831744", "AUTHORIZED", "Payment processed successfully."));
+
+        byte[] body = mockMvc.perform(post("/api/payments")
+                        .header(PaymentController.MERCHANT_ID_HEADER, "merchant-1")
+                        .contentType(BINARY)
+                        .accept(BINARY)
+                        .content(encode(request)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(BINARY))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        PaymentResponse response = PaymentBinaryCodec.decode(PaymentResponse.class, body, 0, body.length);
+        assertEquals("7251092831744", response.getPaymentId());
+        assertEquals("AUTHORIZED", response.getStatus());
+
+        ArgumentCaptor<PaymentRequest> processed = ArgumentCaptor.forClass(PaymentRequest.class);
+        verify(paymentProcessingService).processPayment(processed.capture());
+        assertEquals("4242424242424242", processed.getValue().getCardNumber());
+        assertEquals(new BigDecimal("100.50"), processed.getValue().getAmount());
+        assertEquals(request.getIdempotencyKey(), processed.getValue().getIdempotencyKey());
+        assertEquals("merchant-1", processed.getValue().getMerchantId());
+    }
+
+    @Test
+    public void testProcessPayment_BinaryValidationErrors() throws Exception {
+        PaymentRequest request = new PaymentRequest("4242", "12", "2030", "123", new BigDecimal("100.50"), "USD", UUID.randomUUID().toString());
+
+        byte[] body = mockMvc.perform(post("/api/payments")
+                        .header(PaymentController.MERCHANT_ID_HEADER, "merchant-1")
+                        .contentType(BINARY)
+                        .accept(BINARY)
+                        .content(encode(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(BINARY))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        ErrorResponse error = PaymentBinaryCodec.decode(ErrorResponse.class, body, 0, body.length);
+        assertEquals(400, error.getStatus());
+        assertEquals("Card number should be 16 digits.", error.getValidationErrors().get("cardNumber"));
+    }
+
+    @Test
+    public void testProcessPayment_MalformedBinaryRequest() throws Exception {
+        byte[] truncated = encode(new PaymentRequest("4242424242424242", "12", "2030", "123", new BigDecimal("100.50"), "USD", "key"));
+
+        mockMvc.perform(post("/api/payments")
+                        .header(PaymentController.MERCHANT_ID_HEADER, "merchant-1")
+                        .contentType(BINARY)
+                        .content(Arrays.copyOf(truncated, truncated.length - 2)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testRetrievePaymentDetails_BinaryOnlyWhenAccepted() throws Exception {
+        when(paymentProcessingService.retrievePaymentDetails("7251092831744")).thenReturn(new PaymentDetailsResponse("7251092831744",
+                "XXXX-XXXX-XXXX-4242", "12", "2030", Money.ofMinor(10050, CurrencyUnit.USD), "USD", "CAPTURED"));
+
+        byte[] body = mockMvc.perform(get("/api/payments/7251092831744").accept(BINARY))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(BINARY))
+                .andReturn().getResponse().getContentAsByteArray();
+        PaymentDetailsResponse details = PaymentBinaryCodec.decode(PaymentDetailsResponse.class, body, 0, body.length);
+        assertEquals(Money.ofMinor(10050, CurrencyUnit.USD), details.getAmount());
+        assertEquals("CAPTURED", details.getStatus());
+
+        // JSON stays the default
+        mockMvc.perform(get("/api/payments/7251092831744"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.status").value("CAPTURED"));
+    }
+
+    private byte[] encode(Object message) {
+        int length = codec.encode(message);
+        return Arrays.copyOf(codec.buffer(), length);
+    }
+}
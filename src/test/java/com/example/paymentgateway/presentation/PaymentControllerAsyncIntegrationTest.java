@@ -0,0 +1,85 @@
+package com.example.paymentgateway.presentation;
+
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.dto.PaymentResponse;
+import com.example.paymentgateway.service.PaymentProcessingService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "payment.async.enabled=true")
+@AutoConfigureMockMvc
+public class PaymentControllerAsyncIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private PaymentProcessingService paymentProcessingService;
+
+    @Test
+    public void testProcessPayment_ReleasesTheRequestThread() throws Exception {
+        PaymentRequest request = new PaymentRequest("4242424242424242", "12", "2030", "123", new BigDecimal("100.50"), "USD", UUID.randomUUID().toString());
+        when(paymentProcessingService.processPaymentAsync(any(PaymentRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(PaymentResponse.builder().paymentId("1").status("AUTHORIZED").build()));
+
+        MvcResult result = mockMvc.perform(post("/api/payments")
+                        .header(PaymentController.MERCHANT_ID_HEADER, "merchant-1")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("AUTHORIZED"));
+        verify(paymentProcessingService, never()).processPayment(any(PaymentRequest.class));
+    }
+
+    @Test
+    public void testProcessPayment_PendingIsAccepted() throws Exception {
+        PaymentRequest request = new PaymentRequest("4242424242424242", "12", "2030", "123", new BigDecimal("100.50"), "USD", UUID.randomUUID().toString());
+        when(paymentProcessingService.processPaymentAsync(any(PaymentRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(PaymentResponse.builder().paymentId("7").status("PENDING").build()));
+
+        MvcResult result = mockMvc.perform(post("/api/payments")
+                        .header(PaymentController.MERCHANT_ID_HEADER, "merchant-1")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/payments/7"));
+    }
+
+    @Test
+    public void testProcessPayment_InvalidRequestIsRejectedBeforeDispatch() throws Exception {
+        PaymentRequest request = new PaymentRequest("4242", "12", "2030", "123", new BigDecimal("100.50"), "USD", UUID.randomUUID().toString());
+
+        mockMvc.perform(post("/api/payments")
+                        .header(PaymentController.MERCHANT_ID_HEADER, "merchant-1")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+        verify(paymentProcessingService, never()).processPaymentAsync(any(PaymentRequest.class));
+    }
+}
@@ -3,6 +3,8 @@ package com.example.paymentgateway.presentation;
 import com.example.paymentgateway.dto.PaymentDetailsResponse;
 import com.example.paymentgateway.dto.PaymentRequest;
 import com.example.paymentgateway.dto.PaymentResponse;
+import com.example.paymentgateway.persistence.PaymentStatus;
+import com.example.paymentgateway.service.IllegalPaymentTransitionException;
 import com.example.paymentgateway.service.PaymentProcessingService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.EntityNotFoundException;
@@ -14,10 +16,16 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.math.BigDecimal;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.ArgumentMatchers.any;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -38,49 +46,69 @@ public class PaymentControllerIntegrationTest {
 
     @Test
     public void testProcessPaymentSuccess() throws Exception {
-        PaymentRequest request = new PaymentRequest("4111111111111112", "12", "2025", "123", 100.50, "USD", UUID.randomUUID().toString());
-        var response = PaymentResponse.builder().paymentId("1").status("SUCCESS").build();
+        PaymentRequest request = new PaymentRequest("4242424242424242", "12", "2030", "123", new BigDecimal("100.50"), "USD", UUID.randomUUID().toString());
+        var response = PaymentResponse.builder().paymentId("1").status("AUTHORIZED").build();
         when(paymentProcessingService.processPayment(any(PaymentRequest.class))).thenReturn(response);
 
         var idempotencyKey = UUID.randomUUID().toString();
 
         mockMvc.perform(post("/api/payments")
+                        .header(PaymentController.MERCHANT_ID_HEADER, "merchant-1")
                         .header("Idempotency-Key", UUID.randomUUID().toString())  // Add this line
                         .contentType("application/json")
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.status").value("SUCCESS"));
+                .andExpect(jsonPath("$.status").value("AUTHORIZED"));
     }
 
     @Test
     public void testProcessPayment_IdempotencyValidation() throws Exception {
-        PaymentRequest request = new PaymentRequest("4111111111111112", "12", "2025", "123", 100.50, "USD", UUID.randomUUID().toString());
+        PaymentRequest request = new PaymentRequest("4242424242424242", "12", "2030", "123", new BigDecimal("100.50"), "USD", UUID.randomUUID().toString());
         String idempotencyKey = UUID.randomUUID().toString();
 
-        var response = PaymentResponse.builder().paymentId("1").status("SUCCESS").build();
+        var response = PaymentResponse.builder().paymentId("1").status("AUTHORIZED").build();
         when(paymentProcessingService.processPayment(any(PaymentRequest.class))).thenReturn(response);
 
         // First request with the idempotency key
         mockMvc.perform(post("/api/payments")
+                        .header(PaymentController.MERCHANT_ID_HEADER, "merchant-1")
                         .header("Idempotency-Key", idempotencyKey)
                         .contentType("application/json")
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.status").value("SUCCESS"));
+                .andExpect(jsonPath("$.status").value("AUTHORIZED"));
 
         // Second request with the same idempotency key
         mockMvc.perform(post("/api/payments")
+                        .header(PaymentController.MERCHANT_ID_HEADER, "merchant-1")
                         .header("Idempotency-Key", idempotencyKey)
                         .contentType("application/json")
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.status").value("SUCCESS"));
+                .andExpect(jsonPath("$.status").value("AUTHORIZED"));
+    }
+
+    @Test
+    public void testProcessPayment_MerchantIdRequired() throws Exception {
+        PaymentRequest request = new PaymentRequest("4242424242424242", "12", "2030", "123", new BigDecimal("100.50"), "USD", UUID.randomUUID().toString());
+        mockMvc.perform(post("/api/payments")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Header Merchant-Id is required."));
+        mockMvc.perform(post("/api/payments/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(request))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Header Merchant-Id is required."));
+        verifyNoInteractions(paymentProcessingService);
     }
 
     @Test
     public void testProcessPaymentFailure() throws Exception {
         PaymentRequest request = new PaymentRequest();
         mockMvc.perform(post("/api/payments")
+                        .header(PaymentController.MERCHANT_ID_HEADER, "merchant-1")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isBadRequest());
@@ -88,8 +116,9 @@ public class PaymentControllerIntegrationTest {
 
     @Test
     public void testProcessPayment_MissingCardNumber() throws Exception {
-        PaymentRequest request = new PaymentRequest(null, "12", "2025", "123", 100.0, "USD", UUID.randomUUID().toString());
+        PaymentRequest request = new PaymentRequest(null, "12", "2030", "123", new BigDecimal("100.0"), "USD", UUID.randomUUID().toString());
         mockMvc.perform(post("/api/payments")
+                        .header(PaymentController.MERCHANT_ID_HEADER, "merchant-1")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isBadRequest())
@@ -100,8 +129,9 @@ public class PaymentControllerIntegrationTest {
 
     @Test
     public void testProcessPayment_InvalidExpiryDate() throws Exception {
-        PaymentRequest request = new PaymentRequest("4111111111111111", "13", "2020", "123", 100.0, "USD", UUID.randomUUID().toString());
+        PaymentRequest request = new PaymentRequest("4111111111111111", "13", "2020", "123", new BigDecimal("100.0"), "USD", UUID.randomUUID().toString());
         mockMvc.perform(post("/api/payments")
+                        .header(PaymentController.MERCHANT_ID_HEADER, "merchant-1")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isBadRequest())
@@ -110,10 +140,35 @@ public class PaymentControllerIntegrationTest {
                 .andExpect(jsonPath("$.validationErrors.expiryMonth").value("Expiry month should be MM format."));
     }
 
+    @Test
+    public void testProcessPayment_CardNumberFailsLuhnCheck() throws Exception {
+        PaymentRequest request = new PaymentRequest("4242424242424241", "12", "2030", "123", new BigDecimal("100.0"), "USD", UUID.randomUUID().toString());
+        mockMvc.perform(post("/api/payments")
+                        .header(PaymentController.MERCHANT_ID_HEADER, "merchant-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Validation failed"))
+                .andExpect(jsonPath("$.validationErrors.cardNumber").value("Card number is not valid."));
+    }
+
+    @Test
+    public void testProcessPayment_ExpiredCard() throws Exception {
+        PaymentRequest request = new PaymentRequest("4242424242424242", "12", "2020", "123", new BigDecimal("100.0"), "USD", UUID.randomUUID().toString());
+        mockMvc.perform(post("/api/payments")
+                        .header(PaymentController.MERCHANT_ID_HEADER, "merchant-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Validation failed"))
+                .andExpect(jsonPath("$.validationErrors.expiryYear").value("Card has expired."));
+    }
+
     @Test
     public void testProcessPayment_MissingCVV() throws Exception {
-        PaymentRequest request = new PaymentRequest("4111111111111111", "12", "2025", null, 100.0, "USD", UUID.randomUUID().toString());
+        PaymentRequest request = new PaymentRequest("4111111111111111", "12", "2030", null, new BigDecimal("100.0"), "USD", UUID.randomUUID().toString());
         mockMvc.perform(post("/api/payments")
+                        .header(PaymentController.MERCHANT_ID_HEADER, "merchant-1")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isBadRequest())
@@ -124,8 +179,9 @@ public class PaymentControllerIntegrationTest {
 
     @Test
     public void testProcessPayment_InvalidAmount() throws Exception {
-        PaymentRequest request = new PaymentRequest("4111111111111111", "12", "2025", "123", -10.0, "USD", UUID.randomUUID().toString());
+        PaymentRequest request = new PaymentRequest("4111111111111111", "12", "2030", "123", new BigDecimal("-10.0"), "USD", UUID.randomUUID().toString());
         mockMvc.perform(post("/api/payments")
+                        .header(PaymentController.MERCHANT_ID_HEADER, "merchant-1")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isBadRequest())
@@ -136,8 +192,9 @@ public class PaymentControllerIntegrationTest {
 
     @Test
     public void testProcessPayment_MissingIdempotencyKey() throws Exception {
-        PaymentRequest request = new PaymentRequest("4111111111111111", "12", "2025", "123", 10.0, "USD", null);
+        PaymentRequest request = new PaymentRequest("4111111111111111", "12", "2030", "123", new BigDecimal("10.0"), "USD", null);
         mockMvc.perform(post("/api/payments")
+                        .header(PaymentController.MERCHANT_ID_HEADER, "merchant-1")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isBadRequest())
@@ -146,18 +203,69 @@ public class PaymentControllerIntegrationTest {
                 .andExpect(jsonPath("$.validationErrors.idempotencyKey").value("Idempotency Key is required."));
     }
 
+    @Test
+    public void testProcessPaymentBatch_StreamsResultsInOrder() throws Exception {
+        var first = new PaymentRequest("4242424242424242", "12", "2030", "123", new BigDecimal("100.50"), "USD", UUID.randomUUID().toString());
+        var second = new PaymentRequest("4111111111111111", "12", "2030", "123", new BigDecimal("20.00"), "USD", UUID.randomUUID().toString());
+        when(paymentProcessingService.processPaymentBatch(anyList())).thenReturn(List.of(
+                CompletableFuture.completedFuture(PaymentResponse.builder().paymentId("1").status("AUTHORIZED").build()),
+                CompletableFuture.completedFuture(PaymentResponse.builder().paymentId("2").status("FAILED").build())));
+
+        mockMvc.perform(post("/api/payments/batch")
+                        .header(PaymentController.MERCHANT_ID_HEADER, "merchant-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .content(objectMapper.writeValueAsString(List.of(first, second))))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        objectMapper.writeValueAsString(PaymentResponse.builder().paymentId("1").status("AUTHORIZED").build()) + "\n"
+                                + objectMapper.writeValueAsString(PaymentResponse.builder().paymentId("2").status("FAILED").build()) + "\n"));
+    }
+
+    @Test
+    public void testProcessPaymentBatch_FailedItemsReportAFixedError() throws Exception {
+        var first = new PaymentRequest("4242424242424242", "12", "2030", "123", new BigDecimal("100.50"), "USD", UUID.randomUUID().toString());
+        when(paymentProcessingService.processPaymentBatch(anyList())).thenReturn(List.of(
+                CompletableFuture.failedFuture(new IllegalStateException("Connection to jdbc:h2:mem:shard-1 refused"))));
+
+        mockMvc.perform(post("/api/payments/batch")
+                        .header(PaymentController.MERCHANT_ID_HEADER, "merchant-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(first))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].error").value("The payment could not be processed."))
+                .andExpect(jsonPath("$[0].status").doesNotExist());
+    }
+
+    @Test
+    public void testProcessPaymentBatch_ValidatesEveryItem() throws Exception {
+        var valid = new PaymentRequest("4242424242424242", "12", "2030", "123", new BigDecimal("100.50"), "USD", UUID.randomUUID().toString());
+        var invalid = new PaymentRequest("4242424242424242", "12", "2030", null, new BigDecimal("100.50"), "USD", UUID.randomUUID().toString());
+
+        mockMvc.perform(post("/api/payments/batch")
+                        .header(PaymentController.MERCHANT_ID_HEADER, "merchant-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(valid, invalid))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Validation failed"))
+                .andExpect(jsonPath("$.validationErrors['[1].cvv']").value("CVV is required."));
+    }
+
     @Test
     public void testRetrievePaymentDetails_Success() throws Exception {
         String paymentId = "1";
         PaymentDetailsResponse mockResponse = new PaymentDetailsResponse();
         mockResponse.setPaymentId(paymentId);
-        mockResponse.setStatus("SUCCESS");
+        mockResponse.setStatus("AUTHORIZED");
         when(paymentProcessingService.retrievePaymentDetails(anyString())).thenReturn(mockResponse);
         mockMvc.perform(get("/api/payments/" + paymentId)
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.paymentId").value(paymentId))
-                .andExpect(jsonPath("$.status").value("SUCCESS"));
+                .andExpect(jsonPath("$.status").value("AUTHORIZED"));
     }
 
     @Test
@@ -173,4 +281,37 @@ public class PaymentControllerIntegrationTest {
                 .andExpect(jsonPath("$.error").value("Payment with ID " + paymentId + " not found."));
     }
 
+    @Test
+    public void testProcessPayment_PendingIsAccepted() throws Exception {
+        PaymentRequest request = new PaymentRequest("4242424242424242", "12", "2030", "123", new BigDecimal("100.50"), "USD", UUID.randomUUID().toString());
+        when(paymentProcessingService.processPayment(any(PaymentRequest.class)))
+                .thenReturn(PaymentResponse.builder().paymentId("7").status("PENDING").build());
+
+        mockMvc.perform(post("/api/payments")
+                        .header(PaymentController.MERCHANT_ID_HEADER, "merchant-1")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/payments/7"))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+    }
+
+    @Test
+    public void testCapturePayment_IllegalTransitionIsConflict() throws Exception {
+        when(paymentProcessingService.capturePayment("7"))
+                .thenThrow(new IllegalPaymentTransitionException(7, PaymentStatus.FAILED, PaymentStatus.CAPTURED));
+
+        mockMvc.perform(post("/api/payments/7/capture"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("Payment with ID 7 cannot move from FAILED to CAPTURED."));
+    }
+
+    @Test
+    public void testSearchPayments_InvalidStatus() throws Exception {
+        mockMvc.perform(get("/api/payments")
+                        .header("Merchant-Id", "merchant-1")
+                        .param("status", "SUCCESS"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.validationErrors.status").value("Status is not valid."));
+    }
 }
@@ -0,0 +1,96 @@
+package com.example.paymentgateway.risk;
+
+import com.example.paymentgateway.money.CurrencyUnit;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RiskRulesTest {
+
+    private static final CurrencyUnit JPY = CurrencyUnit.of("JPY");
+
+    @Test
+    public void testAssess_SumsTheScoresOfMatchingRules() {
+        RiskRules rules = RiskRules.compile(List.of(
+                rule("card-velocity", 60, definition -> definition.setCardCountAbove(3)),
+                rule("bin-velocity", 50, definition -> definition.setBinCountAbove(100)),
+                rule("key-prefix-velocity", 40, definition -> definition.setKeyPrefixCountAbove(10))), 100);
+
+        assertSame(RiskAssessment.CLEAR, rules.assess(signals(3, 100, 10, 1000, CurrencyUnit.USD, Double.NaN)));
+
+        RiskAssessment card = rules.assess(signals(4, 1, 1, 1000, CurrencyUnit.USD, Double.NaN));
+        assertEquals(60, card.score());
+        assertEquals(List.of("card-velocity"), card.triggeredRules());
+        assertFalse(card.declined());
+
+        RiskAssessment cardAndBin = rules.assess(signals(4, 101, 1, 1000, CurrencyUnit.USD, Double.NaN));
+        assertEquals(110, cardAndBin.score());
+        assertEquals(List.of("card-velocity", "bin-velocity"), cardAndBin.triggeredRules());
+        assertTrue(cardAndBin.declined());
+    }
+
+    @Test
+    public void testAssess_AmountThresholdFollowsTheCurrencyDigits() {
+        RiskRules rules = RiskRules.compile(List.of(
+                rule("large", 100, definition -> definition.setAmountAbove(new BigDecimal("5000.50")))), 100);
+
+        assertFalse(rules.assess(signals(1, 1, 1, 500050, CurrencyUnit.USD, Double.NaN)).declined());
+        assertTrue(rules.assess(signals(1, 1, 1, 500051, CurrencyUnit.USD, Double.NaN)).declined());
+        assertFalse(rules.assess(signals(1, 1, 1, 5000, JPY, Double.NaN)).declined());
+        assertTrue(rules.assess(signals(1, 1, 1, 5001, JPY, Double.NaN)).declined());
+    }
+
+    @Test
+    public void testAssess_OutlierNeedsAKnownAverage() {
+        RiskRules rules = RiskRules.compile(List.of(
+                rule("outlier", 100, definition -> definition.setAmountAboveAverage(10.0))), 100);
+
+        assertFalse(rules.assess(signals(1, 1, 1, 1_000_000, CurrencyUnit.USD, Double.NaN)).declined());
+        assertFalse(rules.assess(signals(1, 1, 1, 10_000, CurrencyUnit.USD, 1_000)).declined());
+        assertTrue(rules.assess(signals(1, 1, 1, 10_001, CurrencyUnit.USD, 1_000)).declined());
+    }
+
+    @Test
+    public void testAssess_RestrictsRulesToTheirCurrencies() {
+        RiskRules rules = RiskRules.compile(List.of(
+                rule("eur-velocity", 100, definition -> {
+                    definition.setCardCountAbove(1);
+                    definition.setCurrencies(List.of("EUR"));
+                })), 100);
+
+        assertTrue(rules.assess(signals(2, 1, 1, 100, CurrencyUnit.EUR, Double.NaN)).declined());
+        assertFalse(rules.assess(signals(2, 1, 1, 100, CurrencyUnit.USD, Double.NaN)).declined());
+    }
+
+    @Test
+    public void testCompile_RejectsMalformedRules() {
+        assertThrows(IllegalArgumentException.class, () -> RiskRules.compile(List.of(
+                rule("no-condition", 100, definition -> definition.setCurrencies(List.of("USD")))), 100));
+        assertThrows(IllegalArgumentException.class, () -> RiskRules.compile(List.of(
+                rule("no-score", 0, definition -> definition.setCardCountAbove(1))), 100));
+        assertThrows(IllegalArgumentException.class, () -> RiskRules.compile(List.of(
+                rule(null, 100, definition -> definition.setCardCountAbove(1))), 100));
+        assertThrows(IllegalArgumentException.class, () -> RiskRules.compile(List.of(
+                rule("unknown-currency", 100, definition -> {
+                    definition.setCardCountAbove(1);
+                    definition.setCurrencies(List.of("XYZ"));
+                })), 100));
+        assertThrows(IllegalArgumentException.class, () -> RiskRules.compile(List.of(), 0));
+    }
+
+    private static RiskRuleDefinition rule(String name, int score, Consumer<RiskRuleDefinition> conditions) {
+        RiskRuleDefinition definition = new RiskRuleDefinition();
+        definition.setName(name);
+        definition.setScore(score);
+        conditions.accept(definition);
+        return definition;
+    }
+
+    private static RiskSignals signals(int cardCount, int binCount, int keyPrefixCount, long amount, CurrencyUnit currency, double average) {
+        return new RiskSignals(cardCount, binCount, keyPrefixCount, amount, currency, average);
+    }
+}
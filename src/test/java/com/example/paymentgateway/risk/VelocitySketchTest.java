@@ -0,0 +1,96 @@
+package com.example.paymentgateway.risk;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VelocitySketchTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    public void testIncrementAndCount_CountsPerKey() {
+        VelocitySketch sketch = new VelocitySketch(1024, 4, Duration.ofMinutes(1), 6);
+
+        for (int i = 1; i <= 5; i++) {
+            assertEquals(i, sketch.incrementAndCount("4111111111111111", 16, NOW));
+        }
+        assertEquals(1, sketch.incrementAndCount("5555555555554444", 16, NOW));
+        assertEquals(5, sketch.count("4111111111111111", 16, NOW));
+        assertEquals(0, sketch.count("4000000000000002", 16, NOW));
+    }
+
+    @Test
+    public void testIncrementAndCount_CountsKeysByPrefix() {
+        VelocitySketch sketch = new VelocitySketch(1024, 4, Duration.ofMinutes(1), 6);
+
+        sketch.incrementAndCount("4111111111111111", 6, NOW);
+        sketch.incrementAndCount("4111112222222222", 6, NOW);
+        assertEquals(3, sketch.incrementAndCount("411111", 6, NOW));
+        assertEquals(1, sketch.incrementAndCount("4222221111111111", 6, NOW));
+    }
+
+    @Test
+    public void testIncrementAndCount_ForgetsEventsOutsideTheWindow() {
+        VelocitySketch sketch = new VelocitySketch(1024, 4, Duration.ofMinutes(1), 6);
+
+        sketch.incrementAndCount("card", 4, NOW);
+        sketch.incrementAndCount("card", 4, NOW + 30_000);
+        assertEquals(2, sketch.count("card", 4, NOW + 50_000));
+        // The first bucket has left the window, and reusing its slot for a later epoch starts it from zero
+        assertEquals(1, sketch.count("card", 4, NOW + 60_000));
+        assertEquals(2, sketch.incrementAndCount("card", 4, NOW + 60_000));
+        assertEquals(0, sketch.count("card", 4, NOW + 200_000));
+        assertEquals(1, sketch.incrementAndCount("card", 4, NOW + 200_000));
+    }
+
+    @Test
+    public void testIncrementAndCount_NeverUndercountsManyKeys() {
+        VelocitySketch sketch = new VelocitySketch(8192, 4, Duration.ofMinutes(1), 6);
+        int keys = 2000;
+        for (int round = 1; round <= 3; round++) {
+            for (int key = 0; key < keys; key++) {
+                sketch.incrementAndCount("key-" + key, 16, NOW);
+            }
+        }
+
+        long overcount = 0;
+        for (int key = 0; key < keys; key++) {
+            int estimate = sketch.count("key-" + key, 16, NOW);
+            assertTrue(estimate >= 3);
+            overcount += estimate - 3;
+        }
+        // With a quarter as many keys as columns, nearly every key has a row to itself
+        assertTrue(overcount < keys / 20, "Overcount " + overcount);
+    }
+
+    @Test
+    public void testIncrementAndCount_ConcurrentIncrementsAreNotLost() throws Exception {
+        VelocitySketch sketch = new VelocitySketch(1024, 4, Duration.ofMinutes(1), 6);
+        int threads = 8;
+        int increments = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < increments; j++) {
+                    sketch.incrementAndCount("merchant-1", 16, NOW);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(threads * increments, sketch.count("merchant-1", 16, NOW));
+    }
+
+    @Test
+    public void testConstructor_RejectsInvalidSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new VelocitySketch(0, 4, Duration.ofMinutes(1), 6));
+        assertThrows(IllegalArgumentException.class, () -> new VelocitySketch(1024, 4, Duration.ofMillis(5), 6));
+    }
+}
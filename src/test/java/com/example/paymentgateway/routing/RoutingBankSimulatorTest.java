@@ -0,0 +1,94 @@
+package com.example.paymentgateway.routing;
+
+import com.example.paymentgateway.connector.BankUnavailableException;
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.dto.RouteDefinition;
+import com.example.paymentgateway.simulator.BankSimulator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoutingBankSimulatorTest {
+
+    private final PaymentRequest request = new PaymentRequest("4111111111111111", "12", "2030", "123", new BigDecimal("10.00"), "USD", UUID.randomUUID().toString());
+
+    @Test
+    public void testOpenAcquirerIsPassedOver() {
+        AtomicInteger primaryCalls = new AtomicInteger();
+        AtomicInteger backupCalls = new AtomicInteger();
+        RoutingBankSimulator router = router(paymentRequest -> {
+            primaryCalls.incrementAndGet();
+            throw new IllegalStateException("acquirer down");
+        }, paymentRequest -> {
+            backupCalls.incrementAndGet();
+            return true;
+        }, 10);
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IllegalStateException.class, () -> router.processTransaction(request));
+        }
+        // The primary's circuit is open, so the backup takes the payments without the primary being called
+        assertTrue(router.processTransaction(request));
+        assertTrue(router.processTransaction(request));
+        assertEquals(4, primaryCalls.get());
+        assertEquals(2, backupCalls.get());
+    }
+
+    @Test
+    public void testFullAcquirerIsPassedOverAndNothingIsSentWhenAllAreFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        BankSimulator blocking = paymentRequest -> {
+            calls.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        };
+        RoutingBankSimulator router = router(blocking, blocking, 1);
+
+        var first = CompletableFuture.supplyAsync(() -> router.processTransaction(request));
+        awaitCalls(calls, 1);
+        var second = CompletableFuture.supplyAsync(() -> router.processTransaction(request));
+        awaitCalls(calls, 2);
+
+        assertThrows(BankUnavailableException.class, () -> router.processTransaction(request));
+        assertEquals(2, calls.get());
+        release.countDown();
+        assertTrue(first.join());
+        assertTrue(second.join());
+    }
+
+    private static void awaitCalls(AtomicInteger calls, int expected) throws InterruptedException {
+        while (calls.get() < expected) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static RoutingBankSimulator router(BankSimulator primary, BankSimulator backup, int maxConcurrentCalls) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("primary", primary);
+        beanFactory.addBean("secondary", backup);
+        RoutingProperties routingProperties = new RoutingProperties();
+        routingProperties.setAcquirerMaxConcurrentCalls(maxConcurrentCalls);
+        routingProperties.setAcquirerCircuitBreakerWindowSize(4);
+        routingProperties.setAcquirerCircuitBreakerOpenDuration(Duration.ofMinutes(1));
+        routingProperties.setRoutes(List.of(
+                new RouteDefinition("primary", "4", "4", List.of(), 0),
+                new RouteDefinition("secondary", "4", "4", List.of(), 1)));
+        RoutingBankSimulator router = new RoutingBankSimulator(beanFactory, routingProperties);
+        router.afterSingletonsInstantiated();
+        return router;
+    }
+}
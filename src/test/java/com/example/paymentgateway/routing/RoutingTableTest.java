@@ -0,0 +1,129 @@
+package com.example.paymentgateway.routing;
+
+import com.example.paymentgateway.dto.RouteDefinition;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoutingTableTest {
+
+    private static final Map<String, Integer> ACQUIRERS = Map.of("visa-acquirer", 0, "euro-acquirer", 1, "backup-acquirer", 2);
+
+    private final AcquirerHealth[] health = {
+            new AcquirerHealth("visa-acquirer"), new AcquirerHealth("euro-acquirer"), new AcquirerHealth("backup-acquirer")
+    };
+
+    @Test
+    public void testSelect_ByBinRangeAndCurrency() {
+        RoutingTable routingTable = RoutingTable.compile(List.of(
+                new RouteDefinition("visa-acquirer", "4", "4", List.of(), 1),
+                new RouteDefinition("euro-acquirer", "400000", "409999", List.of("EUR"), 0)
+        ), ACQUIRERS);
+
+        assertEquals(1, routingTable.select("4000001234567899", "EUR", health));
+        assertEquals(0, routingTable.select("4000001234567899", "USD", health));
+        assertEquals(0, routingTable.select("4999991234567899", "EUR", health));
+        assertEquals(-1, routingTable.select("5500001234567899", "EUR", health));
+    }
+
+    @Test
+    public void testSelect_PrefersHealthierAcquirerWithinPriority() {
+        RoutingTable routingTable = RoutingTable.compile(List.of(
+                new RouteDefinition("visa-acquirer", "4", "4", List.of(), 0),
+                new RouteDefinition("euro-acquirer", "4", "4", List.of(), 0),
+                new RouteDefinition("backup-acquirer", "4", "4", List.of(), 1)
+        ), ACQUIRERS);
+
+        complete(health[0], 50_000_000L, false);
+        complete(health[1], 5_000_000L, false);
+        assertEquals(1, routingTable.select("4111111111111111", "USD", health));
+
+        // Both preferred acquirers failing pushes traffic to the lower priority route
+        for (int i = 0; i < 10; i++) {
+            complete(health[0], 1_000_000L, true);
+            complete(health[1], 1_000_000L, true);
+        }
+        assertEquals(2, routingTable.select("4111111111111111", "USD", health));
+    }
+
+    @Test
+    public void testSelect_PassesOverUnavailableAcquirers() {
+        RoutingTable routingTable = RoutingTable.compile(List.of(
+                new RouteDefinition("visa-acquirer", "4", "4", List.of(), 0),
+                new RouteDefinition("backup-acquirer", "4", "4", List.of(), 1)
+        ), ACQUIRERS);
+
+        assertEquals(2, routingTable.select("4111111111111111", "USD", health, acquirer -> acquirer != 0));
+        assertEquals(-1, routingTable.select("4111111111111111", "USD", health, acquirer -> false));
+    }
+
+    @Test
+    public void testSelect_RetriesADegradedAcquirerOnceItsHealthHasDecayed() {
+        AtomicLong now = new AtomicLong();
+        AcquirerHealth[] decaying = {
+                new AcquirerHealth("visa-acquirer", Duration.ofSeconds(10), now::get), new AcquirerHealth("euro-acquirer", Duration.ofSeconds(10), now::get)
+        };
+        RoutingTable routingTable = RoutingTable.compile(List.of(
+                new RouteDefinition("visa-acquirer", "4", "4", List.of(), 0),
+                new RouteDefinition("euro-acquirer", "4", "4", List.of(), 1)
+        ), ACQUIRERS);
+
+        for (int i = 0; i < 10; i++) {
+            complete(decaying[0], 1_000_000L, true);
+        }
+        assertTrue(decaying[0].isDegraded());
+        assertEquals(1, routingTable.select("4111111111111111", "USD", decaying));
+
+        // No samples reach the degraded acquirer, yet its error rate halves every half-life
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertEquals(0, routingTable.select("4111111111111111", "USD", decaying));
+
+        // Still failing, so the first payment it gets marks it degraded again
+        complete(decaying[0], 1_000_000L, true);
+        assertTrue(decaying[0].isDegraded());
+        assertEquals(1, routingTable.select("4111111111111111", "USD", decaying));
+    }
+
+    @Test
+    public void testSelect_SlowAcquirerWinsAgainAfterItsLatencyHasDecayed() {
+        AtomicLong now = new AtomicLong();
+        AcquirerHealth[] decaying = {
+                new AcquirerHealth("visa-acquirer", Duration.ofSeconds(10), now::get), new AcquirerHealth("euro-acquirer", Duration.ofSeconds(10), now::get)
+        };
+        RoutingTable routingTable = RoutingTable.compile(List.of(
+                new RouteDefinition("visa-acquirer", "4", "4", List.of(), 0),
+                new RouteDefinition("euro-acquirer", "4", "4", List.of(), 0)
+        ), ACQUIRERS);
+
+        complete(decaying[0], 80_000_000L, false);
+        complete(decaying[1], 10_000_000L, false);
+        assertEquals(1, routingTable.select("4111111111111111", "USD", decaying));
+
+        // The fast acquirer keeps getting samples while the slow one's estimate ages
+        for (int i = 0; i < 40; i++) {
+            now.addAndGet(Duration.ofSeconds(1).toNanos());
+            complete(decaying[1], 10_000_000L, false);
+        }
+        assertEquals(0, routingTable.select("4111111111111111", "USD", decaying));
+    }
+
+    @Test
+    public void testCompile_RejectsInvalidRoutes() {
+        assertThrows(InvalidRouteException.class, () -> RoutingTable.compile(List.of(
+                new RouteDefinition("unknown-acquirer", "4", "4", List.of(), 0)), ACQUIRERS));
+        assertThrows(InvalidRouteException.class, () -> RoutingTable.compile(List.of(
+                new RouteDefinition("visa-acquirer", "5", "4", List.of(), 0)), ACQUIRERS));
+        assertThrows(InvalidRouteException.class, () -> RoutingTable.compile(List.of(
+                new RouteDefinition("visa-acquirer", "4x", "4", List.of(), 0)), ACQUIRERS));
+    }
+
+    private static void complete(AcquirerHealth acquirerHealth, long latencyNanos, boolean error) {
+        acquirerHealth.onStart();
+        acquirerHealth.onComplete(latencyNanos, error);
+    }
+}
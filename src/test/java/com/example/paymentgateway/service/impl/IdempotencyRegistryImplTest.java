@@ -0,0 +1,82 @@
+package com.example.paymentgateway.service.impl;
+
+import com.example.paymentgateway.dto.PaymentResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotencyRegistryImplTest {
+
+    private static final int THREADS = 64;
+    private static final int ROUNDS = 50;
+
+    @Test
+    public void testConcurrentRequestsForSameKeyExecuteOnce() throws Exception {
+        var registry = new IdempotencyRegistryImpl(1000, Duration.ofMinutes(10));
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                var idempotencyKey = UUID.randomUUID().toString();
+                var executions = new AtomicInteger();
+                var start = new CountDownLatch(1);
+                List<Future<PaymentResponse>> results = new ArrayList<>();
+
+                for (int i = 0; i < THREADS; i++) {
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        return registry.execute(idempotencyKey, () -> {
+                            executions.incrementAndGet();
+                            sleep(5);
+                            return new PaymentResponse(UUID.randomUUID().toString(), "AUTHORIZED", "");
+                        });
+                    }));
+                }
+                start.countDown();
+
+                String paymentId = null;
+                for (Future<PaymentResponse> result : results) {
+                    PaymentResponse response = result.get(10, TimeUnit.SECONDS);
+                    if (paymentId == null) {
+                        paymentId = response.getPaymentId();
+                    }
+                    assertEquals(paymentId, response.getPaymentId());
+                }
+                assertEquals(1, executions.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedExecutionIsNotCached() {
+        var registry = new IdempotencyRegistryImpl(1000, Duration.ofMinutes(10));
+        var idempotencyKey = UUID.randomUUID().toString();
+
+        assertThrows(IllegalStateException.class, () -> registry.execute(idempotencyKey, () -> {
+            throw new IllegalStateException("bank unavailable");
+        }));
+
+        var response = registry.execute(idempotencyKey, () -> new PaymentResponse("1", "AUTHORIZED", ""));
+        assertEquals("1", response.getPaymentId());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
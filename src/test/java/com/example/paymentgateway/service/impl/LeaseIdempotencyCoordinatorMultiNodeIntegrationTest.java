@@ -0,0 +1,169 @@
+package com.example.paymentgateway.service.impl;
+
+import com.example.paymentgateway.GatewayNodes;
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.dto.PaymentResponse;
+import com.example.paymentgateway.persistence.IdempotencyLeaseRepository;
+import com.example.paymentgateway.persistence.PaymentRepository;
+import com.example.paymentgateway.persistence.impl.SnowflakeIdGenerator;
+import com.example.paymentgateway.service.IdempotencyKeyInUseException;
+import com.example.paymentgateway.service.PaymentProcessingService;
+import com.example.paymentgateway.simulator.BankSimulator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Several gateway nodes claiming the same idempotency keys through the lease table of their shared database.
+ */
+public class LeaseIdempotencyCoordinatorMultiNodeIntegrationTest {
+
+    private static final int NODES = 3;
+    private static final Map<String, AtomicInteger> BANK_CALLS = new ConcurrentHashMap<>();
+
+    @TempDir
+    static Path databaseDirectory;
+
+    private static List<ConfigurableApplicationContext> nodes;
+
+    @BeforeAll
+    public static void startNodes() {
+        nodes = GatewayNodes.start(databaseDirectory, NODES, CountingBankConfiguration.class, node -> List.of(
+                "payment.idempotency.lease.wait-timeout=2s",
+                "payment.outbox.relay.enabled=false"));
+    }
+
+    @AfterAll
+    public static void stopNodes() {
+        GatewayNodes.stop(nodes);
+    }
+
+    @Test
+    public void testProcessPayment_SameKeyOnEveryNodeReachesTheBankOnce() {
+        List<String> idempotencyKeys = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            idempotencyKeys.add(UUID.randomUUID().toString());
+        }
+        ExecutorService clients = Executors.newFixedThreadPool(idempotencyKeys.size() * NODES);
+        try {
+            Map<String, List<CompletableFuture<PaymentResponse>>> responses = new ConcurrentHashMap<>();
+            for (String idempotencyKey : idempotencyKeys) {
+                for (ConfigurableApplicationContext node : nodes) {
+                    PaymentProcessingService service = node.getBean(PaymentProcessingService.class);
+                    responses.computeIfAbsent(idempotencyKey, key -> new ArrayList<>())
+                            .add(CompletableFuture.supplyAsync(() -> service.processPayment(paymentRequest(idempotencyKey)), clients));
+                }
+            }
+
+            PaymentRepository paymentRepository = nodes.get(0).getBean(PaymentRepository.class);
+            IdempotencyLeaseRepository leaseRepository = nodes.get(0).getBean(IdempotencyLeaseRepository.class);
+            for (String idempotencyKey : idempotencyKeys) {
+                List<String> paymentIds = responses.get(idempotencyKey).stream()
+                        .map(CompletableFuture::join)
+                        .map(PaymentResponse::getPaymentId)
+                        .distinct()
+                        .toList();
+                assertEquals(1, paymentIds.size(), "Payments for " + idempotencyKey + ": " + paymentIds);
+                assertEquals(1, BANK_CALLS.get(idempotencyKey).get());
+                assertEquals(paymentIds.get(0), paymentRepository.findByIdempotencyKey(idempotencyKey).orElseThrow().getId().toString());
+                assertFalse(leaseRepository.existsById(idempotencyKey));
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testProcessPayment_TakesOverTheExpiredLeaseOfAStoppedNode() {
+        String idempotencyKey = UUID.randomUUID().toString();
+        insertLease(idempotencyKey, System.currentTimeMillis() - 1000);
+
+        PaymentResponse response = nodes.get(1).getBean(PaymentProcessingService.class).processPayment(paymentRequest(idempotencyKey));
+
+        assertEquals("AUTHORIZED", response.getStatus());
+        // Every context numbers its payments with its own node id
+        assertEquals(1, SnowflakeIdGenerator.nodeOf(Long.parseLong(response.getPaymentId())));
+        assertEquals(1, BANK_CALLS.get(idempotencyKey).get());
+        assertFalse(nodes.get(0).getBean(IdempotencyLeaseRepository.class).existsById(idempotencyKey));
+    }
+
+    @Test
+    public void testProcessPayment_WaitsForALiveLeaseWithoutCallingTheBank() {
+        String idempotencyKey = UUID.randomUUID().toString();
+        insertLease(idempotencyKey, System.currentTimeMillis() + 60_000);
+        PaymentProcessingService service = nodes.get(2).getBean(PaymentProcessingService.class);
+
+        assertThrows(IdempotencyKeyInUseException.class, () -> service.processPayment(paymentRequest(idempotencyKey)));
+        assertNull(BANK_CALLS.get(idempotencyKey));
+
+        // Once the holder gives the key up without storing a payment, a retry goes through
+        nodes.get(0).getBean(IdempotencyLeaseRepository.class).deleteById(idempotencyKey);
+        assertEquals("AUTHORIZED", service.processPayment(paymentRequest(idempotencyKey)).getStatus());
+        assertEquals(1, BANK_CALLS.get(idempotencyKey).get());
+    }
+
+    @Test
+    public void testCaptureOnOneNodeIsSeenByTheOthers() {
+        String paymentId = nodes.get(0).getBean(PaymentProcessingService.class)
+                .processPayment(paymentRequest(UUID.randomUUID().toString())).getPaymentId();
+        PaymentProcessingService reader = nodes.get(1).getBean(PaymentProcessingService.class);
+        assertEquals("AUTHORIZED", reader.retrievePaymentDetails(paymentId).getStatus());
+
+        nodes.get(2).getBean(PaymentProcessingService.class).capturePayment(paymentId);
+
+        assertEquals("CAPTURED", reader.retrievePaymentDetails(paymentId).getStatus());
+        assertEquals("CAPTURED", nodes.get(0).getBean(PaymentProcessingService.class).retrievePaymentDetails(paymentId).getStatus());
+    }
+
+    private static void insertLease(String idempotencyKey, long expiresAt) {
+        ConfigurableApplicationContext node = nodes.get(0);
+        IdempotencyLeaseRepository leaseRepository = node.getBean(IdempotencyLeaseRepository.class);
+        node.getBean(TransactionTemplate.class).execute(status -> leaseRepository.insert(idempotencyKey, "stopped-node", expiresAt));
+    }
+
+    private static PaymentRequest paymentRequest(String idempotencyKey) {
+        return new PaymentRequest("4242424242424242", "12", "2030", "123", new BigDecimal("100.50"), "USD", idempotencyKey);
+    }
+
+    /**
+     * Counts the bank calls of every node per idempotency key, and holds each one long enough for the other nodes
+     * to race it.
+     */
+    @TestConfiguration
+    static class CountingBankConfiguration {
+
+        @Bean
+        @Primary
+        BankSimulator countingBankSimulator() {
+            return (PaymentRequest paymentRequest) -> {
+                BANK_CALLS.computeIfAbsent(paymentRequest.getIdempotencyKey(), key -> new AtomicInteger()).incrementAndGet();
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            };
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.paymentgateway.service.impl;
+
+import com.example.paymentgateway.PaymentGatewayApplication;
+import com.example.paymentgateway.dto.ExportFormat;
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
+import com.example.paymentgateway.persistence.Payment;
+import com.example.paymentgateway.persistence.PaymentRepository;
+import com.example.paymentgateway.persistence.PaymentSearchCriteria;
+import com.example.paymentgateway.persistence.PaymentStatus;
+import com.example.paymentgateway.service.PaymentExportService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = PaymentGatewayApplication.class)
+public class PaymentExportServiceImplIntegrationTest {
+
+    @Autowired
+    private PaymentExportService paymentExportService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final PaymentSearchCriteria criteria = PaymentSearchCriteria.builder().merchantId("merchant-1").build();
+
+    @BeforeEach
+    public void setUp() {
+        Instant base = Instant.parse("2024-01-01T00:00:00Z");
+        for (int i = 0; i < 3; i++) {
+            paymentRepository.save(payment("merchant-1", base.plusSeconds(i)));
+        }
+        paymentRepository.save(payment("merchant-2", base));
+    }
+
+    @AfterEach
+    public void cleanup() {
+        paymentRepository.deleteAll();
+    }
+
+    @Test
+    public void testExportPayments_Csv() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long written = paymentExportService.exportPayments(criteria, ExportFormat.CSV, output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, written);
+        assertEquals(4, lines.length);
+        assertEquals("payment_id,merchant_id,masked_card_number,amount,currency,status,created_at", lines[0]);
+        assertTrue(lines[1].contains(",merchant-1,XXXX-XXXX-XXXX-1112,100.50,USD,AUTHORIZED,2024-01-01T00:00:00Z"));
+        assertFalse(output.toString(StandardCharsets.UTF_8).contains("4111111111111112"));
+    }
+
+    @Test
+    public void testExportPayments_Ndjson() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long written = paymentExportService.exportPayments(criteria, ExportFormat.NDJSON, output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, written);
+        assertEquals(3, lines.length);
+        JsonNode last = objectMapper.readTree(lines[2]);
+        assertEquals("XXXX-XXXX-XXXX-1112", last.get("maskedCardNumber").asText());
+        assertEquals("2024-01-01T00:00:02Z", last.get("createdAt").asText());
+        assertTrue(lines[2].contains("\"amount\":100.50,"));
+        assertEquals("USD", last.get("currency").asText());
+    }
+
+    private static Payment payment(String merchantId, Instant createdAt) {
+        return Payment.builder().status(PaymentStatus.AUTHORIZED).amount(Money.ofMinor(10050, CurrencyUnit.USD)).maskedCardNumber("XXXX-XXXX-XXXX-1112")
+                .expiryMonth("12").expiryYear("2030").idempotencyKey(UUID.randomUUID().toString())
+                .merchantId(merchantId).createdAt(createdAt).build();
+    }
+}
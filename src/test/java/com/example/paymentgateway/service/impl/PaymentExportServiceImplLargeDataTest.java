@@ -0,0 +1,87 @@
+package com.example.paymentgateway.service.impl;
+
+import com.example.paymentgateway.PaymentGatewayApplication;
+import com.example.paymentgateway.dto.ExportFormat;
+import com.example.paymentgateway.persistence.PaymentSearchCriteria;
+import com.example.paymentgateway.service.PaymentExportService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exports millions of payments within the small fixed heap of the largeDataTest task. The database is an H2 file
+ * so the rows themselves do not live on the heap.
+ */
+@Tag("large-data")
+@SpringBootTest(classes = PaymentGatewayApplication.class)
+public class PaymentExportServiceImplLargeDataTest {
+
+    private static final int ROWS = 3_000_000;
+
+    @TempDir
+    static Path databaseDir;
+
+    @DynamicPropertySource
+    static void databaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:h2:file:" + databaseDir.resolve("payments").toAbsolutePath());
+    }
+
+    @Autowired
+    private PaymentExportService paymentExportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testExportPayments_MillionsOfRowsInFixedHeap() throws Exception {
+        jdbcTemplate.update("""
+                insert into payment (id, version, merchant_id, created_at, status, currency, amount_minor, masked_card_number, expiry_month, expiry_year, idempotency_key)
+                select x, 0, 'merchant-1', dateadd(SECOND, x, timestamp with time zone '2024-01-01 00:00:00+00'), 'A', 'USD',
+                       mod(x, 1000) * 100 + 50, 'XXXX-XXXX-XXXX-1112', '12', '2030', 'key-' || x
+                from system_range(1, ?)""", ROWS);
+        PaymentSearchCriteria criteria = PaymentSearchCriteria.builder().merchantId("merchant-1").build();
+
+        CountingOutputStream csv = new CountingOutputStream();
+        assertEquals(ROWS, paymentExportService.exportPayments(criteria, ExportFormat.CSV, csv));
+        assertEquals(ROWS + 1, csv.lines);
+
+        CountingOutputStream ndjson = new CountingOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(ndjson)) {
+            assertEquals(ROWS, paymentExportService.exportPayments(criteria, ExportFormat.NDJSON, gzip));
+        }
+        // The uncompressed export is several hundred megabytes, more than the whole heap of this test
+        assertTrue(Runtime.getRuntime().maxMemory() < 300L * 1024 * 1024, "Run through the largeDataTest task");
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long lines;
+
+        @Override
+        public void write(int b) {
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                if (bytes[i] == '\n') {
+                    lines++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.paymentgateway.service.impl;
+
+import com.example.paymentgateway.PaymentGatewayApplication;
+import com.example.paymentgateway.cache.PaymentDetailsCache;
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.persistence.PaymentRepository;
+import com.example.paymentgateway.service.IllegalPaymentTransitionException;
+import com.example.paymentgateway.service.PaymentProcessingService;
+import com.example.paymentgateway.simulator.BankSimulator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(classes = PaymentGatewayApplication.class, properties = "payment.async-authorization.enabled=true")
+public class PaymentProcessingServiceImplAsyncAuthorizationIntegrationTest {
+
+    @Autowired
+    private PaymentProcessingService paymentProcessingService;
+
+    @MockBean
+    private BankSimulator bankSimulator;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentDetailsCache paymentDetailsCache;
+
+    @AfterEach
+    public void cleanup() {
+        paymentRepository.deleteAll();
+        paymentDetailsCache.invalidateAll();
+    }
+
+    @Test
+    public void testProcessPayment_AnswersPendingBeforeTheBank() throws Exception {
+        var bankAnswer = new CountDownLatch(1);
+        when(bankSimulator.processTransaction(any(PaymentRequest.class))).thenAnswer(invocation -> {
+            bankAnswer.await(10, TimeUnit.SECONDS);
+            return true;
+        });
+
+        var response = paymentProcessingService.processPayment(request());
+        assertEquals("PENDING", response.getStatus());
+        assertEquals("PENDING", paymentProcessingService.retrievePaymentDetails(response.getPaymentId()).getStatus());
+        assertThrows(IllegalPaymentTransitionException.class, () -> paymentProcessingService.capturePayment(response.getPaymentId()));
+
+        bankAnswer.countDown();
+        assertEquals("AUTHORIZED", awaitStatus(response.getPaymentId(), "AUTHORIZED"));
+        assertEquals("CAPTURED", paymentProcessingService.capturePayment(response.getPaymentId()).getStatus());
+        assertEquals("REFUNDED", paymentProcessingService.refundPayment(response.getPaymentId()).getStatus());
+        assertEquals("REFUNDED", paymentProcessingService.retrievePaymentDetails(response.getPaymentId()).getStatus());
+    }
+
+    @Test
+    public void testProcessPayment_DeclinedPaymentFails() throws Exception {
+        when(bankSimulator.processTransaction(any(PaymentRequest.class))).thenReturn(false);
+
+        var response = paymentProcessingService.processPayment(request());
+        assertEquals("PENDING", response.getStatus());
+        assertEquals("FAILED", awaitStatus(response.getPaymentId(), "FAILED"));
+    }
+
+    @Test
+    public void testProcessPayment_ReplayFollowsTheStatus() throws Exception {
+        when(bankSimulator.processTransaction(any(PaymentRequest.class))).thenReturn(true);
+        var request = request();
+
+        var response = paymentProcessingService.processPayment(request);
+        assertEquals("PENDING", response.getStatus());
+        awaitStatus(response.getPaymentId(), "AUTHORIZED");
+        assertEquals("AUTHORIZED", paymentProcessingService.processPayment(request).getStatus());
+
+        paymentProcessingService.capturePayment(response.getPaymentId());
+        var replay = paymentProcessingService.processPayment(request);
+        assertEquals(response.getPaymentId(), replay.getPaymentId());
+        assertEquals("CAPTURED", replay.getStatus());
+    }
+
+    private String awaitStatus(String paymentId, String status) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        String current;
+        while (!(current = paymentProcessingService.retrievePaymentDetails(paymentId).getStatus()).equals(status)
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return current;
+    }
+
+    private static PaymentRequest request() {
+        return new PaymentRequest("4111111111111112", "12", "2030", "123", new BigDecimal("100.50"), "USD", UUID.randomUUID().toString());
+    }
+}
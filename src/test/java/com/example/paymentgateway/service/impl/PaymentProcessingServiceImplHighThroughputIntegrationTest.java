@@ -0,0 +1,75 @@
+package com.example.paymentgateway.service.impl;
+
+import com.example.paymentgateway.PaymentGatewayApplication;
+import com.example.paymentgateway.cache.PaymentDetailsCache;
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.dto.PaymentResponse;
+import com.example.paymentgateway.persistence.PaymentRepository;
+import com.example.paymentgateway.persistence.PaymentStatus;
+import com.example.paymentgateway.service.PaymentProcessingService;
+import com.example.paymentgateway.simulator.BankSimulator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * The high-throughput profile hands out connections with auto-commit off and batches versioned updates; payments and
+ * their transitions must still be committed.
+ */
+@ActiveProfiles("high-throughput")
+@SpringBootTest(classes = PaymentGatewayApplication.class, properties =
+        "spring.datasource.url=jdbc:h2:mem:high-throughput-test;QUERY_CACHE_SIZE=64")
+public class PaymentProcessingServiceImplHighThroughputIntegrationTest {
+
+    @Autowired
+    private PaymentProcessingService paymentProcessingService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentDetailsCache paymentDetailsCache;
+
+    @MockBean
+    private BankSimulator bankSimulator;
+
+    @AfterEach
+    public void cleanup() {
+        paymentRepository.deleteAll();
+        paymentDetailsCache.invalidateAll();
+    }
+
+    @Test
+    public void testProcessPayment_ConcurrentPaymentsAndTransitionsAreCommitted() {
+        when(bankSimulator.processTransaction(any(PaymentRequest.class))).thenReturn(true);
+
+        List<CompletableFuture<PaymentResponse>> responses = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            PaymentRequest request = new PaymentRequest("4111111111111111", "12", "2030", "123", new BigDecimal("100.50"),
+                    "USD", UUID.randomUUID().toString());
+            responses.add(CompletableFuture.supplyAsync(() -> paymentProcessingService.processPayment(request)));
+        }
+        List<String> ids = responses.stream().map(CompletableFuture::join).map(PaymentResponse::getPaymentId).toList();
+        ids.forEach(paymentProcessingService::capturePayment);
+        paymentDetailsCache.invalidateAll();
+
+        assertEquals(200, paymentRepository.count());
+        for (String id : ids) {
+            assertEquals(PaymentStatus.CAPTURED, paymentRepository.findById(Long.parseLong(id)).orElseThrow().getStatus());
+            assertEquals("CAPTURED", paymentProcessingService.retrievePaymentDetails(id).getStatus());
+        }
+    }
+}
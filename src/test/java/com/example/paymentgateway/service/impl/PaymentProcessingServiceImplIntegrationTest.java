@@ -1,9 +1,17 @@
 package com.example.paymentgateway.service.impl;
 
 import com.example.paymentgateway.PaymentGatewayApplication;
+import com.example.paymentgateway.cache.PaymentDetailsCache;
 import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.dto.PaymentResponse;
+import com.example.paymentgateway.dto.PaymentSummary;
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
 import com.example.paymentgateway.persistence.Payment;
+import com.example.paymentgateway.persistence.PaymentCursor;
 import com.example.paymentgateway.persistence.PaymentRepository;
+import com.example.paymentgateway.persistence.PaymentSearchCriteria;
+import com.example.paymentgateway.persistence.PaymentStatus;
 import com.example.paymentgateway.service.PaymentProcessingService;
 import com.example.paymentgateway.simulator.BankSimulator;
 import jakarta.persistence.EntityNotFoundException;
@@ -13,10 +21,25 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @SpringBootTest(classes = PaymentGatewayApplication.class)
@@ -31,62 +54,246 @@ public class PaymentProcessingServiceImplIntegrationTest {
     @Autowired
     private PaymentRepository paymentRepository;
 
+    @Autowired
+    private PaymentDetailsCache paymentDetailsCache;
+
     @AfterEach
     public void cleanup(){
         paymentRepository.deleteAll();
+        // Deleting through the repository bypasses the service, so drop the cached details as well
+        paymentDetailsCache.invalidateAll();
     }
 
     @Test
     public void testProcessPaymentSuccess() {
-        PaymentRequest request = new PaymentRequest("4111111111111112", "12", "2025", "123", 100.50, "USD", UUID.randomUUID().toString());
+        PaymentRequest request = new PaymentRequest("4111111111111112", "12", "2025", "123", new BigDecimal("100.50"), "USD", UUID.randomUUID().toString());
         when(bankSimulator.processTransaction(any(PaymentRequest.class))).thenReturn(true);
         var response = paymentProcessingService.processPayment(request);
 
-        assertEquals("SUCCESS", response.getStatus());
+        assertEquals("AUTHORIZED", response.getStatus());
     }
 
     @Test
     public void testProcessPayment_IdempotencyValidation() {
         var idempotencyKey = UUID.randomUUID().toString();
-        PaymentRequest request = new PaymentRequest("4111111111111112", "12", "2025", "123", 100.50, "USD", idempotencyKey);
+        PaymentRequest request = new PaymentRequest("4111111111111112", "12", "2025", "123", new BigDecimal("100.50"), "USD", idempotencyKey);
         when(bankSimulator.processTransaction(any(PaymentRequest.class))).thenReturn(true);
 
         // First payment processing with the idempotency key
         var response1 = paymentProcessingService.processPayment(request);
-        assertEquals("SUCCESS", response1.getStatus());
+        assertEquals("AUTHORIZED", response1.getStatus());
 
         // Second payment processing with the same idempotency key
         var response2 = paymentProcessingService.processPayment(request);
-        assertEquals("SUCCESS", response2.getStatus());
+        assertEquals("AUTHORIZED", response2.getStatus());
+        assertEquals(response1.getMessage(), response2.getMessage());
 
         // Ensure both responses are the same, indicating the payment wasn't processed twice
         assertEquals(response1.getPaymentId(), response2.getPaymentId());
     }
 
+    @Test
+    public void testProcessPayment_ConcurrentRetriesCallBankOnce() throws Exception {
+        var idempotencyKey = UUID.randomUUID().toString();
+        PaymentRequest request = new PaymentRequest("4111111111111112", "12", "2025", "123", new BigDecimal("100.50"), "USD", idempotencyKey);
+        when(bankSimulator.processTransaction(any(PaymentRequest.class))).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            return true;
+        });
+
+        int threads = 32;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            var start = new CountDownLatch(1);
+            List<Future<PaymentResponse>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return paymentProcessingService.processPayment(request);
+                }));
+            }
+            start.countDown();
+
+            String paymentId = results.get(0).get(10, TimeUnit.SECONDS).getPaymentId();
+            for (Future<PaymentResponse> result : results) {
+                assertEquals(paymentId, result.get(10, TimeUnit.SECONDS).getPaymentId());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(bankSimulator, times(1)).processTransaction(any(PaymentRequest.class));
+    }
+
+    @Test
+    public void testProcessPaymentBatch_DuplicateKeysWithinABatchShareOnePayment() {
+        var repeatedKey = UUID.randomUUID().toString();
+        when(bankSimulator.processTransaction(any(PaymentRequest.class))).thenReturn(true);
+
+        List<PaymentResponse> responses = join(paymentProcessingService.processPaymentBatch(List.of(
+                batchRequest(repeatedKey), batchRequest(UUID.randomUUID().toString()), batchRequest(repeatedKey))));
+
+        assertEquals(3, responses.size());
+        assertEquals(responses.get(0).getPaymentId(), responses.get(2).getPaymentId());
+        assertNotEquals(responses.get(0).getPaymentId(), responses.get(1).getPaymentId());
+        assertEquals(2, paymentRepository.count());
+        verify(bankSimulator, times(2)).processTransaction(any(PaymentRequest.class));
+    }
+
+    @Test
+    public void testProcessPaymentBatch_ReplaysKeysAlreadyStored() {
+        var storedKey = UUID.randomUUID().toString();
+        when(bankSimulator.processTransaction(any(PaymentRequest.class))).thenReturn(true);
+        var stored = paymentProcessingService.processPayment(batchRequest(storedKey));
+
+        List<PaymentResponse> responses = join(paymentProcessingService.processPaymentBatch(List.of(
+                batchRequest(UUID.randomUUID().toString()), batchRequest(storedKey))));
+
+        assertEquals(stored.getPaymentId(), responses.get(1).getPaymentId());
+        assertEquals("AUTHORIZED", responses.get(1).getStatus());
+        assertEquals("Payment processed successfully.", responses.get(1).getMessage());
+        assertEquals(2, paymentRepository.count());
+        verify(bankSimulator, times(2)).processTransaction(any(PaymentRequest.class));
+    }
+
+    @Test
+    public void testProcessPaymentBatch_ConcurrentBatchesSharingKeysCallBankOncePerKey() throws Exception {
+        List<PaymentRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            requests.add(batchRequest(UUID.randomUUID().toString()));
+        }
+        when(bankSimulator.processTransaction(any(PaymentRequest.class))).thenAnswer(invocation -> {
+            Thread.sleep(20);
+            return true;
+        });
+
+        int batches = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(batches);
+        try {
+            var start = new CountDownLatch(1);
+            List<Future<List<PaymentResponse>>> results = new ArrayList<>();
+            for (int i = 0; i < batches; i++) {
+                // Each batch sends the same keys, in its own order
+                List<PaymentRequest> batch = new ArrayList<>(requests);
+                Collections.rotate(batch, i * 5);
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return join(paymentProcessingService.processPaymentBatch(batch));
+                }));
+            }
+            start.countDown();
+
+            Set<String> paymentIds = new HashSet<>();
+            for (Future<List<PaymentResponse>> result : results) {
+                for (PaymentResponse response : result.get(10, TimeUnit.SECONDS)) {
+                    assertEquals("AUTHORIZED", response.getStatus());
+                    paymentIds.add(response.getPaymentId());
+                }
+            }
+            assertEquals(requests.size(), paymentIds.size());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(requests.size(), paymentRepository.count());
+        verify(bankSimulator, times(requests.size())).processTransaction(any(PaymentRequest.class));
+    }
+
     @Test
     public void testProcessPaymentFailure() {
-        PaymentRequest request = new PaymentRequest("4111111111111111", "12", "2025", "123", 100.50, "USD", UUID.randomUUID().toString());
+        PaymentRequest request = new PaymentRequest("4111111111111111", "12", "2025", "123", new BigDecimal("100.50"), "USD", UUID.randomUUID().toString());
         when(bankSimulator.processTransaction(any(PaymentRequest.class))).thenReturn(false);
         var response = paymentProcessingService.processPayment(request);
 
-        assertEquals("FAILURE", response.getStatus());
+        assertEquals("FAILED", response.getStatus());
+    }
+
+    @Test
+    public void testProcessPayment_BankFailingAfterSendIsStoredPendingAndNotRetried() {
+        PaymentRequest request = new PaymentRequest("4111111111111112", "12", "2025", "123", new BigDecimal("100.50"), "USD", UUID.randomUUID().toString());
+        when(bankSimulator.processTransaction(any(PaymentRequest.class))).thenThrow(new IllegalStateException("connection reset"));
+
+        var response = paymentProcessingService.processPayment(request);
+        assertEquals("PENDING", response.getStatus());
+
+        // The bank may have processed it, so a retry replays the payment instead of charging again
+        var retry = paymentProcessingService.processPayment(request);
+        assertEquals(response.getPaymentId(), retry.getPaymentId());
+        verify(bankSimulator, times(1)).processTransaction(any(PaymentRequest.class));
     }
 
     @Test
     public void testRetrievePaymentDetails_Success() {
-        var payment = Payment.builder().status("SUCCESS").amount(100.0).cardNumber("4111111111111112").currency("USD").expiryMonth("12").expiryYear("23").idempotencyKey(UUID.randomUUID().toString()).build();
+        var payment = Payment.builder().status(PaymentStatus.AUTHORIZED).amount(Money.ofMinor(10000, CurrencyUnit.USD)).maskedCardNumber("XXXX-XXXX-XXXX-1112").expiryMonth("12").expiryYear("23").idempotencyKey(UUID.randomUUID().toString()).build();
         payment = paymentRepository.save(payment);
         var result = paymentProcessingService.retrievePaymentDetails(payment.getId().toString());
         assertNotNull(result);
-        assertEquals(payment.getCurrency(), result.getCurrency());
+        assertEquals("USD", result.getCurrency());
+        assertEquals(payment.getAmount(), result.getAmount());
         assertEquals(payment.getExpiryMonth(), result.getExpiryMonth());
         assertEquals(payment.getExpiryYear(), result.getExpiryYear());
     }
 
+    @Test
+    public void testRetrievePaymentDetails_ServedFromCacheAfterProcessing() {
+        PaymentRequest request = new PaymentRequest("4111111111111112", "12", "2025", "123", new BigDecimal("100.50"), "USD", UUID.randomUUID().toString());
+        when(bankSimulator.processTransaction(any(PaymentRequest.class))).thenReturn(true);
+        var response = paymentProcessingService.processPayment(request);
+
+        long hits = paymentDetailsCache.hitCount();
+        var result = paymentProcessingService.retrievePaymentDetails(response.getPaymentId());
+
+        assertEquals(hits + 1, paymentDetailsCache.hitCount());
+        assertEquals("XXXX-XXXX-XXXX-1112", result.getMaskedCardNumber());
+        assertEquals("AUTHORIZED", result.getStatus());
+    }
+
     @Test
     public void testRetrievePaymentDetails_NotFound() {
         String paymentId = "1";
         assertThrows(EntityNotFoundException.class, () -> paymentProcessingService.retrievePaymentDetails(paymentId));
 
     }
+
+    @Test
+    public void testSearchPayments_PagesThroughMerchantPaymentsWithCursor() {
+        Instant base = Instant.parse("2024-01-01T00:00:00Z");
+        for (int i = 0; i < 5; i++) {
+            paymentRepository.save(Payment.builder().status(i % 2 == 0 ? PaymentStatus.AUTHORIZED : PaymentStatus.FAILED).amount(Money.ofMinor(1000L * (i + 1), CurrencyUnit.USD)).maskedCardNumber("XXXX-XXXX-XXXX-1112")
+                    .expiryMonth("12").expiryYear("2030").idempotencyKey(UUID.randomUUID().toString()).merchantId("merchant-1").createdAt(base.plusSeconds(i)).build());
+        }
+        paymentRepository.save(Payment.builder().status(PaymentStatus.AUTHORIZED).amount(Money.ofMinor(1000, CurrencyUnit.USD)).maskedCardNumber("XXXX-XXXX-XXXX-1112")
+                .expiryMonth("12").expiryYear("2030").idempotencyKey(UUID.randomUUID().toString()).merchantId("merchant-2").createdAt(base).build());
+
+        PaymentSearchCriteria criteria = PaymentSearchCriteria.builder().merchantId("merchant-1").build();
+        List<PaymentSummary> seen = new ArrayList<>();
+        PaymentCursor cursor = null;
+        int pages = 0;
+        do {
+            var page = paymentProcessingService.searchPayments(criteria, cursor, 2);
+            seen.addAll(page.getPayments());
+            cursor = page.getNextCursor() == null ? null : PaymentCursor.decode(page.getNextCursor());
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(5, seen.size());
+        for (int i = 0; i < seen.size(); i++) {
+            assertEquals("merchant-1", seen.get(i).getMerchantId());
+            assertEquals(base.plusSeconds(4 - i), seen.get(i).getCreatedAt());
+        }
+
+        var filtered = paymentProcessingService.searchPayments(PaymentSearchCriteria.builder()
+                .merchantId("merchant-1").status(PaymentStatus.AUTHORIZED).currency(CurrencyUnit.USD).minAmount(Money.ofMinor(2000, CurrencyUnit.USD)).build(), null, 10);
+        assertEquals(2, filtered.getPayments().size());
+        assertNull(filtered.getNextCursor());
+    }
+
+    private static PaymentRequest batchRequest(String idempotencyKey) {
+        return new PaymentRequest("4111111111111112", "12", "2025", "123", new BigDecimal("100.50"), "USD", idempotencyKey);
+    }
+
+    private static List<PaymentResponse> join(List<CompletableFuture<PaymentResponse>> results) {
+        return results.stream().map(CompletableFuture::join).toList();
+    }
 }
@@ -0,0 +1,69 @@
+package com.example.paymentgateway.service.impl;
+
+import com.example.paymentgateway.PaymentGatewayApplication;
+import com.example.paymentgateway.cache.PaymentDetailsCache;
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.persistence.PaymentRepository;
+import com.example.paymentgateway.risk.RiskDeclinedException;
+import com.example.paymentgateway.service.PaymentProcessingService;
+import com.example.paymentgateway.simulator.BankSimulator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(classes = PaymentGatewayApplication.class, properties = {
+        "payment.risk.enabled=true",
+        "payment.risk.rules[0].name=card-testing",
+        "payment.risk.rules[0].card-count-above=3",
+        "payment.risk.rules[0].score=100"
+})
+public class PaymentProcessingServiceImplRiskIntegrationTest {
+
+    @Autowired
+    private PaymentProcessingService paymentProcessingService;
+
+    @MockBean
+    private BankSimulator bankSimulator;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentDetailsCache paymentDetailsCache;
+
+    @AfterEach
+    public void cleanup() {
+        paymentRepository.deleteAll();
+        paymentDetailsCache.invalidateAll();
+    }
+
+    @Test
+    public void testProcessPayment_CardVelocityDeclinesBeforeTheBank() {
+        when(bankSimulator.processTransaction(any(PaymentRequest.class))).thenReturn(false);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("FAILED", paymentProcessingService.processPayment(request("4111111111111112")).getStatus());
+        }
+        assertThrows(RiskDeclinedException.class, () -> paymentProcessingService.processPayment(request("4111111111111112")));
+
+        // Neither the bank nor the database saw the declined attempt, and other cards are unaffected
+        verify(bankSimulator, times(3)).processTransaction(any(PaymentRequest.class));
+        assertEquals(3, paymentRepository.count());
+        assertEquals("FAILED", paymentProcessingService.processPayment(request("5555555555554444")).getStatus());
+    }
+
+    private static PaymentRequest request(String cardNumber) {
+        return new PaymentRequest(cardNumber, "12", "2030", "123", new BigDecimal("100.50"), "USD", UUID.randomUUID().toString());
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.paymentgateway.service.impl;
+
+import com.example.paymentgateway.PaymentGatewayApplication;
+import com.example.paymentgateway.cache.PaymentDetailsCache;
+import com.example.paymentgateway.dto.ExportFormat;
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.dto.PaymentResponse;
+import com.example.paymentgateway.dto.PaymentSummary;
+import com.example.paymentgateway.persistence.PaymentCursor;
+import com.example.paymentgateway.persistence.PaymentRepository;
+import com.example.paymentgateway.persistence.PaymentSearchCriteria;
+import com.example.paymentgateway.persistence.ShardRouter;
+import com.example.paymentgateway.persistence.impl.SnowflakeIdGenerator;
+import com.example.paymentgateway.service.PaymentExportService;
+import com.example.paymentgateway.service.PaymentProcessingService;
+import com.example.paymentgateway.simulator.BankSimulator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(classes = PaymentGatewayApplication.class, properties = {
+        "payment.sharding.shards=4",
+        "payment.sharding.url-template=jdbc:h2:mem:sharded-service-test-%d"
+})
+public class PaymentProcessingServiceImplShardedIntegrationTest {
+
+    private static final String MERCHANT_ID = "merchant-sharded";
+
+    @Autowired
+    private PaymentProcessingService paymentProcessingService;
+
+    @Autowired
+    private PaymentExportService paymentExportService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private PaymentDetailsCache paymentDetailsCache;
+
+    @MockBean
+    private BankSimulator bankSimulator;
+
+    @AfterEach
+    public void cleanup() {
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            shardRouter.onShard(shard, () -> {
+                paymentRepository.deleteAll();
+                return null;
+            });
+        }
+        paymentDetailsCache.invalidateAll();
+    }
+
+    @Test
+    public void testProcessPayment_StoresEachPaymentOnTheShardOfItsIdempotencyKey() {
+        when(bankSimulator.processTransaction(any(PaymentRequest.class))).thenReturn(true);
+
+        Set<Integer> usedShards = new HashSet<>();
+        for (int i = 0; i < 40; i++) {
+            String idempotencyKey = "sharded-key-" + i;
+            PaymentResponse response = paymentProcessingService.processPayment(request(idempotencyKey));
+            long id = Long.parseLong(response.getPaymentId());
+            int shard = shardRouter.shardForIdempotencyKey(idempotencyKey);
+
+            assertEquals(shard, SnowflakeIdGenerator.shardOf(id));
+            assertTrue(shardRouter.onShard(shard, () -> paymentRepository.findById(id)).isPresent());
+            assertFalse(shardRouter.onShard((shard + 1) % 4, () -> paymentRepository.findById(id)).isPresent());
+            // A replay finds the stored payment on the same shard instead of paying again
+            assertEquals(response.getPaymentId(), paymentProcessingService.processPayment(request(idempotencyKey)).getPaymentId());
+            usedShards.add(shard);
+        }
+        assertEquals(4, usedShards.size());
+    }
+
+    @Test
+    public void testRetrievePaymentDetails_RoutesByIdentifier() {
+        when(bankSimulator.processTransaction(any(PaymentRequest.class))).thenReturn(true);
+        List<String> paymentIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            paymentIds.add(paymentProcessingService.processPayment(request("details-key-" + i)).getPaymentId());
+        }
+        paymentDetailsCache.invalidateAll();
+
+        for (String paymentId : paymentIds) {
+            assertEquals(paymentId, paymentProcessingService.retrievePaymentDetails(paymentId).getPaymentId());
+        }
+    }
+
+    @Test
+    public void testSearchAndExport_MergeAllShards() throws Exception {
+        when(bankSimulator.processTransaction(any(PaymentRequest.class))).thenReturn(true);
+        for (int i = 0; i < 40; i++) {
+            paymentProcessingService.processPayment(request("search-key-" + i));
+        }
+
+        PaymentSearchCriteria criteria = PaymentSearchCriteria.builder().merchantId(MERCHANT_ID).build();
+        List<PaymentSummary> seen = new ArrayList<>();
+        PaymentCursor cursor = null;
+        do {
+            var page = paymentProcessingService.searchPayments(criteria, cursor, 15);
+            seen.addAll(page.getPayments());
+            cursor = page.getNextCursor() == null ? null : PaymentCursor.decode(page.getNextCursor());
+        } while (cursor != null);
+
+        assertEquals(40, seen.size());
+        assertEquals(40, seen.stream().map(PaymentSummary::getPaymentId).distinct().count());
+        for (int i = 1; i < seen.size(); i++) {
+            assertFalse(seen.get(i).getCreatedAt().isAfter(seen.get(i - 1).getCreatedAt()));
+        }
+
+        assertEquals(40, paymentExportService.exportPayments(criteria, ExportFormat.CSV, new ByteArrayOutputStream()));
+    }
+
+    private static PaymentRequest request(String idempotencyKey) {
+        return new PaymentRequest("4242424242424242", "12", "2030", "123", new BigDecimal("10.00"), "USD", idempotencyKey, MERCHANT_ID);
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.paymentgateway.service.impl;
+
+import com.example.paymentgateway.PaymentGatewayApplication;
+import com.example.paymentgateway.events.PaymentEventType;
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
+import com.example.paymentgateway.persistence.OutboxEventRepository;
+import com.example.paymentgateway.persistence.Payment;
+import com.example.paymentgateway.persistence.PaymentRepository;
+import com.example.paymentgateway.persistence.PaymentStatus;
+import com.example.paymentgateway.service.IllegalPaymentTransitionException;
+import com.example.paymentgateway.service.PaymentStateMachine;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = PaymentGatewayApplication.class, properties = "payment.outbox.relay.enabled=false")
+public class PaymentStateMachineImplIntegrationTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private PaymentStateMachine paymentStateMachine;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @AfterEach
+    public void cleanup() {
+        paymentRepository.deleteAll();
+        outboxEventRepository.deleteAll();
+    }
+
+    @Test
+    public void testTransition_RacingAuthorizeAndFailHasOneWinner() throws Exception {
+        Payment payment = store(PaymentStatus.PENDING);
+
+        List<PaymentStatus> targets = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            targets.add(i % 2 == 0 ? PaymentStatus.AUTHORIZED : PaymentStatus.FAILED);
+        }
+        List<Object> results = race(payment.getId(), targets);
+
+        Payment stored = paymentRepository.findById(payment.getId()).orElseThrow();
+        assertTrue(stored.getStatus() == PaymentStatus.AUTHORIZED || stored.getStatus() == PaymentStatus.FAILED);
+        for (int i = 0; i < THREADS; i++) {
+            if (targets.get(i) == stored.getStatus()) {
+                assertEquals(stored.getStatus(), ((Payment) results.get(i)).getStatus());
+            } else {
+                // The loser re-read the winner's status, from which its own transition is not allowed
+                assertInstanceOf(IllegalPaymentTransitionException.class, results.get(i));
+            }
+        }
+        assertEquals(payment.getVersion() + 1, stored.getVersion());
+        assertEquals(1, statusChangedEvents(payment.getId()));
+    }
+
+    @Test
+    public void testTransition_ConcurrentCapturesApplyOnce() throws Exception {
+        Payment payment = store(PaymentStatus.AUTHORIZED);
+
+        List<Object> results = race(payment.getId(), Collections.nCopies(THREADS, PaymentStatus.CAPTURED));
+
+        for (Object result : results) {
+            assertEquals(PaymentStatus.CAPTURED, ((Payment) result).getStatus());
+        }
+        Payment stored = paymentRepository.findById(payment.getId()).orElseThrow();
+        assertEquals(PaymentStatus.CAPTURED, stored.getStatus());
+        assertEquals(payment.getVersion() + 1, stored.getVersion());
+        assertEquals(1, statusChangedEvents(payment.getId()));
+    }
+
+    @Test
+    public void testTransitionFrom_OnlyTheFirstSettleMovesThePayment() {
+        Payment payment = store(PaymentStatus.PENDING);
+
+        assertEquals(PaymentStatus.AUTHORIZED, paymentStateMachine.transitionFrom(payment.getId(), PaymentStatus.PENDING, PaymentStatus.AUTHORIZED)
+                .orElseThrow().getStatus());
+        assertTrue(paymentStateMachine.transitionFrom(payment.getId(), PaymentStatus.PENDING, PaymentStatus.AUTHORIZED).isEmpty());
+        assertTrue(paymentStateMachine.transitionFrom(payment.getId(), PaymentStatus.PENDING, PaymentStatus.FAILED).isEmpty());
+        assertEquals(PaymentStatus.AUTHORIZED, paymentRepository.findById(payment.getId()).orElseThrow().getStatus());
+        assertEquals(1, statusChangedEvents(payment.getId()));
+    }
+
+    @Test
+    public void testTransition_FollowsLifecycle() {
+        Payment payment = store(PaymentStatus.PENDING);
+
+        assertEquals(PaymentStatus.AUTHORIZED, paymentStateMachine.transition(payment.getId(), PaymentStatus.AUTHORIZED).getStatus());
+        assertEquals(PaymentStatus.CAPTURED, paymentStateMachine.transition(payment.getId(), PaymentStatus.CAPTURED).getStatus());
+        assertEquals(PaymentStatus.REFUNDED, paymentStateMachine.transition(payment.getId(), PaymentStatus.REFUNDED).getStatus());
+        assertEquals(3, statusChangedEvents(payment.getId()));
+    }
+
+    @Test
+    public void testTransition_IllegalTransitionIsRejected() {
+        Payment payment = store(PaymentStatus.FAILED);
+
+        assertThrows(IllegalPaymentTransitionException.class,
+                () -> paymentStateMachine.transition(payment.getId(), PaymentStatus.CAPTURED));
+        assertEquals(PaymentStatus.FAILED, paymentRepository.findById(payment.getId()).orElseThrow().getStatus());
+        assertEquals(0, statusChangedEvents(payment.getId()));
+    }
+
+    @Test
+    public void testTransition_UnknownPayment() {
+        assertThrows(EntityNotFoundException.class, () -> paymentStateMachine.transition(42L, PaymentStatus.CAPTURED));
+    }
+
+    private List<Object> race(long paymentId, List<PaymentStatus> targets) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(targets.size());
+        try {
+            var start = new CountDownLatch(1);
+            List<Future<Payment>> futures = new ArrayList<>();
+            for (PaymentStatus target : targets) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return paymentStateMachine.transition(paymentId, target);
+                }));
+            }
+            start.countDown();
+
+            List<Object> results = new ArrayList<>();
+            for (Future<Payment> future : futures) {
+                try {
+                    results.add(future.get(10, TimeUnit.SECONDS));
+                } catch (ExecutionException ex) {
+                    results.add(ex.getCause());
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long statusChangedEvents(long paymentId) {
+        return outboxEventRepository.findAll().stream()
+                .filter(event -> event.getPaymentId() == paymentId && event.getType() == PaymentEventType.PAYMENT_STATUS_CHANGED)
+                .count();
+    }
+
+    private Payment store(PaymentStatus status) {
+        return paymentRepository.save(Payment.builder().status(status).amount(Money.ofMinor(10000, CurrencyUnit.USD))
+                .maskedCardNumber("XXXX-XXXX-XXXX-1112").expiryMonth("12").expiryYear("2030")
+                .idempotencyKey(UUID.randomUUID().toString()).merchantId("merchant-1").createdAt(Instant.now()).build());
+    }
+}
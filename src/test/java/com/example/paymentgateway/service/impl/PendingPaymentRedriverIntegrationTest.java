@@ -0,0 +1,116 @@
+package com.example.paymentgateway.service.impl;
+
+import com.example.paymentgateway.PaymentGatewayApplication;
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.money.CurrencyUnit;
+import com.example.paymentgateway.money.Money;
+import com.example.paymentgateway.persistence.Payment;
+import com.example.paymentgateway.persistence.PaymentRepository;
+import com.example.paymentgateway.persistence.PaymentStatus;
+import com.example.paymentgateway.simulator.BankSimulator;
+import com.example.paymentgateway.vault.CardToken;
+import com.example.paymentgateway.vault.CardVault;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(classes = PaymentGatewayApplication.class, properties = {
+        "payment.outbox.relay.enabled=false",
+        "payment.pending-redrive.interval=20ms",
+        "payment.pending-redrive.stale-after=100ms",
+        "payment.pending-redrive.max-attempts=3"
+})
+public class PendingPaymentRedriverIntegrationTest {
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private CardVault cardVault;
+
+    @MockBean
+    private BankSimulator bankSimulator;
+
+    @AfterEach
+    public void cleanup() {
+        paymentRepository.deleteAll();
+    }
+
+    @Test
+    public void testStalePendingPaymentIsSentAgain() throws Exception {
+        when(bankSimulator.processTransaction(any(PaymentRequest.class))).thenReturn(true);
+        Payment payment = storePending(1);
+
+        Payment settled = awaitSettled(payment.getId());
+
+        assertEquals(PaymentStatus.AUTHORIZED, settled.getStatus());
+        assertEquals(2, settled.getAuthorizationAttempts());
+        ArgumentCaptor<PaymentRequest> sent = ArgumentCaptor.forClass(PaymentRequest.class);
+        verify(bankSimulator, atLeastOnce()).processTransaction(sent.capture());
+        assertEquals("4111111111111112", sent.getValue().getCardNumber());
+        assertEquals(payment.getIdempotencyKey(), sent.getValue().getIdempotencyKey());
+    }
+
+    @Test
+    public void testPendingPaymentFailsAfterTheMaximumAttempts() throws Exception {
+        when(bankSimulator.processTransaction(any(PaymentRequest.class))).thenThrow(new IllegalStateException("bank down"));
+        Payment payment = storePending(1);
+
+        Payment settled = awaitSettled(payment.getId());
+
+        assertEquals(PaymentStatus.FAILED, settled.getStatus());
+        assertEquals(3, settled.getAuthorizationAttempts());
+        verify(bankSimulator, times(2)).processTransaction(any(PaymentRequest.class));
+    }
+
+    @Test
+    public void testPaymentAtTheMaximumAttemptsFailsWithoutABankCall() throws Exception {
+        Payment payment = storePending(3);
+
+        assertEquals(PaymentStatus.FAILED, awaitSettled(payment.getId()).getStatus());
+        verify(bankSimulator, never()).processTransaction(any(PaymentRequest.class));
+    }
+
+    private Payment storePending(int attempts) {
+        CardToken cardToken = cardVault.tokenize("4111111111111112".toCharArray());
+        Instant attemptedAt = Instant.now().minusSeconds(60);
+        return paymentRepository.save(Payment.builder()
+                .status(PaymentStatus.PENDING)
+                .amount(Money.ofMinor(10050, CurrencyUnit.USD))
+                .cardToken(cardToken.token())
+                .maskedCardNumber(cardToken.maskedCardNumber())
+                .expiryMonth("12")
+                .expiryYear("2030")
+                .idempotencyKey(UUID.randomUUID().toString())
+                .merchantId("merchant-1")
+                .createdAt(attemptedAt)
+                .authorizationAttempts(attempts)
+                .attemptedAt(attemptedAt)
+                .build());
+    }
+
+    private Payment awaitSettled(long paymentId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        Payment payment;
+        while ((payment = paymentRepository.findById(paymentId).orElseThrow()).getStatus() == PaymentStatus.PENDING) {
+            assertTrue(System.nanoTime() < deadline, "Payment not settled in time");
+            Thread.sleep(10);
+        }
+        return payment;
+    }
+}
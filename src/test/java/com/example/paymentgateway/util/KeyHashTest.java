@@ -0,0 +1,27 @@
+package com.example.paymentgateway.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeyHashTest {
+
+    @Test
+    public void testHash_DependsOnlyOnTheHashedCharacters() {
+        assertEquals(KeyHash.hash("merchant-1"), KeyHash.hash(new StringBuilder("merchant-1")));
+        assertEquals(KeyHash.hash("merchant-1"), KeyHash.hash("merchant-1:card", 10, 0));
+        assertNotEquals(KeyHash.hash("merchant-1"), KeyHash.hash("merchant-2"));
+    }
+
+    @Test
+    public void testHash_DiffersPerSeed() {
+        assertNotEquals(KeyHash.hash("merchant-1", 10, 1), KeyHash.hash("merchant-1", 10, 2));
+    }
+
+    @Test
+    public void testMix_SpreadsSingleBitChanges() {
+        assertEquals(0, KeyHash.mix(0));
+        int flipped = Long.bitCount(KeyHash.mix(1) ^ KeyHash.mix(3));
+        assertTrue(flipped > 16 && flipped < 48, "Flipped bits: " + flipped);
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.paymentgateway.validation.impl;
+
+import com.example.paymentgateway.dto.PaymentRequest;
+import com.example.paymentgateway.money.CurrencyUnit;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import net.jqwik.api.*;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the hand-written validator against the Bean Validation constraints declared on {@link PaymentRequest}.
+ */
+public class PaymentRequestValidatorImplTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-06-15T10:00:00Z"), ZoneOffset.UTC);
+    private static final List<String> FIELDS = List.of("cardNumber", "expiryMonth", "expiryYear", "cvv", "amount", "currency", "idempotencyKey");
+    // Checks the annotations do not make, reported only on fields the annotations accept
+    private static final Map<String, Set<String>> ADDITIONAL_CHECKS = Map.of(
+            "cardNumber", Set.of(PaymentRequestValidatorImpl.CARD_NUMBER_INVALID),
+            "expiryYear", Set.of(PaymentRequestValidatorImpl.CARD_EXPIRED),
+            "amount", Set.of(PaymentRequestValidatorImpl.AMOUNT_TOO_PRECISE, PaymentRequestValidatorImpl.AMOUNT_TOO_LARGE),
+            "currency", Set.of(PaymentRequestValidatorImpl.CURRENCY_NOT_SUPPORTED));
+
+    private static final Validator beanValidator = Validation.buildDefaultValidatorFactory().getValidator();
+    private final PaymentRequestValidatorImpl validator = new PaymentRequestValidatorImpl(CLOCK);
+
+    @Property(tries = 5000)
+    public void testValidate_MatchesBeanValidation(@ForAll("paymentRequests") PaymentRequest request) {
+        Map<String, Set<String>> expected = new HashMap<>();
+        for (ConstraintViolation<PaymentRequest> violation : beanValidator.validate(request)) {
+            expected.computeIfAbsent(violation.getPropertyPath().toString(), field -> new HashSet<>()).add(violation.getMessage());
+        }
+        Map<String, String> actual = validator.validate(request);
+
+        assertTrue(FIELDS.containsAll(actual.keySet()), () -> "Unexpected fields " + actual.keySet());
+        for (String field : FIELDS) {
+            String message = actual.get(field);
+            Set<String> expectedMessages = expected.get(field);
+            if (expectedMessages != null) {
+                // Where several constraints fail on a field, Bean Validation reports them in no particular order
+                assertTrue(expectedMessages.contains(message), () -> field + ": expected one of " + expectedMessages + " but was " + message);
+            } else if (message != null) {
+                assertTrue(ADDITIONAL_CHECKS.getOrDefault(field, Set.of()).contains(message), () -> field + ": unexpected " + message);
+            }
+        }
+    }
+
+    @Property(tries = 2000)
+    public void testValidate_RejectsCardNumbersFailingLuhnCheck(@ForAll("sixteenCharacters") String cardNumber) {
+        boolean luhnValid = cardNumber.chars().allMatch(c -> c >= '0' && c <= '9') && luhnSum(cardNumber) % 10 == 0;
+        assertEquals(luhnValid ? null : PaymentRequestValidatorImpl.CARD_NUMBER_INVALID,
+                PaymentRequestValidatorImpl.cardNumberError(cardNumber), cardNumber);
+    }
+
+    @Property(tries = 2000)
+    public void testValidate_RejectsExpiredCards(@ForAll("months") int month, @ForAll("years") int year) {
+        PaymentRequest request = new PaymentRequest("4242424242424242", String.format("%02d", month), String.valueOf(year),
+                "123", new BigDecimal("10.00"), "USD", "key");
+        boolean expired = YearMonth.of(year, month).isBefore(YearMonth.now(CLOCK));
+        assertEquals(expired ? Map.of("expiryYear", PaymentRequestValidatorImpl.CARD_EXPIRED) : Map.of(), validator.validate(request));
+    }
+
+    @Example
+    public void testValidate_ChecksAmountAgainstCurrencyMinorUnit() {
+        assertNull(PaymentRequestValidatorImpl.amountError(new BigDecimal("100.00"), CurrencyUnit.of("JPY")));
+        assertEquals(PaymentRequestValidatorImpl.AMOUNT_TOO_PRECISE,
+                PaymentRequestValidatorImpl.amountError(new BigDecimal("100.50"), CurrencyUnit.of("JPY")));
+        assertNull(PaymentRequestValidatorImpl.amountError(new BigDecimal("1.005"), CurrencyUnit.of("KWD")));
+        assertEquals(PaymentRequestValidatorImpl.AMOUNT_TOO_LARGE,
+                PaymentRequestValidatorImpl.amountError(new BigDecimal("1E+15"), CurrencyUnit.USD));
+        // precision - scale overflows an int
+        assertEquals(PaymentRequestValidatorImpl.AMOUNT_TOO_LARGE,
+                PaymentRequestValidatorImpl.amountError(new BigDecimal(BigInteger.ONE, Integer.MIN_VALUE + 1), CurrencyUnit.USD));
+    }
+
+    @Example
+    public void testValidate_AcceptsCardExpiringThisMonth() {
+        PaymentRequest request = new PaymentRequest("4242424242424242", "06", "2026", "123", new BigDecimal("10.00"), "USD", "key");
+        assertTrue(validator.validate(request).isEmpty());
+    }
+
+    @Provide
+    Arbitrary<PaymentRequest> paymentRequests() {
+        return Combinators.combine(cardNumbers(), expiryMonths(), expiryYears(), text(), amounts(), currencies(), text())
+                .as((cardNumber, expiryMonth, expiryYear, cvv, amount, currency, idempotencyKey) ->
+                        new PaymentRequest(cardNumber, expiryMonth, expiryYear, cvv, amount, currency, idempotencyKey));
+    }
+
+    @Provide
+    Arbitrary<String> sixteenCharacters() {
+        return Arbitraries.oneOf(
+                Arbitraries.strings().numeric().ofLength(16),
+                Arbitraries.strings().numeric().ofLength(15).map(PaymentRequestValidatorImplTest::withCheckDigit),
+                Arbitraries.strings().ascii().ofLength(16));
+    }
+
+    @Provide
+    Arbitrary<Integer> months() {
+        return Arbitraries.integers().between(1, 12);
+    }
+
+    @Provide
+    Arbitrary<Integer> years() {
+        return Arbitraries.integers().between(2000, 2099);
+    }
+
+    private Arbitrary<String> text() {
+        return Arbitraries.oneOf(
+                Arbitraries.strings().withChars(" \t\n\r\u000b\u0000 ").ofMaxLength(4),
+                Arbitraries.strings().numeric().ofMaxLength(20),
+                Arbitraries.strings().ascii().ofMaxLength(20),
+                Arbitraries.strings().all().ofMaxLength(6))
+                .injectNull(0.05);
+    }
+
+    private Arbitrary<String> cardNumbers() {
+        return Arbitraries.oneOf(text(), sixteenCharacters(),
+                sixteenCharacters().map(cardNumber -> " " + cardNumber.substring(1)));
+    }
+
+    private Arbitrary<String> expiryMonths() {
+        return Arbitraries.oneOf(text(),
+                Arbitraries.integers().between(0, 13).map(month -> String.format("%02d", month)),
+                Arbitraries.integers().between(0, 13).map(String::valueOf),
+                Arbitraries.of("01\n", " 12", "1a", "٠١"));
+    }
+
+    private Arbitrary<String> expiryYears() {
+        return Arbitraries.oneOf(text(),
+                Arbitraries.integers().between(1990, 2110).map(String::valueOf),
+                Arbitraries.integers().between(0, 99).map(year -> "20" + year),
+                Arbitraries.of("2030\n", "20 0", "20a1", "20٣٠"));
+    }
+
+    private Arbitrary<BigDecimal> amounts() {
+        return Arbitraries.oneOf(
+                Arbitraries.bigDecimals().between(BigDecimal.valueOf(-1_000_000), BigDecimal.valueOf(1_000_000)).ofScale(2),
+                Arbitraries.bigDecimals().between(BigDecimal.valueOf(-10), BigDecimal.valueOf(10)).ofScale(4),
+                Arbitraries.of("0", "0.00", "-0.00", "0.001", "100.00", "100.50", "1E+2", "1E+20", "99999999999999.99")
+                        .map(BigDecimal::new))
+                .injectNull(0.05);
+    }
+
+    private Arbitrary<String> currencies() {
+        return Arbitraries.oneOf(text(), Arbitraries.of("USD", "EUR", "JPY", "KWD", "XAU", "usd", "US"));
+    }
+
+    private static String withCheckDigit(String partial) {
+        int sum = luhnSum(partial + "0");
+        return partial + (10 - sum % 10) % 10;
+    }
+
+    private static int luhnSum(String digits) {
+        int sum = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            int digit = Character.digit(digits.charAt(digits.length() - 1 - i), 10);
+            sum += i % 2 == 0 ? digit : digit * 2 / 10 + digit * 2 % 10;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.paymentgateway.vault.impl;
+
+import com.example.paymentgateway.PaymentGatewayApplication;
+import com.example.paymentgateway.persistence.VaultEntry;
+import com.example.paymentgateway.persistence.VaultEntryRepository;
+import com.example.paymentgateway.vault.CardToken;
+import com.example.paymentgateway.vault.CardVault;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = PaymentGatewayApplication.class)
+public class CardVaultImplIntegrationTest {
+
+    @Autowired
+    private CardVault cardVault;
+
+    @Autowired
+    private VaultEntryRepository vaultEntryRepository;
+
+    @Test
+    public void testTokenize_StoresEncryptedCardOnce() {
+        CardToken first = cardVault.tokenize("5500000000000004".toCharArray());
+        CardToken second = cardVault.tokenize("5500000000000004".toCharArray());
+
+        assertEquals(first.token(), second.token());
+        assertEquals("550000", first.bin());
+        assertEquals("0004", first.last4());
+        assertEquals("XXXX-XXXX-XXXX-0004", first.maskedCardNumber());
+
+        VaultEntry entry = vaultEntryRepository.findById(first.token()).orElseThrow();
+        assertFalse(new String(entry.getEncryptedCardNumber(), StandardCharsets.ISO_8859_1).contains("5500000000000004"));
+        assertArrayEquals("5500000000000004".toCharArray(), cardVault.detokenize(first.token()));
+    }
+
+    @Test
+    public void testTokenize_DifferentCardsGetDifferentTokens() {
+        assertNotEquals(cardVault.tokenize("4242424242424242".toCharArray()).token(),
+                cardVault.tokenize("4000056655665556".toCharArray()).token());
+    }
+
+    @Test
+    public void testDetokenize_UnknownToken() {
+        assertThrows(EntityNotFoundException.class, () -> cardVault.detokenize("tok_unknown"));
+    }
+
+    @Test
+    public void testMultiNodeRequiresTheKeys() {
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> new CardVaultImpl(vaultEntryRepository, "", "6URr3ld0eKBx0H9kJVHrG54WMFJpa+pUs5uKlM28wZY=", 100, true));
+        assertEquals("payment.vault.encryption-key is required with payment.cluster.multi-node", ex.getMessage());
+    }
+}